@@ -0,0 +1,112 @@
+package org.learningjava.bmtool1.domain.service.ingest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import org.learningjava.bmtool1.domain.model.pairs.Block;
+import org.learningjava.bmtool1.domain.model.pairs.BlockMapping;
+import org.learningjava.bmtool1.domain.policy.MappingConfig;
+import org.learningjava.bmtool1.domain.policy.MappingRule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BlockMapper on one large synthetic pair, against the pairwise rule check it replaced.
+ * Run with {@code mvn -Pbench test-compile exec:exec}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BlockMapperBenchmark {
+
+    @Param({"200", "2000"})
+    int plsqlBlocks;
+
+    @Param({"500", "5000"})
+    int javaBlocks;
+
+    private BlockMapper mapper;
+    private List<MappingRule> rules;
+    private List<Block> plsql;
+    private List<Block> java;
+
+    @Setup
+    public void setUp() throws Exception {
+        mapper = new BlockMapper();
+        try (InputStream in = getClass().getResourceAsStream("/policy_rules/rules.yml")) {
+            rules = new ObjectMapper(new YAMLFactory()).readValue(in, MappingConfig.class).getRules();
+        }
+
+        Random random = new Random(7);
+        String[] targets = {"v_exc_code", "v_exc_category", "v_sol_code", "v_tmp", "v_count"};
+        String[] names = {"eventCode", "predicate", "transformation", "load", "save", "validate"};
+        plsql = new ArrayList<>(plsqlBlocks);
+        for (int i = 0; i < plsqlBlocks; i++) {
+            plsql.add(switch (i % 3) {
+                case 0 -> new Block("ASSIGNMENT_CONST_STRING", targets[random.nextInt(targets.length)] + ":='E" + i + "'", "pkg.sql");
+                case 1 -> new Block("CONDITION", "IFv_status" + i + "='Y'THENv_flag:=1;ENDIF;", "pkg.sql");
+                default -> new Block("INSERT_STATEMENT", "INSERT INTO t" + i + " (a, b)\nVALUES (" + i + ", 'x')", "pkg.sql");
+            });
+        }
+        java = new ArrayList<>(javaBlocks);
+        for (int i = 0; i < javaBlocks; i++) {
+            StringBuilder body = new StringBuilder("public Object ")
+                    .append(names[random.nextInt(names.length)]).append(i).append("(Context ctx) {\n");
+            for (int line = random.nextInt(40); line > 0; line--) {
+                body.append("    ctx.put(\"k").append(line).append("\", ctx.get(\"v").append(i).append("\"));\n");
+            }
+            java.add(new Block("METHOD", body.append("    return ctx;\n}").toString(), "Mapper.java"));
+        }
+    }
+
+    @Benchmark
+    public List<BlockMapping> compiledRules() {
+        return mapper.map(plsql, java);
+    }
+
+    @Benchmark
+    public int pairwiseRules() {
+        int mapped = 0;
+        for (Block p : plsql) {
+            Block best = java.stream().filter(j -> isEquivalent(p, j))
+                    .min(Comparator.comparingInt(b -> b.text().length())).orElse(null);
+            if (best != null) mapped++;
+        }
+        return mapped;
+    }
+
+    // BlockMapper.isEquivalent as it was before CompiledRules
+    private boolean isEquivalent(Block plsql, Block java) {
+        for (MappingRule rule : rules) {
+            if (plsql.type().equals(rule.getPlsqlType()) && java.type().equals(rule.getJavaType())) {
+                if (rule.getPlsqlContains() != null && !rule.getPlsqlContains().isBlank()) {
+                    String lhs = plsql.text().split(":=", 2)[0].trim().toLowerCase();
+                    if (!lhs.matches(".*(" + rule.getPlsqlContains().toLowerCase() + ").*")) continue;
+                }
+                String javaText = java.text().toLowerCase();
+                String contains = rule.getJavaContains().toLowerCase();
+                if (javaText.contains(" " + contains + "(") || javaText.startsWith(contains + "(")) return true;
+                if (javaText.contains(contains)) return true;
+            }
+        }
+        return false;
+    }
+}
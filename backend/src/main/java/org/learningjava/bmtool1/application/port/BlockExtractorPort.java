@@ -7,4 +7,14 @@ import java.util.List;
 
 public interface BlockExtractorPort {
     List<Block> extract(Path sourceFile) throws Exception;
+
+    /** Names the extractor and every setting that changes its output; incremental ingest re-maps pairs when it changes. */
+    default String version() {
+        return getClass().getSimpleName();
+    }
+
+    /** Extracts from a file already held in memory; {@code name} labels its blocks and log lines. */
+    default List<Block> extract(String name, byte[] content) throws Exception {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " only reads files from disk");
+    }
 }
@@ -0,0 +1,128 @@
+package org.learningjava.bmtool1.application.port;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cooperative cancellation handle passed down to outbound adapters.
+ *
+ * Adapters register a callback that aborts their in-flight I/O (e.g. {@code Call::cancel});
+ * callbacks registered after {@link #cancel()} run immediately. A token created with
+ * {@link #withDeadline(Duration)} cancels itself when the deadline passes; {@link #close()}
+ * releases that timer once the request is over.
+ */
+public final class CancellationToken implements AutoCloseable {
+
+    public enum Reason { CANCELLED, DEADLINE_EXCEEDED }
+
+    private static final ScheduledThreadPoolExecutor TIMER = timer();
+
+    private final List<Runnable> callbacks = new ArrayList<>();
+    private final long deadlineNanos;   // System.nanoTime() based; Long.MAX_VALUE = none
+    private boolean cancelled;
+    private Reason reason;
+    private ScheduledFuture<?> deadlineTask;
+
+    public CancellationToken() {
+        this.deadlineNanos = Long.MAX_VALUE;
+    }
+
+    private CancellationToken(long deadlineNanos) {
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    /** A token that cancels itself with {@link Reason#DEADLINE_EXCEEDED} after {@code timeout}. */
+    public static CancellationToken withDeadline(Duration timeout) {
+        CancellationToken t = new CancellationToken(System.nanoTime() + timeout.toNanos());
+        ScheduledFuture<?> task = TIMER.schedule(() -> t.cancel(Reason.DEADLINE_EXCEEDED),
+                timeout.toNanos(), TimeUnit.NANOSECONDS);
+        synchronized (t) {
+            t.deadlineTask = task;
+        }
+        return t;
+    }
+
+    /** A token that is cancelled whenever this one is, but can also be cancelled on its own. */
+    public CancellationToken child() {
+        CancellationToken c = new CancellationToken(deadlineNanos);
+        onCancel(() -> c.cancel(reason()));
+        return c;
+    }
+
+    public void cancel() {
+        cancel(Reason.CANCELLED);
+    }
+
+    public void cancel(Reason why) {
+        List<Runnable> toRun;
+        synchronized (this) {
+            if (cancelled) return;
+            cancelled = true;
+            reason = why == null ? Reason.CANCELLED : why;
+            toRun = List.copyOf(callbacks);
+            callbacks.clear();
+            if (deadlineTask != null) deadlineTask.cancel(false);
+        }
+        toRun.forEach(CancellationToken::runQuietly);
+    }
+
+    public synchronized boolean isCancelled() {
+        return cancelled;
+    }
+
+    /** Why the token was cancelled, or null while it is not. */
+    public synchronized Reason reason() {
+        return reason;
+    }
+
+    /** Time left before the deadline; null when the token has none. */
+    public Duration remaining() {
+        if (deadlineNanos == Long.MAX_VALUE) return null;
+        return Duration.ofNanos(Math.max(0, deadlineNanos - System.nanoTime()));
+    }
+
+    /** Throws {@link RequestCancelledException} if the token is cancelled; call between pipeline stages. */
+    public void throwIfCancelled(String stage) {
+        Reason r = reason();
+        if (r != null) throw new RequestCancelledException(r, stage);
+    }
+
+    public void onCancel(Runnable callback) {
+        synchronized (this) {
+            if (!cancelled) {
+                callbacks.add(callback);
+                return;
+            }
+        }
+        runQuietly(callback);
+    }
+
+    /** Releases the deadline timer; does not cancel. */
+    @Override
+    public synchronized void close() {
+        if (deadlineTask != null) deadlineTask.cancel(false);
+        callbacks.clear();
+    }
+
+    private static void runQuietly(Runnable r) {
+        try {
+            r.run();
+        } catch (RuntimeException ignored) {
+            // aborting I/O is best-effort
+        }
+    }
+
+    private static ScheduledThreadPoolExecutor timer() {
+        ScheduledThreadPoolExecutor t = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread th = new Thread(r, "request-deadlines");
+            th.setDaemon(true);
+            return th;
+        });
+        t.setRemoveOnCancelPolicy(true);
+        return t;
+    }
+}
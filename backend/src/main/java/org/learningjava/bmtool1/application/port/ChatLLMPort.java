@@ -1,6 +1,21 @@
 package org.learningjava.bmtool1.application.port;
 
+import java.util.concurrent.CompletableFuture;
+
 public interface ChatLLMPort {
+
+    /**
+     * Marks where the stable part of a prompt (instructions, retrieved context) ends and the question begins;
+     * adapters with provider-side prompt caching put their cache breakpoint at its first occurrence. A
+     * private-use character, so no rendered text contains it; every adapter strips it before sending.
+     */
+    String PROMPT_CACHE_BOUNDARY = "\uE000";
+
+    /** {@code prompt} as the provider should see it, without the cache boundary marker. */
+    static String withoutCacheBoundary(String prompt) {
+        return prompt == null ? null : prompt.replace(PROMPT_CACHE_BOUNDARY, "");
+    }
+
     String provider();
 
     String chat(String prompt, String model);
@@ -11,7 +26,62 @@ public interface ChatLLMPort {
         return new ChatResult(chat(prompt, model), null);
     }
 
-    record Usage(Integer promptTokens, Integer completionTokens) {}
-    record ChatResult(String text, Usage usage) {}
+    /**
+     * Same as {@link #chatWithUsage(String, String)} but abortable: adapters that support it cancel the
+     * underlying HTTP call when {@code token} is cancelled. The default ignores the token.
+     */
+    default ChatResult chatWithUsage(String prompt, String model, CancellationToken token) {
+        return chatWithUsage(prompt, model);
+    }
+
+    /**
+     * Non-blocking {@link #chatWithUsage(String, String, CancellationToken)}; {@code token} may be null.
+     * The default runs the blocking call on a virtual thread, adapters with an async HTTP client override it.
+     */
+    default CompletableFuture<ChatResult> chatWithUsageAsync(String prompt, String model, CancellationToken token) {
+        return CompletableFuture.supplyAsync(() -> chatWithUsage(prompt, model, token), Thread::startVirtualThread);
+    }
+
+    /** Context window (tokens) the adapter actually requests for {@code model}, or null when the provider decides. */
+    default Integer contextWindow(String model) {
+        return null;
+    }
+
+    /** Hint that {@code model} is about to be used, so adapters with local models can load it early. */
+    default void warmUp(String model) {
+    }
+
+    // Generation options that influence the output (temperature, context size, ...); part of cache keys
+    default String cacheOptions() {
+        return "";
+    }
+
+    /**
+     * Token counts; {@code estimated} when filled in locally because the provider did not report them.
+     * {@code cachedTokens} is the part of the prompt the provider served from its prompt cache, null if not reported.
+     */
+    record Usage(Integer promptTokens, Integer completionTokens, boolean estimated, Integer cachedTokens) {
+        public Usage(Integer promptTokens, Integer completionTokens, boolean estimated) {
+            this(promptTokens, completionTokens, estimated, null);
+        }
+
+        public Usage(Integer promptTokens, Integer completionTokens) {
+            this(promptTokens, completionTokens, false, null);
+        }
+    }
+
+    /**
+     * {@code cached} when the answer was replayed from a response cache instead of generated by this call;
+     * {@code usage} is then the original call's and was not spent again.
+     */
+    record ChatResult(String text, Usage usage, boolean cached) {
+        public ChatResult(String text, Usage usage) {
+            this(text, usage, false);
+        }
+
+        public ChatResult asCached() {
+            return cached ? this : new ChatResult(text, usage, true);
+        }
+    }
 
 }
@@ -0,0 +1,18 @@
+package org.learningjava.bmtool1.application.port;
+
+import org.learningjava.bmtool1.application.port.ChatLLMPort.ChatResult;
+
+import java.time.Instant;
+import java.util.Optional;
+
+public interface ChatResponseCachePort {
+    void ensureSchema();
+
+    // Returns the cached result for key if it was stored at or after notBefore
+    Optional<ChatResult> find(String key, Instant notBefore);
+
+    void put(String key, String provider, String model, ChatResult result);
+
+    // Drops entries older than notBefore, then keeps only the maxEntries most recently used
+    int prune(Instant notBefore, int maxEntries);
+}
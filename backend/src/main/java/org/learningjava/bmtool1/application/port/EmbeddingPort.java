@@ -1,9 +1,24 @@
 package org.learningjava.bmtool1.application.port;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public interface EmbeddingPort {
     float[] embed(String text);
 
+    /** Abortable {@link #embed(String)}; the default only checks the token before calling. */
+    default float[] embed(String text, CancellationToken token) {
+        if (token != null) token.throwIfCancelled("embedding");
+        return embed(text);
+    }
+
+    /**
+     * Non-blocking {@link #embed(String, CancellationToken)}; {@code token} may be null. The default runs
+     * the blocking call on a virtual thread, adapters with an async HTTP client override it.
+     */
+    default CompletableFuture<float[]> embedAsync(String text, CancellationToken token) {
+        return CompletableFuture.supplyAsync(() -> embed(text, token), Thread::startVirtualThread);
+    }
+
     List<float[]> embedBatch(List<String> texts);
 }
\ No newline at end of file
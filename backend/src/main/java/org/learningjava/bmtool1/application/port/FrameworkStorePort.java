@@ -3,6 +3,7 @@ package org.learningjava.bmtool1.application.port;
 import org.learningjava.bmtool1.domain.model.framework.FrameworkSymbol;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public interface FrameworkStorePort {
     void ensureSchema();  // ensures FrameworkSnippet schema
@@ -10,4 +11,19 @@ public interface FrameworkStorePort {
     void upsertSymbols(List<FrameworkSymbol> symbols, List<float[]> vectors);
 
     List<FrameworkSymbol> retrieve(String query, float[] queryVec, int k, List<String> mustHaveTags);
+
+    /** Abortable {@link #retrieve}; the default only checks the token before calling. */
+    default List<FrameworkSymbol> retrieve(String query, float[] queryVec, int k, List<String> mustHaveTags,
+                                           CancellationToken token) {
+        if (token != null) token.throwIfCancelled("framework retrieval");
+        return retrieve(query, queryVec, k, mustHaveTags);
+    }
+
+    /** Non-blocking abortable {@link #retrieve}; the default uses a virtual thread. */
+    default CompletableFuture<List<FrameworkSymbol>> retrieveAsync(String query, float[] queryVec, int k,
+                                                                   List<String> mustHaveTags,
+                                                                   CancellationToken token) {
+        return CompletableFuture.supplyAsync(() -> retrieve(query, queryVec, k, mustHaveTags, token),
+                Thread::startVirtualThread);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,24 @@
+package org.learningjava.bmtool1.application.port;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/** Reads an uploaded archive of SQL and Java sources into memory, ready for pair discovery. */
+public interface PairArchivePort {
+
+    /**
+     * Reads the source entries of a zip, tar or gzipped tar archive in one pass; other entries are skipped.
+     * The returned reader discovers pairs by entry path and never touches the disk.
+     *
+     * @throws TooLargeException when the archive exceeds the configured entry or size limits
+     * @throws IOException when the stream is not a readable archive
+     */
+    PairReaderPort read(InputStream archive, String name) throws IOException;
+
+    /** The archive unpacks to more entries or bytes than an upload may hold in memory. */
+    class TooLargeException extends IOException {
+        public TooLargeException(String message) {
+            super(message);
+        }
+    }
+}
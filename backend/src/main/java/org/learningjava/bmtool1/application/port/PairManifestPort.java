@@ -0,0 +1,22 @@
+package org.learningjava.bmtool1.application.port;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * What was last ingested per pair, so a re-ingest only processes pairs that changed. Entries are grouped
+ * by scope, the normalized root directory they were discovered under.
+ */
+public interface PairManifestPort {
+
+    /** {@code mappingVersion} names the extractors and mapping rules that produced the pair's mappings. */
+    record Entry(String pairId, String plsqlPath, String javaPath, String fingerprint, String contentHash,
+                 int mappings, String mappingVersion) {}
+
+    // pairId -> entry
+    Map<String, Entry> load(String scope);
+
+    void put(String scope, Entry entry);
+
+    void remove(String scope, Collection<String> pairIds);
+}
@@ -2,10 +2,37 @@ package org.learningjava.bmtool1.application.port;
 
 import org.learningjava.bmtool1.domain.model.pairs.SourcePair;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
 import java.util.List;
 
 public interface PairReaderPort {
     List<SourcePair> discoverPairs(String rootDir); // e.g., pairs by name: foo.sql ↔ foo.java
 
     String readFile(String path);
+
+    /** The file's bytes when this reader holds them in memory; null means {@code path} is on disk. */
+    default byte[] content(String path) {
+        return null;
+    }
+
+    /** Cheap change indicator such as sizes and modification times; null when the reader has none. */
+    default String fingerprint(SourcePair pair) {
+        return null;
+    }
+
+    /** SHA-256 over both sides; an unchanged hash means the pair's mappings are still current. */
+    default String contentHash(SourcePair pair) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            md.update(readFile(pair.plsqlPath()).getBytes(StandardCharsets.UTF_8));
+            md.update((byte) 0);
+            md.update(readFile(pair.javaPath()).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(md.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
 }
@@ -0,0 +1,10 @@
+package org.learningjava.bmtool1.application.port;
+
+/** Progress callback for long-running use cases; web adapters map it onto their job tracking. */
+@FunctionalInterface
+public interface ProgressListener {
+
+    ProgressListener NONE = (done, total, message) -> { };
+
+    void onProgress(int done, int total, String message);
+}
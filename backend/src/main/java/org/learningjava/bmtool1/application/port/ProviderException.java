@@ -0,0 +1,44 @@
+package org.learningjava.bmtool1.application.port;
+
+import java.io.InterruptedIOException;
+import java.net.http.HttpTimeoutException;
+
+/**
+ * Failure reported by an LLM provider adapter.
+ *
+ * Extends {@link IllegalStateException} so existing callers keep working; the extra status lets
+ * decorators tell overload (429, 5xx, timeouts) apart from caller errors (400, 401, 404).
+ * {@code status} is 0 when no HTTP response was received.
+ */
+public class ProviderException extends IllegalStateException {
+
+    private final String provider;
+    private final int status;
+
+    public ProviderException(String provider, int status, String message, Throwable cause) {
+        super(message, cause);
+        this.provider = provider;
+        this.status = status;
+    }
+
+    public ProviderException(String provider, int status, String message) {
+        this(provider, status, message, null);
+    }
+
+    public String provider() { return provider; }
+
+    public int status() { return status; }
+
+    /** True for responses and failures that indicate the provider is saturated. */
+    public boolean isOverload() {
+        return status == 429 || status >= 500 || (status == 0 && isTimeout(this));
+    }
+
+    public static boolean isTimeout(Throwable t) {
+        for (Throwable c = t; c != null; c = c.getCause()) {
+            if (c instanceof InterruptedIOException) return true; // SocketTimeoutException, OkHttp call timeouts
+            if (c instanceof HttpTimeoutException) return true;   // java.net.http client
+        }
+        return false;
+    }
+}
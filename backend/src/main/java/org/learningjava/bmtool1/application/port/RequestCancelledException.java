@@ -0,0 +1,21 @@
+package org.learningjava.bmtool1.application.port;
+
+/** Thrown when a request's {@link CancellationToken} was cancelled or its deadline passed. */
+public class RequestCancelledException extends RuntimeException {
+
+    private final CancellationToken.Reason reason;
+
+    public RequestCancelledException(CancellationToken.Reason reason, String stage) {
+        super((reason == CancellationToken.Reason.DEADLINE_EXCEEDED ? "Deadline exceeded" : "Request cancelled")
+                + (stage == null ? "" : " during " + stage));
+        this.reason = reason;
+    }
+
+    public CancellationToken.Reason reason() {
+        return reason;
+    }
+
+    public boolean deadlineExceeded() {
+        return reason == CancellationToken.Reason.DEADLINE_EXCEEDED;
+    }
+}
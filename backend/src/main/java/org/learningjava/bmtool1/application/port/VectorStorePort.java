@@ -3,12 +3,29 @@ package org.learningjava.bmtool1.application.port;
 import org.learningjava.bmtool1.domain.model.pairs.BlockMapping;
 import org.learningjava.bmtool1.domain.model.pairs.RetrievalResult;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public interface VectorStorePort {
     void ensureSchema();
 
     void upsertMappings(List<BlockMapping> mappings, List<float[]> vectors);
 
+    /** Removes every stored mapping of the given pairs. */
+    void deleteMappings(Collection<String> pairIds);
+
     List<RetrievalResult> query(String query, float[] queryVec, int k);
+
+    /** Abortable {@link #query(String, float[], int)}; the default only checks the token before calling. */
+    default List<RetrievalResult> query(String query, float[] queryVec, int k, CancellationToken token) {
+        if (token != null) token.throwIfCancelled("doc retrieval");
+        return query(query, queryVec, k);
+    }
+
+    /** Non-blocking {@link #query(String, float[], int, CancellationToken)}; the default uses a virtual thread. */
+    default CompletableFuture<List<RetrievalResult>> queryAsync(String query, float[] queryVec, int k,
+                                                                CancellationToken token) {
+        return CompletableFuture.supplyAsync(() -> query(query, queryVec, k, token), Thread::startVirtualThread);
+    }
 }
@@ -0,0 +1,173 @@
+// src/main/java/org/learningjava/bmtool1/application/usecase/ExperimentWriteBehind.java
+package org.learningjava.bmtool1.application.usecase;
+
+import jakarta.annotation.PreDestroy;
+import org.learningjava.bmtool1.application.port.ExperimentStorePort;
+import org.learningjava.bmtool1.domain.model.analytics.Experiment;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded write-behind queue for experiment rows.
+ *
+ * Callers hand rows over with {@link #submit(Experiment)} and return immediately; a single
+ * background thread flushes them through {@link ExperimentStorePort#upsertBatch(List)} as soon as
+ * either {@code batchSize} rows are waiting or {@code flushIntervalMs} has passed since the first
+ * row of the batch arrived. Pending rows are drained on shutdown.
+ */
+@Service
+public class ExperimentWriteBehind {
+
+    private static final Logger log = LoggerFactory.getLogger(ExperimentWriteBehind.class);
+
+    /** What to do when the queue is full. */
+    public enum OverflowPolicy {
+        CALLER_RUNS,   // write synchronously on the submitting thread (no data loss)
+        DROP_NEWEST,   // discard the row being submitted
+        DROP_OLDEST    // discard the oldest queued row to make room
+    }
+
+    private final ExperimentStorePort store;
+    private final boolean enabled;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final long shutdownTimeoutMs;
+    private final OverflowPolicy overflow;
+    private final BlockingQueue<Experiment> queue;
+    private final Thread flusher;
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile boolean running;
+
+    public ExperimentWriteBehind(ExperimentStorePort store,
+                                 @Value("${bmtool1.experiments.write-behind.enabled:true}") boolean enabled,
+                                 @Value("${bmtool1.experiments.write-behind.capacity:1000}") int capacity,
+                                 @Value("${bmtool1.experiments.write-behind.batch-size:50}") int batchSize,
+                                 @Value("${bmtool1.experiments.write-behind.flush-interval-ms:2000}") long flushIntervalMs,
+                                 @Value("${bmtool1.experiments.write-behind.shutdown-timeout-ms:10000}") long shutdownTimeoutMs,
+                                 @Value("${bmtool1.experiments.write-behind.overflow:CALLER_RUNS}") OverflowPolicy overflow) {
+        this.store = store;
+        this.enabled = enabled;
+        this.batchSize = Math.max(1, batchSize);
+        this.flushIntervalMs = Math.max(1L, flushIntervalMs);
+        this.shutdownTimeoutMs = Math.max(0L, shutdownTimeoutMs);
+        this.overflow = overflow == null ? OverflowPolicy.CALLER_RUNS : overflow;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, capacity));
+
+        if (enabled) {
+            this.running = true;
+            this.flusher = new Thread(this::runLoop, "experiment-write-behind");
+            this.flusher.setDaemon(true);
+            this.flusher.start();
+            log.info("Experiment write-behind enabled (capacity={}, batchSize={}, flushIntervalMs={}, overflow={})",
+                    capacity, this.batchSize, this.flushIntervalMs, this.overflow);
+        } else {
+            this.flusher = null;
+        }
+    }
+
+    /** Queue one experiment row for persistence. Never throws on storage errors. */
+    public void submit(Experiment e) {
+        if (e == null) return;
+        if (!enabled || !running) {
+            writeNow(List.of(e));
+            return;
+        }
+        if (queue.offer(e)) return;
+
+        switch (overflow) {
+            case CALLER_RUNS -> writeNow(List.of(e));
+            case DROP_NEWEST -> {
+                long n = dropped.incrementAndGet();
+                log.warn("Experiment write-behind queue full; dropped newest row (dropped so far={})", n);
+            }
+            case DROP_OLDEST -> {
+                if (queue.poll() != null) dropped.incrementAndGet();
+                if (!queue.offer(e)) dropped.incrementAndGet();
+                log.warn("Experiment write-behind queue full; dropped oldest row (dropped so far={})", dropped.get());
+            }
+        }
+    }
+
+    /** Rows currently waiting to be flushed. */
+    public int pending() {
+        return queue.size();
+    }
+
+    /** Rows discarded by the overflow policy since startup. */
+    public long droppedCount() {
+        return dropped.get();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (flusher == null || !running) return;
+        running = false;
+        try {
+            flusher.join(shutdownTimeoutMs);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+        // Whatever the flusher could not get to in time is written on the calling thread.
+        List<Experiment> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        if (!rest.isEmpty()) {
+            log.info("Draining {} pending experiment rows on shutdown", rest.size());
+            for (int i = 0; i < rest.size(); i += batchSize) {
+                writeNow(rest.subList(i, Math.min(rest.size(), i + batchSize)));
+            }
+        }
+    }
+
+    /* ------------------------ internals ------------------------ */
+
+    private void runLoop() {
+        List<Experiment> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                Experiment first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+
+                // Size threshold OR time threshold (measured from the first row of this batch)
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+                while (batch.size() < batchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) break;
+                    Experiment next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) break;
+                    batch.add(next);
+                }
+                writeNow(batch);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                break;
+            } finally {
+                batch.clear();
+            }
+        }
+        // Final drain by the flusher itself; shutdown() picks up anything left after the timeout.
+        queue.drainTo(batch);
+        for (int i = 0; i < batch.size(); i += batchSize) {
+            writeNow(batch.subList(i, Math.min(batch.size(), i + batchSize)));
+        }
+    }
+
+    private void writeNow(List<Experiment> rows) {
+        if (rows.isEmpty()) return;
+        try {
+            List<Long> ids = store.upsertBatch(List.copyOf(rows));
+            log.debug("Flushed {} experiment rows (ids={})", rows.size(), ids);
+        } catch (Exception ex) {
+            log.warn("Experiment logging failed for batch of {} (non-fatal): {}", rows.size(), ex.toString());
+        }
+    }
+}
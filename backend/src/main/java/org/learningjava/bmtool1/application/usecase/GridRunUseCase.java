@@ -0,0 +1,245 @@
+// src/main/java/org/learningjava/bmtool1/application/usecase/GridRunUseCase.java
+package org.learningjava.bmtool1.application.usecase;
+
+import org.learningjava.bmtool1.application.port.ProgressListener;
+import org.learningjava.bmtool1.config.GridProperties;
+import org.learningjava.bmtool1.domain.model.framework.FrameworkRetrievalResult;
+import org.learningjava.bmtool1.domain.model.pairs.RetrievalResult;
+import org.learningjava.bmtool1.domain.model.query.Query;
+import org.learningjava.bmtool1.domain.model.query.RetrievedContext;
+import org.learningjava.bmtool1.domain.service.ChatRegistry;
+import org.learningjava.bmtool1.domain.service.prompting.PromptingTechnique;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs questions × providers × models × techniques × (kDocs, kFramework) in one go.
+ *
+ * Each question is embedded once, documents are retrieved once per distinct kDocs and framework
+ * symbols once per distinct kFramework; every LLM cell then reuses that context through
+ * {@link Orchestrator#answer}. LLM calls run on virtual threads, bounded per provider by
+ * {@link GridProperties}. A failing cell is reported and does not stop the grid.
+ */
+@Service
+public class GridRunUseCase {
+
+    private static final Logger log = LoggerFactory.getLogger(GridRunUseCase.class);
+
+    public record KPair(int kDocs, int kFramework) {}
+
+    public record GridSpec(
+            List<String> questions,
+            Map<String, List<String>> models,          // provider -> LLM models
+            List<PromptingTechnique> techniques,
+            List<KPair> kPairs,
+            String embeddingModel,
+            List<String> tags
+    ) {
+        public int cellCount() {
+            int llmCells = models.values().stream().mapToInt(List::size).sum();
+            return questions.size() * llmCells * techniques.size() * kPairs.size();
+        }
+    }
+
+    public record CellResult(
+            String question,
+            String provider,
+            String llmModel,
+            PromptingTechnique technique,
+            int kDocs,
+            int kFramework,
+            boolean ok,
+            String error
+    ) {}
+
+    public record GridResult(
+            int total,
+            int succeeded,
+            int failed,
+            int embeddings,
+            int docRetrievals,
+            int frameworkRetrievals,
+            List<CellResult> cells
+    ) {}
+
+    private record Timed<T>(T value, long nanos) {}
+
+    private final Orchestrator orchestrator;
+    private final ChatRegistry chatRegistry;
+    private final GridProperties props;
+
+    public GridRunUseCase(Orchestrator orchestrator, ChatRegistry chatRegistry, GridProperties props) {
+        this.orchestrator = orchestrator;
+        this.chatRegistry = chatRegistry;
+        this.props = props;
+    }
+
+    /** Rejects empty dimensions and unknown providers before any work is done. */
+    public void validate(GridSpec spec) {
+        if (spec == null) throw new IllegalArgumentException("Grid spec is required");
+        if (isEmpty(spec.questions())) throw new IllegalArgumentException("questions must not be empty");
+        if (spec.models() == null || spec.models().isEmpty()) throw new IllegalArgumentException("models must not be empty");
+        if (isEmpty(spec.techniques())) throw new IllegalArgumentException("techniques must not be empty");
+        if (isEmpty(spec.kPairs())) throw new IllegalArgumentException("kPairs must not be empty");
+        if (spec.embeddingModel() == null || spec.embeddingModel().isBlank())
+            throw new IllegalArgumentException("embeddingModel is required");
+        for (var e : spec.models().entrySet()) {
+            if (chatRegistry.get(e.getKey()) == null) throw new IllegalArgumentException("Unknown provider: " + e.getKey());
+            if (isEmpty(e.getValue())) throw new IllegalArgumentException("No models for provider: " + e.getKey());
+        }
+    }
+
+    public GridResult run(GridSpec spec, ProgressListener progress) {
+        validate(spec);
+        ProgressListener listener = progress == null ? ProgressListener.NONE : progress;
+
+        int total = spec.cellCount();
+        AtomicInteger done = new AtomicInteger();
+        int embeddings = 0, docRetrievals = 0, fwRetrievals = 0;
+
+        Map<String, Semaphore> permits = new HashMap<>();
+        spec.models().keySet().forEach(p -> permits.put(p, new Semaphore(props.concurrencyFor(p), true)));
+
+        // Cells of the first question start with each provider's first model; load it while we embed/retrieve
+        spec.models().forEach((p, models) -> orchestrator.warmUp(p, models.get(0)));
+
+        List<Future<CellResult>> futures = new ArrayList<>(total);
+        List<CellResult> failedUpfront = new ArrayList<>();
+
+        try (ExecutorService exec = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (String question : spec.questions()) {
+                // Retrieval for the next question overlaps with LLM cells of the previous one
+                Map<Integer, Timed<List<RetrievalResult>>> docsByK = new HashMap<>();
+                Map<Integer, Timed<List<FrameworkRetrievalResult>>> fwByK = new HashMap<>();
+                Timed<float[]> qVec;
+                try {
+                    qVec = timed(() -> orchestrator.embed(question));
+                    embeddings++;
+                    for (KPair kp : spec.kPairs()) {
+                        if (!docsByK.containsKey(kp.kDocs())) {
+                            docsByK.put(kp.kDocs(), timed(() -> orchestrator.retrieveDocs(question, qVec.value(), kp.kDocs())));
+                            docRetrievals++;
+                        }
+                        if (!fwByK.containsKey(kp.kFramework())) {
+                            fwByK.put(kp.kFramework(), timed(() ->
+                                    orchestrator.retrieveFramework(question, qVec.value(), kp.kFramework(), spec.tags())));
+                            fwRetrievals++;
+                        }
+                    }
+                } catch (Exception e) {
+                    log.warn("Grid: retrieval failed for question '{}': {}", question, e.toString());
+                    for (CellResult cell : cellsFor(spec, question, "retrieval failed: " + e.getMessage())) {
+                        failedUpfront.add(cell);
+                        listener.onProgress(done.incrementAndGet(), total, "retrieval failed");
+                    }
+                    continue;
+                }
+
+                // Model-major order: with a fair permit, cells of one model run back to back over the same
+                // context, so Ollama keeps the model loaded and reuses its KV cache for the shared prefix
+                Map<KPair, RetrievedContext> ctxByK = new HashMap<>();
+                for (KPair kp : spec.kPairs()) {
+                    Timed<List<RetrievalResult>> docs = docsByK.get(kp.kDocs());
+                    Timed<List<FrameworkRetrievalResult>> fw = fwByK.get(kp.kFramework());
+                    ctxByK.put(kp, new RetrievedContext(kp.kDocs(), kp.kFramework(),
+                            docs.value(), fw.value(), qVec.nanos() + docs.nanos() + fw.nanos()));
+                }
+
+                for (var pm : spec.models().entrySet()) {
+                    String provider = pm.getKey();
+                    for (String model : pm.getValue()) {
+                        for (KPair kp : spec.kPairs()) {
+                            RetrievedContext ctx = ctxByK.get(kp);
+                            for (PromptingTechnique technique : spec.techniques()) {
+                                futures.add(exec.submit(() -> {
+                                    CellResult r = runCell(question, ctx, provider, model, spec.embeddingModel(),
+                                            technique, permits.get(provider));
+                                    listener.onProgress(done.incrementAndGet(), total,
+                                            provider + "/" + model + " " + technique + (r.ok() ? "" : " FAILED"));
+                                    return r;
+                                }));
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        List<CellResult> cells = new ArrayList<>(failedUpfront);
+        for (Future<CellResult> f : futures) {
+            try {
+                cells.add(f.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Grid run interrupted", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Grid cell crashed", e.getCause());
+            }
+        }
+
+        int ok = (int) cells.stream().filter(CellResult::ok).count();
+        log.info("Grid finished: {} cells ({} ok, {} failed), {} embeddings, {} doc + {} framework retrievals",
+                cells.size(), ok, cells.size() - ok, embeddings, docRetrievals, fwRetrievals);
+        return new GridResult(total, ok, cells.size() - ok, embeddings, docRetrievals, fwRetrievals, cells);
+    }
+
+    /* ---------- helpers ---------- */
+
+    private CellResult runCell(String question, RetrievedContext ctx, String provider, String model,
+                               String embeddingModel, PromptingTechnique technique, Semaphore permit) {
+        try {
+            permit.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return cell(question, ctx, provider, model, technique, "interrupted");
+        }
+        try {
+            orchestrator.answer(new Query(question), ctx, provider, model, embeddingModel, technique);
+            return new CellResult(question, provider, model, technique, ctx.kDocs(), ctx.kFramework(), true, null);
+        } catch (Exception e) {
+            log.warn("Grid cell failed ({}/{} {} k={}/{}): {}", provider, model, technique,
+                    ctx.kDocs(), ctx.kFramework(), e.toString());
+            return cell(question, ctx, provider, model, technique, e.getMessage());
+        } finally {
+            permit.release();
+        }
+    }
+
+    private static CellResult cell(String question, RetrievedContext ctx, String provider, String model,
+                                   PromptingTechnique technique, String error) {
+        return new CellResult(question, provider, model, technique, ctx.kDocs(), ctx.kFramework(), false, error);
+    }
+
+    private static List<CellResult> cellsFor(GridSpec spec, String question, String error) {
+        List<CellResult> out = new ArrayList<>();
+        for (KPair kp : spec.kPairs())
+            for (var pm : spec.models().entrySet())
+                for (String model : pm.getValue())
+                    for (PromptingTechnique t : spec.techniques())
+                        out.add(new CellResult(question, pm.getKey(), model, t, kp.kDocs(), kp.kFramework(), false, error));
+        return out;
+    }
+
+    private static <T> Timed<T> timed(Supplier<T> s) {
+        long t0 = System.nanoTime();
+        T v = s.get();
+        return new Timed<>(v, System.nanoTime() - t0);
+    }
+
+    private static boolean isEmpty(List<?> l) {
+        return l == null || l.isEmpty();
+    }
+}
@@ -2,105 +2,551 @@ package org.learningjava.bmtool1.application.usecase;
 
 import org.learningjava.bmtool1.application.port.BlockExtractorPort;
 import org.learningjava.bmtool1.application.port.EmbeddingPort;
+import org.learningjava.bmtool1.application.port.PairManifestPort;
 import org.learningjava.bmtool1.application.port.PairReaderPort;
+import org.learningjava.bmtool1.application.port.ProgressListener;
 import org.learningjava.bmtool1.application.port.VectorStorePort;
+import org.learningjava.bmtool1.config.IngestProperties;
 import org.learningjava.bmtool1.domain.model.pairs.Block;
 import org.learningjava.bmtool1.domain.model.pairs.BlockMapping;
 import org.learningjava.bmtool1.domain.model.pairs.SourcePair;
 import org.learningjava.bmtool1.domain.service.ingest.BlockMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 
 import java.nio.file.Path;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 
+/**
+ * Parses, maps, embeds and stores every SQL–Java pair under a directory.
+ *
+ * The stages overlap instead of running one after the other: pairs are parsed and mapped on a pool of
+ * {@link IngestProperties#effectiveParallelism()} platform threads, each mapping is embedded as soon as
+ * its pair is done, and a single writer upserts them in batches. A bounded queue between mapping and
+ * writing applies backpressure, so memory stays flat however large the corpus is. Mappings reach the
+ * store in discovery order, and a pair that fails is logged and skipped; ingest fails only when every
+ * pair did, or when embedding or storing fails.
+ *
+ * {@link #ingestChanges} consults a {@link PairManifestPort} of content hashes first and only runs the
+ * pipeline for new or changed pairs. Its pair ids are qualified by the root directory, so roots that share
+ * relative paths never delete each other's mappings. Incremental runs take turns, so an admin trigger and
+ * the directory watcher never plan against the same manifest at once.
+ */
 @Service
 public class IngestPairsUseCase {
 
     private static final Logger log = LoggerFactory.getLogger(IngestPairsUseCase.class);
 
+    private static final int DEFAULT_EMBED_CONCURRENCY = 2;
+    private static final int DEFAULT_QUEUE_CAPACITY = 256;
+    private static final int DEFAULT_BATCH_SIZE = 64;
+
+    /** Per-stage counters; throughput is items per second of pipeline wall time. */
+    public record StageStats(String stage, int items, long busyMillis, double perSecond) {}
+
+    /** {@code pairs} counts every discovered pair, including those skipped as unchanged. */
+    public record IngestReport(int pairs, int unchangedPairs, int deletedPairs, int failedPairs, int mappings,
+                               int batches, long elapsedMillis, List<StageStats> stages) {}
+
+    /** Nothing to ingest: no pairs were discovered, and (incrementally) none had been ingested before. */
+    public static class NoPairsFoundException extends IllegalStateException {
+        public NoPairsFoundException(String rootDir) {
+            super("No SQL–Java pairs found in " + rootDir);
+        }
+    }
+
     private final PairReaderPort pairReader;
     private final BlockMapper blockMapper;
     private final BlockExtractorPort plsqlExtractor;
     private final BlockExtractorPort javaExtractor;
     private final VectorStorePort store;
     private final EmbeddingPort embedding;
+    private final PairManifestPort manifest;   // null: no incremental ingest
+    private final int parallelism;
+    private final ReentrantLock incrementalRuns = new ReentrantLock();
+    private final int embedConcurrency;
+    private final int queueCapacity;
+    private final int batchSize;
 
+    /** Sequential ingest. */
+    public IngestPairsUseCase(
+            PairReaderPort pairReader,
+            BlockExtractorPort plsqlExtractor,
+            BlockExtractorPort javaExtractor,
+            BlockMapper blockMapper,
+            VectorStorePort store,
+            EmbeddingPort embedding
+    ) {
+        this(pairReader, plsqlExtractor, javaExtractor, blockMapper, store, embedding, 1);
+    }
+
+    @Autowired
     public IngestPairsUseCase(
             PairReaderPort pairReader,
             @Qualifier("plsqlBlockExtractor") BlockExtractorPort plsqlExtractor,
             @Qualifier("javaBlockExtractor") BlockExtractorPort javaExtractor,
             BlockMapper blockMapper,
             VectorStorePort store,
-            EmbeddingPort embedding
+            EmbeddingPort embedding,
+            PairManifestPort manifest,
+            IngestProperties props
     ) {
+        this(pairReader, plsqlExtractor, javaExtractor, blockMapper, store, embedding, props.effectiveParallelism(),
+                props.getEmbedConcurrency(), props.getQueueCapacity(), props.getBatchSize(), manifest);
+    }
+
+    IngestPairsUseCase(PairReaderPort pairReader, BlockExtractorPort plsqlExtractor, BlockExtractorPort javaExtractor,
+                       BlockMapper blockMapper, VectorStorePort store, EmbeddingPort embedding, int parallelism) {
+        this(pairReader, plsqlExtractor, javaExtractor, blockMapper, store, embedding, parallelism,
+                DEFAULT_EMBED_CONCURRENCY, DEFAULT_QUEUE_CAPACITY, DEFAULT_BATCH_SIZE, null);
+    }
+
+    IngestPairsUseCase(PairReaderPort pairReader, BlockExtractorPort plsqlExtractor, BlockExtractorPort javaExtractor,
+                       BlockMapper blockMapper, VectorStorePort store, EmbeddingPort embedding, int parallelism,
+                       int embedConcurrency, int queueCapacity, int batchSize, PairManifestPort manifest) {
         this.pairReader = pairReader;
         this.plsqlExtractor = plsqlExtractor;
         this.javaExtractor = javaExtractor;
         this.blockMapper = blockMapper;
         this.store = store;
         this.embedding = embedding;
+        this.manifest = manifest;
+        this.parallelism = Math.max(1, parallelism);
+        this.embedConcurrency = Math.max(1, embedConcurrency);
+        this.queueCapacity = Math.max(1, queueCapacity);
+        this.batchSize = Math.max(1, batchSize);
     }
 
+    /** Ingests {@code rootDir} and returns every stored mapping; prefer the report variant for large corpora. */
     public List<BlockMapping> ingestDirectory(String rootDir) throws Exception {
-        List<SourcePair> pairs = pairReader.discoverPairs(rootDir);
+        List<BlockMapping> stored = new ArrayList<>();
+        run(pairReader, rootDir, ProgressListener.NONE, stored::addAll, false);
+        return stored;
+    }
+
+    /** Ingests {@code rootDir} without keeping mappings around, reporting per-stage progress as it goes. */
+    public IngestReport ingestDirectory(String rootDir, ProgressListener progress) throws Exception {
+        return run(pairReader, rootDir, progress == null ? ProgressListener.NONE : progress, batch -> { }, false);
+    }
+
+    /**
+     * Like {@link #ingestDirectory(String, ProgressListener)}, but only for pairs whose content changed since
+     * the last ingest of {@code rootDir}; mappings of pairs that disappeared are deleted.
+     */
+    public IngestReport ingestChanges(String rootDir, ProgressListener progress) throws Exception {
+        if (manifest == null) throw new IllegalStateException("Incremental ingest needs a pair manifest");
+        incrementalRuns.lock();
+        try {
+            return run(pairReader, rootDir, progress == null ? ProgressListener.NONE : progress, batch -> { }, true);
+        } finally {
+            incrementalRuns.unlock();
+        }
+    }
 
-        if (pairs == null || pairs.isEmpty()) {
+    /**
+     * Ingests the pairs another reader supplies, such as an uploaded archive held in memory, instead of the
+     * pairs under a directory; {@code label} names them in logs and errors.
+     */
+    public IngestReport ingestPairs(PairReaderPort pairs, String label, ProgressListener progress) throws Exception {
+        return run(pairs, label, progress == null ? ProgressListener.NONE : progress, batch -> { }, false);
+    }
+
+    /* ---------- pipeline ---------- */
+
+    private IngestReport run(PairReaderPort reader, String rootDir, ProgressListener listener,
+                             Consumer<List<BlockMapping>> sink, boolean incremental) throws Exception {
+        List<SourcePair> discovered = reader.discoverPairs(rootDir);
+        if (discovered == null) discovered = List.of();
+        String scope = incremental ? Path.of(rootDir).toAbsolutePath().normalize().toString() : null;
+        if (incremental) {
+            discovered = discovered.stream()
+                    .map(p -> new SourcePair(p.id().within(scope), p.plsqlPath(), p.javaPath()))
+                    .toList();
+        }
+        Map<String, PairManifestPort.Entry> known = incremental ? manifest.load(scope) : Map.of();
+
+        if (discovered.isEmpty() && known.isEmpty()) {
             log.warn("No SQL–Java pairs found in {}", rootDir);
-            throw new IllegalStateException("No SQL–Java pairs found in " + rootDir);
-        }
-
-        List<BlockMapping> allMappings = new ArrayList<>();
-
-        for (var p : pairs) {
-            Path plsqlPath = Path.of(p.plsqlPath());
-            Path javaPath = Path.of(p.javaPath());
-
-            List<Block> plsqlBlocks = plsqlExtractor.extract(plsqlPath);
-            List<Block> javaBlocks = javaExtractor.extract(javaPath);
-
-            var mappings = blockMapper.map(plsqlBlocks, javaBlocks);
-
-            for (var m : mappings) {
-                log.info("""
-                                🔗 Mapping found:
-                                [ {} ] {}  ->  [ {} ] {}
-                                ------------------------------------------------
-                                PLSQL:
-                                {}
-                                
-                                JAVA:
-                                {}
-                                
-                                JAVA HELPERS (IF ANY):
-                                {}
-                                ------------------------------------------------
-                                """,
-                        p.plsqlPath(), m.plsqlType(),
-                        p.javaPath(), m.javaType(),
-                        m.plsqlSnippet(),
-                        m.javaSnippet(),
-                        m.javaHelpers()
-                );
+            throw new NoPairsFoundException(rootDir);
+        }
+
+        long t0 = System.nanoTime();
+        Plan plan = incremental ? plan(reader, scope, discovered, known)
+                : new Plan(discovered, Map.of(), Set.of(), 0, List.of());
+        List<SourcePair> pairs = plan.todo();
+        if (pairs.isEmpty()) {
+            long elapsedMs = (System.nanoTime() - t0) / 1_000_000;
+            log.info("Nothing changed under {}: {} pairs unchanged, {} deleted ({} ms)",
+                    rootDir, plan.unchanged(), plan.deleted().size(), elapsedMs);
+            return new IngestReport(discovered.size(), plan.unchanged(), plan.deleted().size(), 0, 0, 0, elapsedMs,
+                    List.of());
+        }
+
+        Stage parse = new Stage("parse"), embed = new Stage("embed"), upsert = new Stage("upsert");
+        Runnable report = () -> listener.onProgress(parse.items.get(), pairs.size(),
+                "parsed %d/%d pairs (%s), embedded %d (%s), stored %d mappings (%s)".formatted(
+                        parse.items.get(), pairs.size(), parse.rate(t0),
+                        embed.items.get(), embed.rate(t0),
+                        upsert.items.get(), upsert.rate(t0)));
+
+        BlockingQueue<Pending> queue = new ArrayBlockingQueue<>(queueCapacity);
+        UpsertWriter writer = new UpsertWriter(queue, sink, upsert, report);
+        writer.schemaReady = plan.schemaReady();
+        Thread writerThread = Thread.ofPlatform().name("ingest-upsert").daemon().start(writer);
+
+        int threads = Math.min(parallelism, pairs.size());
+        int parseAhead = threads == 1 ? 1 : threads * 2;   // bounds parsed-but-unqueued pairs
+        int failed = 0;
+        Exception firstFailure = null;
+
+        try (ExecutorService parsePool = threads == 1 ? null : Executors.newFixedThreadPool(threads, named("ingest-parse-", false));
+             ExecutorService embedPool = Executors.newFixedThreadPool(embedConcurrency, named("ingest-embed-", true))) {
+            Deque<Future<PairOutcome>> window = new ArrayDeque<>();
+            int next = 0;
+            for (SourcePair p : pairs) {
+                if (writer.failure != null) {
+                    window.forEach(f -> f.cancel(true));
+                    break;
+                }
+                while (next < pairs.size() && window.size() < parseAhead) {
+                    SourcePair ahead = pairs.get(next++);
+                    window.add(parsePool == null
+                            ? CompletableFuture.completedFuture(mapPair(reader, ahead, parse))
+                            : parsePool.submit(() -> mapPair(reader, ahead, parse)));
+                }
+
+                PairOutcome o = await(window.removeFirst());
+                if (o.failure() != null) {
+                    failed++;
+                    if (firstFailure == null) firstFailure = o.failure();
+                    log.warn("Skipping pair {} / {}: {}", p.plsqlPath(), p.javaPath(), o.failure().toString());
+                    continue;
+                }
+                if (plan.stale().contains(p.id().value())) {
+                    // only once the pair re-parsed: a pair that fails now keeps the mappings it had
+                    queue.put(new Pending(null, null, p.id().value(), null));
+                }
+                for (var m : o.mappings()) {
+                    logMapping(p, m);
+                    queue.put(new Pending(m, CompletableFuture.supplyAsync(() -> embedMapping(m, embed), embedPool), null, null));
+                }
+                PairManifestPort.Entry entry = plan.entries().get(p.id().value());
+                if (entry != null) {
+                    // recorded once the pair's mappings are stored, so a failed run retries the pair
+                    PairManifestPort.Entry done = withMappings(entry, o.mappings().size());
+                    queue.put(new Pending(null, null, null, () -> manifest.put(scope, done)));
+                }
+                report.run();
             }
+        } finally {
+            queue.put(Pending.END);
+            writerThread.join();
+        }
+
+        if (writer.failure != null) throw writer.failure;
+        if (failed == pairs.size()) throw firstFailure;
+
+        long elapsedMs = (System.nanoTime() - t0) / 1_000_000;
+        IngestReport result = new IngestReport(discovered.size(), plan.unchanged(), plan.deleted().size(), failed,
+                upsert.items.get(), writer.batches, elapsedMs,
+                List.of(parse.snapshot(t0), embed.snapshot(t0), upsert.snapshot(t0)));
+        if (result.mappings() == 0) {
+            log.warn("Pairs were discovered, but no block mappings resulted for {}", rootDir);
+        }
+        log.info("Ingested {} mappings from {} of {} pairs ({} unchanged, {} deleted, {} failed) in {} ms: {}",
+                result.mappings(), pairs.size(), result.pairs(), plan.unchanged(), plan.deleted().size(), failed,
+                elapsedMs, result.stages());
+        return result;
+    }
+
+    /**
+     * Pairs to (re)process with their new manifest entries, the ones among them whose old mappings must go,
+     * and what was skipped or removed.
+     */
+    private record Plan(List<SourcePair> todo, Map<String, PairManifestPort.Entry> entries, Set<String> stale,
+                        int unchanged, List<String> deleted, boolean schemaReady) {
+        Plan(List<SourcePair> todo, Map<String, PairManifestPort.Entry> entries, Set<String> stale, int unchanged,
+             List<String> deleted) {
+            this(todo, entries, stale, unchanged, deleted, false);
+        }
+    }
+
+    /**
+     * Compares discovered pairs against the manifest: a pair mapped by the current extractors and rules is
+     * skipped when its size and mtime, or else its content hash, are unchanged. Mappings of deleted pairs
+     * are removed up front; those of changed pairs are left to the writer, which removes them just before
+     * the pair's new mappings are stored.
+     */
+    private Plan plan(PairReaderPort reader, String scope, List<SourcePair> discovered,
+                      Map<String, PairManifestPort.Entry> known) {
+        List<SourcePair> todo = new ArrayList<>();
+        Map<String, PairManifestPort.Entry> entries = new HashMap<>();
+        Set<String> seen = new HashSet<>();
+        Set<String> stale = new HashSet<>();
+        String version = mappingVersion();
+        int unchanged = 0;
 
-            allMappings.addAll(mappings);
+        for (SourcePair p : discovered) {
+            String id = p.id().value();
+            seen.add(id);
+            PairManifestPort.Entry prev = known.get(id);
+            boolean sameRules = prev != null && version.equals(prev.mappingVersion());
+            String fingerprint = reader.fingerprint(p);
+            if (sameRules && fingerprint != null && fingerprint.equals(prev.fingerprint())) {
+                unchanged++;
+                continue;
+            }
+            String hash = reader.contentHash(p);
+            var entry = new PairManifestPort.Entry(id, p.plsqlPath(), p.javaPath(), fingerprint, hash, 0, version);
+            if (sameRules && hash.equals(prev.contentHash())) {
+                unchanged++;   // touched, not changed: remember the new fingerprint
+                manifest.put(scope, withMappings(entry, prev.mappings()));
+                continue;
+            }
+            if (prev != null) stale.add(id);
+            todo.add(p);
+            entries.put(id, entry);
         }
 
-        if (!allMappings.isEmpty()) {
+        List<String> deleted = known.keySet().stream().filter(id -> !seen.contains(id)).sorted().toList();
+        boolean schemaReady = false;
+        if (!deleted.isEmpty()) {
             store.ensureSchema();
-            List<float[]> vectors = allMappings.stream()
-                    .map(m -> embedding.embed(m.plsqlSnippet() + " " + m.javaSnippet()))
+            schemaReady = true;
+            store.deleteMappings(deleted);
+        }
+        manifest.remove(scope, deleted);
+        return new Plan(todo, entries, stale, unchanged, deleted, schemaReady);
+    }
+
+    /** Names the extractors and mapping rules in use; a manifest entry from other ones is re-mapped. */
+    String mappingVersion() {
+        return plsqlExtractor.version() + "|" + javaExtractor.version() + "|" + blockMapper.version();
+    }
+
+    private static PairManifestPort.Entry withMappings(PairManifestPort.Entry e, int mappings) {
+        return new PairManifestPort.Entry(e.pairId(), e.plsqlPath(), e.javaPath(), e.fingerprint(), e.contentHash(),
+                mappings, e.mappingVersion());
+    }
+
+    private record PairOutcome(List<BlockMapping> mappings, Exception failure) {}
+
+    /**
+     * A mapping on its way to the store, or (mapping null) a pair whose old mappings go before its new ones
+     * are stored, or a callback to run once everything before it is stored.
+     */
+    private record Pending(BlockMapping mapping, CompletableFuture<float[]> vector, String replacesPair,
+                           Runnable afterStore) {
+        static final Pending END = new Pending(null, null, null, null);
+    }
+
+    private static final class Stage {
+        final String name;
+        final AtomicInteger items = new AtomicInteger();
+        final AtomicLong busyNanos = new AtomicLong();
+
+        Stage(String name) {
+            this.name = name;
+        }
+
+        void record(int n, long startNanos) {
+            busyNanos.addAndGet(System.nanoTime() - startNanos);
+            items.addAndGet(n);
+        }
+
+        double perSecond(long t0) {
+            double secs = (System.nanoTime() - t0) / 1e9;
+            return secs <= 0 ? 0 : items.get() / secs;
+        }
+
+        String rate(long t0) {
+            return String.format(Locale.ROOT, "%.1f/s", perSecond(t0));
+        }
+
+        StageStats snapshot(long t0) {
+            return new StageStats(name, items.get(), busyNanos.get() / 1_000_000, perSecond(t0));
+        }
+    }
+
+    /** Takes mappings in queue order, waits for their vectors and stores them in batches. */
+    private final class UpsertWriter implements Runnable {
+        private final BlockingQueue<Pending> queue;
+        private final Consumer<List<BlockMapping>> sink;
+        private final Stage stage;
+        private final Runnable report;
+        private final List<Runnable> afterFlush = new ArrayList<>();
+        private final List<String> replaced = new ArrayList<>();
+        private volatile RuntimeException failure;
+        private int batches;
+        private boolean schemaReady;
+
+        UpsertWriter(BlockingQueue<Pending> queue, Consumer<List<BlockMapping>> sink, Stage stage, Runnable report) {
+            this.queue = queue;
+            this.sink = sink;
+            this.stage = stage;
+            this.report = report;
+        }
+
+        @Override
+        public void run() {
+            List<BlockMapping> mappings = new ArrayList<>(batchSize);
+            List<float[]> vectors = new ArrayList<>(batchSize);
+            try {
+                for (Pending p = queue.take(); p != Pending.END; p = queue.take()) {
+                    if (failure != null) {
+                        if (p.vector() != null) p.vector().cancel(true);   // keep draining so the producer never blocks
+                        continue;
+                    }
+                    try {
+                        if (p.replacesPair() != null) {
+                            replaced.add(p.replacesPair());
+                            continue;
+                        }
+                        if (p.mapping() == null) {
+                            if (mappings.isEmpty() && replaced.isEmpty()) p.afterStore().run();
+                            else afterFlush.add(p.afterStore());
+                            continue;
+                        }
+                        vectors.add(p.vector().join());
+                        mappings.add(p.mapping());
+                        if (mappings.size() >= batchSize) {
+                            flush(mappings, vectors);
+                            mappings = new ArrayList<>(batchSize);
+                            vectors = new ArrayList<>(batchSize);
+                        }
+                    } catch (RuntimeException e) {
+                        failure = unwrap(e);
+                    }
+                }
+                if (failure == null && !(mappings.isEmpty() && replaced.isEmpty() && afterFlush.isEmpty())) {
+                    flush(mappings, vectors);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failure = new IllegalStateException("Ingest interrupted", e);
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+        }
+
+        private void flush(List<BlockMapping> mappings, List<float[]> vectors) {
+            long start = System.nanoTime();
+            if (!schemaReady) {
+                store.ensureSchema();
+                schemaReady = true;
+            }
+            if (!replaced.isEmpty()) {
+                store.deleteMappings(List.copyOf(replaced));
+                replaced.clear();
+            }
+            if (!mappings.isEmpty()) {
+                store.upsertMappings(mappings, vectors);
+                stage.record(mappings.size(), start);
+                batches++;
+                sink.accept(mappings);
+            }
+            afterFlush.forEach(Runnable::run);
+            afterFlush.clear();
+            report.run();
+        }
+    }
+
+    /* ---------- helpers ---------- */
+
+    private PairOutcome mapPair(PairReaderPort reader, SourcePair p, Stage stage) {
+        long start = System.nanoTime();
+        try {
+            List<Block> plsqlBlocks = extract(plsqlExtractor, reader, p.plsqlPath());
+            List<Block> javaBlocks = extract(javaExtractor, reader, p.javaPath());
+            // mappings carry their pair's stable id, so a later ingest can replace or delete them
+            List<BlockMapping> mappings = blockMapper.map(plsqlBlocks, javaBlocks).stream()
+                    .map(m -> new BlockMapping(p.id().value(), m.pairName(), m.plsqlSnippet(), m.javaSnippet(),
+                            m.plsqlType(), m.javaType(), m.javaHelpers()))
                     .toList();
+            return new PairOutcome(mappings, null);
+        } catch (Exception e) {
+            return new PairOutcome(List.of(), e);
+        } finally {
+            stage.record(1, start);
+        }
+    }
 
-            store.upsertMappings(allMappings, vectors);
-        } else {
-            log.warn("Pairs were discovered, but no block mappings resulted for {}", rootDir);
+    // in-memory sources (archive uploads) are handed over as bytes; everything else is read from disk
+    private static List<Block> extract(BlockExtractorPort extractor, PairReaderPort reader, String path) throws Exception {
+        byte[] content = reader.content(path);
+        return content != null ? extractor.extract(path, content) : extractor.extract(Path.of(path));
+    }
+
+    private float[] embedMapping(BlockMapping m, Stage stage) {
+        long start = System.nanoTime();
+        float[] v = embedding.embed(m.plsqlSnippet() + " " + m.javaSnippet());
+        stage.record(1, start);
+        return v;
+    }
+
+    private static PairOutcome await(Future<PairOutcome> f) throws InterruptedException {
+        try {
+            return f.get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Ingest worker crashed", e.getCause());
         }
+    }
+
+    private static RuntimeException unwrap(RuntimeException e) {
+        return e instanceof CompletionException && e.getCause() instanceof RuntimeException re ? re : e;
+    }
+
+    private static ThreadFactory named(String prefix, boolean virtual) {
+        return virtual
+                ? Thread.ofVirtual().name(prefix, 1).factory()
+                : Thread.ofPlatform().name(prefix, 1).daemon().factory();
+    }
 
-        return allMappings;
+    // logged on the calling thread, in pair order, so parallel runs read the same as sequential ones
+    private static void logMapping(SourcePair p, BlockMapping m) {
+        log.info("""
+                        🔗 Mapping found:
+                        [ {} ] {}  ->  [ {} ] {}
+                        ------------------------------------------------
+                        PLSQL:
+                        {}
+                        
+                        JAVA:
+                        {}
+                        
+                        JAVA HELPERS (IF ANY):
+                        {}
+                        ------------------------------------------------
+                        """,
+                p.plsqlPath(), m.plsqlType(),
+                p.javaPath(), m.javaType(),
+                m.plsqlSnippet(),
+                m.javaSnippet(),
+                m.javaHelpers()
+        );
     }
 }
@@ -1,24 +1,39 @@
 // src/main/java/org/learningjava/bmtool1/application/usecase/Orchestrator.java
 package org.learningjava.bmtool1.application.usecase;
 
+import org.learningjava.bmtool1.application.port.CancellationToken;
 import org.learningjava.bmtool1.application.port.ChatLLMPort;
 import org.learningjava.bmtool1.application.port.ChatLLMPort.ChatResult;
 import org.learningjava.bmtool1.application.port.ChatLLMPort.Usage;
 import org.learningjava.bmtool1.application.port.EmbeddingPort;
-import org.learningjava.bmtool1.application.port.ExperimentStorePort;
 import org.learningjava.bmtool1.application.port.FrameworkStorePort;
+import org.learningjava.bmtool1.application.port.RequestCancelledException;
 import org.learningjava.bmtool1.application.port.VectorStorePort;
+import org.learningjava.bmtool1.config.ModelContextWindows;
 import org.learningjava.bmtool1.domain.model.analytics.Experiment;
 import org.learningjava.bmtool1.domain.model.framework.FrameworkRetrievalResult;
 import org.learningjava.bmtool1.domain.model.framework.FrameworkSymbol;
 import org.learningjava.bmtool1.domain.model.pairs.BlockMapping;
 import org.learningjava.bmtool1.domain.model.pairs.RetrievalResult;
 import org.learningjava.bmtool1.domain.model.query.Answer;
+import org.learningjava.bmtool1.domain.model.query.PackingReport;
 import org.learningjava.bmtool1.domain.model.query.Query;
+import org.learningjava.bmtool1.domain.model.query.RetrievedContext;
 import org.learningjava.bmtool1.domain.service.ChatRegistry;
+import org.learningjava.bmtool1.domain.service.cache.SemanticAnswerCache;
+import org.learningjava.bmtool1.domain.service.cache.SemanticAnswerCache.Hit;
+import org.learningjava.bmtool1.domain.service.cache.SemanticAnswerCache.Scope;
+import org.learningjava.bmtool1.domain.service.cache.SingleFlight;
 import org.learningjava.bmtool1.domain.service.co2.CarbonEstimator;
+import org.learningjava.bmtool1.domain.service.llm.HedgedChatService;
+import org.learningjava.bmtool1.domain.service.llm.HedgedChatService.HedgeResult;
+import org.learningjava.bmtool1.domain.service.llm.HedgedChatService.Mode;
+import org.learningjava.bmtool1.domain.service.llm.HedgedChatService.Target;
+import org.learningjava.bmtool1.domain.service.prompting.PackedPrompt;
 import org.learningjava.bmtool1.domain.service.prompting.PromptBuilder;
 import org.learningjava.bmtool1.domain.service.prompting.PromptingTechnique;
+import org.learningjava.bmtool1.domain.service.tokens.Tokenizer;
+import org.learningjava.bmtool1.domain.service.tokens.TokenizerRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
@@ -26,7 +41,10 @@ import org.springframework.stereotype.Service;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Locale;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @Service
 public class Orchestrator {
@@ -35,7 +53,6 @@ public class Orchestrator {
 
     private static final double MIN_DOC_SCORE = 0.60;
     private static final double SYNTHETIC_FW_SCORE = 1.0;
-    private static final int DOC_PROMPT_LIMIT = Integer.MAX_VALUE;
     private static final int PER_SNIPPET_CHAR_LIMIT = 4000;
 
     private final EmbeddingPort embedding;
@@ -43,16 +60,36 @@ public class Orchestrator {
     private final FrameworkStorePort fwStore;
     private final ChatRegistry chatRegistry;
     private final PromptBuilder prompts;
-    private final ExperimentStorePort experiments;
+    private final ExperimentWriteBehind experiments;
     private final CarbonEstimator carbon; // ⬅ injected
+    private final SemanticAnswerCache answerCache;
+    private final HedgedChatService hedging;
+    private final ModelContextWindows contextWindows;
+    private final TokenizerRegistry tokenizers;
+
+    // identical concurrent asks share one pipeline run; identical prompts share one LLM call
+    private final SingleFlight<AskKey, Answer> askFlights = new SingleFlight<>();
+    private final SingleFlight<LlmKey, LlmCall> llmFlights = new SingleFlight<>();
+
+    private record AskKey(String question, String providerId, String llmModel, String embeddingModel,
+                          PromptingTechnique technique, int kDocs, int kFramework, List<String> tags,
+                          Target hedgeTarget, Mode hedgeMode) {}
+
+    private record LlmKey(String providerId, String llmModel, Target hedgeTarget, Mode hedgeMode, String prompt) {}
+
+    private record LlmCall(ChatResult result, HedgeResult hedge) {}
 
     public Orchestrator(EmbeddingPort embedding,
                         VectorStorePort docStore,
                         FrameworkStorePort fwStore,
                         ChatRegistry chatRegistry,
                         PromptBuilder prompts,
-                        ExperimentStorePort experiments,
-                        CarbonEstimator carbon) {
+                        ExperimentWriteBehind experiments,
+                        CarbonEstimator carbon,
+                        SemanticAnswerCache answerCache,
+                        HedgedChatService hedging,
+                        ModelContextWindows contextWindows,
+                        TokenizerRegistry tokenizers) {
         this.embedding = embedding;
         this.docStore = docStore;
         this.fwStore = fwStore;
@@ -60,6 +97,10 @@ public class Orchestrator {
         this.prompts = prompts;
         this.experiments = experiments;
         this.carbon = carbon;
+        this.answerCache = answerCache;
+        this.hedging = hedging;
+        this.contextWindows = contextWindows;
+        this.tokenizers = tokenizers;
     }
 
     public Answer askWithFramework(Query q,
@@ -70,60 +111,401 @@ public class Orchestrator {
                                    String embeddingModel,
                                    List<String> mustHaveTags,
                                    PromptingTechnique technique) {
+        return askWithFramework(q, kDocs, kFramework, providerId, llmModel, embeddingModel,
+                mustHaveTags, technique, null, null);
+    }
+
+    /**
+     * As above, optionally hedged: with a {@code hedgeTarget} the prompt also goes to that
+     * (provider, model), raced or after a p95 delay per {@code hedgeMode}; the first answer wins.
+     */
+    public Answer askWithFramework(Query q,
+                                   int kDocs,
+                                   int kFramework,
+                                   String providerId,
+                                   String llmModel,
+                                   String embeddingModel,
+                                   List<String> mustHaveTags,
+                                   PromptingTechnique technique,
+                                   Target hedgeTarget,
+                                   Mode hedgeMode) {
+        return askWithFramework(q, kDocs, kFramework, providerId, llmModel, embeddingModel,
+                mustHaveTags, technique, hedgeTarget, hedgeMode, null);
+    }
+
+    /**
+     * As above, abortable: cancelling {@code token} (client gone, deadline passed) aborts the in-flight
+     * embedding, retrieval or LLM call, records the run with its cancellation status and throws
+     * {@link RequestCancelledException}.
+     *
+     * An identical ask already in flight is joined instead of run again; all callers get its answer and
+     * only the run that did the work is recorded. The shared run is aborted only once every caller has
+     * cancelled.
+     */
+    public Answer askWithFramework(Query q,
+                                   int kDocs,
+                                   int kFramework,
+                                   String providerId,
+                                   String llmModel,
+                                   String embeddingModel,
+                                   List<String> mustHaveTags,
+                                   PromptingTechnique technique,
+                                   Target hedgeTarget,
+                                   Mode hedgeMode,
+                                   CancellationToken token) {
+
+        if (chatRegistry.get(providerId) == null) throw new IllegalArgumentException("Unknown provider: " + providerId);
+
+        AskKey key = askKey(q, kDocs, kFramework, providerId, llmModel, embeddingModel, mustHaveTags, technique,
+                hedgeTarget, hedgeMode);
+        SingleFlight.Result<Answer> r = askFlights.execute(key, token, shared ->
+                ask(q, kDocs, kFramework, providerId, llmModel, embeddingModel, mustHaveTags, technique,
+                        hedgeTarget, hedgeMode, shared));
+        if (r.shared()) log.debug("Ask coalesced with an identical in-flight ask ({}/{})", providerId, llmModel);
+        return r.value();
+    }
+
+    /**
+     * Non-blocking {@link #askWithFramework} (unhedged): embedding, both retrievals and the LLM call use the
+     * ports' async variants, and the two retrievals run concurrently. A few threads can keep hundreds of
+     * these in flight during batch evaluation. Joins identical asks in flight, sync or async.
+     */
+    public CompletableFuture<Answer> askAsync(Query q,
+                                              int kDocs,
+                                              int kFramework,
+                                              String providerId,
+                                              String llmModel,
+                                              String embeddingModel,
+                                              List<String> mustHaveTags,
+                                              PromptingTechnique technique,
+                                              CancellationToken token) {
+        if (chatRegistry.get(providerId) == null) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Unknown provider: " + providerId));
+        }
+        AskKey key = askKey(q, kDocs, kFramework, providerId, llmModel, embeddingModel, mustHaveTags, technique,
+                null, null);
+        return askFlights.executeAsync(key, token, shared ->
+                        askPipelineAsync(q, kDocs, kFramework, providerId, llmModel, embeddingModel,
+                                mustHaveTags, technique, shared))
+                .thenApply(SingleFlight.Result::value);
+    }
+
+    private CompletableFuture<Answer> askPipelineAsync(Query q,
+                                                       int kDocs,
+                                                       int kFramework,
+                                                       String providerId,
+                                                       String llmModel,
+                                                       String embeddingModel,
+                                                       List<String> mustHaveTags,
+                                                       PromptingTechnique technique,
+                                                       CancellationToken token) {
+        long t0 = System.nanoTime();
+        warmUp(providerId, llmModel);
+        List<String> tags = mustHaveTags == null ? List.of() : mustHaveTags;
+        Scope scope = new Scope(providerId, llmModel, embeddingModel, technique.name(),
+                kDocs, kFramework, mustHaveTags);
 
+        return embedding.embedAsync(q.question(), token).thenCompose(qVec -> {
+            Optional<Hit> hit = answerCache.lookup(scope, qVec);
+            if (hit.isPresent()) {
+                return CompletableFuture.completedFuture(
+                        answerFromCache(q, hit.get(), t0, kDocs, kFramework, providerId, llmModel, embeddingModel, technique));
+            }
+            CompletableFuture<List<RetrievalResult>> docs = docStore.queryAsync(q.question(), qVec, kDocs, token)
+                    .thenApply(this::filterDocs);
+            CompletableFuture<List<FrameworkRetrievalResult>> fw = fwStore.retrieveAsync(q.question(), qVec, kFramework, tags, token)
+                    .thenApply(raw -> toFrameworkResults(raw, kFramework));
+            return docs.thenCombine(fw, (d, f) -> new RetrievedContext(kDocs, kFramework, d, f, System.nanoTime() - t0))
+                    .thenCompose(ctx -> answerAndRecordAsync(q, ctx, providerId, llmModel, embeddingModel, technique, token))
+                    .thenApply(out -> {
+                        if (out.llmAnswered()) answerCache.put(scope, qVec, out.answer());
+                        return out.answer();
+                    });
+        }).exceptionallyCompose(e -> {
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            if (token == null || !token.isCancelled()) return CompletableFuture.failedFuture(cause);
+            RequestCancelledException cancelled = cause instanceof RequestCancelledException rce
+                    ? rce : new RequestCancelledException(token.reason(), null);
+            recordCancelled(q, cancelled, t0, kDocs, kFramework, providerId, llmModel, embeddingModel, technique);
+            return CompletableFuture.failedFuture(cancelled);
+        });
+    }
+
+    private Answer ask(Query q,
+                       int kDocs,
+                       int kFramework,
+                       String providerId,
+                       String llmModel,
+                       String embeddingModel,
+                       List<String> mustHaveTags,
+                       PromptingTechnique technique,
+                       Target hedgeTarget,
+                       Mode hedgeMode,
+                       CancellationToken token) {
+
+        long t0 = System.nanoTime();
+
+        // 0) Start loading a cold local model now, so it overlaps embedding and retrieval
+        warmUp(providerId, llmModel);
+
+        try {
+            // 1) Embedding
+            float[] qVec = embed(q.question(), token);
+
+            // 1b) Semantic cache: a near-paraphrase with the same scope skips retrieval + LLM
+            Scope scope = new Scope(providerId, llmModel, embeddingModel, technique.name(),
+                    kDocs, kFramework, mustHaveTags);
+            Optional<Hit> hit = answerCache.lookup(scope, qVec);
+            if (hit.isPresent()) {
+                return answerFromCache(q, hit.get(), t0, kDocs, kFramework, providerId, llmModel, embeddingModel, technique);
+            }
+
+            // 2) + 3) Retrieve docs and framework
+            List<RetrievalResult> docFiltered = retrieveDocs(q.question(), qVec, kDocs, token);
+            List<FrameworkRetrievalResult> fwHits = retrieveFramework(q.question(), qVec, kFramework, mustHaveTags, token);
+            RetrievedContext ctx = new RetrievedContext(kDocs, kFramework, docFiltered, fwHits, System.nanoTime() - t0);
+
+            // 4) - 7) Prompt, LLM, experiment row, final answer
+            Answered out = answerAndRecord(q, ctx, providerId, llmModel, embeddingModel, technique,
+                    hedgeTarget, hedgeMode, token);
+            if (out.llmAnswered()) answerCache.put(scope, qVec, out.answer()); // never cache empty LLM output
+            return out.answer();
+        } catch (RuntimeException e) {
+            if (token == null || !token.isCancelled()) throw e;
+            RequestCancelledException cancelled = e instanceof RequestCancelledException rce
+                    ? rce : new RequestCancelledException(token.reason(), null);
+            recordCancelled(q, cancelled, t0, kDocs, kFramework, providerId, llmModel, embeddingModel, technique);
+            throw cancelled;
+        }
+    }
+
+    private static AskKey askKey(Query q, int kDocs, int kFramework, String providerId, String llmModel,
+                                 String embeddingModel, List<String> mustHaveTags, PromptingTechnique technique,
+                                 Target hedgeTarget, Mode hedgeMode) {
+        List<String> tags = mustHaveTags == null ? List.of()
+                : mustHaveTags.stream().filter(Objects::nonNull).sorted().distinct().toList();
+        return new AskKey(q.question(), providerId, llmModel, embeddingModel, technique,
+                kDocs, kFramework, tags, hedgeTarget, hedgeTarget == null ? null : hedgeMode);
+    }
+
+    /** Asks the provider to load {@code llmModel} in the background (a no-op for hosted providers). */
+    public void warmUp(String providerId, String llmModel) {
         ChatLLMPort chat = chatRegistry.get(providerId);
         if (chat == null) throw new IllegalArgumentException("Unknown provider: " + providerId);
+        Thread.startVirtualThread(() -> {
+            try {
+                chat.warmUp(llmModel);
+            } catch (Exception e) {
+                log.debug("Warm-up of {}/{} failed (non-fatal): {}", providerId, llmModel, e.toString());
+            }
+        });
+    }
 
-        long t0 = System.nanoTime();
+    /* ---------- pipeline stages (shared with GridRunUseCase) ---------- */
+
+    public float[] embed(String question) {
+        return embed(question, null);
+    }
 
-        // 1) Embedding
-        float[] qVec = embedding.embed(q.question());
+    public float[] embed(String question, CancellationToken token) {
+        return token == null ? embedding.embed(question) : embedding.embed(question, token);
+    }
+
+    public List<RetrievalResult> retrieveDocs(String question, float[] qVec, int kDocs) {
+        return retrieveDocs(question, qVec, kDocs, null);
+    }
 
-        // 2) Retrieve docs
+    public List<RetrievalResult> retrieveDocs(String question, float[] qVec, int kDocs, CancellationToken token) {
         List<RetrievalResult> docHits = Optional.ofNullable(
-                docStore.query(q.question(), qVec, kDocs)
+                token == null ? docStore.query(question, qVec, kDocs) : docStore.query(question, qVec, kDocs, token)
         ).orElseGet(List::of);
-        List<RetrievalResult> docFiltered = docHits.stream()
-                .filter(r -> r.score() >= MIN_DOC_SCORE)
-                .toList();
+        return filterDocs(docHits);
+    }
+
+    public List<FrameworkRetrievalResult> retrieveFramework(String question, float[] qVec, int kFramework,
+                                                            List<String> mustHaveTags) {
+        return retrieveFramework(question, qVec, kFramework, mustHaveTags, null);
+    }
 
-        // 3) Retrieve framework
+    public List<FrameworkRetrievalResult> retrieveFramework(String question, float[] qVec, int kFramework,
+                                                            List<String> mustHaveTags, CancellationToken token) {
+        List<String> tags = mustHaveTags == null ? List.of() : mustHaveTags;
         List<FrameworkSymbol> fwRaw = Optional.ofNullable(
-                fwStore.retrieve(q.question(), qVec, kFramework,
-                        mustHaveTags == null ? List.of() : mustHaveTags)
+                token == null ? fwStore.retrieve(question, qVec, kFramework, tags)
+                        : fwStore.retrieve(question, qVec, kFramework, tags, token)
         ).orElseGet(List::of);
-        List<FrameworkRetrievalResult> fwHits = fwRaw.stream()
+        return toFrameworkResults(fwRaw, kFramework);
+    }
+
+    private List<RetrievalResult> filterDocs(List<RetrievalResult> docHits) {
+        if (docHits == null) return List.of();
+        return docHits.stream()
+                .filter(r -> r.score() >= MIN_DOC_SCORE)
+                .toList();
+    }
+
+    private static List<FrameworkRetrievalResult> toFrameworkResults(List<FrameworkSymbol> fwRaw, int kFramework) {
+        if (fwRaw == null) return List.of();
+        return fwRaw.stream()
                 .limit(kFramework)
                 .map(s -> new FrameworkRetrievalResult(s, SYNTHETIC_FW_SCORE))
                 .toList();
+    }
+
+    /**
+     * Builds the prompt from an already retrieved context, calls the LLM and records the experiment.
+     * The recorded time is the context's retrieval time plus this call's own time, so grid cells that
+     * share one retrieval stay comparable with single {@link #askWithFramework} calls.
+     *
+     * If the same prompt is already being sent to the same model (another grid cell or an interactive
+     * ask), this call waits for that answer instead and is recorded as a token-free COALESCED row.
+     */
+    public Answer answer(Query q,
+                         RetrievedContext ctx,
+                         String providerId,
+                         String llmModel,
+                         String embeddingModel,
+                         PromptingTechnique technique) {
+        return answerAndRecord(q, ctx, providerId, llmModel, embeddingModel, technique, null, null, null).answer();
+    }
+
+    private record Answered(Answer answer, boolean llmAnswered) {}
+
+    private record Prepared(ChatLLMPort chat, PackedPrompt packed, long t0) {}
+
+    private Answered answerAndRecord(Query q,
+                                     RetrievedContext ctx,
+                                     String providerId,
+                                     String llmModel,
+                                     String embeddingModel,
+                                     PromptingTechnique technique,
+                                     Target hedgeTarget,
+                                     Mode hedgeMode,
+                                     CancellationToken token) {
+
+        Prepared p = prepare(q, ctx, providerId, llmModel, technique, hedgeTarget);
+        String prompt = p.packed().prompt();
+
+        // 5) Call LLM **with usage** (optionally hedged against a second provider/model),
+        //    joining an identical call already in flight
+        Mode mode = hedgeTarget == null ? null : (hedgeMode == null ? Mode.HEDGE : hedgeMode);
+        SingleFlight.Result<LlmCall> call = llmFlights.execute(
+                new LlmKey(providerId, llmModel, hedgeTarget, mode, prompt), token,
+                shared -> callLlm(p.chat(), prompt, providerId, llmModel, hedgeTarget, mode, shared));
+        return record(q, ctx, p, call, providerId, llmModel, embeddingModel, technique);
+    }
+
+    // Unhedged async counterpart of answerAndRecord; joins the same in-flight LLM calls
+    private CompletableFuture<Answered> answerAndRecordAsync(Query q,
+                                                             RetrievedContext ctx,
+                                                             String providerId,
+                                                             String llmModel,
+                                                             String embeddingModel,
+                                                             PromptingTechnique technique,
+                                                             CancellationToken token) {
+        Prepared p = prepare(q, ctx, providerId, llmModel, technique, null);
+        String prompt = p.packed().prompt();
+        return llmFlights.executeAsync(new LlmKey(providerId, llmModel, null, null, prompt), token,
+                        shared -> p.chat().chatWithUsageAsync(prompt, llmModel, shared)
+                                .thenApply(res -> new LlmCall(res, null)))
+                .thenApply(call -> record(q, ctx, p, call, providerId, llmModel, embeddingModel, technique));
+    }
+
+    private Prepared prepare(Query q,
+                             RetrievedContext ctx,
+                             String providerId,
+                             String llmModel,
+                             PromptingTechnique technique,
+                             Target hedgeTarget) {
+        ChatLLMPort chat = chatRegistry.get(providerId);
+        if (chat == null) throw new IllegalArgumentException("Unknown provider: " + providerId);
+
+        long t0 = System.nanoTime();
 
-        // 4) Build prompt
-        String prompt = prompts.build(
-                technique, q.question(), docFiltered, fwHits,
-                PER_SNIPPET_CHAR_LIMIT, DOC_PROMPT_LIMIT
+        // 4) Build prompt, packed to the smallest context window it may be sent to
+        int budget = contextWindows.promptBudget(providerId, llmModel, chat.contextWindow(llmModel));
+        if (hedgeTarget != null) {
+            ChatLLMPort hedgeChat = chatRegistry.get(hedgeTarget.provider());
+            budget = Math.min(budget, contextWindows.promptBudget(hedgeTarget.provider(), hedgeTarget.model(),
+                    hedgeChat == null ? null : hedgeChat.contextWindow(hedgeTarget.model())));
+        }
+        Tokenizer tokenizer = tokenizers.forModel(llmModel);
+        PackedPrompt packed = prompts.buildPacked(
+                technique, q.question(), ctx.docs(), ctx.framework(),
+                PER_SNIPPET_CHAR_LIMIT, budget, tokenizer
         );
+        String prompt = packed.prompt();
+        PackingReport packing = packed.report();
+        if (packing.anythingDropped()) {
+            log.info("Prompt packed to {} of {} budget tokens: dropped docs={}, truncated docs={}, dropped symbols={}",
+                    packing.estimatedTokens(), packing.budgetTokens(),
+                    packing.droppedDocs(), packing.truncatedDocs(), packing.droppedSymbols());
+        }
 
         if (log.isDebugEnabled()) {
             log.debug("this is the prompt ({} chars) [technique={}]:\n{}\n--- END PROMPT ---",
                     prompt.length(), technique, prompt);
         }
+        return new Prepared(chat, packed, t0);
+    }
+
+    private Answered record(Query q,
+                            RetrievedContext ctx,
+                            Prepared p,
+                            SingleFlight.Result<LlmCall> call,
+                            String providerId,
+                            String llmModel,
+                            String embeddingModel,
+                            PromptingTechnique technique) {
+        long t0 = p.t0();
+        int kDocs = ctx.kDocs();
+        int kFramework = ctx.kFramework();
+        String prompt = ChatLLMPort.withoutCacheBoundary(p.packed().prompt());   // as the provider saw it
+        List<RetrievalResult> docFiltered = p.packed().docs();
+        List<FrameworkRetrievalResult> fwHits = p.packed().framework();
+        PackingReport packing = p.packed().report();
 
-        // 5) Call LLM **with usage**
-        ChatResult res = chat.chatWithUsage(prompt, llmModel);
+        boolean coalesced = call.shared();
+        ChatResult res = call.value().result();
+        HedgeResult hedge = coalesced ? null : call.value().hedge();
+        boolean replayed = !coalesced && res.cached();
         String llmAnswer = res.text();
-        Usage usage = res.usage(); // may be null
+        // the model whose answer is used, which for a hedged call may be the hedge target; it is what the row records
+        String answeredBy = hedge == null ? llmModel : hedge.winner().model();
+        // Providers that omit usage get local counts, so CO2 uses tokens instead of the time x watts fallback;
+        // a coalesced or replayed call spent no tokens of its own (the leader's / original row carries them)
+        Usage usage = coalesced || replayed ? new Usage(null, null)
+                : tokenizers.backfill(answeredBy, prompt, llmAnswer, res.usage());
+        if (coalesced) {
+            log.debug("LLM call coalesced with an identical in-flight prompt ({}/{})", providerId, llmModel);
+        } else if (replayed) {
+            log.debug("LLM answer replayed from the response cache ({}/{})", providerId, answeredBy);
+        } else if (usage.estimated()) {
+            log.debug("Usage missing from {}; counted locally with {} tokenizer (prompt={}, completion={})",
+                    providerId, tokenizers.forModel(answeredBy).name(), usage.promptTokens(), usage.completionTokens());
+        }
 
-        long elapsedMs = Math.max(1L, Math.round((System.nanoTime() - t0) / 1_000_000.0));
+        long elapsedMs = Math.max(1L, Math.round((System.nanoTime() - t0 + ctx.retrievalNanos()) / 1_000_000.0));
 
-        Integer promptTok = usage == null ? null : usage.promptTokens();
-        Integer complTok  = usage == null ? null : usage.completionTokens();
+        Integer promptTok = usage.promptTokens();
+        Integer complTok  = usage.completionTokens();
         Integer totalTok  = (promptTok == null && complTok == null)
                 ? null
                 : ( (promptTok == null ? 0 : promptTok) + (complTok == null ? 0 : complTok) );
 
-        double gramsCO2 = carbon.estimateGramsCO2(promptTok, complTok, (long) elapsedMs, providerId, llmModel);
+        double gramsCO2 = 0.0;
+        if (!coalesced && !replayed) {
+            // the winner's tokens on the winner's model
+            Target w = hedge == null ? new Target(providerId, llmModel) : hedge.winner();
+            gramsCO2 = carbon.estimateGramsCO2(promptTok, complTok, (long) elapsedMs, w.provider(), w.model());
+        }
+        if (hedge != null && hedge.loser() != null && hedge.wastedTokens() != null && hedge.wastedTokens() > 0) {
+            // plus the loser's wasted tokens on its own model, even when the winner was replayed
+            Target l = hedge.loser();
+            gramsCO2 += carbon.estimateGramsCO2(hedge.wastedTokens(), 0, 0L, l.provider(), l.model());
+        }
 
-        // 6) Persist experiment with the new shape
+        // 6) Persist experiment with the new shape (write-behind, off the request path)
         try {
             Experiment exp = new Experiment(
                     null,
@@ -134,19 +516,25 @@ public class Orchestrator {
                     /* kDoc         */ kDocs,
                     /* prompt       */ prompt,
                     /* embedding    */ embeddingModel,
-                    /* llm          */ llmModel,
+                    /* llm          */ answeredBy,
                     /* metric1Ccc   */ null,
                     /* metric2TimeMs*/ (double) elapsedMs,
                     /* metric3Co2G  */ gramsCO2,
                     /* metric4Prompt*/ promptTok,
                     /* metric5Compl */ complTok,
                     /* metric6Total */ totalTok,
-                    /* technique    */ technique.name()
+                    /* technique    */ technique.name(),
+                    /* cacheHit     */ replayed,
+                    /* winner       */ hedge == null ? null : hedge.winner().toString(),
+                    /* wastedTokens */ hedge == null ? null : hedge.wastedTokens(),
+                    /* runStatus    */ coalesced ? Experiment.STATUS_COALESCED : Experiment.STATUS_OK,
+                    /* metric7Cached*/ usage.cachedTokens(),
+                    /* estimated    */ usage.estimated()
             );
-            long id = experiments.upsert(exp);
-            log.debug("Recorded experiment id={} (fwUsed={}, docUsed={}, kFw={}, kDoc={}, tokPrompt={}, tokCompletion={}, co2={}g, ms={})",
-                    id, exp.fwHitsCount(), exp.docHitsCount(), exp.kFw(), exp.kDoc(),
-                    promptTok, complTok, String.format(Locale.ROOT,"%.2f", gramsCO2), elapsedMs);
+            experiments.submit(exp);
+            log.debug("Queued experiment (fwUsed={}, docUsed={}, kFw={}, kDoc={}, tokPrompt={}, tokCompletion={}, tokCached={}, co2={}g, ms={})",
+                    exp.fwHitsCount(), exp.docHitsCount(), exp.kFw(), exp.kDoc(),
+                    promptTok, complTok, usage.cachedTokens(), String.format(Locale.ROOT,"%.2f", gramsCO2), elapsedMs);
         } catch (Exception e) {
             log.warn("Experiment logging failed (non-fatal): {}", e.toString());
         }
@@ -155,7 +543,93 @@ public class Orchestrator {
         String sources = buildSourcesAppendix(docFiltered);
         String finalAnswer = llmAnswer + "\n\n---\nSources used (docs/code chunks):\n" + sources;
 
-        return new Answer(finalAnswer, docFiltered, fwHits);
+        return new Answered(new Answer(finalAnswer, docFiltered, fwHits, false, packing),
+                llmAnswer != null && !llmAnswer.isBlank());
+    }
+
+    private LlmCall callLlm(ChatLLMPort chat, String prompt, String providerId, String llmModel,
+                            Target hedgeTarget, Mode hedgeMode, CancellationToken token) {
+        if (hedgeTarget != null) {
+            HedgeResult hedge = hedging.chat(prompt, new Target(providerId, llmModel), hedgeTarget, hedgeMode, token);
+            return new LlmCall(hedge.result(), hedge);
+        }
+        return new LlmCall(chat.chatWithUsage(prompt, llmModel, token), null);
+    }
+
+    private Answer answerFromCache(Query q, Hit hit, long t0,
+                                   int kDocs, int kFramework,
+                                   String providerId, String llmModel, String embeddingModel,
+                                   PromptingTechnique technique) {
+        Answer cached = hit.answer();
+        long elapsedMs = Math.max(1L, Math.round((System.nanoTime() - t0) / 1_000_000.0));
+        log.debug("Semantic cache HIT (distance={}, ms={})",
+                String.format(Locale.ROOT, "%.4f", hit.distance()), elapsedMs);
+
+        // Only the embedding call and the lookup were spent, no LLM time: like a response-cache replay,
+        // the row carries no tokens and no CO2. The question is stored as asked, cache_hit tells these rows apart
+        try {
+            experiments.submit(new Experiment(
+                    null,
+                    LocalDate.now(),
+                    cached.frameworkResults() == null ? 0 : cached.frameworkResults().size(),
+                    cached.retrievalResults() == null ? 0 : cached.retrievalResults().size(),
+                    kFramework,
+                    kDocs,
+                    q.question(),
+                    embeddingModel,
+                    llmModel,
+                    null,
+                    (double) elapsedMs,
+                    0.0,
+                    null,
+                    null,
+                    null,
+                    technique.name(),
+                    true,
+                    null,
+                    null
+            ));
+        } catch (Exception e) {
+            log.warn("Experiment logging failed (non-fatal): {}", e.toString());
+        }
+
+        return new Answer(cached.text(), cached.retrievalResults(), cached.frameworkResults(), true, cached.packing());
+    }
+
+    // A cancelled run spent time (and maybe tokens) nobody used; keep it visible instead of dropping it.
+    // The question is stored as asked, run_status says why it stopped
+    private void recordCancelled(Query q, RequestCancelledException e, long t0,
+                                 int kDocs, int kFramework,
+                                 String providerId, String llmModel, String embeddingModel,
+                                 PromptingTechnique technique) {
+        long elapsedMs = Math.max(1L, Math.round((System.nanoTime() - t0) / 1_000_000.0));
+        log.info("Ask {} after {} ms: {}", e.reason(), elapsedMs, e.getMessage());
+        try {
+            experiments.submit(new Experiment(
+                    null,
+                    LocalDate.now(),
+                    0,
+                    0,
+                    kFramework,
+                    kDocs,
+                    q.question(),
+                    embeddingModel,
+                    llmModel,
+                    null,
+                    (double) elapsedMs,
+                    carbon.estimateGramsCO2(null, null, elapsedMs, providerId, llmModel),
+                    null,
+                    null,
+                    null,
+                    technique.name(),
+                    false,
+                    null,
+                    null,
+                    e.reason().name()
+            ));
+        } catch (Exception ex) {
+            log.warn("Experiment logging failed (non-fatal): {}", ex.toString());
+        }
     }
 
     /* helpers for appendix (unchanged from your version) */
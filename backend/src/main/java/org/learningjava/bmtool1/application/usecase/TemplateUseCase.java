@@ -4,6 +4,7 @@ import org.learningjava.bmtool1.domain.model.pairs.Block;
 import org.learningjava.bmtool1.domain.model.query.TargetJavaClassForConsumer;
 import org.learningjava.bmtool1.domain.service.templateCreator.TemplateCreator;
 import org.learningjava.bmtool1.infrastructure.adapter.in.template.JavaGeneratorAdapter;
+import org.learningjava.bmtool1.infrastructure.adapter.out.blockASTParser.BlockCache;
 import org.learningjava.bmtool1.infrastructure.adapter.out.blockASTParser.PlsqlBlockExtractorAdapter;
 
 import java.nio.file.DirectoryStream;
@@ -12,7 +13,7 @@ import java.nio.file.Path;
 import java.util.List;
 
 public class TemplateUseCase {
-    private final PlsqlBlockExtractorAdapter extractor = new PlsqlBlockExtractorAdapter();
+    private final PlsqlBlockExtractorAdapter extractor = new PlsqlBlockExtractorAdapter(BlockCache.at(BlockCache.DEFAULT_DIR));
     private final TemplateCreator mapper = new TemplateCreator();
     private final JavaGeneratorAdapter generator;
 
@@ -0,0 +1,25 @@
+// src/main/java/org/learningjava/bmtool1/config/GridProperties.java
+package org.learningjava.bmtool1.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@Component
+@ConfigurationProperties(prefix = "bmtool1.grid")
+public class GridProperties {
+    private int defaultConcurrency = 2;                        // in-flight LLM calls per provider
+    private Map<String, Integer> concurrency = new HashMap<>(); // per-provider override
+
+    public int getDefaultConcurrency() { return defaultConcurrency; }
+    public void setDefaultConcurrency(int v) { this.defaultConcurrency = v; }
+    public Map<String, Integer> getConcurrency() { return concurrency; }
+    public void setConcurrency(Map<String, Integer> v) { this.concurrency = v; }
+
+    public int concurrencyFor(String providerId) {
+        Integer v = concurrency == null ? null : concurrency.get(providerId);
+        return Math.max(1, v != null ? v : defaultConcurrency);
+    }
+}
@@ -0,0 +1,27 @@
+// src/main/java/org/learningjava/bmtool1/config/IngestProperties.java
+package org.learningjava.bmtool1.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "bmtool1.ingest")
+public class IngestProperties {
+    private int parallelism = 0;      // pairs parsed and mapped at once; 0 = one per core, 1 = sequential
+    private int embedConcurrency = 2; // in-flight embedding calls
+    private int queueCapacity = 256;  // mappings waiting for embedding/storage before parsing blocks
+    private int batchSize = 64;       // mappings per upsert
+
+    public int getParallelism() { return parallelism; }
+    public void setParallelism(int v) { this.parallelism = v; }
+    public int getEmbedConcurrency() { return embedConcurrency; }
+    public void setEmbedConcurrency(int v) { this.embedConcurrency = v; }
+    public int getQueueCapacity() { return queueCapacity; }
+    public void setQueueCapacity(int v) { this.queueCapacity = v; }
+    public int getBatchSize() { return batchSize; }
+    public void setBatchSize(int v) { this.batchSize = v; }
+
+    public int effectiveParallelism() {
+        return parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+    }
+}
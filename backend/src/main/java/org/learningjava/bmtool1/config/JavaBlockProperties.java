@@ -0,0 +1,28 @@
+// src/main/java/org/learningjava/bmtool1/config/JavaBlockProperties.java
+package org.learningjava.bmtool1.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/** Which Java blocks the extractor materializes; anything the mapping rules don't consume is wasted work. */
+@Component
+@ConfigurationProperties(prefix = "bmtool1.parse.java-blocks")
+public class JavaBlockProperties {
+
+    public enum Statements {
+        NONE,      // no STATEMENT blocks
+        TOP_LEVEL, // statements not nested in another statement
+        ALL        // every statement at every depth; nested text repeats inside its parents
+    }
+
+    private boolean methods = true;
+    private boolean fields = true;
+    private Statements statements = Statements.TOP_LEVEL;
+
+    public boolean isMethods() { return methods; }
+    public void setMethods(boolean v) { this.methods = v; }
+    public boolean isFields() { return fields; }
+    public void setFields(boolean v) { this.fields = v; }
+    public Statements getStatements() { return statements; }
+    public void setStatements(Statements v) { this.statements = v; }
+}
@@ -0,0 +1,33 @@
+// src/main/java/org/learningjava/bmtool1/config/LlmCacheProperties.java
+package org.learningjava.bmtool1.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Set;
+
+@Component
+@ConfigurationProperties(prefix = "bmtool1.llm-cache")
+public class LlmCacheProperties {
+    private boolean enabled = false;
+    private Set<String> providers = Set.of("ollama");   // per-provider opt-in
+    private Duration ttl = Duration.ofDays(7);
+    private int maxEntries = 10_000;
+    private int pruneEvery = 100;                        // prune after this many writes
+
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean v) { this.enabled = v; }
+    public Set<String> getProviders() { return providers; }
+    public void setProviders(Set<String> v) { this.providers = v; }
+    public Duration getTtl() { return ttl; }
+    public void setTtl(Duration v) { this.ttl = v; }
+    public int getMaxEntries() { return maxEntries; }
+    public void setMaxEntries(int v) { this.maxEntries = v; }
+    public int getPruneEvery() { return pruneEvery; }
+    public void setPruneEvery(int v) { this.pruneEvery = v; }
+
+    public boolean isEnabledFor(String providerId) {
+        return enabled && providerId != null && providers != null && providers.contains(providerId);
+    }
+}
@@ -0,0 +1,62 @@
+// src/main/java/org/learningjava/bmtool1/config/LlmLimiterProperties.java
+package org.learningjava.bmtool1.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+@Component
+@ConfigurationProperties(prefix = "bmtool1.llm-limiter")
+public class LlmLimiterProperties {
+    private boolean enabled = true;
+    private int initialLimit = 4;
+    private int minLimit = 1;
+    private int maxLimit = 32;
+    private double backoffRatio = 0.9;         // multiplicative decrease on 429/5xx/timeout
+    private double latencyTolerance = 2.0;     // success slower than tolerance × average counts as overload
+    private int queueCapacity = 50;            // waiting callers per (provider, model); beyond this we shed
+    private Duration maxWait = Duration.ofSeconds(60);
+    private Map<String, Limits> providers = new HashMap<>();  // per-provider overrides
+
+    public static class Limits {
+        private Integer initialLimit;
+        private Integer maxLimit;
+
+        public Integer getInitialLimit() { return initialLimit; }
+        public void setInitialLimit(Integer v) { this.initialLimit = v; }
+        public Integer getMaxLimit() { return maxLimit; }
+        public void setMaxLimit(Integer v) { this.maxLimit = v; }
+    }
+
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean v) { this.enabled = v; }
+    public int getInitialLimit() { return initialLimit; }
+    public void setInitialLimit(int v) { this.initialLimit = v; }
+    public int getMinLimit() { return minLimit; }
+    public void setMinLimit(int v) { this.minLimit = v; }
+    public int getMaxLimit() { return maxLimit; }
+    public void setMaxLimit(int v) { this.maxLimit = v; }
+    public double getBackoffRatio() { return backoffRatio; }
+    public void setBackoffRatio(double v) { this.backoffRatio = v; }
+    public double getLatencyTolerance() { return latencyTolerance; }
+    public void setLatencyTolerance(double v) { this.latencyTolerance = v; }
+    public int getQueueCapacity() { return queueCapacity; }
+    public void setQueueCapacity(int v) { this.queueCapacity = v; }
+    public Duration getMaxWait() { return maxWait; }
+    public void setMaxWait(Duration v) { this.maxWait = v; }
+    public Map<String, Limits> getProviders() { return providers; }
+    public void setProviders(Map<String, Limits> v) { this.providers = v; }
+
+    public int initialLimitFor(String providerId) {
+        Limits l = providers == null ? null : providers.get(providerId);
+        return l != null && l.getInitialLimit() != null ? l.getInitialLimit() : initialLimit;
+    }
+
+    public int maxLimitFor(String providerId) {
+        Limits l = providers == null ? null : providers.get(providerId);
+        return l != null && l.getMaxLimit() != null ? l.getMaxLimit() : maxLimit;
+    }
+}
@@ -0,0 +1,47 @@
+// src/main/java/org/learningjava/bmtool1/config/ModelContextWindows.java
+package org.learningjava.bmtool1.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@Component
+@ConfigurationProperties(prefix = "bmtool1.context-windows")
+public class ModelContextWindows {
+    private int defaultTokens = 8192;
+    private int completionReserve = 1024;             // tokens kept free for the answer (at most a quarter of the window);
+                                                      // Ollama also adds it to the prompt when sizing num_ctx
+    private Map<String, Integer> models = new HashMap<>(); // "provider:model" or "provider" -> window in tokens
+
+    public int getDefaultTokens() { return defaultTokens; }
+    public void setDefaultTokens(int v) { this.defaultTokens = v; }
+    public int getCompletionReserve() { return completionReserve; }
+    public void setCompletionReserve(int v) { this.completionReserve = v; }
+    public Map<String, Integer> getModels() { return models; }
+    public void setModels(Map<String, Integer> v) { this.models = v; }
+
+    /** Context window for a model: exact "provider:model", then "provider", then the default. */
+    public int windowFor(String providerId, String model) {
+        Integer configured = configuredWindow(providerId, model);
+        return configured != null ? configured : defaultTokens;
+    }
+
+    /** Configured window for a model ("provider:model", then "provider"), or null when only the default applies. */
+    public Integer configuredWindow(String providerId, String model) {
+        Integer exact = models.get(providerId + ":" + model);
+        return exact != null ? exact : models.get(providerId);
+    }
+
+    /**
+     * Tokens available for the prompt. {@code adapterWindow} is what the adapter actually sends
+     * (e.g. Ollama num_ctx) and caps the configured window when known.
+     */
+    public int promptBudget(String providerId, String model, Integer adapterWindow) {
+        int window = windowFor(providerId, model);
+        if (adapterWindow != null && adapterWindow > 0) window = Math.min(window, adapterWindow);
+        int reserve = Math.min(completionReserve, window / 4);
+        return Math.max(0, window - reserve);
+    }
+}
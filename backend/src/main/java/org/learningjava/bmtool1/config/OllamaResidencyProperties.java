@@ -0,0 +1,40 @@
+// src/main/java/org/learningjava/bmtool1/config/OllamaResidencyProperties.java
+package org.learningjava.bmtool1.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Set;
+
+@Component
+@ConfigurationProperties(prefix = "bmtool1.ollama.residency")
+public class OllamaResidencyProperties {
+    private boolean enabled = true;
+    private Duration keepAlive = Duration.ofMinutes(30);   // sent as keep_alive on every request
+    private int maxResidentModels = 2;                      // evict least recently used beyond this
+    private long maxResidentBytes = 0;                      // VRAM budget across loaded models; 0 = no limit
+    private Set<String> pinned = Set.of();                  // never evicted (e.g. the embedding model)
+    private int minNumCtx = 2048;
+    private int maxNumCtx = 32768;
+
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean v) { this.enabled = v; }
+    public Duration getKeepAlive() { return keepAlive; }
+    public void setKeepAlive(Duration v) { this.keepAlive = v; }
+    public int getMaxResidentModels() { return maxResidentModels; }
+    public void setMaxResidentModels(int v) { this.maxResidentModels = v; }
+    public long getMaxResidentBytes() { return maxResidentBytes; }
+    public void setMaxResidentBytes(long v) { this.maxResidentBytes = v; }
+    public Set<String> getPinned() { return pinned; }
+    public void setPinned(Set<String> v) { this.pinned = v; }
+    public int getMinNumCtx() { return minNumCtx; }
+    public void setMinNumCtx(int v) { this.minNumCtx = v; }
+    public int getMaxNumCtx() { return maxNumCtx; }
+    public void setMaxNumCtx(int v) { this.maxNumCtx = v; }
+
+    /** keep_alive in the format Ollama accepts ("1800s"). */
+    public String keepAliveParam() {
+        return keepAlive.toSeconds() + "s";
+    }
+}
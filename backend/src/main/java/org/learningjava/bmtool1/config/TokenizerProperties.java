@@ -0,0 +1,37 @@
+// src/main/java/org/learningjava/bmtool1/config/TokenizerProperties.java
+package org.learningjava.bmtool1.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@Component
+@ConfigurationProperties(prefix = "bmtool1.tokenizer")
+public class TokenizerProperties {
+    private Map<String, String> vocabularies = new HashMap<>(); // name -> classpath resource (tiktoken format)
+    private Map<String, Download> downloads = new HashMap<>();  // name -> where to fetch it when not on the classpath
+    private String cacheDir = "data/tokenizers";                // downloaded vocabularies; blank disables downloads
+    private Map<String, String> models = new HashMap<>();       // model-name prefix -> vocabulary name
+
+    /** A vocabulary fetched on first use; only a file with this SHA-256 is used or cached. */
+    public static class Download {
+        private String url;
+        private String sha256;
+
+        public String getUrl() { return url; }
+        public void setUrl(String v) { this.url = v; }
+        public String getSha256() { return sha256; }
+        public void setSha256(String v) { this.sha256 = v; }
+    }
+
+    public Map<String, String> getVocabularies() { return vocabularies; }
+    public void setVocabularies(Map<String, String> v) { this.vocabularies = v; }
+    public Map<String, Download> getDownloads() { return downloads; }
+    public void setDownloads(Map<String, Download> v) { this.downloads = v; }
+    public String getCacheDir() { return cacheDir; }
+    public void setCacheDir(String v) { this.cacheDir = v; }
+    public Map<String, String> getModels() { return models; }
+    public void setModels(Map<String, String> v) { this.models = v; }
+}
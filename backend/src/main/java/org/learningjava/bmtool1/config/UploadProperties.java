@@ -0,0 +1,22 @@
+// src/main/java/org/learningjava/bmtool1/config/UploadProperties.java
+package org.learningjava.bmtool1.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+/** Bounds on what an uploaded archive may unpack to; its sources are held in memory while they are ingested. */
+@Component
+@ConfigurationProperties(prefix = "bmtool1.upload.archive")
+public class UploadProperties {
+    private int maxEntries = 50_000;                           // entries of any kind, directories included
+    private DataSize maxEntrySize = DataSize.ofMegabytes(16);  // one source file, decompressed
+    private DataSize maxTotalSize = DataSize.ofMegabytes(512); // everything decompressed, skipped entries included
+
+    public int getMaxEntries() { return maxEntries; }
+    public void setMaxEntries(int v) { this.maxEntries = v; }
+    public DataSize getMaxEntrySize() { return maxEntrySize; }
+    public void setMaxEntrySize(DataSize v) { this.maxEntrySize = v; }
+    public DataSize getMaxTotalSize() { return maxTotalSize; }
+    public void setMaxTotalSize(DataSize v) { this.maxTotalSize = v; }
+}
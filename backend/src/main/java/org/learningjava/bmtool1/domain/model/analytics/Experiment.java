@@ -18,5 +18,57 @@ public record Experiment(
         Integer metric4PromptTok,
         Integer metric5CompletionTok,
         Integer metric6TotalTok,
-        String promptingTechnique
-) { }
+        String promptingTechnique,
+        Boolean cacheHit,
+        String winningProvider,
+        Integer wastedTokens,
+        String runStatus,           // OK | COALESCED | CANCELLED | DEADLINE_EXCEEDED
+        Integer metric7CachedTok,   // prompt tokens served from the provider's prompt cache
+        Boolean tokensEstimated     // metric4-6 counted locally because the provider reported no usage
+) {
+    public static final String STATUS_OK = "OK";
+    /** Waited for an identical call already in flight and reused its answer; that run's row carries the cost. */
+    public static final String STATUS_COALESCED = "COALESCED";
+
+    public Experiment(Long id, LocalDate experimentDate, int fwHitsCount, int docHitsCount, int kFw, int kDoc,
+                      String prompt, String embeddingModel, String llmModel,
+                      Double metric1Ccc, Double metric2TimeMs, Double metric3Co2G,
+                      Integer metric4PromptTok, Integer metric5CompletionTok, Integer metric6TotalTok,
+                      String promptingTechnique, Boolean cacheHit, String winningProvider, Integer wastedTokens,
+                      String runStatus, Integer metric7CachedTok) {
+        this(id, experimentDate, fwHitsCount, docHitsCount, kFw, kDoc, prompt, embeddingModel, llmModel,
+                metric1Ccc, metric2TimeMs, metric3Co2G, metric4PromptTok, metric5CompletionTok, metric6TotalTok,
+                promptingTechnique, cacheHit, winningProvider, wastedTokens, runStatus, metric7CachedTok, false);
+    }
+
+    public Experiment(Long id, LocalDate experimentDate, int fwHitsCount, int docHitsCount, int kFw, int kDoc,
+                      String prompt, String embeddingModel, String llmModel,
+                      Double metric1Ccc, Double metric2TimeMs, Double metric3Co2G,
+                      Integer metric4PromptTok, Integer metric5CompletionTok, Integer metric6TotalTok,
+                      String promptingTechnique, Boolean cacheHit, String winningProvider, Integer wastedTokens,
+                      String runStatus) {
+        this(id, experimentDate, fwHitsCount, docHitsCount, kFw, kDoc, prompt, embeddingModel, llmModel,
+                metric1Ccc, metric2TimeMs, metric3Co2G, metric4PromptTok, metric5CompletionTok, metric6TotalTok,
+                promptingTechnique, cacheHit, winningProvider, wastedTokens, runStatus, null, false);
+    }
+
+    public Experiment(Long id, LocalDate experimentDate, int fwHitsCount, int docHitsCount, int kFw, int kDoc,
+                      String prompt, String embeddingModel, String llmModel,
+                      Double metric1Ccc, Double metric2TimeMs, Double metric3Co2G,
+                      Integer metric4PromptTok, Integer metric5CompletionTok, Integer metric6TotalTok,
+                      String promptingTechnique, Boolean cacheHit, String winningProvider, Integer wastedTokens) {
+        this(id, experimentDate, fwHitsCount, docHitsCount, kFw, kDoc, prompt, embeddingModel, llmModel,
+                metric1Ccc, metric2TimeMs, metric3Co2G, metric4PromptTok, metric5CompletionTok, metric6TotalTok,
+                promptingTechnique, cacheHit, winningProvider, wastedTokens, STATUS_OK, null, false);
+    }
+
+    public Experiment(Long id, LocalDate experimentDate, int fwHitsCount, int docHitsCount, int kFw, int kDoc,
+                      String prompt, String embeddingModel, String llmModel,
+                      Double metric1Ccc, Double metric2TimeMs, Double metric3Co2G,
+                      Integer metric4PromptTok, Integer metric5CompletionTok, Integer metric6TotalTok,
+                      String promptingTechnique) {
+        this(id, experimentDate, fwHitsCount, docHitsCount, kFw, kDoc, prompt, embeddingModel, llmModel,
+                metric1Ccc, metric2TimeMs, metric3Co2G, metric4PromptTok, metric5CompletionTok, metric6TotalTok,
+                promptingTechnique, false, null, null, STATUS_OK, null, false);
+    }
+}
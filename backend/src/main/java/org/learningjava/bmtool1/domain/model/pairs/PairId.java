@@ -1,9 +1,20 @@
 package org.learningjava.bmtool1.domain.model.pairs;
 
+import java.nio.charset.StandardCharsets;
 import java.util.UUID;
 
 public record PairId(String value) {
     public static PairId newId() {
         return new PairId(UUID.randomUUID().toString());
     }
-}
\ No newline at end of file
+
+    /** Same key, same id: lets re-ingests address the mappings of a pair they stored before. */
+    public static PairId stable(String key) {
+        return new PairId(UUID.nameUUIDFromBytes(("pair:" + key).getBytes(StandardCharsets.UTF_8)).toString());
+    }
+
+    /** This id qualified by {@code scope}, so the same relative pair under two roots gets two ids. */
+    public PairId within(String scope) {
+        return stable(scope + "|" + value);
+    }
+}
@@ -8,5 +8,16 @@ import java.util.List;
 public record Answer(
         String text,
         List<RetrievalResult> retrievalResults,
-        List<FrameworkRetrievalResult> frameworkResults
-) {}
+        List<FrameworkRetrievalResult> frameworkResults,
+        boolean fromCache,
+        PackingReport packing
+) {
+    public Answer(String text, List<RetrievalResult> retrievalResults, List<FrameworkRetrievalResult> frameworkResults) {
+        this(text, retrievalResults, frameworkResults, false, null);
+    }
+
+    public Answer(String text, List<RetrievalResult> retrievalResults, List<FrameworkRetrievalResult> frameworkResults,
+                  boolean fromCache) {
+        this(text, retrievalResults, frameworkResults, fromCache, null);
+    }
+}
@@ -0,0 +1,21 @@
+package org.learningjava.bmtool1.domain.model.query;
+
+import java.util.List;
+
+/**
+ * What the prompt packer kept and dropped to fit the model's context window.
+ * Token figures are estimates; dropped/truncated entries are doc ids or framework symbols.
+ */
+public record PackingReport(
+        int budgetTokens,
+        int estimatedTokens,
+        int docsIncluded,
+        int symbolsIncluded,
+        List<String> droppedDocs,
+        List<String> truncatedDocs,
+        List<String> droppedSymbols
+) {
+    public boolean anythingDropped() {
+        return !droppedDocs.isEmpty() || !truncatedDocs.isEmpty() || !droppedSymbols.isEmpty();
+    }
+}
@@ -0,0 +1,18 @@
+package org.learningjava.bmtool1.domain.model.query;
+
+import org.learningjava.bmtool1.domain.model.framework.FrameworkRetrievalResult;
+import org.learningjava.bmtool1.domain.model.pairs.RetrievalResult;
+
+import java.util.List;
+
+/**
+ * Retrieval output for one question at one (kDocs, kFramework) setting, reusable across LLM calls.
+ * {@code retrievalNanos} is the embedding + retrieval time charged to every answer built from it.
+ */
+public record RetrievedContext(
+        int kDocs,
+        int kFramework,
+        List<RetrievalResult> docs,
+        List<FrameworkRetrievalResult> framework,
+        long retrievalNanos
+) {}
@@ -1,6 +1,14 @@
 package org.learningjava.bmtool1.domain.service;
 
 import org.learningjava.bmtool1.application.port.ChatLLMPort;
+import org.learningjava.bmtool1.application.port.ChatResponseCachePort;
+import org.learningjava.bmtool1.config.LlmCacheProperties;
+import org.learningjava.bmtool1.config.LlmLimiterProperties;
+import org.learningjava.bmtool1.domain.service.llm.CachingChatLLM;
+import org.learningjava.bmtool1.domain.service.llm.LimitedChatLLM;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.util.HashMap;
@@ -10,11 +18,27 @@ import java.util.Set;
 
 @Component
 public class ChatRegistry {
+    private static final Logger log = LoggerFactory.getLogger(ChatRegistry.class);
+
     private final Map<String, ChatLLMPort> providers = new HashMap<>();
 
     public ChatRegistry(List<ChatLLMPort> adapters) {
+        this(adapters, null, null, null);
+    }
+
+    public ChatRegistry(List<ChatLLMPort> adapters,
+                        ChatResponseCachePort responseCache,
+                        LlmCacheProperties cacheProps) {
+        this(adapters, responseCache, cacheProps, null);
+    }
+
+    @Autowired
+    public ChatRegistry(List<ChatLLMPort> adapters,
+                        ChatResponseCachePort responseCache,
+                        LlmCacheProperties cacheProps,
+                        LlmLimiterProperties limiterProps) {
         for (ChatLLMPort adapter : adapters) {
-            providers.put(adapter.provider(), adapter);
+            providers.put(adapter.provider(), decorate(adapter, responseCache, cacheProps, limiterProps));
         }
     }
 
@@ -25,4 +49,25 @@ public class ChatRegistry {
     public Set<String> listProviders() {
         return providers.keySet();
     }
+
+    // Outermost first: cache -> limiter -> adapter, so cache hits never take a limiter permit
+    private static ChatLLMPort decorate(ChatLLMPort adapter,
+                                        ChatResponseCachePort responseCache,
+                                        LlmCacheProperties cacheProps,
+                                        LlmLimiterProperties limiterProps) {
+        ChatLLMPort out = adapter;
+        if (limiterProps != null && limiterProps.isEnabled()) {
+            out = new LimitedChatLLM(out, limiterProps);
+            log.info("Adaptive concurrency limit enabled for provider '{}' (initial={}, max={})",
+                    adapter.provider(), limiterProps.initialLimitFor(adapter.provider()),
+                    limiterProps.maxLimitFor(adapter.provider()));
+        }
+        if (responseCache != null && cacheProps != null && cacheProps.isEnabledFor(adapter.provider())) {
+            out = new CachingChatLLM(out, responseCache,
+                    cacheProps.getTtl(), cacheProps.getMaxEntries(), cacheProps.getPruneEvery());
+            log.info("LLM response cache enabled for provider '{}' (ttl={}, maxEntries={})",
+                    adapter.provider(), cacheProps.getTtl(), cacheProps.getMaxEntries());
+        }
+        return out;
+    }
 }
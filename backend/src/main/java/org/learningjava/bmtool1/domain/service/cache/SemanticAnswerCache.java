@@ -0,0 +1,141 @@
+// src/main/java/org/learningjava/bmtool1/domain/service/cache/SemanticAnswerCache.java
+package org.learningjava.bmtool1.domain.service.cache;
+
+import org.learningjava.bmtool1.domain.model.query.Answer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * In-memory cache of final answers keyed on query-embedding similarity.
+ *
+ * A lookup hits when a cached entry has the same {@link Scope} (models, technique, k values, tags)
+ * and its query vector lies within {@code maxDistance} cosine distance of the new one. Entries
+ * expire after {@code ttl}; the oldest are evicted once {@code maxEntries} is reached.
+ * Vectors are normalised on insert so a lookup is one dot product per candidate.
+ */
+@Component
+public class SemanticAnswerCache {
+
+    /** Everything besides the question that shapes the answer; only identical scopes are compared. */
+    public record Scope(String provider,
+                        String llmModel,
+                        String embeddingModel,
+                        String technique,
+                        int kDocs,
+                        int kFramework,
+                        List<String> tags) {
+        public Scope {
+            tags = tags == null ? List.of() : tags.stream().sorted().toList();
+        }
+    }
+
+    public record Hit(Answer answer, double distance) {}
+
+    private record Entry(Scope scope, float[] unitVec, Answer answer, Instant createdAt) {}
+
+    private final boolean enabled;
+    private final double maxDistance;
+    private final Duration ttl;
+    private final int maxEntries;
+    private final Clock clock;
+
+    // insertion order == age order, so eviction and expiry both work from the head
+    private final ArrayDeque<Entry> entries = new ArrayDeque<>();
+
+    @Autowired
+    public SemanticAnswerCache(@Value("${bmtool1.semantic-cache.enabled:false}") boolean enabled,
+                               @Value("${bmtool1.semantic-cache.max-distance:0.05}") double maxDistance,
+                               @Value("${bmtool1.semantic-cache.ttl:PT1H}") Duration ttl,
+                               @Value("${bmtool1.semantic-cache.max-entries:1000}") int maxEntries) {
+        this(enabled, maxDistance, ttl, maxEntries, Clock.systemUTC());
+    }
+
+    SemanticAnswerCache(boolean enabled, double maxDistance, Duration ttl, int maxEntries, Clock clock) {
+        this.enabled = enabled;
+        this.maxDistance = maxDistance;
+        this.ttl = ttl;
+        this.maxEntries = Math.max(1, maxEntries);
+        this.clock = clock;
+    }
+
+    public boolean isEnabled() { return enabled; }
+
+    /** Closest cached answer within {@code maxDistance}, if any. */
+    public Optional<Hit> lookup(Scope scope, float[] queryVec) {
+        if (!enabled || queryVec == null || queryVec.length == 0) return Optional.empty();
+        float[] q = normalize(queryVec);
+        if (q == null) return Optional.empty();
+
+        synchronized (entries) {
+            evictExpired();
+            Entry best = null;
+            double bestDist = Double.MAX_VALUE;
+            for (Entry e : entries) {
+                if (!e.scope().equals(scope) || e.unitVec().length != q.length) continue;
+                double dist = 1.0 - dot(q, e.unitVec());
+                if (dist <= maxDistance && dist < bestDist) {
+                    best = e;
+                    bestDist = dist;
+                }
+            }
+            return best == null ? Optional.empty() : Optional.of(new Hit(best.answer(), bestDist));
+        }
+    }
+
+    public void put(Scope scope, float[] queryVec, Answer answer) {
+        if (!enabled || queryVec == null || answer == null) return;
+        float[] unit = normalize(queryVec);
+        if (unit == null) return;
+
+        synchronized (entries) {
+            evictExpired();
+            while (entries.size() >= maxEntries) entries.pollFirst();
+            entries.addLast(new Entry(scope, unit, answer, clock.instant()));
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    /* ---------- helpers ---------- */
+
+    private void evictExpired() {
+        Instant cutoff = clock.instant().minus(ttl);
+        Iterator<Entry> it = entries.iterator();
+        while (it.hasNext() && it.next().createdAt().isBefore(cutoff)) it.remove();
+    }
+
+    private static float[] normalize(float[] v) {
+        double norm = 0;
+        for (float x : v) norm += (double) x * x;
+        if (norm == 0) return null;
+        double inv = 1.0 / Math.sqrt(norm);
+        float[] out = new float[v.length];
+        for (int i = 0; i < v.length; i++) out[i] = (float) (v[i] * inv);
+        return out;
+    }
+
+    private static double dot(float[] a, float[] b) {
+        double s = 0;
+        for (int i = 0; i < a.length; i++) s += (double) a[i] * b[i];
+        return s;
+    }
+}
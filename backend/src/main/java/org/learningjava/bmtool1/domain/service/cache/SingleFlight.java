@@ -0,0 +1,139 @@
+// src/main/java/org/learningjava/bmtool1/domain/service/cache/SingleFlight.java
+package org.learningjava.bmtool1.domain.service.cache;
+
+import org.learningjava.bmtool1.application.port.CancellationToken;
+import org.learningjava.bmtool1.application.port.RequestCancelledException;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Coalesces concurrent calls with the same key: the first caller (the leader) runs the work on its own
+ * thread, later callers wait for and share its result (or exception). Nothing is cached once the work
+ * completes.
+ *
+ * The work runs under a flight-level {@link CancellationToken} that is cancelled only when every waiting
+ * caller has cancelled, so one client giving up does not abort an answer others still wait for.
+ */
+public final class SingleFlight<K, V> {
+
+    public record Result<V>(V value, boolean shared) {}
+
+    private static final class Flight<V> {
+        final CompletableFuture<V> future = new CompletableFuture<>();
+        final CancellationToken token = new CancellationToken();
+        final AtomicInteger waiters = new AtomicInteger(1);
+    }
+
+    private final Map<K, Flight<V>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Runs {@code work} for {@code key} unless an identical call is already running, in which case this
+     * call waits for that one. {@code caller} may be null (never cancelled).
+     */
+    public Result<V> execute(K key, CancellationToken caller, Function<CancellationToken, V> work) {
+        boolean[] leader = {false};
+        Flight<V> flight = join(key, caller, leader);
+        if (leader[0]) {
+            V value = null;
+            Throwable failure = null;
+            try {
+                value = work.apply(flight.token);
+            } catch (Throwable t) {
+                failure = t;
+            }
+            finish(key, flight, value, failure);
+        }
+        CompletableFuture<V> view = view(flight, caller);
+        try {
+            return new Result<>(view.get(), !leader[0]);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a coalesced request", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException re) throw re;
+            if (cause instanceof Error err) throw err;
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * Non-blocking {@link #execute}: the leader starts {@code work} and every caller gets a future of
+     * its result. Sync and async callers of the same key join the same flight.
+     */
+    public CompletableFuture<Result<V>> executeAsync(K key, CancellationToken caller,
+                                                     Function<CancellationToken, CompletableFuture<V>> work) {
+        boolean[] leader = {false};
+        Flight<V> flight = join(key, caller, leader);
+        if (leader[0]) {
+            CompletableFuture<V> started;
+            try {
+                started = work.apply(flight.token);
+            } catch (Throwable t) {
+                started = CompletableFuture.failedFuture(t);
+            }
+            started.whenComplete((value, failure) -> finish(key, flight, value, failure));
+        }
+        boolean shared = !leader[0];
+        return view(flight, caller).thenApply(v -> new Result<>(v, shared));
+    }
+
+    /** Keys with a call currently running. */
+    public int inFlight() {
+        return inFlight.size();
+    }
+
+    /* ---------- helpers ---------- */
+
+    private Flight<V> join(K key, CancellationToken caller, boolean[] leader) {
+        Flight<V> flight = inFlight.compute(key, (k, existing) -> {
+            if (existing != null && !existing.token.isCancelled()) {
+                existing.waiters.incrementAndGet();
+                return existing;
+            }
+            leader[0] = true;
+            return new Flight<>();
+        });
+        if (caller != null) caller.onCancel(() -> leave(key, flight, caller.reason()));
+        return flight;
+    }
+
+    // decided under the same lock joiners take, so a caller joins either before the last one leaves (and the
+    // work goes on) or after the flight is gone (and starts a new one), never a flight about to be cancelled
+    private void leave(K key, Flight<V> flight, CancellationToken.Reason reason) {
+        boolean[] last = {false};
+        inFlight.compute(key, (k, existing) -> {
+            if (flight.waiters.decrementAndGet() > 0) return existing;
+            last[0] = true;
+            return existing == flight ? null : existing;
+        });
+        if (last[0]) flight.token.cancel(reason);   // outside the lock: cancel callbacks may start other calls
+    }
+
+    private void finish(K key, Flight<V> flight, V value, Throwable failure) {
+        inFlight.remove(key, flight); // before completing, so a later caller starts a fresh call
+        if (failure == null) {
+            flight.future.complete(value);
+        } else {
+            flight.future.completeExceptionally(failure instanceof CompletionException && failure.getCause() != null
+                    ? failure.getCause() : failure);
+        }
+    }
+
+    // a per-caller view, so one caller giving up does not complete the shared future for the others
+    private static <V> CompletableFuture<V> view(Flight<V> flight, CancellationToken caller) {
+        CompletableFuture<V> view = flight.future.copy();
+        if (caller == null) return view;
+        caller.onCancel(() -> view.completeExceptionally(
+                new RequestCancelledException(caller.reason(), "coalesced request")));
+        return view.exceptionallyCompose(e -> CompletableFuture.failedFuture(caller.isCancelled()
+                ? new RequestCancelledException(caller.reason(), "coalesced request")
+                : e instanceof CompletionException && e.getCause() != null ? e.getCause() : e));
+    }
+}
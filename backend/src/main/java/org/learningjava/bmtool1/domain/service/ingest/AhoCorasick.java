@@ -0,0 +1,69 @@
+package org.learningjava.bmtool1.domain.service.ingest;
+
+import java.util.ArrayDeque;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * Finds which of a fixed set of patterns occur in a text in one pass over the text, however many patterns
+ * there are. Matching is exact and case-sensitive; callers lowercase both sides when they need otherwise.
+ */
+final class AhoCorasick {
+
+    private static final class Node {
+        final Map<Character, Node> next = new HashMap<>();
+        final BitSet out = new BitSet();
+        Node fail;
+    }
+
+    private final Node root = new Node();
+    private final int patterns;
+
+    /** Pattern ids are positions in {@code patterns}; an empty pattern occurs in every text. */
+    AhoCorasick(List<String> patterns) {
+        this.patterns = patterns.size();
+        for (int id = 0; id < patterns.size(); id++) {
+            Node node = root;
+            for (char c : patterns.get(id).toCharArray()) {
+                node = node.next.computeIfAbsent(c, k -> new Node());
+            }
+            node.out.set(id);
+        }
+
+        // breadth-first, so every node's failure link is final before its children's are computed
+        root.fail = root;
+        Queue<Node> queue = new ArrayDeque<>();
+        for (Node child : root.next.values()) {
+            child.fail = root;
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            Node node = queue.remove();
+            for (Map.Entry<Character, Node> e : node.next.entrySet()) {
+                Node child = e.getValue();
+                Node f = node.fail;
+                while (f != root && !f.next.containsKey(e.getKey())) f = f.fail;
+                Node target = f.next.get(e.getKey());
+                child.fail = target != null && target != child ? target : root;
+                child.out.or(child.fail.out);
+                queue.add(child);
+            }
+        }
+    }
+
+    /** Ids of the patterns occurring in {@code text}. */
+    BitSet matches(CharSequence text) {
+        BitSet found = (BitSet) root.out.clone();
+        Node node = root;
+        for (int i = 0; i < text.length() && found.cardinality() < patterns; i++) {
+            char c = text.charAt(i);
+            while (node != root && !node.next.containsKey(c)) node = node.fail;
+            node = node.next.getOrDefault(c, root);
+            found.or(node.out);
+        }
+        return found;
+    }
+}
@@ -5,15 +5,15 @@ import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
 import org.learningjava.bmtool1.domain.model.pairs.Block;
 import org.learningjava.bmtool1.domain.model.pairs.BlockMapping;
 import org.learningjava.bmtool1.domain.policy.MappingConfig;
-import org.learningjava.bmtool1.domain.policy.MappingRule;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
 import java.io.InputStream;
 import java.nio.file.Path;
+import java.security.MessageDigest;
 import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.HexFormat;
 import java.util.List;
 import java.util.UUID;
 
@@ -22,20 +22,29 @@ import java.util.UUID;
 @Component
 public class BlockMapper {
     private static final Logger log = LoggerFactory.getLogger(BlockMapper.class);
-    private final List<MappingRule> rules;
+    private final CompiledRules rules;
     private final HelperDetector helperDetector = new HelperDetector();
+    private final String version;
 
     public BlockMapper() {
         try (InputStream in = getClass().getResourceAsStream("/policy_rules/rules.yml")) {
+            byte[] yml = in.readAllBytes();
             ObjectMapper mapper = new ObjectMapper(new YAMLFactory());
-            MappingConfig config = mapper.readValue(in, MappingConfig.class);
-            this.rules = config.getRules();
-            log.info("Loaded {} mapping rules from rules.yml", rules.size());
+            MappingConfig config = mapper.readValue(yml, MappingConfig.class);
+            this.rules = new CompiledRules(config.getRules());
+            this.version = "rules:" + HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(yml), 0, 8)
+                    + ";helpers:" + HelperDetector.VERSION;
+            log.info("Loaded {} mapping rules from rules.yml", config.getRules().size());
         } catch (Exception e) {
             throw new RuntimeException("Failed to load mapping rules", e);
         }
     }
 
+    /** Changes with rules.yml and the helper rules; recorded per pair so a rules change re-maps unchanged sources. */
+    public String version() {
+        return version;
+    }
+
     public List<BlockMapping> map(List<Block> plsqlBlocks, List<Block> javaBlocks) {
         log.info("Mapping {} PL/SQL blocks to {} Java blocks", plsqlBlocks.size(), javaBlocks.size());
 
@@ -45,17 +54,12 @@ public class BlockMapper {
         List<Block> mains = taggedBlocks.stream().filter(b -> !b.isHelper()).toList();
 
         List<BlockMapping> mappings = new ArrayList<>();
+        CompiledRules.Index index = rules.index(mains);
 
         for (Block plsql : plsqlBlocks) {
-            List<Block> candidates = mains.stream()
-                    .filter(j -> isEquivalent(plsql, j))
-                    .toList();
-
-            if (!candidates.isEmpty()) {
-                Block javaBlock = candidates.stream()
-                        .min(Comparator.comparingInt(b -> b.text().length()))
-                        .orElse(candidates.get(0));
+            Block javaBlock = index.bestMatch(plsql);
 
+            if (javaBlock != null) {
                 String pairId = UUID.randomUUID().toString();
 
                 List<String> usedHelpers = filterUsedHelpers(javaBlock, helpers);
@@ -91,33 +95,6 @@ public class BlockMapper {
     }
 
 
-    private boolean isEquivalent(Block plsql, Block java) {
-        for (MappingRule rule : rules) {
-            if (plsql.type().equals(rule.getPlsqlType())
-                    && java.type().equals(rule.getJavaType())) {
-
-                // Check optional plsqlContains
-                if (rule.getPlsqlContains() != null && !rule.getPlsqlContains().isBlank()) {
-                    String lhs = plsql.text().split(":=", 2)[0].trim().toLowerCase();
-                    if (!lhs.matches(".*(" + rule.getPlsqlContains().toLowerCase() + ").*")) {
-                        continue;
-                    }
-                }
-
-                String javaText = java.text().toLowerCase();
-                String contains = rule.getJavaContains().toLowerCase();
-
-                if (javaText.contains(" " + contains + "(") || javaText.startsWith(contains + "(")) {
-                    return true;
-                }
-                if (javaText.contains(contains)) {
-                    return true;
-                }
-            }
-        }
-        return false;
-    }
-
     private List<String> filterUsedHelpers(Block javaBlock, List<Block> helpers) {
         String body = javaBlock.text();
 
@@ -0,0 +1,89 @@
+package org.learningjava.bmtool1.domain.service.ingest;
+
+import org.learningjava.bmtool1.domain.model.pairs.Block;
+import org.learningjava.bmtool1.domain.policy.MappingRule;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * The mapping rules prepared once for matching. A PL/SQL block and a Java block are equivalent when some rule
+ * names both their types, its optional {@code plsqlContains} regex matches the PL/SQL assignment target, and the
+ * lowercased Java text contains its {@code javaContains}.
+ *
+ * Rules are grouped by PL/SQL type, regexes are compiled here, and {@link #index} scans each Java block once for
+ * every {@code javaContains} at the same time, so finding a PL/SQL block's match no longer touches each Java block.
+ */
+final class CompiledRules {
+
+    private record Rule(String javaType, Pattern plsqlContains, int javaContains) {}
+
+    private record Key(String javaType, int javaContains) {}
+
+    private record Candidate(Block block, int length, int order) {
+        boolean beats(Candidate other) {
+            return other == null || length < other.length || length == other.length && order < other.order;
+        }
+    }
+
+    private final Map<String, List<Rule>> byPlsqlType = new HashMap<>();
+    private final AhoCorasick javaContains;
+
+    CompiledRules(List<MappingRule> rules) {
+        Map<String, Integer> patternIds = new LinkedHashMap<>();
+        for (MappingRule r : rules) {
+            String contains = r.getJavaContains() == null ? "" : r.getJavaContains().toLowerCase();
+            int id = patternIds.computeIfAbsent(contains, k -> patternIds.size());
+            Pattern plsql = r.getPlsqlContains() == null || r.getPlsqlContains().isBlank()
+                    ? null
+                    : Pattern.compile(".*(" + r.getPlsqlContains().toLowerCase() + ").*");
+            byPlsqlType.computeIfAbsent(r.getPlsqlType(), k -> new ArrayList<>())
+                    .add(new Rule(r.getJavaType(), plsql, id));
+        }
+        this.javaContains = new AhoCorasick(new ArrayList<>(patternIds.keySet()));
+    }
+
+    /** Prepares {@code javaBlocks} for repeated {@link Index#bestMatch} lookups. */
+    Index index(List<Block> javaBlocks) {
+        return new Index(javaBlocks);
+    }
+
+    final class Index {
+        // the shortest Java block (earliest on ties) of each type containing each javaContains
+        private final Map<Key, Candidate> shortest = new HashMap<>();
+
+        private Index(List<Block> javaBlocks) {
+            for (int i = 0; i < javaBlocks.size(); i++) {
+                Block java = javaBlocks.get(i);
+                BitSet found = javaContains.matches(java.text().toLowerCase());
+                Candidate c = new Candidate(java, java.text().length(), i);
+                for (int id = found.nextSetBit(0); id >= 0; id = found.nextSetBit(id + 1)) {
+                    shortest.merge(new Key(java.type(), id), c, (old, cur) -> cur.beats(old) ? cur : old);
+                }
+            }
+        }
+
+        /** The shortest equivalent Java block, the earliest one on ties, or null if none is equivalent. */
+        Block bestMatch(Block plsql) {
+            List<Rule> rules = byPlsqlType.get(plsql.type());
+            if (rules == null) return null;
+
+            String lhs = null;
+            Candidate best = null;
+            for (Rule rule : rules) {
+                if (rule.plsqlContains() != null) {
+                    if (lhs == null) lhs = plsql.text().split(":=", 2)[0].trim().toLowerCase();
+                    if (!rule.plsqlContains().matcher(lhs).matches()) continue;
+                }
+                Candidate c = shortest.get(new Key(rule.javaType(), rule.javaContains()));
+                if (c != null && c.beats(best)) best = c;
+            }
+            return best == null ? null : best.block();
+        }
+    }
+}
@@ -9,6 +9,9 @@ import java.util.List;
 public class HelperDetector {
     private static final Logger log = LoggerFactory.getLogger(HelperDetector.class);
 
+    /** Bump when the rules below change, so incremental ingest re-maps pairs it would otherwise skip. */
+    public static final int VERSION = 1;
+
     /**
      * Returns the same list of blocks, but with helpers marked (isHelper = true).
      */
@@ -0,0 +1,178 @@
+// src/main/java/org/learningjava/bmtool1/domain/service/llm/AdaptiveConcurrencyLimiter.java
+package org.learningjava.bmtool1.domain.service.llm;
+
+import org.learningjava.bmtool1.application.port.CancellationToken;
+import org.learningjava.bmtool1.application.port.RequestCancelledException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * AIMD concurrency limit for one (provider, model).
+ *
+ * The limit grows by one after a success while at least half of it is in use, and shrinks by
+ * {@code backoffRatio} on overload: a 429/5xx/timeout, or a success slower than
+ * {@code latencyTolerance} × the running average. Callers over the limit wait in a bounded
+ * queue for at most {@code maxWait}; beyond that they are shed with {@link LimitExceededException}.
+ * A waiter whose request is cancelled leaves the queue at once.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private static final Logger log = LoggerFactory.getLogger(AdaptiveConcurrencyLimiter.class);
+
+    /** Samples needed before the latency average is trusted as an overload signal. */
+    private static final int LATENCY_WARMUP_SAMPLES = 5;
+    private static final double LATENCY_EWMA_ALPHA = 0.1;
+
+    public enum Outcome { SUCCESS, OVERLOAD, IGNORE }
+
+    private final String name;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private final double latencyTolerance;
+    private final int queueCapacity;
+    private final long maxWaitNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition permitAvailable = lock.newCondition();
+
+    private double limit;
+    private int inFlight;
+    private int waiting;
+    private double avgLatencyNanos;
+    private long latencySamples;
+
+    public AdaptiveConcurrencyLimiter(String name, int initialLimit, int minLimit, int maxLimit,
+                                      double backoffRatio, double latencyTolerance,
+                                      int queueCapacity, Duration maxWait) {
+        this.name = name;
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.backoffRatio = backoffRatio;
+        this.latencyTolerance = latencyTolerance;
+        this.queueCapacity = Math.max(0, queueCapacity);
+        this.maxWaitNanos = maxWait.toNanos();
+        this.limit = Math.min(this.maxLimit, Math.max(this.minLimit, initialLimit));
+    }
+
+    /** Blocks until a permit is free; sheds when the queue is full or {@code maxWait} elapses. */
+    public void acquire() {
+        acquire(null);
+    }
+
+    /**
+     * As {@link #acquire()}, but stops waiting with {@link RequestCancelledException} as soon as {@code token}
+     * (may be null) is cancelled or its deadline passes.
+     */
+    public void acquire(CancellationToken token) {
+        if (token != null) token.throwIfCancelled("waiting for " + name);
+        lock.lock();
+        try {
+            if (waiting == 0 && inFlight < currentLimit()) {
+                inFlight++;
+                return;
+            }
+            if (waiting >= queueCapacity) {
+                throw shed("queue full");
+            }
+            waiting++;
+            if (token != null) token.onCancel(this::wakeWaiters);
+            try {
+                long remaining = maxWaitNanos;
+                while (inFlight >= currentLimit()) {
+                    if (token != null) token.throwIfCancelled("waiting for " + name);
+                    if (remaining <= 0) throw shed("waited " + TimeUnit.NANOSECONDS.toMillis(maxWaitNanos) + " ms");
+                    remaining = permitAvailable.awaitNanos(remaining);
+                }
+                inFlight++;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw shed("interrupted while waiting");
+            } finally {
+                waiting--;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Returns the permit and feeds the outcome of the call back into the limit. */
+    public void release(Outcome outcome, long latencyNanos) {
+        lock.lock();
+        try {
+            int inFlightBefore = inFlight;
+            inFlight = Math.max(0, inFlight - 1);
+            double before = limit;
+
+            switch (outcome) {
+                case OVERLOAD -> decrease();
+                case SUCCESS -> {
+                    boolean slow = latencySamples >= LATENCY_WARMUP_SAMPLES
+                            && latencyNanos > avgLatencyNanos * latencyTolerance;
+                    if (slow) {
+                        decrease();
+                    } else if (inFlightBefore * 2 >= limit) {
+                        limit = Math.min(maxLimit, limit + 1);
+                    }
+                    avgLatencyNanos = latencySamples == 0
+                            ? latencyNanos
+                            : avgLatencyNanos + LATENCY_EWMA_ALPHA * (latencyNanos - avgLatencyNanos);
+                    latencySamples++;
+                }
+                case IGNORE -> { }
+            }
+
+            if ((int) before != (int) limit) {
+                log.debug("Limiter {}: limit {} -> {} after {} (inFlight={}, waiting={})",
+                        name, (int) before, (int) limit, outcome, inFlight, waiting);
+            }
+            permitAvailable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int limit() {
+        lock.lock();
+        try { return currentLimit(); } finally { lock.unlock(); }
+    }
+
+    public int inFlight() {
+        lock.lock();
+        try { return inFlight; } finally { lock.unlock(); }
+    }
+
+    public int waiting() {
+        lock.lock();
+        try { return waiting; } finally { lock.unlock(); }
+    }
+
+    /* ---------- helpers ---------- */
+
+    private int currentLimit() {
+        return (int) limit;
+    }
+
+    private void wakeWaiters() {
+        lock.lock();
+        try {
+            permitAvailable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void decrease() {
+        limit = Math.max(minLimit, limit * backoffRatio);
+    }
+
+    private LimitExceededException shed(String reason) {
+        return new LimitExceededException(name, "Concurrency limit reached for " + name + " (" + reason
+                + "; limit=" + currentLimit() + ", inFlight=" + inFlight + ", waiting=" + waiting + ")");
+    }
+}
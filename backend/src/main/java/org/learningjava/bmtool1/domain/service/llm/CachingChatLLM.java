@@ -0,0 +1,148 @@
+// src/main/java/org/learningjava/bmtool1/domain/service/llm/CachingChatLLM.java
+package org.learningjava.bmtool1.domain.service.llm;
+
+import org.learningjava.bmtool1.application.port.CancellationToken;
+import org.learningjava.bmtool1.application.port.ChatLLMPort;
+import org.learningjava.bmtool1.application.port.ChatResponseCachePort;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Response cache in front of {@link ChatLLMPort#chatWithUsage(String, String)}.
+ *
+ * Only meaningful for deterministic providers (temperature 0), which is why {@code ChatRegistry}
+ * wraps a provider only when it is opted in. The key is a SHA-256 over provider, model,
+ * {@link ChatLLMPort#cacheOptions()} and the prompt. Hits come back {@link ChatResult#cached() marked}
+ * so callers do not book the stored usage a second time. Cache failures never fail the call.
+ */
+public class CachingChatLLM implements ChatLLMPort {
+
+    private static final Logger log = LoggerFactory.getLogger(CachingChatLLM.class);
+
+    private final ChatLLMPort delegate;
+    private final ChatResponseCachePort cache;
+    private final Duration ttl;
+    private final int maxEntries;
+    private final int pruneEvery;
+    private final Clock clock;
+    private final AtomicInteger writesSincePrune = new AtomicInteger();
+
+    public CachingChatLLM(ChatLLMPort delegate, ChatResponseCachePort cache,
+                          Duration ttl, int maxEntries, int pruneEvery) {
+        this(delegate, cache, ttl, maxEntries, pruneEvery, Clock.systemUTC());
+    }
+
+    CachingChatLLM(ChatLLMPort delegate, ChatResponseCachePort cache,
+                   Duration ttl, int maxEntries, int pruneEvery, Clock clock) {
+        this.delegate = delegate;
+        this.cache = cache;
+        this.ttl = ttl;
+        this.maxEntries = maxEntries;
+        this.pruneEvery = Math.max(1, pruneEvery);
+        this.clock = clock;
+    }
+
+    @Override
+    public String provider() { return delegate.provider(); }
+
+    @Override
+    public String cacheOptions() { return delegate.cacheOptions(); }
+
+    @Override
+    public Integer contextWindow(String model) { return delegate.contextWindow(model); }
+
+    @Override
+    public void warmUp(String model) { delegate.warmUp(model); }
+
+    /** Legacy text-only path (different endpoint on some providers); passed through uncached. */
+    @Override
+    public String chat(String prompt, String model) {
+        return delegate.chat(prompt, model);
+    }
+
+    @Override
+    public ChatResult chatWithUsage(String prompt, String model) {
+        return chatWithUsage(prompt, model, null);
+    }
+
+    @Override
+    public ChatResult chatWithUsage(String prompt, String model, CancellationToken token) {
+        String key = cacheKey(provider(), model, cacheOptions(), prompt);
+
+        Optional<ChatResult> hit = lookup(key);
+        if (hit.isPresent()) {
+            log.debug("LLM cache HIT provider={} model={} key={}", provider(), model, key.substring(0, 12));
+            return hit.get().asCached();
+        }
+
+        ChatResult res = token == null
+                ? delegate.chatWithUsage(prompt, model)
+                : delegate.chatWithUsage(prompt, model, token);
+        store(key, model, res);
+        return res;
+    }
+
+    @Override
+    public CompletableFuture<ChatResult> chatWithUsageAsync(String prompt, String model, CancellationToken token) {
+        String key = cacheKey(provider(), model, cacheOptions(), prompt);
+
+        Optional<ChatResult> hit = lookup(key);
+        if (hit.isPresent()) {
+            log.debug("LLM cache HIT provider={} model={} key={}", provider(), model, key.substring(0, 12));
+            return CompletableFuture.completedFuture(hit.get().asCached());
+        }
+
+        return delegate.chatWithUsageAsync(prompt, model, token).thenApply(res -> {
+            store(key, model, res);
+            return res;
+        });
+    }
+
+    /* ---------- helpers ---------- */
+
+    private Optional<ChatResult> lookup(String key) {
+        try {
+            return cache.find(key, clock.instant().minus(ttl));
+        } catch (Exception e) {
+            log.warn("LLM cache lookup failed (non-fatal): {}", e.toString());
+            return Optional.empty();
+        }
+    }
+
+    private void store(String key, String model, ChatResult res) {
+        if (res == null || res.text() == null || res.text().isBlank()) return; // never cache empty answers
+        try {
+            cache.put(key, provider(), model, res);
+            if (writesSincePrune.incrementAndGet() >= pruneEvery) {
+                writesSincePrune.set(0);
+                int removed = cache.prune(clock.instant().minus(ttl), maxEntries);
+                if (removed > 0) log.debug("LLM cache pruned {} entries", removed);
+            }
+        } catch (Exception e) {
+            log.warn("LLM cache write failed (non-fatal): {}", e.toString());
+        }
+    }
+
+    static String cacheKey(String provider, String model, String options, String prompt) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            for (String part : new String[]{provider, model, options, prompt}) {
+                md.update((part == null ? "" : part).getBytes(StandardCharsets.UTF_8));
+                md.update((byte) 0); // separator so ("ab","c") != ("a","bc")
+            }
+            return HexFormat.of().formatHex(md.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,228 @@
+// src/main/java/org/learningjava/bmtool1/domain/service/llm/HedgedChatService.java
+package org.learningjava.bmtool1.domain.service.llm;
+
+import jakarta.annotation.PreDestroy;
+import org.learningjava.bmtool1.application.port.CancellationToken;
+import org.learningjava.bmtool1.application.port.ChatLLMPort;
+import org.learningjava.bmtool1.application.port.ChatLLMPort.ChatResult;
+import org.learningjava.bmtool1.application.port.ChatLLMPort.Usage;
+import org.learningjava.bmtool1.domain.service.ChatRegistry;
+import org.learningjava.bmtool1.domain.service.tokens.TokenizerRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+
+/**
+ * Sends one prompt to two (provider, model) targets and returns the first complete answer.
+ *
+ * {@link Mode#RACE} starts both at once. {@link Mode#HEDGE} starts the secondary only when the
+ * primary has not answered within its observed p95 latency, or immediately if the primary fails.
+ * The losing call is cancelled through its {@link CancellationToken}. Tokens spent by the loser are
+ * reported as waste: its real usage if it completed, otherwise the prompt it was sent, counted with the
+ * loser model's tokenizer.
+ */
+@Component
+public class HedgedChatService {
+
+    private static final Logger log = LoggerFactory.getLogger(HedgedChatService.class);
+
+    public enum Mode { RACE, HEDGE }
+
+    public record Target(String provider, String model) {
+        @Override public String toString() { return provider + "/" + model; }
+    }
+
+    public record HedgeResult(ChatResult result, Target winner, boolean hedged, Integer wastedTokens, Target loser) {}
+
+    private record Leg(Target target, ChatResult result, Exception error, long latencyNanos) {}
+
+    private final ChatRegistry chatRegistry;
+    private final TokenizerRegistry tokenizers;
+    private final double percentile;
+    private final int minSamples;
+    private final int window;
+    private final long defaultDelayMs;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<Target, LatencyWindow> latencies = new ConcurrentHashMap<>();
+
+    public HedgedChatService(ChatRegistry chatRegistry,
+                             TokenizerRegistry tokenizers,
+                             @Value("${bmtool1.hedge.percentile:0.95}") double percentile,
+                             @Value("${bmtool1.hedge.min-samples:20}") int minSamples,
+                             @Value("${bmtool1.hedge.window:200}") int window,
+                             @Value("${bmtool1.hedge.default-delay-ms:10000}") long defaultDelayMs) {
+        this.chatRegistry = chatRegistry;
+        this.tokenizers = tokenizers;
+        this.percentile = percentile;
+        this.minSamples = Math.max(1, minSamples);
+        this.window = Math.max(this.minSamples, window);
+        this.defaultDelayMs = defaultDelayMs;
+    }
+
+    public HedgeResult chat(String prompt, Target primary, Target secondary, Mode mode) {
+        return chat(prompt, primary, secondary, mode, null);
+    }
+
+    /** As above; cancelling {@code request} cancels both legs. */
+    public HedgeResult chat(String prompt, Target primary, Target secondary, Mode mode, CancellationToken request) {
+        ChatLLMPort primaryPort = resolve(primary);
+        ChatLLMPort secondaryPort = resolve(secondary);
+        if (primary.equals(secondary)) throw new IllegalArgumentException("Hedge target must differ from primary: " + primary);
+
+        CompletionService<Leg> legs = new ExecutorCompletionService<>(executor);
+        Map<Target, CancellationToken> tokens = new ConcurrentHashMap<>();
+        List<Leg> failures = new ArrayList<>();
+        int running = 0;
+
+        launch(legs, tokens, primaryPort, primary, prompt, request);
+        running++;
+        boolean hedged = false;
+
+        try {
+            if (mode == Mode.RACE) {
+                launch(legs, tokens, secondaryPort, secondary, prompt, request);
+                running++;
+                hedged = true;
+            } else {
+                long delayMs = hedgeDelayMs(primary);
+                Future<Leg> early = legs.poll(delayMs, TimeUnit.MILLISECONDS);
+                if (early != null) {
+                    running--;
+                    Leg leg = early.get();
+                    if (leg.error() == null) return new HedgeResult(leg.result(), primary, false, null, null);
+                    failures.add(leg);
+                    log.debug("Hedge: primary {} failed early ({}), falling back to {}", primary, leg.error().toString(), secondary);
+                } else {
+                    log.debug("Hedge: primary {} slower than {} ms, hedging to {}", primary, delayMs, secondary);
+                }
+                if (request != null) request.throwIfCancelled("hedged chat");
+                launch(legs, tokens, secondaryPort, secondary, prompt, request);
+                running++;
+                hedged = true;
+            }
+
+            while (running > 0) {
+                Leg leg = legs.take().get();
+                running--;
+                if (leg.error() != null) {
+                    failures.add(leg);
+                    continue;
+                }
+                Target loser = leg.target().equals(primary) ? secondary : primary;
+                CancellationToken loserToken = tokens.get(loser);
+                if (loserToken != null) loserToken.cancel();
+                boolean loserFailed = failures.stream().anyMatch(l -> l.target().equals(loser));
+                Integer wasted = !hedged ? null : loserFailed ? 0 : wastedTokens(legs, running, loser, prompt);
+                return new HedgeResult(leg.result(), leg.target(), hedged, wasted, hedged ? loser : null);
+            }
+        } catch (InterruptedException e) {
+            tokens.values().forEach(CancellationToken::cancel);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Hedged chat interrupted", e);
+        } catch (ExecutionException e) {
+            tokens.values().forEach(CancellationToken::cancel);
+            throw new IllegalStateException("Hedged chat leg crashed", e.getCause());
+        }
+
+        // Every leg failed: surface the primary's error (or the first one we saw)
+        Exception err = failures.stream().filter(l -> l.target().equals(primary)).findFirst()
+                .orElse(failures.get(0)).error();
+        if (err instanceof RuntimeException re) throw re;
+        throw new IllegalStateException("Hedged chat failed: " + err.getMessage(), err);
+    }
+
+    /** Current hedge delay for {@code target}: the configured percentile of recent latencies. */
+    public long hedgeDelayMs(Target target) {
+        LatencyWindow w = latencies.get(target);
+        if (w == null) return defaultDelayMs;
+        long p = w.percentileMs(percentile, minSamples);
+        return p < 0 ? defaultDelayMs : p;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /* ---------- helpers ---------- */
+
+    private ChatLLMPort resolve(Target t) {
+        if (t == null) throw new IllegalArgumentException("Hedge target is required");
+        ChatLLMPort port = chatRegistry.get(t.provider());
+        if (port == null) throw new IllegalArgumentException("Unknown provider: " + t.provider());
+        return port;
+    }
+
+    private void launch(CompletionService<Leg> legs, Map<Target, CancellationToken> tokens,
+                        ChatLLMPort port, Target target, String prompt, CancellationToken request) {
+        CancellationToken token = request == null ? new CancellationToken() : request.child();
+        tokens.put(target, token);
+        legs.submit(() -> {
+            long t0 = System.nanoTime();
+            try {
+                ChatResult r = port.chatWithUsage(prompt, target.model(), token);
+                long dt = System.nanoTime() - t0;
+                latencies.computeIfAbsent(target, k -> new LatencyWindow(window)).record(dt);
+                return new Leg(target, r, null, dt);
+            } catch (Exception e) {
+                return new Leg(target, null, e, System.nanoTime() - t0);
+            }
+        });
+    }
+
+    // If the loser already finished its result is sitting in the completion queue; else count the prompt
+    private Integer wastedTokens(CompletionService<Leg> legs, int running, Target loser, String prompt) {
+        if (running > 0) {
+            Future<Leg> done = legs.poll();
+            if (done != null) {
+                try {
+                    Leg leg = done.get();
+                    if (leg.error() == null && leg.result() != null && leg.result().usage() != null) {
+                        Usage u = leg.result().usage();
+                        return (u.promptTokens() == null ? 0 : u.promptTokens())
+                                + (u.completionTokens() == null ? 0 : u.completionTokens());
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException ignored) {
+                    // fall through to the estimate
+                }
+            }
+        }
+        log.debug("Hedge: loser {} cancelled; counting its prompt as wasted", loser);
+        return tokenizers.count(loser.model(), prompt);
+    }
+
+    /** Fixed-size ring of successful call latencies for one target. */
+    static final class LatencyWindow {
+        private final long[] samples;
+        private int next;
+        private int count;
+
+        LatencyWindow(int size) {
+            this.samples = new long[size];
+        }
+
+        synchronized void record(long nanos) {
+            samples[next] = nanos;
+            next = (next + 1) % samples.length;
+            if (count < samples.length) count++;
+        }
+
+        /** Percentile in ms, or -1 while fewer than {@code minSamples} are recorded. */
+        synchronized long percentileMs(double p, int minSamples) {
+            if (count < minSamples) return -1;
+            long[] sorted = Arrays.copyOf(samples, count);
+            Arrays.sort(sorted);
+            int idx = (int) Math.ceil(p * count) - 1;
+            return TimeUnit.NANOSECONDS.toMillis(sorted[Math.max(0, Math.min(count - 1, idx))]);
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package org.learningjava.bmtool1.domain.service.llm;
+
+import org.learningjava.bmtool1.application.port.ProviderException;
+
+/** Thrown when a call is shed locally by {@link AdaptiveConcurrencyLimiter} instead of reaching the provider. */
+public class LimitExceededException extends ProviderException {
+
+    public LimitExceededException(String limiterName, String message) {
+        super(limiterName, 429, message);
+    }
+}
@@ -0,0 +1,144 @@
+// src/main/java/org/learningjava/bmtool1/domain/service/llm/LimitedChatLLM.java
+package org.learningjava.bmtool1.domain.service.llm;
+
+import org.learningjava.bmtool1.application.port.CancellationToken;
+import org.learningjava.bmtool1.application.port.ChatLLMPort;
+import org.learningjava.bmtool1.application.port.ProviderException;
+import org.learningjava.bmtool1.application.port.RequestCancelledException;
+import org.learningjava.bmtool1.config.LlmLimiterProperties;
+import org.learningjava.bmtool1.domain.service.llm.AdaptiveConcurrencyLimiter.Outcome;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Bounds in-flight calls to one provider with an {@link AdaptiveConcurrencyLimiter} per model,
+ * so overload shows up as a shrinking limit and a short local queue instead of provider-side
+ * queueing and read timeouts.
+ */
+public class LimitedChatLLM implements ChatLLMPort {
+
+    private final ChatLLMPort delegate;
+    private final LlmLimiterProperties props;
+    private final Map<String, AdaptiveConcurrencyLimiter> limiters = new ConcurrentHashMap<>();
+
+    public LimitedChatLLM(ChatLLMPort delegate, LlmLimiterProperties props) {
+        this.delegate = delegate;
+        this.props = props;
+    }
+
+    @Override
+    public String provider() { return delegate.provider(); }
+
+    @Override
+    public String cacheOptions() { return delegate.cacheOptions(); }
+
+    @Override
+    public Integer contextWindow(String model) { return delegate.contextWindow(model); }
+
+    @Override
+    public void warmUp(String model) { delegate.warmUp(model); }
+
+    @Override
+    public String chat(String prompt, String model) {
+        return call(model, null, () -> delegate.chat(prompt, model));
+    }
+
+    @Override
+    public ChatResult chatWithUsage(String prompt, String model) {
+        return call(model, null, () -> delegate.chatWithUsage(prompt, model));
+    }
+
+    @Override
+    public ChatResult chatWithUsage(String prompt, String model, CancellationToken token) {
+        return call(model, token, () -> delegate.chatWithUsage(prompt, model, token));
+    }
+
+    /**
+     * Waiting for a permit parks a virtual thread, never the caller; the permit is held until the call completes.
+     * Cancelling {@code token} or the returned future ends the wait, and a call whose permit arrives after that
+     * is never made.
+     */
+    @Override
+    public CompletableFuture<ChatResult> chatWithUsageAsync(String prompt, String model, CancellationToken token) {
+        AdaptiveConcurrencyLimiter limiter = limiter(model);
+        CancellationToken scope = token == null ? new CancellationToken() : token.child();
+        CompletableFuture<ChatResult> out = new CompletableFuture<>();
+        out.whenComplete((res, e) -> {
+            if (out.isCancelled()) scope.cancel();
+        });
+
+        Thread.startVirtualThread(() -> {
+            try {
+                limiter.acquire(scope);
+            } catch (RuntimeException e) {
+                out.completeExceptionally(e);
+                return;
+            }
+            long t0 = System.nanoTime();
+            if (out.isDone() || scope.isCancelled()) {
+                limiter.release(Outcome.IGNORE, 0L);
+                out.completeExceptionally(new RequestCancelledException(
+                        scope.isCancelled() ? scope.reason() : CancellationToken.Reason.CANCELLED, "waiting for " + model));
+                return;
+            }
+            CompletableFuture<ChatResult> call;
+            try {
+                call = delegate.chatWithUsageAsync(prompt, model, scope);
+            } catch (RuntimeException e) {
+                limiter.release(classify(e), System.nanoTime() - t0);
+                out.completeExceptionally(e);
+                return;
+            }
+            call.whenComplete((res, e) -> {
+                limiter.release(e == null ? Outcome.SUCCESS
+                                : classify(e instanceof CompletionException && e.getCause() != null ? e.getCause() : e),
+                        System.nanoTime() - t0);
+                if (e == null) out.complete(res);
+                else out.completeExceptionally(e);
+            });
+        });
+        return out;
+    }
+
+    public AdaptiveConcurrencyLimiter limiter(String model) {
+        return limiters.computeIfAbsent(model == null ? "" : model, m -> new AdaptiveConcurrencyLimiter(
+                provider() + "/" + m,
+                props.initialLimitFor(provider()),
+                props.getMinLimit(),
+                props.maxLimitFor(provider()),
+                props.getBackoffRatio(),
+                props.getLatencyTolerance(),
+                props.getQueueCapacity(),
+                props.getMaxWait()));
+    }
+
+    /* ---------- helpers ---------- */
+
+    private <T> T call(String model, CancellationToken token, Supplier<T> body) {
+        AdaptiveConcurrencyLimiter limiter = limiter(model);
+        limiter.acquire(token);
+        long t0 = System.nanoTime();
+        Outcome outcome = Outcome.IGNORE;
+        try {
+            T out = body.get();
+            outcome = Outcome.SUCCESS;
+            return out;
+        } catch (RuntimeException e) {
+            outcome = classify(e);
+            throw e;
+        } finally {
+            limiter.release(outcome, System.nanoTime() - t0);
+        }
+    }
+
+    static Outcome classify(Throwable e) {
+        if (e instanceof ProviderException pe) {
+            return pe.isOverload() ? Outcome.OVERLOAD : Outcome.IGNORE;
+        }
+        return ProviderException.isTimeout(e) ? Outcome.OVERLOAD : Outcome.IGNORE;
+    }
+}
@@ -1,20 +1,52 @@
 package org.learningjava.bmtool1.domain.service.prompting;
 
+import org.learningjava.bmtool1.application.port.ChatLLMPort;
 import org.learningjava.bmtool1.domain.model.framework.FrameworkRetrievalResult;
 import org.learningjava.bmtool1.domain.model.framework.FrameworkSymbol;
 import org.learningjava.bmtool1.domain.model.pairs.BlockMapping;
 import org.learningjava.bmtool1.domain.model.pairs.RetrievalResult;
+import org.learningjava.bmtool1.domain.model.query.PackingReport;
+import org.learningjava.bmtool1.domain.service.tokens.Tokenizer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Component
 public class DefaultPromptBuilder implements PromptBuilder {
 
+    private static final int MAX_FW_CLASSES = 4;
+    private static final int MAX_FW_PER_CLASS = 5;
+    private static final int MIN_SNIPPET_CHARS = 200;   // below this a shortened doc is not worth keeping
+
+    private static final String FW_SECTION_HEADER = "\n=== Framework API Hints (most relevant first) ===\n";
+    private static final String FW_SECTION_FOOTER = "\nUse these APIs exactly when relevant.\n";
+    private static final String DOC_SECTION_HEADER = "\n=== Relevant Docs / Code Chunks ===\n";
+    private static final String DOC_SECTION_FOOTER = "\nUse these references for facts; do not invent details.\n";
+    private static final String ROLE_LINE = "You are a precise assistant for software code questions.\n";
+    private static final String CITE_RULE = "When you leverage a framework API, cite it like Class#method.";
+
+    private final PromptLayout layout;
+
+    public DefaultPromptBuilder() {
+        this(PromptLayout.LEGACY);
+    }
+
+    @Autowired
+    public DefaultPromptBuilder(@Value("${bmtool1.prompt.layout:LEGACY}") PromptLayout layout) {
+        this.layout = layout == null ? PromptLayout.LEGACY : layout;
+    }
+
     @Override
     public String build(PromptingTechnique tech,
                         String question,
@@ -23,6 +55,7 @@ public class DefaultPromptBuilder implements PromptBuilder {
                         int perSnippetLimit,
                         int docPromptLimit) {
 
+        question = ChatLLMPort.withoutCacheBoundary(question);
         return switch (tech) {
             case ZERO_SHOT -> """
                 You are a precise assistant for software code questions.
@@ -32,9 +65,9 @@ public class DefaultPromptBuilder implements PromptBuilder {
                 Question: %s
                 """.formatted(question);
 
-            case RAG_STANDARD -> buildComposite(question, docHits, fwHits, perSnippetLimit, docPromptLimit, false);
+            case RAG_STANDARD -> buildComposite(question, entries(docHits, perSnippetLimit, docPromptLimit), fwHits, false);
 
-            case FRAMEWORK_FIRST -> buildComposite(question, docHits, fwHits, perSnippetLimit, docPromptLimit, true);
+            case FRAMEWORK_FIRST -> buildComposite(question, entries(docHits, perSnippetLimit, docPromptLimit), fwHits, true);
 
             case FEW_SHOT -> """
                 You are a precise assistant for software code questions.
@@ -77,58 +110,179 @@ public class DefaultPromptBuilder implements PromptBuilder {
         };
     }
 
+    /* ---------- token-budget packing ---------- */
+
+    @Override
+    public PackedPrompt buildPacked(PromptingTechnique tech,
+                                    String question,
+                                    List<RetrievalResult> docHits,
+                                    List<FrameworkRetrievalResult> fwHits,
+                                    int perSnippetLimit,
+                                    int tokenBudget,
+                                    Tokenizer tokenizer) {
+
+        if (tech != PromptingTechnique.RAG_STANDARD && tech != PromptingTechnique.FRAMEWORK_FIRST) {
+            // these templates carry no retrieved context, so there is nothing to pack
+            String prompt = build(tech, question, List.of(), List.of(), perSnippetLimit, 0);
+            return new PackedPrompt(prompt, List.of(), List.of(), new PackingReport(tokenBudget,
+                    tokenizer.count(prompt), 0, 0, List.of(), List.of(), List.of()));
+        }
+        boolean frameworkFirst = tech == PromptingTechnique.FRAMEWORK_FIRST;
+
+        List<RetrievalResult> docs = docHits == null ? List.of() : docHits.stream()
+                .filter(Objects::nonNull)
+                .sorted(Comparator.comparingDouble(RetrievalResult::score).reversed())
+                .toList();
+        List<FrameworkRetrievalResult> fw = capFramework(fwHits);
+
+        List<DocEntry> keptDocs = new ArrayList<>();
+        List<FrameworkRetrievalResult> keptFw = new ArrayList<>();
+        List<String> droppedDocs = new ArrayList<>(), truncatedDocs = new ArrayList<>(), droppedSymbols = new ArrayList<>();
+        Set<String> openedClasses = new HashSet<>();
+
+        int used = tokenizer.count(buildComposite(question, List.of(), List.of(), frameworkFirst));
+
+        // Docs and symbols are interleaved by rank (doc #1, symbol #1, doc #2, ...), each kept if it still fits
+        int di = 0, fi = 0;
+        while (di < docs.size() || fi < fw.size()) {
+            boolean docsLeft = di < docs.size();
+            boolean fwLeft = fi < fw.size();
+            boolean takeFw = fwLeft && (!docsLeft || (frameworkFirst ? fi <= di : fi < di));
+
+            if (takeFw) {
+                FrameworkRetrievalResult f = fw.get(fi++);
+                FrameworkSymbol sym = f.symbol();
+                int cost = tokenizer.count(renderSymbol(sym))
+                        + (keptFw.isEmpty() ? tokenizer.count(FW_SECTION_HEADER + FW_SECTION_FOOTER) : 0)
+                        + (openedClasses.contains(sym.className()) ? 0 : tokenizer.count(classHeader(sym.className())));
+                if (used + cost <= tokenBudget) {
+                    keptFw.add(f);
+                    openedClasses.add(sym.className());
+                    used += cost;
+                } else {
+                    droppedSymbols.add(sym.symbol());
+                }
+            } else {
+                RetrievalResult d = docs.get(di++);
+                int sectionCost = keptDocs.isEmpty() ? tokenizer.count(DOC_SECTION_HEADER + DOC_SECTION_FOOTER) : 0;
+                int index = keptDocs.size() + 1;
+                int limit = perSnippetLimit;
+                int cost = sectionCost + tokenizer.count("\n" + renderDocHeader(index, d) + renderDocBody(d, limit));
+                // rather than dropping a high-ranked doc outright, try shorter snippets first
+                while (used + cost > tokenBudget && limit / 2 >= MIN_SNIPPET_CHARS) {
+                    limit /= 2;
+                    cost = sectionCost + tokenizer.count("\n" + renderDocHeader(index, d) + renderDocBody(d, limit));
+                }
+                if (used + cost <= tokenBudget) {
+                    keptDocs.add(new DocEntry(d, limit));
+                    used += cost;
+                    if (limit < perSnippetLimit && longestSnippet(d) > limit) truncatedDocs.add(docLabel(d));
+                } else {
+                    droppedDocs.add(docLabel(d));
+                }
+            }
+        }
+
+        String prompt = buildComposite(question, keptDocs, keptFw, frameworkFirst);
+        return new PackedPrompt(prompt,
+                keptDocs.stream().map(DocEntry::hit).toList(),
+                List.copyOf(keptFw),
+                new PackingReport(tokenBudget, tokenizer.count(prompt), keptDocs.size(), keptFw.size(),
+                        List.copyOf(droppedDocs), List.copyOf(truncatedDocs), List.copyOf(droppedSymbols)));
+    }
+
     /* ---------- RAG-style composite templates ---------- */
 
-    private String buildComposite(String question, List<RetrievalResult> docHits,
+    private record DocEntry(RetrievalResult hit, int snippetLimit) {}
+
+    private static List<DocEntry> entries(List<RetrievalResult> docHits, int perSnippetLimit, int docPromptLimit) {
+        if (docHits == null || docHits.isEmpty()) return List.of();
+        int limit = Math.min(docPromptLimit, docHits.size());
+        List<DocEntry> out = new ArrayList<>(limit);
+        for (int i = 0; i < limit; i++) out.add(new DocEntry(docHits.get(i), perSnippetLimit));
+        return out;
+    }
+
+    private String buildComposite(String question, List<DocEntry> docs,
                                   List<FrameworkRetrievalResult> fwHits,
-                                  int perSnippetLimit, int docPromptLimit,
                                   boolean frameworkFirst) {
         StringBuilder sb = new StringBuilder(4096);
-        sb.append("You are a precise assistant for software code questions.\n");
+        sb.append(ROLE_LINE);
+
+        if (layout == PromptLayout.PREFIX_STABLE) {
+            // fixed text, then context in the technique's order, then the question: everything before
+            // the boundary can be cached. Markers in retrieved text are dropped so the boundary is the only one
+            sb.append(CITE_RULE).append("\n");
+            if (frameworkFirst) renderFramework(sb, fwHits);
+            renderDocs(sb, docs);
+            if (!frameworkFirst) renderFramework(sb, fwHits);
+            return ChatLLMPort.withoutCacheBoundary(sb.toString()) + ChatLLMPort.PROMPT_CACHE_BOUNDARY
+                    + "\n=== Task ===\nQuestion: " + ChatLLMPort.withoutCacheBoundary(question) + "\n";
+        }
 
         if (frameworkFirst) renderFramework(sb, fwHits);
-        renderDocs(sb, docHits, perSnippetLimit, docPromptLimit);
+        renderDocs(sb, docs);
         if (!frameworkFirst) renderFramework(sb, fwHits);
 
         sb.append("\n=== Task ===\n")
                 .append("Question: ").append(question).append("\n")
-                .append("When you leverage a framework API, cite it like Class#method.");
-        return sb.toString();
+                .append(CITE_RULE);
+        return ChatLLMPort.withoutCacheBoundary(sb.toString());
     }
 
     private void renderFramework(StringBuilder sb, List<FrameworkRetrievalResult> fwHits) {
         if (fwHits == null || fwHits.isEmpty()) return;
-        sb.append("\n=== Framework API Hints (most relevant first) ===\n");
+        sb.append(FW_SECTION_HEADER);
         Map<String, List<FrameworkRetrievalResult>> byClass = fwHits.stream()
                 .collect(Collectors.groupingBy(fr -> fr.symbol().className(),
                         LinkedHashMap::new, Collectors.toList()));
         int classesShown = 0;
         for (var e : byClass.entrySet()) {
-            if (classesShown++ >= 4) break;
-            sb.append("\n# ").append(e.getKey()).append("\n");
+            if (classesShown++ >= MAX_FW_CLASSES) break;
+            sb.append(classHeader(e.getKey()));
             int perClass = 0;
             for (FrameworkRetrievalResult fr : e.getValue()) {
-                if (perClass++ >= 5) break;
-                FrameworkSymbol s = fr.symbol();
-                sb.append("- ").append(s.symbol())
-                        .append("  (kind=").append(s.kind()).append(")\n")
-                        .append("  signature: ").append(s.methodSignature()).append("\n")
-                        .append("  snippet:   ").append(s.snippet()).append("\n");
+                if (perClass++ >= MAX_FW_PER_CLASS) break;
+                sb.append(renderSymbol(fr.symbol()));
             }
         }
-        sb.append("\nUse these APIs exactly when relevant.\n");
+        sb.append(FW_SECTION_FOOTER);
     }
 
-    private void renderDocs(StringBuilder sb, List<RetrievalResult> docs, int perSnippetLimit, int docPromptLimit) {
+    private static String classHeader(String className) {
+        return "\n# " + className + "\n";
+    }
+
+    private static String renderSymbol(FrameworkSymbol s) {
+        return "- " + s.symbol() + "  (kind=" + s.kind() + ")\n"
+                + "  signature: " + s.methodSignature() + "\n"
+                + "  snippet:   " + s.snippet() + "\n";
+    }
+
+    /** Same class/per-class caps that {@link #renderFramework} applies, in retrieval order. */
+    private static List<FrameworkRetrievalResult> capFramework(List<FrameworkRetrievalResult> fwHits) {
+        if (fwHits == null || fwHits.isEmpty()) return List.of();
+        Map<String, Integer> perClass = new LinkedHashMap<>();
+        List<FrameworkRetrievalResult> out = new ArrayList<>();
+        for (FrameworkRetrievalResult fr : fwHits) {
+            if (fr == null || fr.symbol() == null) continue;
+            String cls = fr.symbol().className();
+            if (!perClass.containsKey(cls) && perClass.size() >= MAX_FW_CLASSES) continue;
+            int n = perClass.merge(cls, 1, Integer::sum);
+            if (n <= MAX_FW_PER_CLASS) out.add(fr);
+        }
+        return out;
+    }
+
+    private void renderDocs(StringBuilder sb, List<DocEntry> docs) {
         if (docs == null || docs.isEmpty()) return;
-        sb.append("\n=== Relevant Docs / Code Chunks ===\n");
-        int limit = Math.min(docPromptLimit, docs.size());
-        for (int i = 0; i < limit; i++) {
-            var r = docs.get(i);
-            sb.append("\n").append(renderDocHeader(i + 1, r))
-                    .append(renderDocBody(r, perSnippetLimit));
+        sb.append(DOC_SECTION_HEADER);
+        for (int i = 0; i < docs.size(); i++) {
+            var d = docs.get(i);
+            sb.append("\n").append(renderDocHeader(i + 1, d.hit()))
+                    .append(renderDocBody(d.hit(), d.snippetLimit()));
         }
-        sb.append("\nUse these references for facts; do not invent details.\n");
+        sb.append(DOC_SECTION_FOOTER);
     }
 
     private String renderDocHeader(int index, RetrievalResult r) {
@@ -176,6 +330,20 @@ public class DefaultPromptBuilder implements PromptBuilder {
         return sb.toString();
     }
 
+    private static String docLabel(RetrievalResult r) {
+        if (r.mapping() instanceof BlockMapping bm) {
+            if (nz(bm.pairId())) return bm.pairId();
+            if (nz(bm.pairName())) return bm.pairName();
+        }
+        return "doc@" + String.format(Locale.ROOT, "%.3f", r.score());
+    }
+
+    private static int longestSnippet(RetrievalResult r) {
+        if (!(r.mapping() instanceof BlockMapping bm)) return 0;
+        return Math.max(bm.plsqlSnippet() == null ? 0 : bm.plsqlSnippet().length(),
+                bm.javaSnippet() == null ? 0 : bm.javaSnippet().length());
+    }
+
     private static boolean nz(String s) { return s != null && !s.isBlank(); }
     private static String trunc(String s, int max) {
         if (s == null) return "";
@@ -0,0 +1,15 @@
+package org.learningjava.bmtool1.domain.service.prompting;
+
+import org.learningjava.bmtool1.domain.model.framework.FrameworkRetrievalResult;
+import org.learningjava.bmtool1.domain.model.pairs.RetrievalResult;
+import org.learningjava.bmtool1.domain.model.query.PackingReport;
+
+import java.util.List;
+
+/** A prompt built within a token budget, with the docs and symbols that actually made it in. */
+public record PackedPrompt(
+        String prompt,
+        List<RetrievalResult> docs,
+        List<FrameworkRetrievalResult> framework,
+        PackingReport report
+) {}
@@ -3,6 +3,8 @@ package org.learningjava.bmtool1.domain.service.prompting;
 
 import org.learningjava.bmtool1.domain.model.framework.FrameworkRetrievalResult;
 import org.learningjava.bmtool1.domain.model.pairs.RetrievalResult;
+import org.learningjava.bmtool1.domain.model.query.PackingReport;
+import org.learningjava.bmtool1.domain.service.tokens.Tokenizer;
 
 import java.util.List;
 
@@ -15,4 +17,37 @@ public interface PromptBuilder {
             int perSnippetCharLimit,
             int docPromptLimit
     );
+
+    /** As below, counting tokens with the chars/4 heuristic. */
+    default PackedPrompt buildPacked(
+            PromptingTechnique technique,
+            String question,
+            List<RetrievalResult> docHits,
+            List<FrameworkRetrievalResult> fwHits,
+            int perSnippetCharLimit,
+            int tokenBudget
+    ) {
+        return buildPacked(technique, question, docHits, fwHits, perSnippetCharLimit, tokenBudget, Tokenizer.HEURISTIC);
+    }
+
+    /**
+     * Builds the prompt so that its size, counted with {@code tokenizer}, stays within {@code tokenBudget},
+     * keeping the highest-ranked docs and framework symbols and reporting what was left out.
+     * The default builds everything and only reports the count.
+     */
+    default PackedPrompt buildPacked(
+            PromptingTechnique technique,
+            String question,
+            List<RetrievalResult> docHits,
+            List<FrameworkRetrievalResult> fwHits,
+            int perSnippetCharLimit,
+            int tokenBudget,
+            Tokenizer tokenizer
+    ) {
+        String prompt = build(technique, question, docHits, fwHits, perSnippetCharLimit, Integer.MAX_VALUE);
+        List<RetrievalResult> docs = docHits == null ? List.of() : docHits;
+        List<FrameworkRetrievalResult> fw = fwHits == null ? List.of() : fwHits;
+        return new PackedPrompt(prompt, docs, fw, new PackingReport(tokenBudget, tokenizer.count(prompt),
+                docs.size(), fw.size(), List.of(), List.of(), List.of()));
+    }
 }
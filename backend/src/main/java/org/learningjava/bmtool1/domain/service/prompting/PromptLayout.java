@@ -0,0 +1,16 @@
+// src/main/java/org/learningjava/bmtool1/domain/service/prompting/PromptLayout.java
+package org.learningjava.bmtool1.domain.service.prompting;
+
+/**
+ * Section order of the RAG prompts (RAG_STANDARD, FRAMEWORK_FIRST).
+ *
+ * LEGACY keeps each technique's own order. PREFIX_STABLE puts every fixed instruction first, then the
+ * framework hints (they depend only on kFramework), then the docs, and ends with the question, so prompts
+ * built from the same retrieved context share one long prefix that provider prompt caches and Ollama's
+ * KV cache can reuse. Under PREFIX_STABLE the two techniques differ only in which hits are kept first
+ * when the token budget is tight.
+ */
+public enum PromptLayout {
+    LEGACY,
+    PREFIX_STABLE
+}
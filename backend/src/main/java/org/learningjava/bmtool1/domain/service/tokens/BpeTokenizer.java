@@ -0,0 +1,101 @@
+// src/main/java/org/learningjava/bmtool1/domain/service/tokens/BpeTokenizer.java
+package org.learningjava.bmtool1.domain.service.tokens;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Byte-level BPE over a tiktoken-format vocabulary ("base64(token) rank" per line), which covers
+ * cl100k_base and Llama 3. Text is split with the cl100k pre-tokenizer pattern and each piece is
+ * merged lowest-rank-first; counts per piece are memoized because prompts repeat the same words.
+ */
+public final class BpeTokenizer implements Tokenizer {
+
+    private static final Pattern CL100K_PATTERN = Pattern.compile(
+            "(?i:'s|'t|'re|'ve|'m|'ll|'d)|[^\\r\\n\\p{L}\\p{N}]?\\p{L}+|\\p{N}{1,3}"
+                    + "| ?[^\\s\\p{L}\\p{N}]+[\\r\\n]*|\\s*[\\r\\n]+|\\s+(?!\\S)|\\s+");
+    private static final int MAX_CACHED_PIECES = 50_000;
+
+    private final String name;
+    // keys are token bytes mapped 1:1 onto chars (ISO-8859-1), so substrings are byte ranges
+    private final Map<String, Integer> ranks;
+    private final Pattern pattern;
+    private final Map<String, Integer> pieceCounts = new ConcurrentHashMap<>();
+
+    BpeTokenizer(String name, Map<String, Integer> ranks, Pattern pattern) {
+        this.name = name;
+        this.ranks = ranks;
+        this.pattern = pattern;
+    }
+
+    public static BpeTokenizer load(String name, InputStream in) throws IOException {
+        Map<String, Integer> ranks = new HashMap<>();
+        try (BufferedReader r = new BufferedReader(new InputStreamReader(in, StandardCharsets.US_ASCII))) {
+            String line;
+            while ((line = r.readLine()) != null) {
+                line = line.strip();
+                if (line.isEmpty()) continue;
+                int sp = line.indexOf(' ');
+                if (sp <= 0) throw new IOException("Malformed vocabulary line in " + name + ": " + line);
+                byte[] token = Base64.getDecoder().decode(line.substring(0, sp));
+                ranks.put(new String(token, StandardCharsets.ISO_8859_1), Integer.parseInt(line.substring(sp + 1).strip()));
+            }
+        }
+        if (ranks.isEmpty()) throw new IOException("Empty vocabulary: " + name);
+        return new BpeTokenizer(name, ranks, CL100K_PATTERN);
+    }
+
+    @Override
+    public String name() { return name; }
+
+    @Override
+    public int count(String text) {
+        if (text == null || text.isEmpty()) return 0;
+        Matcher m = pattern.matcher(text);
+        int n = 0;
+        while (m.find()) n += countPiece(m.group());
+        return n;
+    }
+
+    private int countPiece(String piece) {
+        Integer cached = pieceCounts.get(piece);
+        if (cached != null) return cached;
+        String bytes = new String(piece.getBytes(StandardCharsets.UTF_8), StandardCharsets.ISO_8859_1);
+        int n = ranks.containsKey(bytes) ? 1 : merge(bytes);
+        if (pieceCounts.size() >= MAX_CACHED_PIECES) pieceCounts.clear();
+        pieceCounts.put(piece, n);
+        return n;
+    }
+
+    // Standard BPE: repeatedly merge the adjacent pair with the lowest rank until none is in the vocabulary
+    private int merge(String bytes) {
+        List<String> parts = new ArrayList<>(bytes.length());
+        for (int i = 0; i < bytes.length(); i++) parts.add(bytes.substring(i, i + 1));
+        while (parts.size() > 1) {
+            int best = -1;
+            int bestRank = Integer.MAX_VALUE;
+            for (int i = 0; i < parts.size() - 1; i++) {
+                Integer rank = ranks.get(parts.get(i) + parts.get(i + 1));
+                if (rank != null && rank < bestRank) {
+                    bestRank = rank;
+                    best = i;
+                }
+            }
+            if (best < 0) break;
+            parts.set(best, parts.get(best) + parts.get(best + 1));
+            parts.remove(best + 1);
+        }
+        return parts.size();
+    }
+}
@@ -0,0 +1,15 @@
+// src/main/java/org/learningjava/bmtool1/domain/service/tokens/HeuristicTokenizer.java
+package org.learningjava.bmtool1.domain.service.tokens;
+
+final class HeuristicTokenizer implements Tokenizer {
+
+    private static final int CHARS_PER_TOKEN = 4;
+
+    @Override
+    public String name() { return "heuristic"; }
+
+    @Override
+    public int count(String text) {
+        return text == null ? 0 : (text.length() + CHARS_PER_TOKEN - 1) / CHARS_PER_TOKEN;
+    }
+}
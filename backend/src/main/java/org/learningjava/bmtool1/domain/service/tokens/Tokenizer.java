@@ -0,0 +1,13 @@
+// src/main/java/org/learningjava/bmtool1/domain/service/tokens/Tokenizer.java
+package org.learningjava.bmtool1.domain.service.tokens;
+
+/** Counts tokens the way a model family's tokenizer would. Implementations are thread-safe. */
+public interface Tokenizer {
+
+    /** Fallback when no vocabulary is available: ~4 chars per token for English and code. */
+    Tokenizer HEURISTIC = new HeuristicTokenizer();
+
+    String name();
+
+    int count(String text);
+}
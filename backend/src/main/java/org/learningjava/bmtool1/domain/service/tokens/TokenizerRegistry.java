@@ -0,0 +1,173 @@
+// src/main/java/org/learningjava/bmtool1/domain/service/tokens/TokenizerRegistry.java
+package org.learningjava.bmtool1.domain.service.tokens;
+
+import org.learningjava.bmtool1.application.port.ChatLLMPort.Usage;
+import org.learningjava.bmtool1.config.TokenizerProperties;
+import org.learningjava.bmtool1.config.TokenizerProperties.Download;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Picks a tokenizer per model (longest configured name prefix wins) and loads its vocabulary from
+ * the classpath on first use. A vocabulary that is not on the classpath but has a configured download
+ * is fetched once into {@code cache-dir}, and only used when its SHA-256 matches; configured
+ * vocabularies are loaded in the background at startup, so the first ask does not wait for that. A
+ * missing or unreadable vocabulary logs once and falls back to {@link Tokenizer#HEURISTIC}, so
+ * counting never fails.
+ */
+@Component
+public class TokenizerRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(TokenizerRegistry.class);
+    private static final HttpClient HTTP = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(10))
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .build();
+
+    private final TokenizerProperties props;
+    private final Map<String, Tokenizer> byVocabulary = new ConcurrentHashMap<>();
+
+    public TokenizerRegistry(TokenizerProperties props) {
+        this.props = props;
+    }
+
+    public Tokenizer forModel(String model) {
+        String vocabulary = vocabularyFor(model);
+        if (vocabulary == null) return Tokenizer.HEURISTIC;
+        return byVocabulary.computeIfAbsent(vocabulary, this::load);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void preload() {
+        if (props.getModels() == null) return;
+        Set<String> vocabularies = new HashSet<>(props.getModels().values());
+        Thread.startVirtualThread(() -> vocabularies.forEach(v -> byVocabulary.computeIfAbsent(v, this::load)));
+    }
+
+    public int count(String model, String text) {
+        return forModel(model).count(text);
+    }
+
+    /**
+     * Fills whichever of prompt/completion tokens the provider left out. Counts from the provider are
+     * kept as-is; the result is marked {@code estimated} when anything was filled in.
+     */
+    public Usage backfill(String model, String prompt, String completion, Usage usage) {
+        if (usage != null && usage.promptTokens() != null && usage.completionTokens() != null) return usage;
+        Tokenizer t = forModel(model);
+        Integer promptTok = usage != null && usage.promptTokens() != null ? usage.promptTokens() : t.count(prompt);
+        Integer complTok = usage != null && usage.completionTokens() != null ? usage.completionTokens() : t.count(completion);
+        return new Usage(promptTok, complTok, true, usage == null ? null : usage.cachedTokens());
+    }
+
+    /* ---------- helpers ---------- */
+
+    private String vocabularyFor(String model) {
+        if (model == null || props.getModels() == null) return null;
+        String m = model.toLowerCase(Locale.ROOT);
+        String best = null;
+        int bestLen = -1;
+        for (var e : props.getModels().entrySet()) {
+            String prefix = e.getKey().toLowerCase(Locale.ROOT);
+            if (m.startsWith(prefix) && prefix.length() > bestLen) {
+                best = e.getValue();
+                bestLen = prefix.length();
+            }
+        }
+        return best;
+    }
+
+    private Tokenizer load(String vocabulary) {
+        String resource = props.getVocabularies() == null ? null : props.getVocabularies().get(vocabulary);
+        Download download = props.getDownloads() == null ? null : props.getDownloads().get(vocabulary);
+        if (resource == null && download == null) {
+            log.warn("Tokenizer: no resource configured for vocabulary '{}', using the chars/4 heuristic", vocabulary);
+            return Tokenizer.HEURISTIC;
+        }
+        long t0 = System.nanoTime();
+        try {
+            if (resource != null) {
+                try (InputStream in = TokenizerRegistry.class.getClassLoader().getResourceAsStream(resource)) {
+                    if (in != null) return loaded(BpeTokenizer.load(vocabulary, in), resource, t0);
+                }
+            }
+            if (download == null || props.getCacheDir() == null || props.getCacheDir().isBlank()) {
+                log.warn("Tokenizer: '{}' not found on the classpath, using the chars/4 heuristic", resource);
+                return Tokenizer.HEURISTIC;
+            }
+            Path file = Path.of(props.getCacheDir(), vocabulary + ".tiktoken");
+            byte[] bytes = fetched(vocabulary, download, file);
+            return loaded(BpeTokenizer.load(vocabulary, new ByteArrayInputStream(bytes)), file.toString(), t0);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Tokenizer: failed to load '{}' ({}), using the chars/4 heuristic", vocabulary, e.toString());
+            return Tokenizer.HEURISTIC;
+        }
+    }
+
+    private static Tokenizer loaded(Tokenizer t, String from, long t0) {
+        log.info("Tokenizer: loaded '{}' from {} in {} ms", t.name(), from, (System.nanoTime() - t0) / 1_000_000);
+        return t;
+    }
+
+    // the cached copy if it is intact, else a fresh download, which is cached only once it checks out
+    private static byte[] fetched(String vocabulary, Download download, Path file) throws IOException {
+        if (download.getSha256() == null || download.getSha256().isBlank()) {
+            throw new IOException("no sha256 configured for the download of '" + vocabulary + "'");
+        }
+        if (Files.isRegularFile(file)) {
+            byte[] cached = Files.readAllBytes(file);
+            if (sha256(cached).equalsIgnoreCase(download.getSha256())) return cached;
+            log.warn("Tokenizer: cached {} does not match its SHA-256, downloading it again", file);
+        }
+        log.info("Tokenizer: downloading '{}' from {}", vocabulary, download.getUrl());
+        HttpResponse<byte[]> resp;
+        try {
+            resp = HTTP.send(HttpRequest.newBuilder(URI.create(download.getUrl())).timeout(Duration.ofMinutes(2)).GET().build(),
+                    HttpResponse.BodyHandlers.ofByteArray());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while downloading " + download.getUrl(), e);
+        }
+        if (resp.statusCode() != 200) throw new IOException("HTTP " + resp.statusCode() + " from " + download.getUrl());
+        byte[] bytes = resp.body();
+        if (!sha256(bytes).equalsIgnoreCase(download.getSha256())) {
+            throw new IOException("SHA-256 mismatch for " + download.getUrl());
+        }
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Path part = Files.createTempFile(file.toAbsolutePath().getParent(), vocabulary, ".part");
+        Files.write(part, bytes);
+        Files.move(part, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return bytes;
+    }
+
+    private static String sha256(byte[] bytes) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package org.learningjava.bmtool1.infrastructure.adapter.in.fs;
+
+import jakarta.annotation.PreDestroy;
+import org.learningjava.bmtool1.application.usecase.IngestPairsUseCase;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps {@code ingest.rootDir} ingested while translators drop pairs into it. Every directory below the root is
+ * registered with a {@link WatchService}; once PL/SQL or Java files stop changing for {@code ingest.watch.debounce},
+ * an incremental ingest runs on the watcher's thread. That ingest stats every pair against the manifest and only
+ * parses, embeds and stores the added or changed ones, and deletes the mappings of pairs that went away.
+ *
+ * A burst that never goes quiet is still ingested after ten debounce periods. Events that arrive during an ingest
+ * queue up in the watch service and trigger one more run afterwards; an overflowed queue is treated as a change.
+ * Starting the watcher also catches up on anything that changed while the application was down.
+ */
+@Component
+public class PairDirectoryWatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(PairDirectoryWatcher.class);
+    private static final Set<String> SOURCE_EXT = Set.of("sql", "plsql", "pkb", "pks", "java");
+    private static final int MAX_DEBOUNCES = 10;
+
+    private final IngestPairsUseCase ingest;
+    private final String rootDir;
+    private final boolean enabled;
+    private final long debounceNanos;
+    private final Map<WatchKey, Path> dirs = new ConcurrentHashMap<>();
+    private volatile WatchService watcher;
+    private volatile Thread thread;
+
+    public PairDirectoryWatcher(IngestPairsUseCase ingest,
+                                @Value("${ingest.rootDir:}") String rootDir,
+                                @Value("${ingest.watch.enabled:false}") boolean enabled,
+                                @Value("${ingest.watch.debounce:PT3S}") Duration debounce) {
+        this.ingest = ingest;
+        this.rootDir = rootDir;
+        this.enabled = enabled;
+        this.debounceNanos = Math.max(debounce.toNanos(), 0);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        if (!enabled) return;
+        if (rootDir == null || rootDir.isBlank() || !Files.isDirectory(Path.of(rootDir))) {
+            log.warn("Pair watch disabled: ingest.rootDir '{}' is not a directory", rootDir);
+            return;
+        }
+        try {
+            start();
+        } catch (IOException e) {
+            log.warn("Pair watch disabled: cannot watch {}: {}", rootDir, e.toString());
+        }
+    }
+
+    /** Registers the tree below {@code rootDir} and starts watching it on a daemon thread. */
+    void start() throws IOException {
+        watcher = FileSystems.getDefault().newWatchService();
+        register(Path.of(rootDir));
+        thread = Thread.ofPlatform().name("pair-watcher").daemon().start(this::loop);
+        log.info("Watching {} for pair changes ({} directories, debounce {} ms)",
+                rootDir, dirs.size(), debounceNanos / 1_000_000);
+    }
+
+    @PreDestroy
+    public void stop() {
+        WatchService w = watcher;
+        if (w == null) return;
+        try {
+            w.close();
+        } catch (IOException e) {
+            log.debug("Closing pair watcher: {}", e.toString());
+        }
+        Thread t = thread;
+        if (t != null) t.interrupt();
+    }
+
+    private void loop() {
+        long now = System.nanoTime();
+        long due = now, deadline = now;   // catch up on startup
+        boolean pending = true;
+        try {
+            while (true) {
+                WatchKey key;
+                if (!pending) {
+                    key = watcher.take();
+                } else {
+                    long wait = Math.min(due, deadline) - System.nanoTime();
+                    key = wait > 0 ? watcher.poll(wait, TimeUnit.NANOSECONDS) : null;
+                }
+                if (key == null) {
+                    pending = false;
+                    runIngest();
+                    continue;
+                }
+                if (drain(key)) {
+                    now = System.nanoTime();
+                    if (!pending) deadline = now + debounceNanos * MAX_DEBOUNCES;
+                    due = now + debounceNanos;
+                    pending = true;
+                }
+            }
+        } catch (ClosedWatchServiceException | InterruptedException stopped) {
+            log.debug("Pair watcher for {} stopped", rootDir);
+        }
+    }
+
+    /** Handles one directory's events; true when a pair may have been added, changed or removed. */
+    private boolean drain(WatchKey key) {
+        Path dir = dirs.get(key);
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                log.debug("Pair watcher overflowed under {}", dir);
+                changed = true;
+                continue;
+            }
+            if (dir == null) continue;
+            Path child = dir.resolve((Path) event.context());
+            if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(child)) {
+                // a directory moved in may already hold pairs
+                try {
+                    register(child);
+                } catch (IOException e) {
+                    log.warn("Cannot watch {}: {}", child, e.toString());
+                }
+                changed = true;
+            } else if (isSource(child) || dirs.containsValue(child)) {
+                changed = true;
+            }
+        }
+        if (!key.reset()) dirs.remove(key);
+        return changed;
+    }
+
+    private void runIngest() {
+        try {
+            var r = ingest.ingestChanges(rootDir, null);
+            if (r.mappings() > 0 || r.deletedPairs() > 0 || r.failedPairs() > 0) {
+                log.info("Pair watch ingested {} mappings under {} ({} pairs, {} unchanged, {} deleted, {} failed)",
+                        r.mappings(), rootDir, r.pairs(), r.unchangedPairs(), r.deletedPairs(), r.failedPairs());
+            }
+        } catch (IngestPairsUseCase.NoPairsFoundException empty) {
+            log.debug("Pair watch: {}", empty.getMessage());
+        } catch (Exception e) {
+            log.error("Pair watch ingest of {} failed: {}", rootDir, e.toString(), e);
+        }
+    }
+
+    private void register(Path start) throws IOException {
+        try (var s = Files.walk(start)) {
+            for (Path d : (Iterable<Path>) s.filter(Files::isDirectory)::iterator) {
+                WatchKey key = d.register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+                dirs.put(key, d);
+            }
+        }
+    }
+
+    private static boolean isSource(Path file) {
+        String name = file.getFileName().toString();
+        int i = name.lastIndexOf('.');
+        return i > 0 && SOURCE_EXT.contains(name.substring(i + 1).toLowerCase(Locale.ROOT));
+    }
+}
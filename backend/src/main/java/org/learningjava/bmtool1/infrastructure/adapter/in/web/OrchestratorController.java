@@ -1,14 +1,31 @@
 package org.learningjava.bmtool1.infrastructure.adapter.in.web;
 
+import jakarta.annotation.PreDestroy;
+import org.learningjava.bmtool1.application.port.CancellationToken;
+import org.learningjava.bmtool1.application.port.RequestCancelledException;
+import org.learningjava.bmtool1.application.usecase.GridRunUseCase;
+import org.learningjava.bmtool1.application.usecase.GridRunUseCase.GridSpec;
 import org.learningjava.bmtool1.application.usecase.Orchestrator;
 import org.learningjava.bmtool1.domain.model.query.Answer;
 import org.learningjava.bmtool1.domain.model.query.Query;
+import org.learningjava.bmtool1.domain.service.llm.HedgedChatService;
 import org.learningjava.bmtool1.domain.service.prompting.PromptingTechnique;
+import org.learningjava.bmtool1.infrastructure.adapter.in.web.admin.JobRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
 
 
@@ -18,14 +35,36 @@ public class OrchestratorController {
 
     private static final Logger log = LoggerFactory.getLogger(OrchestratorController.class);
 
+    /** Servlet-side backstop on top of the request deadline; the token's own timer normally fires first. */
+    private static final long ASYNC_GRACE_MS = 5_000;
+
     private final Orchestrator orchestrator;
+    private final GridRunUseCase grid;
+    private final JobRegistry jobs;
+    private final Executor executor;
+    private final Duration askTimeout;
+    private final ExecutorService asks = Executors.newVirtualThreadPerTaskExecutor(); // hedged asks block on I/O
 
-    public OrchestratorController(Orchestrator orchestrator) {
+    public OrchestratorController(Orchestrator orchestrator,
+                                  GridRunUseCase grid,
+                                  JobRegistry jobs,
+                                  @Qualifier("applicationTaskExecutor") Executor executor,
+                                  @Value("${bmtool1.deadline.ask:PT5M}") Duration askTimeout) {
         this.orchestrator = orchestrator;
+        this.grid = grid;
+        this.jobs = jobs;
+        this.executor = executor;
+        this.askTimeout = askTimeout;
     }
 
+    /**
+     * Runs asynchronously under a deadline ({@code timeoutMs}, else {@code bmtool1.deadline.ask}).
+     * When the deadline passes, the in-flight embedding, retrieval or LLM call is aborted, the run is
+     * recorded as cancelled and the answer is 504. The container does not report a client that goes
+     * away while the answer is computed, so the deadline is also what bounds an abandoned ask.
+     */
     @GetMapping("/ask")
-    public Answer ask(
+    public DeferredResult<Answer> ask(
             @RequestParam("q") String question,
             @RequestParam(value = "kDocs", defaultValue = "6") int kDocs,
             @RequestParam(value = "kFramework", defaultValue = "6") int kFramework,
@@ -33,7 +72,11 @@ public class OrchestratorController {
             @RequestParam("llmModel") String llmModel,
             @RequestParam("embeddingModel") String embeddingModel,
             @RequestParam(value = "tags", required = false) List<String> tagsParam,
-            @RequestParam(value = "prompting", defaultValue = "RAG_STANDARD") String prompting
+            @RequestParam(value = "prompting", defaultValue = "RAG_STANDARD") String prompting,
+            @RequestParam(value = "hedgeProvider", required = false) String hedgeProvider,
+            @RequestParam(value = "hedgeModel", required = false) String hedgeModel,
+            @RequestParam(value = "hedgeMode", defaultValue = "HEDGE") String hedgeMode,
+            @RequestParam(value = "timeoutMs", required = false) Long timeoutMs
     ) {
         List<String> tags = normalizeTags(tagsParam);
 
@@ -49,16 +92,123 @@ public class OrchestratorController {
                     question, kDocs, kFramework, providerId, llmModel, embeddingModel, tags, technique);
         }
 
-        return orchestrator.askWithFramework(
-                new Query(question),
-                kDocs,
-                kFramework,
-                providerId,
-                llmModel,
-                embeddingModel,
-                tags,
-                technique
-        );
+        HedgedChatService.Target hedgeTarget = null;
+        HedgedChatService.Mode mode = HedgedChatService.Mode.HEDGE;
+        if (hedgeProvider != null && !hedgeProvider.isBlank() && hedgeModel != null && !hedgeModel.isBlank()) {
+            hedgeTarget = new HedgedChatService.Target(hedgeProvider.trim(), hedgeModel.trim());
+            try {
+                mode = HedgedChatService.Mode.valueOf(hedgeMode.toUpperCase(Locale.ROOT).trim());
+            } catch (Exception ex) {
+                mode = HedgedChatService.Mode.HEDGE; // safe default
+            }
+        }
+
+        Duration timeout = timeoutMs == null || timeoutMs <= 0 ? askTimeout : Duration.ofMillis(timeoutMs);
+        CancellationToken token = CancellationToken.withDeadline(timeout);
+        DeferredResult<Answer> result = new DeferredResult<>(timeout.toMillis() + ASYNC_GRACE_MS);
+        result.onTimeout(() -> token.cancel(CancellationToken.Reason.DEADLINE_EXCEEDED));
+        result.onError(err -> token.cancel());   // async processing failed, nobody will read the answer
+
+        PromptingTechnique tech = technique;
+        HedgedChatService.Target hedge = hedgeTarget;
+        HedgedChatService.Mode hedgeModeFinal = mode;
+        if (hedge == null) {
+            // fully async: no thread is held while embedding, retrieval or the LLM are busy
+            orchestrator.askAsync(new Query(question), kDocs, kFramework, providerId, llmModel, embeddingModel, tags, tech, token)
+                    .whenComplete((answer, failure) -> complete(result, token, answer, failure));
+            return result;
+        }
+        asks.execute(() -> {
+            try {
+                complete(result, token, orchestrator.askWithFramework(
+                        new Query(question),
+                        kDocs,
+                        kFramework,
+                        providerId,
+                        llmModel,
+                        embeddingModel,
+                        tags,
+                        tech,
+                        hedge,
+                        hedgeModeFinal,
+                        token
+                ), null);
+            } catch (Exception e) {
+                complete(result, token, null, e);
+            }
+        });
+        return result;
+    }
+
+    private static void complete(DeferredResult<Answer> result, CancellationToken token, Answer answer, Throwable failure) {
+        token.close();
+        Throwable cause = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+        if (cause == null) {
+            result.setResult(answer);
+        } else if (cause instanceof RequestCancelledException e) {
+            result.setErrorResult(new ResponseStatusException(
+                    e.deadlineExceeded() ? HttpStatus.GATEWAY_TIMEOUT : HttpStatus.REQUEST_TIMEOUT, e.getMessage()));
+        } else {
+            result.setErrorResult(cause);
+        }
+    }
+
+    /**
+     * Preloads a model the UI is about to ask (e.g. when it is selected), so the first ask skips
+     * the cold start. Returns immediately; a no-op for hosted providers.
+     */
+    @PostMapping("/warmup")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public Map<String, Object> warmUp(@RequestParam("provider") String providerId,
+                                      @RequestParam("llmModel") String llmModel) {
+        try {
+            orchestrator.warmUp(providerId, llmModel);
+        } catch (IllegalArgumentException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage());
+        }
+        return Map.of("provider", providerId, "llmModel", llmModel);
+    }
+
+    /**
+     * Runs a questions × providers × models × techniques × (kDocs, kFramework) grid as a background job.
+     * Every cell is recorded as an experiment row; poll {@code GET /orchestrator/grid/{jobId}} for progress.
+     */
+    @PostMapping("/grid")
+    public Map<String, Object> runGrid(@RequestBody GridSpec spec) {
+        try {
+            grid.validate(spec);
+        } catch (IllegalArgumentException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage());
+        }
+
+        int total = spec.cellCount();
+        String jobId = jobs.start("GRID", total);
+        jobs.update(jobId, 0, "Queued " + total + " cells");
+
+        executor.execute(() -> {
+            try {
+                log.info("[{}] Grid start: {} cells", jobId, total);
+                var result = grid.run(spec, (done, all, message) -> jobs.update(jobId, done, message));
+                String summary = "Grid finished: " + result.succeeded() + " ok, " + result.failed() + " failed";
+                if (result.succeeded() == 0) jobs.fail(jobId, summary); else jobs.done(jobId, summary);
+                log.info("[{}] {}", jobId, summary);
+            } catch (Exception e) {
+                jobs.fail(jobId, e.getMessage());
+                log.error("[{}] Grid failed: {}", jobId, e.toString(), e);
+            }
+        });
+
+        return Map.of("jobId", jobId, "cells", total);
+    }
+
+    @GetMapping("/grid/{jobId}")
+    public JobRegistry.JobStatus gridStatus(@PathVariable("jobId") String jobId) {
+        return jobs.get(jobId);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        asks.shutdownNow();
     }
 
     /* -------- helpers -------- */
@@ -36,6 +36,15 @@ public class JobRegistry {
         });
     }
 
+    /** Like {@link #update(String, int, String)}, for jobs whose total is only known once they run. */
+    public void update(String id, int processed, int total, String message) {
+        jobs.compute(id, (k, j) -> {
+            JobStatus cur = j != null ? j : new JobStatus(id, "RAG", JobState.RUNNING, "Started", 0, 0);
+            return new JobStatus(id, cur.type(), JobState.RUNNING, message != null ? message : cur.message(),
+                    processed, Math.max(total, 0));
+        });
+    }
+
     public void done(String id, String message) {
         jobs.compute(id, (k, j) -> {
             JobStatus cur = j != null ? j : new JobStatus(id, "RAG", JobState.RUNNING, "Started", 0, 0);
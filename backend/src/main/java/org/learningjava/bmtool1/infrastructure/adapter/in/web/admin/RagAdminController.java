@@ -1,5 +1,7 @@
 package org.learningjava.bmtool1.infrastructure.adapter.in.web.admin;
 
+import org.learningjava.bmtool1.application.port.PairArchivePort;
+import org.learningjava.bmtool1.application.port.PairReaderPort;
 import org.learningjava.bmtool1.application.usecase.IngestPairsUseCase;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -11,12 +13,15 @@ import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Executor;
+import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/rag")
@@ -28,13 +33,16 @@ public class RagAdminController {
     private static final Set<String> ALLOWED_EXT = Set.of("sql", "plsql", "pkb", "pks", "java");
 
     private final IngestPairsUseCase ingest;
+    private final PairArchivePort archives;
     private final JobRegistry jobs;
     private final Executor executor;
 
     public RagAdminController(IngestPairsUseCase ingest,
+                              PairArchivePort archives,
                               JobRegistry jobs,
                               @Qualifier("applicationTaskExecutor") Executor executor) {
         this.ingest = ingest;
+        this.archives = archives;
         this.jobs = jobs;
         this.executor = executor;
     }
@@ -59,14 +67,18 @@ public class RagAdminController {
         executor.execute(() -> {
             try {
                 log.info("[{}] Ingest start: {}", jobId, rootDir);
-                var mappings = ingest.ingestDirectory(rootDir);
-
-                int count = (mappings == null) ? 0 : mappings.size();
-                if (count == 0) {
+                var report = ingest.ingestChanges(rootDir,
+                        (done, total, message) -> jobs.update(jobId, done, total, message));
+
+                int count = (report == null) ? 0 : report.mappings();
+                if (report != null && count == 0 && (report.unchangedPairs() > 0 || report.deletedPairs() > 0)) {
+                    jobs.done(jobId, summary(report));
+                    log.info("[{}] Ingest done: nothing changed", jobId);
+                } else if (count == 0) {
                     jobs.fail(jobId, "No SQL–Java pairs found in " + rootDir);
                     log.warn("[{}] No pairs found in {}", jobId, rootDir);
                 } else {
-                    jobs.done(jobId, "Ingested " + count + " mappings");
+                    jobs.done(jobId, summary(report));
                     log.info("[{}] Ingest done: {} mappings", jobId, count);
                 }
             } catch (Exception e) {
@@ -98,14 +110,15 @@ public class RagAdminController {
         executor.execute(() -> {
             try {
                 log.info("[{}] Upload ingest start: {}", jobId, tempDir);
-                var mappings = ingest.ingestDirectory(tempDir.toString());
+                var report = ingest.ingestDirectory(tempDir.toString(),
+                        (done, total, message) -> jobs.update(jobId, done, total, message));
 
-                int count = (mappings == null) ? 0 : mappings.size();
+                int count = (report == null) ? 0 : report.mappings();
                 if (count == 0) {
                     jobs.fail(jobId, "No SQL–Java pairs found in upload");
                     log.warn("[{}] No pairs from upload {}", jobId, tempDir);
                 } else {
-                    jobs.done(jobId, "Ingested " + count + " mappings");
+                    jobs.done(jobId, summary(report));
                     log.info("[{}] Upload ingest done: {} mappings", jobId, count);
                 }
             } catch (Exception e) {
@@ -124,11 +137,72 @@ public class RagAdminController {
         return Map.of("jobId", jobId);
     }
 
+    // --- Archive upload (zip, tar, tar.gz) → read into memory while the request is open → ingest
+    @PostMapping(value = "/upload-archive", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public Map<String, Object> uploadArchiveAndIngest(
+            @RequestParam(value = "archive", required = false) MultipartFile archive) {
+
+        if (archive == null || archive.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "No archive provided");
+        }
+        String name = archive.getOriginalFilename() == null || archive.getOriginalFilename().isBlank()
+                ? "archive" : archive.getOriginalFilename();
+
+        PairReaderPort pairs;
+        try (InputStream in = archive.getInputStream()) {
+            pairs = archives.read(in, name);
+        } catch (PairArchivePort.TooLargeException e) {
+            throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE, e.getMessage());
+        } catch (IOException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unreadable archive: " + e.getMessage());
+        }
+        if (pairs.discoverPairs(name).isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Archive must include PL/SQL files (.sql/.plsql/.pkb/.pks) with .java files of the same name");
+        }
+
+        String jobId = jobs.start("RAG", 0);
+        jobs.update(jobId, 0, "Read " + name + "; ingesting…");
+
+        executor.execute(() -> {
+            try {
+                log.info("[{}] Archive ingest start: {}", jobId, name);
+                var report = ingest.ingestPairs(pairs, name,
+                        (done, total, message) -> jobs.update(jobId, done, total, message));
+
+                int count = (report == null) ? 0 : report.mappings();
+                if (count == 0) {
+                    jobs.fail(jobId, "No block mappings resulted from " + name);
+                    log.warn("[{}] No mappings from archive {}", jobId, name);
+                } else {
+                    jobs.done(jobId, summary(report));
+                    log.info("[{}] Archive ingest done: {} mappings", jobId, count);
+                }
+            } catch (Exception e) {
+                jobs.fail(jobId, e.getMessage());
+                log.error("[{}] Archive ingest failed: {}", jobId, e.toString(), e);
+            }
+        });
+
+        return Map.of("jobId", jobId);
+    }
+
     @GetMapping("/jobs/{id}")
     public JobRegistry.JobStatus status(@PathVariable("id") String id) {
         return jobs.get(id);
     }
 
+    private static String summary(IngestPairsUseCase.IngestReport r) {
+        String stages = r.stages().stream()
+                .map(st -> String.format(Locale.ROOT, "%s %.1f/s", st.stage(), st.perSecond()))
+                .collect(Collectors.joining(", "));
+        String skipped = r.unchangedPairs() > 0 || r.deletedPairs() > 0
+                ? ", " + r.unchangedPairs() + " unchanged, " + r.deletedPairs() + " deleted"
+                : "";
+        return "Ingested " + r.mappings() + " mappings from " + r.pairs() + " pairs" + skipped + " in "
+                + r.elapsedMillis() + " ms" + (stages.isEmpty() ? "" : " (" + stages + ")");
+    }
+
     // ---------- helpers ----------
 
     private void validateFiles(List<MultipartFile> files) {
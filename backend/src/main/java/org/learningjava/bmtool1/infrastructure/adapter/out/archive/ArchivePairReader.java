@@ -0,0 +1,132 @@
+package org.learningjava.bmtool1.infrastructure.adapter.out.archive;
+
+import org.apache.commons.compress.archivers.ArchiveEntry;
+import org.apache.commons.compress.archivers.ArchiveException;
+import org.apache.commons.compress.archivers.ArchiveInputStream;
+import org.apache.commons.compress.archivers.ArchiveStreamFactory;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.compress.archivers.zip.ZipArchiveInputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
+import org.learningjava.bmtool1.application.port.PairArchivePort;
+import org.learningjava.bmtool1.application.port.PairReaderPort;
+import org.learningjava.bmtool1.config.UploadProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Reads uploaded zip, tar and tar.gz archives straight from the request stream into an {@link InMemoryPairReader},
+ * so an upload of thousands of files is decompressed once and never written out. Only PL/SQL and Java entries are
+ * kept; hidden files, {@code __MACOSX/} and paths that climb out with {@code ..} are skipped.
+ *
+ * Limits are checked against the bytes actually decompressed, not the sizes entries declare: the number of
+ * entries, the size of each kept file, and the total of everything read, skipped entries included. An archive that
+ * crosses one fails with {@link PairArchivePort.TooLargeException} as soon as it does.
+ */
+@Component
+public class ArchivePairReader implements PairArchivePort {
+
+    private static final Logger log = LoggerFactory.getLogger(ArchivePairReader.class);
+    private static final Set<String> SOURCE_EXT = Set.of("sql", "plsql", "pkb", "pks", "java");
+
+    private final UploadProperties limits;
+
+    public ArchivePairReader(UploadProperties limits) {
+        this.limits = limits;
+    }
+
+    @Override
+    public PairReaderPort read(InputStream archive, String name) throws IOException {
+        long t0 = System.nanoTime();
+        Map<String, byte[]> sources = new LinkedHashMap<>();
+        long maxEntryBytes = limits.getMaxEntrySize().toBytes();
+        long maxTotalBytes = limits.getMaxTotalSize().toBytes();
+        int entries = 0;
+        long total = 0;
+        byte[] buf = new byte[8192];
+
+        try (ArchiveInputStream in = open(archive, name)) {
+            for (ArchiveEntry e; (e = in.getNextEntry()) != null; ) {
+                if (++entries > limits.getMaxEntries()) {
+                    throw new TooLargeException(name + " has more than " + limits.getMaxEntries() + " entries");
+                }
+                String path = e.isDirectory() ? null : sourcePath(e.getName());
+                if (path != null && !in.canReadEntryData(e)) {
+                    log.warn("Skipping {} in {}: unsupported compression or encryption", e.getName(), name);
+                    path = null;
+                }
+                if (path != null && e.getSize() > maxEntryBytes) {
+                    throw new TooLargeException(e.getName() + " is larger than " + maxEntryBytes + " bytes");
+                }
+
+                ByteArrayOutputStream kept = path == null ? null
+                        : new ByteArrayOutputStream(e.getSize() > 0 ? (int) Math.min(e.getSize(), 1 << 20) : 8192);
+                long size = 0;
+                for (int n; (n = in.read(buf)) > 0; ) {
+                    size += n;
+                    total += n;
+                    if (total > maxTotalBytes) {
+                        throw new TooLargeException(name + " unpacks to more than " + maxTotalBytes + " bytes");
+                    }
+                    if (kept == null) continue;
+                    if (size > maxEntryBytes) {
+                        throw new TooLargeException(e.getName() + " is larger than " + maxEntryBytes + " bytes");
+                    }
+                    kept.write(buf, 0, n);
+                }
+                if (kept != null) sources.put(path, kept.toByteArray());
+            }
+        }
+
+        log.info("Read {} source files ({} entries, {} bytes) from {} in {} ms",
+                sources.size(), entries, total, name, (System.nanoTime() - t0) / 1_000_000);
+        return new InMemoryPairReader(sources);
+    }
+
+    // The format is sniffed rather than taken from the file name; gzip wraps a tar
+    private static ArchiveInputStream open(InputStream raw, String name) throws IOException {
+        InputStream in = new BufferedInputStream(raw);
+        in.mark(2);
+        byte[] signature = in.readNBytes(2);
+        in.reset();
+        if (GzipCompressorInputStream.matches(signature, signature.length)) {
+            in = new BufferedInputStream(new GzipCompressorInputStream(in));
+        }
+        String format;
+        try {
+            format = ArchiveStreamFactory.detect(in);
+        } catch (ArchiveException e) {
+            throw new IOException(name + " is not a zip or tar archive", e);
+        }
+        return switch (format) {
+            case ArchiveStreamFactory.ZIP, ArchiveStreamFactory.JAR ->
+                    new ZipArchiveInputStream(in, StandardCharsets.UTF_8.name(), true, true);
+            case ArchiveStreamFactory.TAR -> new TarArchiveInputStream(in);
+            default -> throw new IOException(name + " is a " + format + " archive; upload a zip or tar.gz");
+        };
+    }
+
+    /** The entry's path below the archive root when it is a source file worth keeping, otherwise null. */
+    static String sourcePath(String entryName) {
+        String path = entryName.replace('\\', '/');
+        while (path.startsWith("/") || path.startsWith("./")) path = path.substring(path.startsWith("/") ? 1 : 2);
+        if (path.isEmpty()) return null;
+
+        for (String segment : path.split("/")) {
+            if (segment.equals("..") || segment.startsWith(".") || segment.equalsIgnoreCase("__MACOSX")) return null;
+        }
+        int dot = path.lastIndexOf('.');
+        if (dot < 0 || dot < path.lastIndexOf('/')) return null;
+        return SOURCE_EXT.contains(path.substring(dot + 1).toLowerCase(Locale.ROOT)) ? path : null;
+    }
+}
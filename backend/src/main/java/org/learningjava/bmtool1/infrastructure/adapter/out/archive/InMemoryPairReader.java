@@ -0,0 +1,100 @@
+package org.learningjava.bmtool1.infrastructure.adapter.out.archive;
+
+import org.learningjava.bmtool1.application.port.PairReaderPort;
+import org.learningjava.bmtool1.domain.model.pairs.PairId;
+import org.learningjava.bmtool1.domain.model.pairs.SourcePair;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Pairs the source files of an archive by base name, the way {@code FileSystemPairReader} pairs a directory.
+ * Paths are the entries' paths inside the archive, so pair ids and content hashes come out the same as for the
+ * extracted tree, and the extractors get each file's bytes through {@link #content(String)}.
+ */
+final class InMemoryPairReader implements PairReaderPort {
+
+    private static final Logger log = LoggerFactory.getLogger(InMemoryPairReader.class);
+
+    private final Map<String, byte[]> files;
+
+    InMemoryPairReader(Map<String, byte[]> files) {
+        this.files = files;
+    }
+
+    /** {@code rootDir} only labels log lines; the archive is the root. */
+    @Override
+    public List<SourcePair> discoverPairs(String rootDir) {
+        Map<String, String> plsql = new HashMap<>();
+        Map<String, String> java = new HashMap<>();
+        for (String path : files.keySet()) {
+            String name = path.substring(path.lastIndexOf('/') + 1);
+            if (name.toLowerCase(Locale.ROOT).endsWith(".java")) {
+                java.put(stripExt(name), path);
+            } else {
+                plsql.put(stripExt(name), path);
+            }
+        }
+
+        List<SourcePair> out = new ArrayList<>();
+        for (var key : new TreeSet<>(plsql.keySet())) {
+            if (java.containsKey(key)) {
+                SourcePair pair = new SourcePair(
+                        PairId.stable(plsql.get(key) + "|" + java.get(key)), plsql.get(key), java.get(key));
+                out.add(pair);
+                log.debug("Discovered pair: SQL={} JAVA={}", pair.plsqlPath(), pair.javaPath());
+            }
+        }
+
+        if (out.isEmpty()) {
+            log.warn("No pairs found in {}", rootDir);
+        } else {
+            log.info("Found {} pairs in {}", out.size(), rootDir);
+        }
+        return out;
+    }
+
+    @Override
+    public String readFile(String path) {
+        return new String(bytes(path), StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public byte[] content(String path) {
+        return bytes(path);
+    }
+
+    @Override
+    public String contentHash(SourcePair pair) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            md.update(bytes(pair.plsqlPath()));
+            md.update((byte) 0);
+            md.update(bytes(pair.javaPath()));
+            return HexFormat.of().formatHex(md.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private byte[] bytes(String path) {
+        byte[] content = files.get(path);
+        if (content == null) throw new IllegalArgumentException("Not in the archive: " + path);
+        return content;
+    }
+
+    private static String stripExt(String name) {
+        int i = name.lastIndexOf('.');
+        return i > 0 ? name.substring(0, i) : name;
+    }
+}
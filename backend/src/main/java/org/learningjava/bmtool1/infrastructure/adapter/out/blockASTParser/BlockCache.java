@@ -0,0 +1,182 @@
+package org.learningjava.bmtool1.infrastructure.adapter.out.blockASTParser;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.learningjava.bmtool1.domain.model.pairs.Block;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Extracted block lists on local disk, keyed by a SHA-256 of the extractor variant and the file's bytes, so
+ * re-ingesting after a mapping-rule change doesn't parse anything that hasn't changed. Entries are deflated
+ * binary ({@code type, isHelper, text} per block); the source path isn't stored, it's the path being extracted.
+ *
+ * A variant names the extractor and every setting that changes its output; bump it when extraction logic
+ * changes. Unreadable entries count as misses and are overwritten, and the directory can be deleted at any time.
+ */
+@Component
+public class BlockCache {
+
+    /** Used by the Spring beans and by {@code TemplateUseCase}, relative to the working directory. */
+    public static final String DEFAULT_DIR = "data/block-cache";
+
+    private static final Logger log = LoggerFactory.getLogger(BlockCache.class);
+    private static final int MAGIC = 0x424C4B31; // "BLK1"
+
+    @FunctionalInterface
+    public interface Extraction {
+        List<Block> extract() throws Exception;
+    }
+
+    private final Path dir;
+    private final Counter hits;
+    private final Counter misses;
+
+    @Autowired
+    public BlockCache(@Value("${bmtool1.parse.block-cache.dir:" + DEFAULT_DIR + "}") String dir, MeterRegistry meters) {
+        this.dir = dir == null || dir.isBlank() ? null : Path.of(dir);
+        this.hits = counter(meters, "hit");
+        this.misses = counter(meters, "miss");
+    }
+
+    /** A cache in {@code dir}; a blank path disables caching. */
+    public static BlockCache at(String dir) {
+        return new BlockCache(dir, new SimpleMeterRegistry());
+    }
+
+    /** Caches nothing; every lookup extracts. */
+    public static BlockCache disabled() {
+        return at("");
+    }
+
+    /** The cached blocks of {@code file} for {@code variant}, or {@code extraction}'s result, stored for next time. */
+    public List<Block> get(String variant, Path file, Extraction extraction) throws Exception {
+        if (dir == null) return extraction.extract();
+
+        MessageDigest sha = digest(variant);
+        try (InputStream in = Files.newInputStream(file)) {
+            byte[] buf = new byte[8192];
+            for (int n; (n = in.read(buf)) > 0; ) sha.update(buf, 0, n);
+        }
+        return get(entry(sha), file.toString(), extraction);
+    }
+
+    /** Like {@link #get(String, Path, Extraction)}, for a file held in memory under {@code name}. */
+    public List<Block> get(String variant, String name, byte[] content, Extraction extraction) throws Exception {
+        if (dir == null) return extraction.extract();
+
+        MessageDigest sha = digest(variant);
+        sha.update(content);
+        return get(entry(sha), name, extraction);
+    }
+
+    private List<Block> get(Path entry, String source, Extraction extraction) throws Exception {
+        List<Block> cached = read(entry, source);
+        if (cached != null) {
+            hits.increment();
+            log.debug("Block cache hit for {} ({} blocks)", source, cached.size());
+            return cached;
+        }
+        misses.increment();
+        List<Block> blocks = extraction.extract();
+        try {
+            write(entry, blocks);
+        } catch (IOException e) {
+            log.warn("Could not cache blocks of {}: {}", source, e.getMessage());
+        }
+        return blocks;
+    }
+
+    private static MessageDigest digest(String variant) {
+        MessageDigest sha;
+        try {
+            sha = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        sha.update(variant.getBytes(StandardCharsets.UTF_8));
+        sha.update((byte) 0);
+        return sha;
+    }
+
+    private Path entry(MessageDigest sha) {
+        String key = HexFormat.of().formatHex(sha.digest());
+        return dir.resolve(key.substring(0, 2)).resolve(key + ".blk");
+    }
+
+    private static List<Block> read(Path entry, String sourcePath) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new InflaterInputStream(Files.newInputStream(entry))))) {
+            if (in.readInt() != MAGIC) throw new IOException("bad magic");
+            int count = in.readInt();
+            List<Block> blocks = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                String type = in.readUTF();
+                boolean helper = in.readBoolean();
+                int length = in.readInt();
+                byte[] text = in.readNBytes(Math.max(length, 0));
+                if (text.length != length) throw new IOException("truncated");
+                blocks.add(new Block(type, new String(text, StandardCharsets.UTF_8), sourcePath, helper));
+            }
+            return blocks;
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            log.debug("Ignoring unreadable block cache entry {}: {}", entry, e.getMessage());
+            return null;
+        }
+    }
+
+    private static void write(Path entry, List<Block> blocks) throws IOException {
+        Files.createDirectories(entry.getParent());
+        Path tmp = Files.createTempFile(entry.getParent(), entry.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new DeflaterOutputStream(Files.newOutputStream(tmp))))) {
+                out.writeInt(MAGIC);
+                out.writeInt(blocks.size());
+                for (Block b : blocks) {
+                    byte[] text = b.text().getBytes(StandardCharsets.UTF_8);
+                    out.writeUTF(b.type());
+                    out.writeBoolean(b.isHelper());
+                    out.writeInt(text.length);
+                    out.write(text);
+                }
+            }
+            // readers never see a partial entry; concurrent writers of the same key write the same bytes
+            Files.move(tmp, entry, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private static Counter counter(MeterRegistry meters, String result) {
+        return Counter.builder("bmtool1.block.cache")
+                .description("Block-cache lookups")
+                .tag("result", result)
+                .register(meters);
+    }
+}
@@ -0,0 +1,69 @@
+package org.learningjava.bmtool1.infrastructure.adapter.out.blockASTParser;
+
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.TokenStream;
+import org.antlr.v4.runtime.misc.Interval;
+import org.learningjava.bmtool1.domain.model.pairs.Block;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Collects blocks from rule-exit events, which arrive innermost first, and hands them back in source order with
+ * outer rules ahead of the rules nested in them: the order a pre-order walk of the full tree gives. Text is read
+ * from the token stream and the char stream, so it doesn't need the rule's children.
+ */
+final class BlockSink {
+
+    private record Found(int start, int stop, Block block) {}
+
+    private final String source;
+    private final List<Found> found = new ArrayList<>();
+    private TokenStream tokens;
+
+    BlockSink(Path file) {
+        this.source = file.toString();
+    }
+
+    /** Drops what an earlier (abandoned) parse attempt collected and reads text from {@code tokens} from now on. */
+    BlockSink restart(TokenStream tokens) {
+        this.tokens = tokens;
+        found.clear();
+        return this;
+    }
+
+    void add(String type, ParserRuleContext ctx, String code) {
+        found.add(new Found(ctx.start.getTokenIndex(), stopIndex(ctx), new Block(type, code, source)));
+    }
+
+    /** The rule's tokens concatenated without whitespace or comments, as {@code ctx.getText()} gives on a full tree. */
+    String compactText(ParserRuleContext ctx) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = ctx.start.getTokenIndex(), stop = stopIndex(ctx); i <= stop; i++) {
+            Token t = tokens.get(i);
+            if (t.getChannel() == Token.DEFAULT_CHANNEL && t.getType() != Token.EOF) sb.append(t.getText());
+        }
+        return sb.toString();
+    }
+
+    /** The rule's source text exactly as written. */
+    static String sourceText(ParserRuleContext ctx) {
+        int stop = ctx.stop == null ? ctx.start.getStopIndex() : ctx.stop.getStopIndex();
+        return ctx.start.getInputStream().getText(new Interval(ctx.start.getStartIndex(), stop));
+    }
+
+    List<Block> blocks() {
+        return found.stream()
+                .sorted(Comparator.comparingInt(Found::start).thenComparing(Found::stop, Comparator.reverseOrder()))
+                .map(Found::block)
+                .toList();
+    }
+
+    // error recovery can close a rule before its first token
+    private static int stopIndex(ParserRuleContext ctx) {
+        return ctx.stop == null ? ctx.start.getTokenIndex() - 1 : ctx.stop.getTokenIndex();
+    }
+}
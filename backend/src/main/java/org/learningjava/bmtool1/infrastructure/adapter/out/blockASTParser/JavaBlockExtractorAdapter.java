@@ -1,22 +1,24 @@
 package org.learningjava.bmtool1.infrastructure.adapter.out.blockASTParser;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java9.Java9Lexer;
 import java9.Java9Parser;
 import java9.Java9ParserBaseListener;
+import org.antlr.v4.runtime.CharStream;
 import org.antlr.v4.runtime.CharStreams;
-import org.antlr.v4.runtime.CommonTokenStream;
-import org.antlr.v4.runtime.misc.Interval;
-import org.antlr.v4.runtime.tree.ParseTree;
-import org.antlr.v4.runtime.tree.ParseTreeWalker;
 import org.learningjava.bmtool1.application.port.BlockExtractorPort;
+import org.learningjava.bmtool1.config.JavaBlockProperties;
+import org.learningjava.bmtool1.config.JavaBlockProperties.Statements;
 import org.learningjava.bmtool1.domain.model.pairs.Block;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.ArrayList;
+import java.time.Duration;
 import java.util.List;
 
 @Component("javaBlockExtractor")
@@ -24,51 +26,103 @@ public class JavaBlockExtractorAdapter implements BlockExtractorPort {
 
     private static final Logger log = LoggerFactory.getLogger(JavaBlockExtractorAdapter.class);
 
+    /** Bump when extraction output changes, so cached block lists from the old logic aren't reused. */
+    private static final String CACHE_VARIANT = "java:1";
+
+    private final TwoStageParser<Java9Lexer, Java9Parser> parsing;
+    private final JavaBlockProperties kinds;
+    private final BlockCache cache;
+
+    public JavaBlockExtractorAdapter() {
+        this(BlockCache.disabled());
+    }
+
+    public JavaBlockExtractorAdapter(BlockCache cache) {
+        this(Duration.ofSeconds(30), false, new JavaBlockProperties(), cache, new SimpleMeterRegistry());
+    }
+
+    @Autowired
+    public JavaBlockExtractorAdapter(@Value("${bmtool1.parse.time-budget:PT30S}") Duration timeBudget,
+                                     @Value("${bmtool1.parse.build-tree:false}") boolean buildTree,
+                                     JavaBlockProperties kinds,
+                                     BlockCache cache,
+                                     MeterRegistry meters) {
+        this.parsing = new TwoStageParser<>("java", timeBudget, buildTree, meters,
+                Java9Lexer::new, Java9Parser::new, Java9Parser::compilationUnit);
+        this.kinds = kinds;
+        this.cache = cache;
+    }
+
+    /** Served from the {@link BlockCache} when this exact content has been extracted with the same kinds before. */
     @Override
     public List<Block> extract(Path javaFile) throws Exception {
+        return cache.get(variant(), javaFile, () -> parse(javaFile, CharStreams.fromPath(javaFile)));
+    }
+
+    @Override
+    public List<Block> extract(String name, byte[] content) throws Exception {
+        return cache.get(variant(), name, content, () -> parse(Path.of(name), TwoStageParser.charStream(name, content)));
+    }
+
+    @Override
+    public String version() {
+        return variant();
+    }
+
+    private String variant() {
+        return CACHE_VARIANT + ":" + kinds.isMethods() + ":" + kinds.isFields() + ":" + kinds.getStatements();
+    }
+
+    private List<Block> parse(Path javaFile, CharStream input) {
         log.info("Extracting Java blocks from {}", javaFile);
 
-        String content = Files.readString(javaFile);
-        Java9Lexer lexer = new Java9Lexer(CharStreams.fromString(content));
-        CommonTokenStream tokens = new CommonTokenStream(lexer);
-        Java9Parser parser = new Java9Parser(tokens);
+        BlockSink sink = new BlockSink(javaFile);
+        parsing.parse(javaFile, input, parser -> listener(sink.restart(parser.getTokenStream()), kinds));
+        List<Block> blocks = sink.blocks();
+
+        log.info("Extracted {} Java blocks from {}", blocks.size(), javaFile);
+        return blocks;
+    }
 
-        ParseTree tree = parser.compilationUnit();
-        List<Block> blocks = new ArrayList<>();
+    // Exit events, so the rule's tokens are all known whether or not a tree is being built
+    private static Java9ParserBaseListener listener(BlockSink sink, JavaBlockProperties kinds) {
+        return new Java9ParserBaseListener() {
+            private int statementDepth;
 
-        ParseTreeWalker walker = new ParseTreeWalker();
-        walker.walk(new Java9ParserBaseListener() {
             @Override
-            public void enterMethodDeclaration(Java9Parser.MethodDeclarationContext ctx) {
-                String name = ctx.methodHeader().methodDeclarator().identifier().getText();
-                int start = ctx.getStart().getStartIndex();
-                int stop = ctx.getStop().getStopIndex();
-                Interval interval = new Interval(start, stop);
-                String methodCode = ctx.start.getInputStream().getText(interval);
-
-                blocks.add(new Block("METHOD", methodCode, javaFile.toString()));
-                log.debug("Recognized method: {} (length={})", name, methodCode.length());
+            public void exitMethodDeclaration(Java9Parser.MethodDeclarationContext ctx) {
+                if (!kinds.isMethods()) return;
+                String methodCode = BlockSink.sourceText(ctx);
+                sink.add("METHOD", ctx, methodCode);
+                log.debug("Recognized method at line {} (length={})", ctx.start.getLine(), methodCode.length());
             }
 
             @Override
-            public void enterFieldDeclaration(Java9Parser.FieldDeclarationContext ctx) {
-                int start = ctx.getStart().getStartIndex();
-                int stop = ctx.getStop().getStopIndex();
-                Interval interval = new Interval(start, stop);
-                String fieldCode = ctx.start.getInputStream().getText(interval);
-
-                blocks.add(new Block("FIELD", fieldCode, javaFile.toString()));
+            public void exitFieldDeclaration(Java9Parser.FieldDeclarationContext ctx) {
+                if (!kinds.isFields()) return;
+                String fieldCode = BlockSink.sourceText(ctx);
+                sink.add("FIELD", ctx, fieldCode);
                 log.debug("Recognized field: {}", fieldCode);
             }
 
             @Override
             public void enterStatement(Java9Parser.StatementContext ctx) {
-                blocks.add(new Block("STATEMENT", ctx.getText(), javaFile.toString()));
-                log.trace("Recognized statement: {}", ctx.getText());
+                statementDepth++;
             }
-        }, tree);
 
-        log.info("Extracted {} Java blocks from {}", blocks.size(), javaFile);
-        return blocks;
+            @Override
+            public void exitStatement(Java9Parser.StatementContext ctx) {
+                boolean nested = --statementDepth > 0;
+                if (kinds.getStatements() == Statements.NONE || nested && kinds.getStatements() == Statements.TOP_LEVEL) return;
+                String text = BlockSink.sourceText(ctx);
+                sink.add("STATEMENT", ctx, text);
+                log.trace("Recognized statement: {}", text);
+            }
+        };
+    }
+
+    /** Parses {@code source} and discards the tree; used to prime the grammar's shared DFA cache. */
+    void warmUp(String name, String source) {
+        parsing.parse(Path.of(name), CharStreams.fromString(source, name));
     }
 }
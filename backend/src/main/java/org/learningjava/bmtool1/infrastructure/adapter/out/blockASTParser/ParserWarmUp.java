@@ -0,0 +1,79 @@
+package org.learningjava.bmtool1.infrastructure.adapter.out.blockASTParser;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Parses the sample sources bundled under {@code parser-warmup/} once the application is ready, on a background
+ * thread, so the first real ingest doesn't pay for loading the grammars' ATNs and building their DFA caches
+ * (the PL/SQL grammar especially). Files ending in {@code .sql} go to the PL/SQL extractor, {@code .java} to the
+ * Java one; a sample that fails to parse is logged and skipped.
+ */
+@Component
+public class ParserWarmUp {
+
+    private static final Logger log = LoggerFactory.getLogger(ParserWarmUp.class);
+    static final String SAMPLES = "classpath*:parser-warmup/*";
+
+    private final PlsqlBlockExtractorAdapter plsql;
+    private final JavaBlockExtractorAdapter java;
+    private final boolean enabled;
+    private final ResourcePatternResolver resources = new PathMatchingResourcePatternResolver();
+
+    public ParserWarmUp(PlsqlBlockExtractorAdapter plsql, JavaBlockExtractorAdapter java,
+                        @Value("${bmtool1.parse.warm-up:true}") boolean enabled) {
+        this.plsql = plsql;
+        this.java = java;
+        this.enabled = enabled;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        if (!enabled) return;
+        Thread.ofPlatform().name("parser-warm-up").daemon().start(this::run);
+    }
+
+    /** Parses every bundled sample on the calling thread; returns how many parsed. */
+    int run() {
+        long t0 = System.nanoTime();
+        Resource[] samples;
+        try {
+            samples = resources.getResources(SAMPLES);
+        } catch (IOException e) {
+            log.warn("Parser warm-up skipped: {}", e.getMessage());
+            return 0;
+        }
+        Arrays.sort(samples, Comparator.comparing(r -> String.valueOf(r.getFilename())));
+
+        int parsed = 0;
+        for (Resource sample : samples) {
+            String name = String.valueOf(sample.getFilename());
+            try {
+                if (name.endsWith(".sql")) {
+                    plsql.warmUp(name, sample.getContentAsString(StandardCharsets.UTF_8));
+                } else if (name.endsWith(".java")) {
+                    java.warmUp(name, sample.getContentAsString(StandardCharsets.UTF_8));
+                } else {
+                    continue;
+                }
+                parsed++;
+            } catch (Exception e) {
+                log.warn("Parser warm-up sample {} failed: {}", name, e.getMessage());
+            }
+        }
+        log.info("Parser warm-up parsed {} samples in {} ms", parsed, (System.nanoTime() - t0) / 1_000_000);
+        return parsed;
+    }
+}
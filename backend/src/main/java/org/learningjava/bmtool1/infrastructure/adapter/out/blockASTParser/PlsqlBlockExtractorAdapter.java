@@ -1,75 +1,168 @@
 package org.learningjava.bmtool1.infrastructure.adapter.out.blockASTParser;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.antlr.v4.runtime.CharStream;
 import org.antlr.v4.runtime.CharStreams;
-import org.antlr.v4.runtime.CommonTokenStream;
-import org.antlr.v4.runtime.misc.Interval;
-import org.antlr.v4.runtime.tree.ParseTree;
-import org.antlr.v4.runtime.tree.ParseTreeWalker;
 import org.learningjava.bmtool1.application.port.BlockExtractorPort;
 import org.learningjava.bmtool1.domain.model.pairs.Block;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import plsql.PlSqlLexer;
 import plsql.PlSqlParser;
 import plsql.PlSqlParserBaseListener;
 
-import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 @Component("plsqlBlockExtractor")
 public class PlsqlBlockExtractorAdapter implements BlockExtractorPort {
 
     private static final Logger log = LoggerFactory.getLogger(PlsqlBlockExtractorAdapter.class);
 
+    /** Bump when extraction output changes, so cached block lists from the old logic aren't reused. */
+    private static final String CACHE_VARIANT = "plsql:1";
+
+    private final TwoStageParser<PlSqlLexer, PlSqlParser> parsing;
+    private final int splitMinUnits;
+    private final ExecutorService unitPool;
+    private final BlockCache cache;
+
+    public PlsqlBlockExtractorAdapter() {
+        this(BlockCache.disabled());
+    }
+
+    /** For use outside Spring, where nothing calls {@link #shutdown()}: files are parsed whole, so no unit threads start. */
+    public PlsqlBlockExtractorAdapter(BlockCache cache) {
+        this(Duration.ofSeconds(30), false, 0, 1, cache, new SimpleMeterRegistry());
+    }
+
+    @Autowired
+    public PlsqlBlockExtractorAdapter(@Value("${bmtool1.parse.time-budget:PT30S}") Duration timeBudget,
+                                      @Value("${bmtool1.parse.build-tree:false}") boolean buildTree,
+                                      @Value("${bmtool1.parse.split-min-units:8}") int splitMinUnits,
+                                      @Value("${bmtool1.parse.split-parallelism:0}") int splitParallelism,
+                                      BlockCache cache,
+                                      MeterRegistry meters) {
+        this.parsing = new TwoStageParser<>("plsql", timeBudget, buildTree, meters,
+                PlSqlLexer::new, PlSqlParser::new, PlSqlParser::sql_script);
+        this.splitMinUnits = splitMinUnits;
+        this.cache = cache;
+        int threads = splitParallelism > 0 ? splitParallelism : Runtime.getRuntime().availableProcessors();
+        this.unitPool = Executors.newFixedThreadPool(threads, Thread.ofPlatform().name("plsql-unit-", 1).daemon().factory());
+    }
+
+    /** Served from the {@link BlockCache} when this exact content has been extracted before. */
     @Override
     public List<Block> extract(Path plsqlFile) throws Exception {
+        return cache.get(CACHE_VARIANT, plsqlFile, () -> parse(plsqlFile, CharStreams.fromPath(plsqlFile)));
+    }
+
+    @Override
+    public List<Block> extract(String name, byte[] content) throws Exception {
+        return cache.get(CACHE_VARIANT, name, content, () -> parse(Path.of(name), TwoStageParser.charStream(name, content)));
+    }
+
+    @Override
+    public String version() {
+        return CACHE_VARIANT;
+    }
+
+    /**
+     * Package bodies with at least {@code splitMinUnits} top-level units are cut apart by {@link PlsqlPackageSplitter}
+     * and the units parsed in parallel, so one huge package doesn't hold up an ingest on a single thread. The time
+     * budget then applies per unit.
+     */
+    private List<Block> parse(Path plsqlFile, CharStream input) throws Exception {
         log.info("Extracting PL/SQL blocks from {}", plsqlFile);
 
-        String content = Files.readString(plsqlFile);
-        PlSqlLexer lexer = new PlSqlLexer(CharStreams.fromString(content));
-        CommonTokenStream tokens = new CommonTokenStream(lexer);
-        PlSqlParser parser = new PlSqlParser(tokens);
+        List<String> units = splitMinUnits > 0 ? PlsqlPackageSplitter.split(input) : List.of();
+        List<Block> blocks = units.size() >= Math.max(2, splitMinUnits)
+                ? extractUnits(plsqlFile, units)
+                : extract(plsqlFile, input);
+
+        log.info("Extracted {} PL/SQL blocks from {}", blocks.size(), plsqlFile);
+        return blocks;
+    }
+
+    private List<Block> extract(Path plsqlFile, CharStream input) {
+        BlockSink sink = new BlockSink(plsqlFile);
+        parsing.parse(plsqlFile, input, parser -> listener(sink.restart(parser.getTokenStream())));
+        return sink.blocks();
+    }
+
+    private List<Block> extractUnits(Path plsqlFile, List<String> units) throws Exception {
+        log.debug("Split {} into {} units", plsqlFile, units.size());
+        List<Future<List<Block>>> rest = new ArrayList<>(units.size() - 1);
+        for (String unit : units.subList(1, units.size())) {
+            rest.add(unitPool.submit(() -> extract(plsqlFile, CharStreams.fromString(unit, plsqlFile.toString()))));
+        }
+        try {
+            // the caller parses the first unit itself rather than idling
+            List<Block> blocks = new ArrayList<>(extract(plsqlFile, CharStreams.fromString(units.get(0), plsqlFile.toString())));
+            for (Future<List<Block>> f : rest) {
+                blocks.addAll(f.get());
+            }
+            return blocks;
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        } finally {
+            rest.forEach(f -> f.cancel(true));
+        }
+    }
 
-        ParseTree tree = parser.sql_script();
-        List<Block> blocks = new ArrayList<>();
+    @PreDestroy
+    public void shutdown() {
+        unitPool.shutdownNow();
+    }
 
-        ParseTreeWalker walker = new ParseTreeWalker();
-        walker.walk(new PlSqlParserBaseListener() {
+    // Exit events, so the rule's tokens are all known whether or not a tree is being built
+    private static PlSqlParserBaseListener listener(BlockSink sink) {
+        return new PlSqlParserBaseListener() {
 
             @Override
-            public void enterAssignment_statement(PlSqlParser.Assignment_statementContext ctx) {
-                String text = ctx.getText();
+            public void exitAssignment_statement(PlSqlParser.Assignment_statementContext ctx) {
+                String text = sink.compactText(ctx);
                 if (text.contains("'")) {
-                    blocks.add(new Block("ASSIGNMENT_CONST_STRING", text, plsqlFile.toString()));
+                    sink.add("ASSIGNMENT_CONST_STRING", ctx, text);
                     log.debug("Recognized assignment: {}", text);
                 }
             }
 
             @Override
-            public void enterIf_statement(PlSqlParser.If_statementContext ctx) {
-                blocks.add(new Block("CONDITION", ctx.getText(), plsqlFile.toString()));
-                log.debug("Recognized IF condition: {}", ctx.getText());
+            public void exitIf_statement(PlSqlParser.If_statementContext ctx) {
+                String text = sink.compactText(ctx);
+                sink.add("CONDITION", ctx, text);
+                log.debug("Recognized IF condition: {}", text);
             }
 
             @Override
-            public void enterInsert_statement(PlSqlParser.Insert_statementContext ctx) {
-                String sql = ctx.start.getInputStream()
-                        .getText(new Interval(ctx.start.getStartIndex(), ctx.stop.getStopIndex()));
-                blocks.add(new Block("INSERT_STATEMENT", sql, plsqlFile.toString()));
+            public void exitInsert_statement(PlSqlParser.Insert_statementContext ctx) {
+                sink.add("INSERT_STATEMENT", ctx, BlockSink.sourceText(ctx));
                 log.debug("Recognized INSERT block with preserved whitespace.");
             }
 
             @Override
-            public void enterException_handler(PlSqlParser.Exception_handlerContext ctx) {
-                blocks.add(new Block("EXCEPTION_HANDLER", ctx.getText(), plsqlFile.toString()));
-                log.debug("Recognized exception handler: {}", ctx.getText());
+            public void exitException_handler(PlSqlParser.Exception_handlerContext ctx) {
+                String text = sink.compactText(ctx);
+                sink.add("EXCEPTION_HANDLER", ctx, text);
+                log.debug("Recognized exception handler: {}", text);
             }
-        }, tree);
+        };
+    }
 
-        log.info("Extracted {} PL/SQL blocks from {}", blocks.size(), plsqlFile);
-        return blocks;
+    /** Parses {@code source} and discards the tree; used to prime the grammar's shared DFA cache. */
+    void warmUp(String name, String source) {
+        parsing.parse(Path.of(name), CharStreams.fromString(source, name));
     }
 }
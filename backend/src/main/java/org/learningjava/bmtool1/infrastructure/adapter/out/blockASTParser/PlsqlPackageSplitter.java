@@ -0,0 +1,190 @@
+package org.learningjava.bmtool1.infrastructure.adapter.out.blockASTParser;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.misc.Interval;
+import plsql.PlSqlLexer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Cuts a {@code CREATE PACKAGE BODY} script into units the parser can take one at a time: each top-level procedure
+ * or function, each run of package-level declarations, and the initialization section. Every unit is wrapped in
+ * the package's own header and a closing {@code END;}, which adds no blocks, so extracting the units in order
+ * gives what extracting the whole file does.
+ *
+ * Only the lexer runs here, so strings, comments and quoted names can't confuse it; structure is tracked by
+ * counting {@code BEGIN}/{@code CASE} against {@code END}. Anything it doesn't recognise as a single package body
+ * (a spec, several objects in one file, unbalanced blocks) is left whole.
+ */
+final class PlsqlPackageSplitter {
+
+    private final CharStream input;
+    private final List<Token> tokens;
+
+    private PlsqlPackageSplitter(CharStream input, List<Token> tokens) {
+        this.input = input;
+        this.tokens = tokens;
+    }
+
+    /** The wrapped units of {@code input} in source order, or an empty list if it isn't a splittable package body. */
+    static List<String> split(CharStream input) {
+        try {
+            PlSqlLexer lexer = new PlSqlLexer(input);
+            lexer.removeErrorListeners();
+            List<Token> tokens = new ArrayList<>();
+            // the header decides whether this is a package body at all, so the rest is only lexed if it is
+            for (Token t = next(lexer); t.getType() != Token.EOF; t = next(lexer)) {
+                tokens.add(t);
+                int type = t.getType();
+                if (tokens.size() == 1 && type != PlSqlLexer.CREATE) return List.of();
+                if (type == PlSqlLexer.IS || type == PlSqlLexer.AS || type == PlSqlLexer.SEMICOLON) break;
+            }
+            PlsqlPackageSplitter splitter = new PlsqlPackageSplitter(input, tokens);
+            if (splitter.headerEnd() < 0) return List.of();
+            for (Token t = next(lexer); t.getType() != Token.EOF; t = next(lexer)) {
+                tokens.add(t);
+            }
+            return splitter.units();
+        } finally {
+            input.seek(0);
+        }
+    }
+
+    // the next token on the default channel
+    private static Token next(PlSqlLexer lexer) {
+        Token t = lexer.nextToken();
+        while (t.getType() != Token.EOF && t.getChannel() != Token.DEFAULT_CHANNEL) t = lexer.nextToken();
+        return t;
+    }
+
+    private List<String> units() {
+        int n = tokens.size();
+        int header = headerEnd();
+        if (header < 0) return List.of();
+
+        List<int[]> spans = new ArrayList<>();
+        int declarations = -1;
+        int i = header + 1;
+        while (i < n) {
+            int type = type(i);
+            if (type == PlSqlLexer.PROCEDURE || type == PlSqlLexer.FUNCTION || type == PlSqlLexer.BEGIN) {
+                if (declarations >= 0) spans.add(new int[]{declarations, i - 1});
+                declarations = -1;
+                int end = type == PlSqlLexer.BEGIN ? matchingEnd(i) : skipSubprogram(i);
+                if (end < 0) return List.of();
+                // an initialization section's END also closes the package, so it's left for the END branch
+                spans.add(new int[]{i, end - 1});
+                i = end;
+            } else if (type == PlSqlLexer.END) {
+                if (declarations >= 0) spans.add(new int[]{declarations, i - 1});
+                int after = endOfStatement(i + 1);
+                if (after < 0 || !onlySlashesFrom(after)) return List.of();
+                break;
+            } else {
+                if (declarations < 0) declarations = i;
+                i++;
+            }
+        }
+        if (i >= n || spans.size() < 2) return List.of();
+
+        String head = text(0, header);
+        List<String> units = new ArrayList<>(spans.size());
+        for (int[] span : spans) {
+            units.add(head + "\n" + text(span[0], span[1]) + "\nEND;\n");
+        }
+        return units;
+    }
+
+    // index of the IS/AS ending "CREATE [OR REPLACE] [NON]EDITIONABLE PACKAGE BODY name", or -1
+    private int headerEnd() {
+        if (tokens.isEmpty() || type(0) != PlSqlLexer.CREATE) return -1;
+        boolean body = false;
+        for (int i = 1; i < tokens.size(); i++) {
+            int type = type(i);
+            if (type == PlSqlLexer.PACKAGE) {
+                body = i + 1 < tokens.size() && type(i + 1) == PlSqlLexer.BODY;
+            } else if (type == PlSqlLexer.IS || type == PlSqlLexer.AS) {
+                return body ? i : -1;
+            } else if (type == PlSqlLexer.SEMICOLON) {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    // from PROCEDURE/FUNCTION to just past its closing ';' (a forward declaration ends at the first ';'), or -1
+    private int skipSubprogram(int i) {
+        int n = tokens.size();
+        int parens = 0;
+        int p = i + 1;
+        for (; p < n; p++) {
+            int type = type(p);
+            if (type == PlSqlLexer.LEFT_PAREN) parens++;
+            else if (type == PlSqlLexer.RIGHT_PAREN) parens--;
+            else if (parens == 0 && type == PlSqlLexer.SEMICOLON) return p + 1;
+            else if (parens == 0 && (type == PlSqlLexer.IS || type == PlSqlLexer.AS)) break;
+        }
+        p++;
+        if (p < n && (type(p) == PlSqlLexer.LANGUAGE || type(p) == PlSqlLexer.EXTERNAL)) {
+            return endOfStatement(p);
+        }
+        while (p < n) {
+            int type = type(p);
+            if (type == PlSqlLexer.PROCEDURE || type == PlSqlLexer.FUNCTION) {
+                p = skipSubprogram(p);
+                if (p < 0) return -1;
+            } else if (type == PlSqlLexer.BEGIN) {
+                int end = matchingEnd(p);
+                return end < 0 ? -1 : endOfStatement(end + 1);
+            } else {
+                p++;
+            }
+        }
+        return -1;
+    }
+
+    // the END closing the BEGIN at i; END IF / END LOOP close nothing counted, END CASE closes a CASE
+    private int matchingEnd(int i) {
+        int depth = 0;
+        for (int p = i; p < tokens.size(); p++) {
+            int type = type(p);
+            if (type == PlSqlLexer.BEGIN || type == PlSqlLexer.CASE) {
+                depth++;
+            } else if (type == PlSqlLexer.END) {
+                int next = p + 1 < tokens.size() ? type(p + 1) : Token.EOF;
+                if (next == PlSqlLexer.IF || next == PlSqlLexer.LOOP) {
+                    p++;
+                    continue;
+                }
+                if (--depth == 0) return p;
+                if (next == PlSqlLexer.CASE) p++;
+            }
+        }
+        return -1;
+    }
+
+    // just past the ';' ending "END [label];" or a one-line declaration, or -1
+    private int endOfStatement(int p) {
+        for (; p < tokens.size(); p++) {
+            if (type(p) == PlSqlLexer.SEMICOLON) return p + 1;
+        }
+        return -1;
+    }
+
+    private boolean onlySlashesFrom(int p) {
+        for (; p < tokens.size(); p++) {
+            if (type(p) != PlSqlLexer.SOLIDUS) return false;
+        }
+        return true;
+    }
+
+    private int type(int i) {
+        return tokens.get(i).getType();
+    }
+
+    private String text(int from, int to) {
+        return input.getText(Interval.of(tokens.get(from).getStartIndex(), tokens.get(to).getStopIndex()));
+    }
+}
@@ -0,0 +1,220 @@
+package org.learningjava.bmtool1.infrastructure.adapter.out.blockASTParser;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.antlr.v4.runtime.BailErrorStrategy;
+import org.antlr.v4.runtime.BaseErrorListener;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.DefaultErrorStrategy;
+import org.antlr.v4.runtime.Lexer;
+import org.antlr.v4.runtime.Parser;
+import org.antlr.v4.runtime.RecognitionException;
+import org.antlr.v4.runtime.Recognizer;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.TokenStream;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.ParseTreeListener;
+import org.antlr.v4.runtime.tree.ParseTreeWalker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * ANTLR's two-stage parse: SLL prediction with a bail-out error strategy first, which is much faster and
+ * succeeds for nearly all valid input, then full LL with normal error recovery only when SLL gives up.
+ * Both stages share one per-file time budget; a file that exceeds it fails with
+ * {@link ParseTimeoutException} rather than holding an ingest thread.
+ *
+ * Every parse is timed as {@code bmtool1.parse} tagged with the language and the stage that produced the
+ * tree ({@code sll}, {@code ll}) or {@code timeout}.
+ *
+ * Each thread keeps one lexer, token stream and parser and re-points them at the next input instead of
+ * building new ones per file. The ATN and DFA cache are static per grammar, so they are shared by all
+ * threads either way; see {@link ParserWarmUp} for priming them at startup.
+ *
+ * Listener parses normally run tree-free: the listener is attached to the parser and sees each rule as it is
+ * exited, so a context lives only while its rule is on the stack. With {@code buildTree} set the whole tree is
+ * built and walked instead, as before.
+ */
+final class TwoStageParser<L extends Lexer, P extends Parser> {
+
+    private static final Logger log = LoggerFactory.getLogger(TwoStageParser.class);
+
+    enum Stage { SLL, LL }
+
+    record Result(ParseTree tree, Stage stage, int syntaxErrors, long nanos) {}
+
+    private final String language;
+    private final Duration budget;
+    private final boolean buildTree;
+    private final Function<P, ? extends ParseTree> entryRule;
+    private final ThreadLocal<Instance<L, P>> instances;
+    private final Timer sll;
+    private final Timer ll;
+    private final Timer timeout;
+
+    TwoStageParser(String language, Duration budget, boolean buildTree, MeterRegistry meters,
+                   Function<CharStream, L> newLexer, Function<TokenStream, P> newParser,
+                   Function<P, ? extends ParseTree> entryRule) {
+        this.language = language;
+        this.budget = budget;
+        this.buildTree = buildTree;
+        this.entryRule = entryRule;
+        this.instances = ThreadLocal.withInitial(() -> {
+            L lexer = newLexer.apply(CharStreams.fromString(""));
+            DeadlineTokenStream tokens = new DeadlineTokenStream(lexer);
+            return new Instance<>(lexer, tokens, newParser.apply(tokens));
+        });
+        this.sll = timer(meters, language, "sll");
+        this.ll = timer(meters, language, "ll");
+        this.timeout = timer(meters, language, "timeout");
+    }
+
+    /** Parses {@code input} into a full tree. */
+    Result parse(Path file, CharStream input) {
+        return parse(file, input, null);
+    }
+
+    /**
+     * Parses {@code input} and reports rule exits to a listener from {@code listeners}, with the token stream still
+     * available. The factory is called again if SLL bails out, so anything the abandoned listener collected must be
+     * dropped. The result carries no tree unless {@code buildTree} is set.
+     */
+    Result parse(Path file, CharStream input, Function<? super P, ? extends ParseTreeListener> listeners) {
+        boolean streaming = listeners != null && !buildTree;
+        long t0 = System.nanoTime();
+        Instance<L, P> in = instances.get();
+        L lexer = in.lexer();
+        DeadlineTokenStream tokens = in.tokens();
+        P parser = in.parser();
+        lexer.setInputStream(input);
+        tokens.restart(lexer, t0 + budget.toNanos());
+        parser.setTokenStream(tokens);
+        try {
+            ParseTree tree;
+            Stage stage = Stage.SLL;
+            SyntaxErrors errors = new SyntaxErrors(file);
+
+            parser.setBuildParseTree(!streaming);
+            parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+            parser.removeErrorListeners();
+            parser.setErrorHandler(new BailErrorStrategy());
+            if (streaming) parser.addParseListener(listeners.apply(parser));
+            try {
+                tree = entryRule.apply(parser);
+            } catch (ParseCancellationException sllFailed) {
+                // SLL is weaker than LL, so a syntax error here may be a false alarm: retry from the start
+                stage = Stage.LL;
+                parser.reset();
+                parser.removeParseListeners();
+                if (streaming) parser.addParseListener(listeners.apply(parser));
+                parser.addErrorListener(errors);
+                parser.setErrorHandler(new DefaultErrorStrategy());
+                parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+                tree = entryRule.apply(parser);
+            }
+            if (streaming) {
+                tree = null;
+            } else if (listeners != null) {
+                ParseTreeWalker.DEFAULT.walk(listeners.apply(parser), tree);
+            }
+
+            long nanos = System.nanoTime() - t0;
+            (stage == Stage.SLL ? sll : ll).record(nanos, TimeUnit.NANOSECONDS);
+            log.debug("Parsed {} {} in {} ms ({}, {} syntax errors)",
+                    language, file, nanos / 1_000_000, stage, errors.count);
+            return new Result(tree, stage, errors.count, nanos);
+        } catch (ParseTimeoutException e) {
+            timeout.record(System.nanoTime() - t0, TimeUnit.NANOSECONDS);
+            throw new ParseTimeoutException(language + " parse of " + file + " exceeded " + budget.toMillis() + " ms");
+        } finally {
+            parser.removeParseListeners();
+            // the tree keeps its own tokens and input; don't pin this file's buffers to the thread
+            lexer.setInputStream(CharStreams.fromString(""));
+            tokens.setTokenSource(lexer);
+            parser.setTokenStream(tokens);
+        }
+    }
+
+    /** Decodes {@code content} as UTF-8 the way {@link CharStreams#fromPath(Path)} decodes a file. */
+    static CharStream charStream(String name, byte[] content) {
+        try {
+            return CharStreams.fromChannel(Channels.newChannel(new ByteArrayInputStream(content)), StandardCharsets.UTF_8,
+                    4096, CodingErrorAction.REPLACE, name, content.length);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Timer timer(MeterRegistry meters, String language, String stage) {
+        return Timer.builder("bmtool1.parse")
+                .description("Per-file ANTLR parse time")
+                .tag("language", language)
+                .tag("stage", stage)
+                .register(meters);
+    }
+
+    /** Thrown when a file's parse runs past its time budget. */
+    static final class ParseTimeoutException extends RuntimeException {
+        ParseTimeoutException(String message) {
+            super(message);
+        }
+    }
+
+    private record Instance<L extends Lexer, P extends Parser>(L lexer, DeadlineTokenStream tokens, P parser) {}
+
+    // The lexer and both prediction modes pull tokens through LT(), so checking here also bounds lookahead
+    private static final class DeadlineTokenStream extends CommonTokenStream {
+        private static final int CHECK_EVERY = 1024;
+        private long deadlineNanos;
+        private int calls;
+
+        DeadlineTokenStream(Lexer source) {
+            super(source);
+        }
+
+        /** Drops buffered tokens and starts over on {@code source}'s current input. */
+        void restart(Lexer source, long deadlineNanos) {
+            setTokenSource(source);
+            this.deadlineNanos = deadlineNanos;
+            this.calls = 0;
+        }
+
+        @Override
+        public Token LT(int k) {
+            if (++calls % CHECK_EVERY == 0 && System.nanoTime() - deadlineNanos > 0) {
+                throw new ParseTimeoutException("parse time budget exceeded");
+            }
+            return super.LT(k);
+        }
+    }
+
+    private static final class SyntaxErrors extends BaseErrorListener {
+        private final Path file;
+        int count;
+
+        SyntaxErrors(Path file) {
+            this.file = file;
+        }
+
+        @Override
+        public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol, int line, int col,
+                                String msg, RecognitionException e) {
+            if (count++ < 5) log.debug("{}:{}:{} {}", file, line, col, msg);
+        }
+    }
+}
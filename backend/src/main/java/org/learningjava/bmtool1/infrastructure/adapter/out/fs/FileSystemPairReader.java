@@ -3,25 +3,35 @@ package org.learningjava.bmtool1.infrastructure.adapter.out.fs;
 import org.learningjava.bmtool1.application.port.PairReaderPort;
 import org.learningjava.bmtool1.domain.model.pairs.PairId;
 import org.learningjava.bmtool1.domain.model.pairs.SourcePair;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HexFormat;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeSet;
 
 @Component
 public class FileSystemPairReader implements PairReaderPort {
+
+    private static final Logger log = LoggerFactory.getLogger(FileSystemPairReader.class);
+
     @Override
     public List<SourcePair> discoverPairs(String rootDir) {
         try {
             Map<String, Path> plsql = new HashMap<>();
             Map<String, Path> java = new HashMap<>();
 
-            try (var s = Files.walk(Path.of(rootDir))) {
+            Path root = Path.of(rootDir);
+            try (var s = Files.walk(root)) {
                 s.filter(Files::isRegularFile).forEach(p -> {
                     var name = p.getFileName().toString();
                     if (name.endsWith(".sql") || name.endsWith(".plsql") || name.endsWith(".pkb") || name.endsWith(".pks")) {
@@ -33,25 +43,23 @@ public class FileSystemPairReader implements PairReaderPort {
             }
 
             List<SourcePair> out = new ArrayList<>();
-            for (var key : plsql.keySet()) {
+            for (var key : new TreeSet<>(plsql.keySet())) {
                 if (java.containsKey(key)) {
+                    // keyed by the paths below root, so the same pair keeps its id across runs and upload dirs
                     SourcePair pair = new SourcePair(
-                            PairId.newId(),
+                            PairId.stable(relative(root, plsql.get(key)) + "|" + relative(root, java.get(key))),
                             plsql.get(key).toString(),
                             java.get(key).toString()
                     );
                     out.add(pair);
-
-                    // 👇 Print the pair for debugging
-                    System.out.printf("Discovered pair: SQL=%s  JAVA=%s%n",
-                            pair.plsqlPath(), pair.javaPath());
+                    log.debug("Discovered pair: SQL={} JAVA={}", pair.plsqlPath(), pair.javaPath());
                 }
             }
 
             if (out.isEmpty()) {
-                System.out.println("⚠️ No pairs found under: " + rootDir);
+                log.warn("No pairs found under {}", rootDir);
             } else {
-                System.out.println("✅ Total pairs found: " + out.size());
+                log.info("Found {} pairs under {}", out.size(), rootDir);
             }
 
             return out;
@@ -69,6 +77,36 @@ public class FileSystemPairReader implements PairReaderPort {
         }
     }
 
+    @Override
+    public String fingerprint(SourcePair pair) {
+        try {
+            Path sql = Path.of(pair.plsqlPath()), java = Path.of(pair.javaPath());
+            return Files.size(sql) + ":" + Files.getLastModifiedTime(sql).toMillis() + "|"
+                    + Files.size(java) + ":" + Files.getLastModifiedTime(java).toMillis();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public String contentHash(SourcePair pair) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            md.update(Files.readAllBytes(Path.of(pair.plsqlPath())));
+            md.update((byte) 0);
+            md.update(Files.readAllBytes(Path.of(pair.javaPath())));
+            return HexFormat.of().formatHex(md.digest());
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String relative(Path root, Path file) {
+        return root.relativize(file).toString().replace('\\', '/');
+    }
+
     private String stripExt(String name) {
         int i = name.lastIndexOf('.');
         return i > 0 ? name.substring(0, i) : name;
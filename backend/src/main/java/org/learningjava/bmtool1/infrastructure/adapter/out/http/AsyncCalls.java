@@ -0,0 +1,83 @@
+// src/main/java/org/learningjava/bmtool1/infrastructure/adapter/out/http/AsyncCalls.java
+package org.learningjava.bmtool1.infrastructure.adapter.out.http;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Dispatcher;
+import okhttp3.Response;
+import org.learningjava.bmtool1.application.port.CancellationToken;
+import org.learningjava.bmtool1.application.port.RequestCancelledException;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Bridges OkHttp's {@code enqueue} to {@link CompletableFuture}s. Cancellation works both ways: cancelling
+ * the token or the returned future cancels the call.
+ */
+public final class AsyncCalls {
+
+    // OkHttp's defaults (64 total, 5 per host) would queue a batch run behind a handful of calls
+    private static final int MAX_REQUESTS = 256;
+    private static final int MAX_REQUESTS_PER_HOST = 128;
+
+    @FunctionalInterface
+    public interface ResponseHandler<T> {
+        T handle(Response resp) throws IOException;
+    }
+
+    private AsyncCalls() {
+    }
+
+    /** A dispatcher sized for many concurrent async calls to the same host. */
+    public static Dispatcher dispatcher() {
+        Dispatcher d = new Dispatcher();
+        d.setMaxRequests(MAX_REQUESTS);
+        d.setMaxRequestsPerHost(MAX_REQUESTS_PER_HOST);
+        return d;
+    }
+
+    /**
+     * Enqueues {@code call} and completes with {@code handler}'s result. I/O failures are mapped by
+     * {@code onError}, or to {@link RequestCancelledException} when {@code token} was cancelled.
+     * The response is closed after {@code handler} returns.
+     */
+    public static <T> CompletableFuture<T> enqueue(Call call, CancellationToken token, String stage,
+                                                   ResponseHandler<T> handler,
+                                                   Function<IOException, RuntimeException> onError) {
+        if (token != null && token.isCancelled()) {
+            return CompletableFuture.failedFuture(new RequestCancelledException(token.reason(), stage));
+        }
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.whenComplete((v, e) -> {
+            if (future.isCancelled()) call.cancel();
+        });
+        if (token != null) token.onCancel(call::cancel);
+
+        call.enqueue(new Callback() {
+            @Override
+            public void onFailure(Call c, IOException e) {
+                future.completeExceptionally(failure(e));
+            }
+
+            @Override
+            public void onResponse(Call c, Response resp) {
+                try (resp) {
+                    future.complete(handler.handle(resp));
+                } catch (IOException e) {
+                    future.completeExceptionally(failure(e));
+                } catch (RuntimeException e) {
+                    future.completeExceptionally(e);
+                }
+            }
+
+            private RuntimeException failure(IOException e) {
+                return token != null && token.isCancelled()
+                        ? new RequestCancelledException(token.reason(), stage)
+                        : onError.apply(e);
+            }
+        });
+        return future;
+    }
+}
@@ -3,30 +3,40 @@ package org.learningjava.bmtool1.infrastructure.adapter.out.ollama;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import okhttp3.Call;
 import okhttp3.MediaType;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.RequestBody;
 import okhttp3.Response;
+import org.learningjava.bmtool1.application.port.CancellationToken;
 import org.learningjava.bmtool1.application.port.ChatLLMPort;
 import org.learningjava.bmtool1.application.port.ChatLLMPort.ChatResult;
 import org.learningjava.bmtool1.application.port.ChatLLMPort.Usage;
+import org.learningjava.bmtool1.application.port.ProviderException;
+import org.learningjava.bmtool1.application.port.RequestCancelledException;
 import org.learningjava.bmtool1.domain.service.co2.CarbonEstimator;
+import org.learningjava.bmtool1.infrastructure.adapter.out.http.AsyncCalls;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
 import java.time.Duration;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @Component
 public class OllamaChatAdapter implements ChatLLMPort {
 
+    private static final int TEMPERATURE = 0;
+
     private final OkHttpClient http;
     private final ObjectMapper om = new ObjectMapper();
     private final String baseUrl;
     private final CarbonEstimator carbon; // can be null
+    private final OllamaResidencyManager residency;
 
     private static OkHttpClient defaultClient() {
         return new OkHttpClient.Builder()
@@ -34,26 +44,40 @@ public class OllamaChatAdapter implements ChatLLMPort {
                 .writeTimeout(Duration.ofSeconds(600))   // big payloads/models
                 .readTimeout(Duration.ofMinutes(3))      // chat can take a while
                 .retryOnConnectionFailure(true)
+                .dispatcher(AsyncCalls.dispatcher())
                 .build();
     }
 
     public OllamaChatAdapter(@Value("${bmtool1.ollama.url}") String baseUrl,
-                             CarbonEstimator carbon) {
+                             CarbonEstimator carbon,
+                             OllamaResidencyManager residency) {
         this.http = defaultClient();
         this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
         this.carbon = carbon;
+        this.residency = residency;
     }
 
     @Override
     public String provider() { return "ollama"; }
 
+    @Override
+    public Integer contextWindow(String model) { return residency.contextWindow(model); }
+
+    // num_ctx follows from the prompt, which is already in the key, but is capped at max-num-ctx;
+    // past the cap Ollama truncates the prompt, so the cap changes the output and belongs here
+    @Override
+    public String cacheOptions() { return "temperature=" + TEMPERATURE + ";max_num_ctx=" + residency.maxNumCtx(); }
+
+    @Override
+    public void warmUp(String model) { residency.warmUp(model); }
+
     /** Keep the original chat (no tokens). Uses /api/chat. */
     @Override
     public String chat(String prompt, String model) {
         try {
             return doChat(model, prompt);
         } catch (IOException e) {
-            throw new RuntimeException("Ollama chat failed: " + e.getMessage(), e);
+            throw new ProviderException(provider(), 0, "Ollama chat failed: " + e.getMessage(), e);
         }
     }
 
@@ -63,21 +87,54 @@ public class OllamaChatAdapter implements ChatLLMPort {
      */
     @Override
     public ChatResult chatWithUsage(String prompt, String model) {
+        return chatWithUsage(prompt, model, null);
+    }
+
+    /** Cancelling {@code token} cancels the OkHttp call, which also stops generation server-side. */
+    @Override
+    public ChatResult chatWithUsage(String prompt, String model, CancellationToken token) {
+        if (token != null) token.throwIfCancelled("Ollama generation");
         try {
-            return doGenerateWithUsage(model, prompt);
+            return doGenerateWithUsage(model, prompt, token);
         } catch (IOException e) {
-            throw new RuntimeException("Ollama chatWithUsage failed: " + e.getMessage(), e);
+            if (token != null && token.isCancelled()) throw new RequestCancelledException(token.reason(), "Ollama generation");
+            throw generateFailed(e);
         }
     }
 
+    /**
+     * Enqueued on OkHttp's dispatcher, after any evictions residency needs (also enqueued), so no thread
+     * waits on either; cancelling {@code token} or the future cancels whichever call is running.
+     */
+    @Override
+    public CompletableFuture<ChatResult> chatWithUsageAsync(String prompt, String model, CancellationToken token) {
+        CancellationToken scope = token == null ? new CancellationToken() : token.child();
+        CompletableFuture<ChatResult> result = residency.beforeRequestAsync(model, scope).thenCompose(ready -> {
+            Call call;
+            try {
+                call = newGenerateCall(model, prompt);
+            } catch (IOException e) {
+                return CompletableFuture.failedFuture(generateFailed(e));
+            }
+            return AsyncCalls.enqueue(call, scope, "Ollama generation", resp -> parseGenerate(resp, model), this::generateFailed);
+        });
+        result.whenComplete((r, e) -> {
+            if (result.isCancelled()) scope.cancel();
+        });
+        return result;
+    }
+
     /** Single-turn chat via /api/chat; returns only text. */
-    private String doChat(String modelName, String prompt) throws IOException {
-        var body = Map.of(
+    private String doChat(String modelName, String marked) throws IOException {
+        String prompt = ChatLLMPort.withoutCacheBoundary(marked);   // Ollama caches prefixes by itself
+        residency.beforeRequest(modelName, null);
+        var fields = Map.<String, Object>of(
                 "model", modelName,
                 "messages", List.of(Map.of("role", "user", "content", prompt)),
                 "stream", false,
-                "options", Map.of("num_ctx", 512, "temperature", 0)
+                "options", Map.of("num_ctx", residency.numCtxFor(modelName, prompt), "temperature", TEMPERATURE)
         );
+        var body = withKeepAlive(fields);
 
         var req = new Request.Builder()
                 .url(baseUrl + "/api/chat")
@@ -88,7 +145,8 @@ public class OllamaChatAdapter implements ChatLLMPort {
         try (Response resp = http.newCall(req).execute()) {
             if (!resp.isSuccessful()) {
                 String bodyStr = resp.body() != null ? resp.body().string() : "";
-                throw new IOException("HTTP " + resp.code() + " - " + resp.message() + " | body=" + bodyStr);
+                throw new ProviderException(provider(), resp.code(),
+                        "Ollama HTTP " + resp.code() + " - " + resp.message() + " | body=" + bodyStr);
             }
             var raw = resp.body() != null ? resp.body().string() : "{}";
             JsonNode json = om.readTree(raw);
@@ -96,52 +154,79 @@ public class OllamaChatAdapter implements ChatLLMPort {
             // text can be in message.content or response depending on build
             String text = json.path("message").path("content").asText(null);
             if (text == null) text = json.path("response").asText("");
+            residency.touch(modelName);
             return text;
         }
     }
 
     /** Single-turn generate via /api/generate; returns text + REAL usage tokens. */
-    private ChatResult doGenerateWithUsage(String modelName, String prompt) throws IOException {
-        var body = Map.of(
+    private ChatResult doGenerateWithUsage(String modelName, String prompt, CancellationToken token) throws IOException {
+        residency.beforeRequest(modelName, token);
+        Call call = newGenerateCall(modelName, prompt);
+        if (token != null) token.onCancel(call::cancel);
+        try (Response resp = call.execute()) {
+            return parseGenerate(resp, modelName);
+        }
+    }
+
+    private Call newGenerateCall(String modelName, String marked) throws IOException {
+        String prompt = ChatLLMPort.withoutCacheBoundary(marked);   // Ollama caches prefixes by itself
+        var fields = Map.<String, Object>of(
                 "model", modelName,
                 "prompt", prompt,
                 "stream", false,
-                "options", Map.of("num_ctx", 512, "temperature", 0)
+                "options", Map.of("num_ctx", residency.numCtxFor(modelName, prompt), "temperature", TEMPERATURE)
         );
+        var body = withKeepAlive(fields);
 
         var req = new Request.Builder()
                 .url(baseUrl + "/api/generate")
                 .header("Accept", "application/json")
                 .post(RequestBody.create(om.writeValueAsBytes(body), MediaType.parse("application/json")))
                 .build();
+        return http.newCall(req);
+    }
 
-        try (Response resp = http.newCall(req).execute()) {
-            if (!resp.isSuccessful()) {
-                String bodyStr = resp.body() != null ? resp.body().string() : "";
-                throw new IOException("HTTP " + resp.code() + " - " + resp.message() + " | body=" + bodyStr);
-            }
-            var raw = resp.body() != null ? resp.body().string() : "{}";
-            JsonNode json = om.readTree(raw);
-
-            String text = json.path("response").asText("");
+    private ChatResult parseGenerate(Response resp, String modelName) throws IOException {
+        if (!resp.isSuccessful()) {
+            String bodyStr = resp.body() != null ? resp.body().string() : "";
+            throw new ProviderException(provider(), resp.code(),
+                    "Ollama HTTP " + resp.code() + " - " + resp.message() + " | body=" + bodyStr);
+        }
+        var raw = resp.body() != null ? resp.body().string() : "{}";
+        JsonNode json = om.readTree(raw);
 
-            Integer promptTok = json.has("prompt_eval_count") && json.get("prompt_eval_count").canConvertToInt()
-                    ? json.get("prompt_eval_count").asInt() : null;
-            Integer completionTok = json.has("eval_count") && json.get("eval_count").canConvertToInt()
-                    ? json.get("eval_count").asInt() : null;
+        String text = json.path("response").asText("");
+        residency.touch(modelName);
 
-            // optional CO2 logging (no heuristics for tokens; this only logs if estimator is present)
-            if (carbon != null && json.has("total_duration")) {
-                long latencyMs = Math.round(json.get("total_duration").asDouble() / 1_000_000.0);
-                double g = carbon.estimateGramsCO2(promptTok, completionTok, latencyMs, provider(), modelName);
-                org.slf4j.LoggerFactory.getLogger(OllamaChatAdapter.class)
-                        .debug("CO2(Ollama): model={}, promptTok={}, completionTok={}, latencyMs={}, gramsCO2e={}",
-                                modelName, promptTok, completionTok, latencyMs, String.format("%.2f", g));
-            }
+        Integer promptTok = json.has("prompt_eval_count") && json.get("prompt_eval_count").canConvertToInt()
+                ? json.get("prompt_eval_count").asInt() : null;
+        Integer completionTok = json.has("eval_count") && json.get("eval_count").canConvertToInt()
+                ? json.get("eval_count").asInt() : null;
 
-            Usage usage = (promptTok != null || completionTok != null) ? new Usage(promptTok, completionTok) : null;
-            return new ChatResult(text, usage);
+        // optional CO2 logging (no heuristics for tokens; this only logs if estimator is present)
+        if (carbon != null && json.has("total_duration")) {
+            long latencyMs = Math.round(json.get("total_duration").asDouble() / 1_000_000.0);
+            double g = carbon.estimateGramsCO2(promptTok, completionTok, latencyMs, provider(), modelName);
+            org.slf4j.LoggerFactory.getLogger(OllamaChatAdapter.class)
+                    .debug("CO2(Ollama): model={}, promptTok={}, completionTok={}, latencyMs={}, gramsCO2e={}",
+                            modelName, promptTok, completionTok, latencyMs, String.format("%.2f", g));
         }
+
+        Usage usage = (promptTok != null || completionTok != null) ? new Usage(promptTok, completionTok) : null;
+        return new ChatResult(text, usage);
+    }
+
+    private ProviderException generateFailed(IOException e) {
+        return new ProviderException(provider(), 0, "Ollama chatWithUsage failed: " + e.getMessage(), e);
+    }
+
+    private Map<String, Object> withKeepAlive(Map<String, Object> fields) {
+        String keepAlive = residency.keepAlive();
+        if (keepAlive == null) return fields;
+        Map<String, Object> body = new HashMap<>(fields);
+        body.put("keep_alive", keepAlive);
+        return body;
     }
 
     // ---- (optional) helpers kept from your original file ----
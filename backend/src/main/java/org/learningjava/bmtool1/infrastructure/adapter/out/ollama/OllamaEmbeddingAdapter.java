@@ -5,21 +5,25 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import okhttp3.*;
+import org.learningjava.bmtool1.application.port.CancellationToken;
 import org.learningjava.bmtool1.application.port.EmbeddingPort;
+import org.learningjava.bmtool1.application.port.RequestCancelledException;
 import org.learningjava.bmtool1.domain.service.co2.CarbonEstimator;   // ⬅️ add
+import org.learningjava.bmtool1.infrastructure.adapter.out.http.AsyncCalls;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public class OllamaEmbeddingAdapter implements EmbeddingPort {
 
     private static final Logger log = LoggerFactory.getLogger(OllamaEmbeddingAdapter.class);
 
     private static final MediaType JSON = MediaType.parse("application/json");
-    private final OkHttpClient http = new OkHttpClient();
+    private final OkHttpClient http = new OkHttpClient.Builder().dispatcher(AsyncCalls.dispatcher()).build();
     private final ObjectMapper om = new ObjectMapper();
     private final String baseUrl;
     private final String model;
@@ -40,68 +44,99 @@ public class OllamaEmbeddingAdapter implements EmbeddingPort {
         return text.replace("\n", " ").substring(0, Math.min(40, text.length()));
     }
 
-    @Override public float[] embed(String text) { return embedOne(text); }
+    @Override public float[] embed(String text) { return embedOne(text, null); }
+
+    /** Cancelling {@code token} cancels the OkHttp call. */
+    @Override public float[] embed(String text, CancellationToken token) { return embedOne(text, token); }
 
     @Override public List<float[]> embedBatch(List<String> texts) {
         List<float[]> out = new ArrayList<>(texts.size());
-        for (String t : texts) out.add(embedOne(t));
+        for (String t : texts) out.add(embedOne(t, null));
         return out;
     }
 
-    private float[] embedOne(String text) {
+    private float[] embedOne(String text, CancellationToken token) {
         long t0 = System.nanoTime(); // ⬅️ timing start
+        if (token != null) token.throwIfCancelled("embedding");
         try {
-            ObjectNode body = om.createObjectNode();
-            body.put("model", model);
-            body.put("prompt", text); // Ollama expects "prompt"
-
-            Request req = new Request.Builder()
-                    .url(baseUrl + "/api/embeddings")
-                    .post(RequestBody.create(om.writeValueAsBytes(body), JSON))
-                    .build();
-
-            try (Response resp = http.newCall(req).execute()) {
-                long t1 = System.nanoTime(); // ⬅️ timing end
-                long latencyMs = Math.max(1L, Math.round((t1 - t0) / 1_000_000.0));
-
-                if (!resp.isSuccessful()) {
-                    log.warn("Ollama embed failed: HTTP {} {}", resp.code(), resp.message());
-                    throw new IOException("Ollama embed failed: " + resp);
-                }
-                String s = resp.body() != null ? resp.body().string() : "{}";
-                if (log.isDebugEnabled()) log.debug("Ollama raw embedding response: {}", s);
-
-                JsonNode json = om.readTree(s);
-                float[] v;
-
-                if (json.has("embedding")) {
-                    v = toFloatArray(json.get("embedding"));
-                } else if (json.has("embeddings") && json.get("embeddings").isArray() && json.get("embeddings").size() > 0) {
-                    JsonNode first = json.get("embeddings").get(0);
-                    v = first.isArray()
-                            ? toFloatArray(first)
-                            : (first.has("embedding") ? toFloatArray(first.get("embedding")) : new float[0]);
-                } else {
-                    log.warn("Unexpected embeddings payload from Ollama: {}", s);
-                    throw new IOException("Unexpected embeddings payload from Ollama");
-                }
-
-                log.debug("Embedding dim={} for text preview='{}...'", v.length, preview(text));
-
-                // CO2 (no tokens -> time-based). Use provider "ollama" and embedding model id.
-                if (carbon != null) {
-                    double g = carbon.estimateGramsCO2(null, null, latencyMs, "ollama", model);
-                    log.debug("CO2(Embed/Ollama): model={}, latencyMs={}, gramsCO2e={}",
-                            model, latencyMs, String.format("%.2f", g));
-                }
-
-                return v;
+            Call call = newEmbedCall(text);
+            if (token != null) token.onCancel(call::cancel);
+            try (Response resp = call.execute()) {
+                return parseEmbedding(resp, text, t0);
             }
         } catch (IOException e) {
-            log.error("Embedding failed for model '{}' at {}: {}", model, baseUrl, e.getMessage());
-            throw new RuntimeException("Embedding failed for model '" + model + "' at " + baseUrl +
-                    ". Check model is pulled and API reachable.", e);
+            if (token != null && token.isCancelled()) throw new RequestCancelledException(token.reason(), "embedding");
+            throw embedFailed(e);
+        }
+    }
+
+    /** Enqueued on OkHttp's dispatcher; cancelling {@code token} or the future cancels the call. */
+    @Override
+    public CompletableFuture<float[]> embedAsync(String text, CancellationToken token) {
+        long t0 = System.nanoTime();
+        Call call;
+        try {
+            call = newEmbedCall(text);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(embedFailed(e));
         }
+        return AsyncCalls.enqueue(call, token, "embedding", resp -> parseEmbedding(resp, text, t0), this::embedFailed);
+    }
+
+    private Call newEmbedCall(String text) throws IOException {
+        ObjectNode body = om.createObjectNode();
+        body.put("model", model);
+        body.put("prompt", text); // Ollama expects "prompt"
+
+        Request req = new Request.Builder()
+                .url(baseUrl + "/api/embeddings")
+                .post(RequestBody.create(om.writeValueAsBytes(body), JSON))
+                .build();
+        return http.newCall(req);
+    }
+
+    private float[] parseEmbedding(Response resp, String text, long t0) throws IOException {
+        long t1 = System.nanoTime(); // ⬅️ timing end
+        long latencyMs = Math.max(1L, Math.round((t1 - t0) / 1_000_000.0));
+
+        if (!resp.isSuccessful()) {
+            log.warn("Ollama embed failed: HTTP {} {}", resp.code(), resp.message());
+            throw new IOException("Ollama embed failed: " + resp);
+        }
+        String s = resp.body() != null ? resp.body().string() : "{}";
+        if (log.isDebugEnabled()) log.debug("Ollama raw embedding response: {}", s);
+
+        JsonNode json = om.readTree(s);
+        float[] v;
+
+        if (json.has("embedding")) {
+            v = toFloatArray(json.get("embedding"));
+        } else if (json.has("embeddings") && json.get("embeddings").isArray() && json.get("embeddings").size() > 0) {
+            JsonNode first = json.get("embeddings").get(0);
+            v = first.isArray()
+                    ? toFloatArray(first)
+                    : (first.has("embedding") ? toFloatArray(first.get("embedding")) : new float[0]);
+        } else {
+            log.warn("Unexpected embeddings payload from Ollama: {}", s);
+            throw new IOException("Unexpected embeddings payload from Ollama");
+        }
+
+        log.debug("Embedding dim={} for text preview='{}...'", v.length, preview(text));
+
+        // CO2 (no tokens -> time-based). Use provider "ollama" and embedding model id.
+        if (carbon != null) {
+            double g = carbon.estimateGramsCO2(null, null, latencyMs, "ollama", model);
+            log.debug("CO2(Embed/Ollama): model={}, latencyMs={}, gramsCO2e={}",
+                    model, latencyMs, String.format("%.2f", g));
+        }
+
+        return v;
+    }
+
+    private RuntimeException embedFailed(IOException e) {
+        log.error("Embedding failed for model '{}' at {}: {}", model, baseUrl, e.getMessage());
+        return new RuntimeException("Embedding failed for model '" + model + "' at " + baseUrl +
+                ". Check model is pulled and API reachable.", e);
     }
 
     private float[] toFloatArray(JsonNode arr) throws IOException {
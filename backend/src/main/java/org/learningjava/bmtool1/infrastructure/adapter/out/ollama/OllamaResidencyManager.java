@@ -0,0 +1,354 @@
+// src/main/java/org/learningjava/bmtool1/infrastructure/adapter/out/ollama/OllamaResidencyManager.java
+package org.learningjava.bmtool1.infrastructure.adapter.out.ollama;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import okhttp3.Call;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import org.learningjava.bmtool1.application.port.CancellationToken;
+import org.learningjava.bmtool1.application.port.RequestCancelledException;
+import org.learningjava.bmtool1.config.ModelContextWindows;
+import org.learningjava.bmtool1.config.OllamaResidencyProperties;
+import org.learningjava.bmtool1.domain.service.tokens.TokenizerRegistry;
+import org.learningjava.bmtool1.infrastructure.adapter.out.http.AsyncCalls;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps Ollama models loaded between requests and sizes their context.
+ *
+ * Every request carries {@code keep_alive}, so a hot model stays in memory instead of unloading after
+ * Ollama's 5-minute default. {@link #warmUp} loads a model ahead of an ask or grid run; before loading,
+ * least recently used models are unloaded while more than {@code max-resident-models} (or
+ * {@code max-resident-bytes} of VRAM) would be resident. {@code num_ctx} is chosen per request from the
+ * prompt size, rounded up to a power-of-two bucket: a short prompt after a long one gets a small context
+ * again, and the coarse buckets keep the reloads Ollama does on a num_ctx change rare. The upper bound is
+ * {@code max-num-ctx} or the model's own window, whichever is smaller: a configured
+ * {@code bmtool1.context-windows.models} entry, else the context length {@code /api/show} reports.
+ */
+@Component
+public class OllamaResidencyManager {
+
+    private static final Logger log = LoggerFactory.getLogger(OllamaResidencyManager.class);
+    private static final MediaType JSON = MediaType.parse("application/json");
+
+    public record Loaded(String name, long sizeBytes, long vramBytes) {}
+
+    private final OkHttpClient http;
+    private final ObjectMapper om = new ObjectMapper();
+    private final String baseUrl;
+    private final OllamaResidencyProperties props;
+    private final ModelContextWindows windows;
+    private final TokenizerRegistry tokenizers;
+    private final Clock clock;
+
+    private final Map<String, Integer> numCtx = new ConcurrentHashMap<>();
+    private final Map<String, Instant> lastUsed = new ConcurrentHashMap<>();
+    private final Map<String, Instant> residentUntil = new ConcurrentHashMap<>();
+    private final Map<String, Long> knownSizes = new ConcurrentHashMap<>();
+    private final Map<String, Integer> trainedWindows = new ConcurrentHashMap<>();
+
+    public OllamaResidencyManager(@Value("${bmtool1.ollama.url}") String baseUrl,
+                                  OllamaResidencyProperties props,
+                                  ModelContextWindows windows,
+                                  TokenizerRegistry tokenizers) {
+        this(baseUrl, props, windows, tokenizers, new OkHttpClient.Builder()
+                .connectTimeout(Duration.ofSeconds(10))
+                .readTimeout(Duration.ofMinutes(5))       // first load of a large model is slow
+                .dispatcher(AsyncCalls.dispatcher())
+                .build(), Clock.systemUTC());
+    }
+
+    OllamaResidencyManager(String baseUrl, OllamaResidencyProperties props, ModelContextWindows windows,
+                           TokenizerRegistry tokenizers, OkHttpClient http, Clock clock) {
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.props = props;
+        this.windows = windows;
+        this.tokenizers = tokenizers;
+        this.http = http;
+        this.clock = clock;
+    }
+
+    /* ---------- per-request options ---------- */
+
+    /** keep_alive to send, or null to leave Ollama's default. */
+    public String keepAlive() {
+        return props.isEnabled() ? props.keepAliveParam() : null;
+    }
+
+    /** Largest context this adapter will request for any model. */
+    public int maxNumCtx() {
+        return props.getMaxNumCtx();
+    }
+
+    /** Largest context this adapter will request for {@code model}; the prompt packer budgets against it. */
+    public int contextWindow(String model) {
+        return Math.min(props.getMaxNumCtx(), modelWindow(model));
+    }
+
+    /**
+     * num_ctx for sending {@code prompt} to {@code model}: prompt token count plus completion reserve,
+     * rounded up to a power of two and clamped to [min, {@link #contextWindow}]. A longer prompt is
+     * truncated by Ollama.
+     */
+    public int numCtxFor(String model, String prompt) {
+        int promptTokens = tokenizers.count(model, prompt);
+        int bucket = clamp(model, nextPowerOfTwo(promptTokens + windows.getCompletionReserve()));
+        numCtx.put(key(model), bucket);
+        return bucket;
+    }
+
+    /** num_ctx of the last request to {@code model} (the minimum before its first request); warm-up loads with it. */
+    public int currentNumCtx(String model) {
+        return numCtx.getOrDefault(key(model), clamp(model, props.getMinNumCtx()));
+    }
+
+    /* ---------- residency ---------- */
+
+    /**
+     * Called before a chat request: makes room if the model is not (believed to be) loaded. The /api/ps and
+     * unload calls are enqueued, so no thread waits on them; cancelling {@code token} (may be null) abandons
+     * the eviction and fails the future with {@link RequestCancelledException}.
+     */
+    public CompletableFuture<Void> beforeRequestAsync(String model, CancellationToken token) {
+        if (!props.isEnabled() || isResident(model)) return CompletableFuture.completedFuture(null);
+        return makeRoomFor(model, token);
+    }
+
+    /** Blocking {@link #beforeRequestAsync}, for callers that wait on their request anyway. */
+    public void beforeRequest(String model, CancellationToken token) {
+        await(beforeRequestAsync(model, token));
+    }
+
+    /** Called after a successful chat request. */
+    public void touch(String model) {
+        Instant now = clock.instant();
+        lastUsed.put(key(model), now);
+        if (props.isEnabled()) residentUntil.put(key(model), now.plus(props.getKeepAlive()));
+    }
+
+    /** True while the last request's keep_alive has not run out. */
+    public boolean isResident(String model) {
+        Instant until = residentUntil.get(key(model));
+        return until != null && until.isAfter(clock.instant());
+    }
+
+    /**
+     * Loads {@code model} with its current num_ctx so the next ask skips the cold start.
+     * A no-op when the model is already resident; failures are logged, never thrown.
+     */
+    public void warmUp(String model) {
+        if (!props.isEnabled() || model == null || model.isBlank() || isResident(model)) return;
+        long t0 = System.nanoTime();
+        try {
+            await(makeRoomFor(model, null));
+            Map<String, Object> body = new HashMap<>();
+            body.put("model", model);
+            body.put("keep_alive", props.keepAliveParam());
+            body.put("options", Map.of("num_ctx", currentNumCtx(model)));
+            post("/api/generate", body);   // no prompt: Ollama only loads the model
+            touch(model);
+            log.info("Ollama warm-up: {} loaded in {} ms", model, (System.nanoTime() - t0) / 1_000_000);
+        } catch (IOException e) {
+            log.warn("Ollama warm-up of {} failed (non-fatal): {}", model, e.toString());
+        }
+    }
+
+    /** Unloads {@code model} immediately (keep_alive 0). */
+    public void unload(String model) throws IOException {
+        post("/api/generate", Map.of("model", model, "keep_alive", 0));
+        unloaded(model);
+    }
+
+    /** Models Ollama currently has in memory ({@code GET /api/ps}). */
+    public List<Loaded> loadedModels() throws IOException {
+        try (Response resp = http.newCall(psRequest()).execute()) {
+            return parseLoaded(resp);
+        }
+    }
+
+    /* ---------- helpers ---------- */
+
+    // Evict least recently used models (never the one being loaded or a pinned one) until it fits
+    CompletableFuture<Void> makeRoomFor(String model, CancellationToken token) {
+        return AsyncCalls.enqueue(http.newCall(psRequest()), token, "Ollama eviction", this::parseLoaded, UncheckedIOException::new)
+                .exceptionally(e -> {
+                    if (unwrap(e) instanceof RequestCancelledException cancelled) throw cancelled;
+                    log.debug("Ollama /api/ps unavailable, skipping eviction: {}", unwrap(e).toString());
+                    return null;
+                })
+                .thenCompose(loaded -> {
+                    if (loaded == null) return CompletableFuture.completedFuture(null);
+                    List<Loaded> others = new ArrayList<>(loaded.stream().filter(l -> !sameModel(l.name(), model)).toList());
+                    others.sort(Comparator.comparing((Loaded l) -> lastUsed.getOrDefault(key(l.name()), Instant.EPOCH)));
+                    long incoming = knownSizes.getOrDefault(key(model), 0L);
+                    return evict(others, List.copyOf(others).iterator(), incoming, token);
+                });
+    }
+
+    // one unload at a time, oldest first, re-checking the fit after each
+    private CompletableFuture<Void> evict(List<Loaded> others, Iterator<Loaded> victims, long incoming,
+                                          CancellationToken token) {
+        while (victims.hasNext() && !fits(others, incoming)) {
+            Loaded victim = victims.next();
+            if (props.getPinned().stream().anyMatch(p -> sameModel(p, victim.name()))) continue;
+            Call unload = http.newCall(postRequest("/api/generate", Map.of("model", victim.name(), "keep_alive", 0)));
+            return AsyncCalls.enqueue(unload, token, "Ollama eviction", resp -> checked(resp, "/api/generate"), UncheckedIOException::new)
+                    .handle((ok, e) -> {
+                        if (e == null) {
+                            unloaded(victim.name());
+                            others.remove(victim);
+                        } else if (unwrap(e) instanceof RequestCancelledException cancelled) {
+                            throw cancelled;
+                        } else {
+                            log.warn("Ollama eviction of {} failed: {}", victim.name(), unwrap(e).toString());
+                        }
+                        return null;
+                    })
+                    .thenCompose(ignored -> evict(others, victims, incoming, token));
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    private void unloaded(String model) {
+        residentUntil.remove(key(model));
+        log.info("Ollama evicted {}", model);
+    }
+
+    private Request psRequest() {
+        return new Request.Builder().url(baseUrl + "/api/ps").get().build();
+    }
+
+    private List<Loaded> parseLoaded(Response resp) throws IOException {
+        if (!resp.isSuccessful()) throw new IOException("Ollama /api/ps HTTP " + resp.code());
+        JsonNode json = om.readTree(resp.body() != null ? resp.body().string() : "{}");
+        List<Loaded> out = new ArrayList<>();
+        for (JsonNode m : json.path("models")) {
+            String name = m.path("name").asText(m.path("model").asText(""));
+            Loaded l = new Loaded(name, m.path("size").asLong(0), m.path("size_vram").asLong(0));
+            knownSizes.put(key(name), l.vramBytes() > 0 ? l.vramBytes() : l.sizeBytes());
+            out.add(l);
+        }
+        return out;
+    }
+
+    private boolean fits(List<Loaded> others, long incomingBytes) {
+        if (others.size() + 1 > Math.max(1, props.getMaxResidentModels())) return false;
+        if (props.getMaxResidentBytes() <= 0) return true;
+        long bytes = incomingBytes;
+        for (Loaded l : others) bytes += l.vramBytes() > 0 ? l.vramBytes() : l.sizeBytes();
+        return bytes <= props.getMaxResidentBytes();
+    }
+
+    private void post(String path, Map<String, Object> body) throws IOException {
+        try (Response resp = http.newCall(postRequest(path, body)).execute()) {
+            checked(resp, path);
+        }
+    }
+
+    private Request postRequest(String path, Map<String, Object> body) {
+        try {
+            return new Request.Builder()
+                    .url(baseUrl + path)
+                    .post(RequestBody.create(om.writeValueAsBytes(body), JSON))
+                    .build();
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Void checked(Response resp, String path) throws IOException {
+        if (!resp.isSuccessful()) {
+            String b = resp.body() != null ? resp.body().string() : "";
+            throw new IOException("Ollama " + path + " HTTP " + resp.code() + " | body=" + b);
+        }
+        return null;
+    }
+
+    private static void await(CompletableFuture<Void> f) {
+        try {
+            f.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            throw e;
+        }
+    }
+
+    private static Throwable unwrap(Throwable e) {
+        return e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+    }
+
+    // the model's window wins over min-num-ctx: Ollama cannot use more context than the model was trained on
+    private int clamp(String model, int n) {
+        return Math.min(contextWindow(model), Math.max(props.getMinNumCtx(), n));
+    }
+
+    // configured "ollama:model" / "ollama" window, else the trained context length from /api/show
+    private int modelWindow(String model) {
+        Integer configured = windows.configuredWindow("ollama", model);
+        if (configured != null) return configured;
+        Integer known = trainedWindows.get(key(model));
+        if (known != null) return known;
+        try (Response resp = http.newCall(postRequest("/api/show", Map.of("model", model))).execute()) {
+            checked(resp, "/api/show");
+            int trained = parseContextLength(om.readTree(resp.body() != null ? resp.body().string() : "{}"));
+            trainedWindows.put(key(model), trained);
+            return trained;
+        } catch (IOException e) {
+            // not cached: the model may simply not be pulled yet
+            log.debug("Ollama /api/show for {} unavailable, assuming max-num-ctx: {}", model, e.toString());
+            return props.getMaxNumCtx();
+        }
+    }
+
+    // model_info carries "<architecture>.context_length"; older servers without it leave max-num-ctx as the cap
+    private int parseContextLength(JsonNode show) {
+        JsonNode info = show.path("model_info");
+        int length = info.path(info.path("general.architecture").asText("") + ".context_length").asInt(0);
+        if (length <= 0) {
+            for (Iterator<Map.Entry<String, JsonNode>> it = info.fields(); it.hasNext() && length <= 0; ) {
+                Map.Entry<String, JsonNode> f = it.next();
+                if (f.getKey().endsWith(".context_length")) length = f.getValue().asInt(0);
+            }
+        }
+        return length > 0 ? length : props.getMaxNumCtx();
+    }
+
+    private static int nextPowerOfTwo(int n) {
+        if (n <= 1) return 1;
+        int p = Integer.highestOneBit(n - 1) << 1;
+        return p < 0 ? Integer.MAX_VALUE : p;
+    }
+
+    // /api/ps reports "llama3:latest" for a request made with "llama3"
+    private static String key(String model) {
+        if (model == null) return "";
+        return model.contains(":") ? model : model + ":latest";
+    }
+
+    private static boolean sameModel(String a, String b) {
+        return key(a).equals(key(b));
+    }
+}
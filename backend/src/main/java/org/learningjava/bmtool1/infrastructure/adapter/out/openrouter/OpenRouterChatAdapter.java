@@ -1,7 +1,11 @@
 // src/main/java/org/learningjava/bmtool1/infrastructure/adapter/out/openrouter/OpenRouterChatAdapter.java
 package org.learningjava.bmtool1.infrastructure.adapter.out.openrouter;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.learningjava.bmtool1.application.port.CancellationToken;
 import org.learningjava.bmtool1.application.port.ChatLLMPort;
+import org.learningjava.bmtool1.application.port.ProviderException;
+import org.learningjava.bmtool1.application.port.RequestCancelledException;
 import org.learningjava.bmtool1.domain.service.co2.CarbonEstimator;   // ⬅️ add
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -12,24 +16,42 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.client.*;
 
 import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.Duration;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @Component
 public class OpenRouterChatAdapter implements ChatLLMPort {
 
     private static final Logger log = LoggerFactory.getLogger(OpenRouterChatAdapter.class);
+    private static final String SYSTEM_PROMPT = "You are a precise assistant.";
+    // ~1024 tokens, the smallest prefix Anthropic will cache; shorter prefixes are sent as plain text
+    private static final int MIN_CACHEABLE_PREFIX_CHARS = 4096;
+
+    // Token of the call running on this thread; picked up when the HttpURLConnection is opened
+    private static final ThreadLocal<CancellationToken> CURRENT_TOKEN = new ThreadLocal<>();
 
     private final RestTemplate rest;
+    private final HttpClient asyncHttp; // non-blocking path only
+    private final Duration timeout;
+    private final ObjectMapper om = new ObjectMapper();
     private final String apiKey;
     private final String baseUrl;
     private final String referer;
     private final String title;
     private final CarbonEstimator carbon; // ⬅️ add
+    private final List<String> cacheControlModels; // model-id prefixes that need explicit cache_control
 
     public OpenRouterChatAdapter(
             @Value("${OPENROUTER_API_KEY:}") String envKey,
@@ -38,6 +60,7 @@ public class OpenRouterChatAdapter implements ChatLLMPort {
             @Value("${llm.openrouter.referer:http://localhost}") String referer,
             @Value("${llm.openrouter.title:bmtool1}") String title,
             @Value("${llm.openrouter.timeout.ms:20000}") int timeoutMs,
+            @Value("${llm.openrouter.cache-control-models:anthropic/,google/gemini}") List<String> cacheControlModels,
             CarbonEstimator carbon // ⬅️ add
     ) {
         this.apiKey = resolveApiKey(envKey, apiKeyFilePath);
@@ -45,13 +68,19 @@ public class OpenRouterChatAdapter implements ChatLLMPort {
         this.referer = referer;
         this.title = title;
         this.rest = buildRestTemplate(timeoutMs);
+        this.timeout = Duration.ofMillis(timeoutMs);
+        this.asyncHttp = HttpClient.newBuilder().connectTimeout(timeout).build();
         this.carbon = carbon; // ⬅️ add
+        this.cacheControlModels = cacheControlModels == null ? List.of() : List.copyOf(cacheControlModels);
         log.debug("OpenRouterChatAdapter init: baseUrl={}, referer={}, title={}", this.baseUrl, this.referer, this.title);
     }
 
     @Override
     public String provider() { return "openrouter"; }
 
+    @Override
+    public String cacheOptions() { return "system=" + SYSTEM_PROMPT; }
+
     @Override
     public String chat(String prompt, String model) {
         if (apiKey == null || apiKey.isBlank()) {
@@ -68,8 +97,8 @@ public class OpenRouterChatAdapter implements ChatLLMPort {
         Map<String, Object> body = Map.of(
                 "model", model,
                 "messages", List.of(
-                        Map.of("role", "system", "content", "You are a precise assistant."),
-                        Map.of("role", "user", "content", prompt)
+                        Map.of("role", "system", "content", SYSTEM_PROMPT),
+                        Map.of("role", "user", "content", ChatLLMPort.withoutCacheBoundary(prompt))
                 )
         );
 
@@ -82,7 +111,8 @@ public class OpenRouterChatAdapter implements ChatLLMPort {
             long latencyMs = Math.max(1L, Math.round((t1 - t0) / 1_000_000.0));
 
             if (!response.getStatusCode().is2xxSuccessful() || response.getBody() == null) {
-                throw new IllegalStateException("OpenRouter call failed: status=" + response.getStatusCodeValue()
+                throw new ProviderException(provider(), response.getStatusCode().value(),
+                        "OpenRouter call failed: status=" + response.getStatusCode().value()
                         + " body=" + String.valueOf(response.getBody()));
             }
 
@@ -121,17 +151,40 @@ public class OpenRouterChatAdapter implements ChatLLMPort {
             log.error("OpenRouter HTTP {} {} for model='{}'\nResponse body: {}\nHeaders set: Authorization(Bearer ****), HTTP-Referer={}, X-Title={}",
                     ex.getStatusCode().value(), ex.getStatusText(), model, bodyText, referer, title);
             if (ex.getStatusCode() == HttpStatus.UNAUTHORIZED) {
-                throw new IllegalStateException("OpenRouter 401 Unauthorized. Check API key, required headers, and model access.", ex);
+                throw new ProviderException(provider(), 401,
+                        "OpenRouter 401 Unauthorized. Check API key, required headers, and model access.", ex);
             }
-            throw new IllegalStateException("OpenRouter error: " + ex.getStatusCode().value() + " " + ex.getStatusText(), ex);
+            throw new ProviderException(provider(), ex.getStatusCode().value(),
+                    "OpenRouter error: " + ex.getStatusCode().value() + " " + ex.getStatusText(), ex);
         } catch (ResourceAccessException io) {
             log.error("OpenRouter connection error to {}: {}", url, io.toString());
-            throw new IllegalStateException("Cannot reach OpenRouter (" + baseUrl + "). Check network / URL / timeouts.", io);
+            throw new ProviderException(provider(), 0,
+                    "Cannot reach OpenRouter (" + baseUrl + "). Check network / URL / timeouts.", io);
         }
     }
     // src/main/java/org/learningjava/bmtool1/infrastructure/adapter/out/openrouter/OpenRouterChatAdapter.java
     @Override
     public ChatResult chatWithUsage(String prompt, String model) {
+        return chatWithUsage(prompt, model, null);
+    }
+
+    /** Cancelling {@code token} disconnects the underlying HttpURLConnection. */
+    @Override
+    public ChatResult chatWithUsage(String prompt, String model, CancellationToken token) {
+        if (token != null) token.throwIfCancelled("OpenRouter call");
+        CURRENT_TOKEN.set(token);
+        try {
+            return doChatWithUsage(prompt, model);
+        } catch (ProviderException e) {
+            // a disconnect we caused surfaces as an I/O error; report it as the cancellation it is
+            if (token != null && token.isCancelled()) throw new RequestCancelledException(token.reason(), "OpenRouter call");
+            throw e;
+        } finally {
+            CURRENT_TOKEN.remove();
+        }
+    }
+
+    private ChatResult doChatWithUsage(String prompt, String model) {
         if (apiKey == null || apiKey.isBlank()) {
             throw new IllegalStateException("OpenRouter API key not configured. Set OPENROUTER_API_KEY or mount OPENROUTER_API_KEY_FILE.");
         }
@@ -143,69 +196,173 @@ public class OpenRouterChatAdapter implements ChatLLMPort {
         headers.set("HTTP-Referer", referer);
         headers.set("X-Title", title);
 
-        Map<String, Object> body = Map.of(
-                "model", model,
-                "messages", List.of(
-                        Map.of("role", "system", "content", "You are a precise assistant."),
-                        Map.of("role", "user", "content", prompt)
-                )
-                // no estimator, no special flags; OpenRouter includes "usage" when the upstream supports it
-        );
-
-        HttpEntity<Map<String, Object>> request = new HttpEntity<>(body, headers);
+        HttpEntity<Map<String, Object>> request = new HttpEntity<>(requestBody(prompt, model), headers);
 
         try {
             ResponseEntity<Map> response = rest.postForEntity(url, request, Map.class);
 
             if (!response.getStatusCode().is2xxSuccessful() || response.getBody() == null) {
-                throw new IllegalStateException("OpenRouter call failed: status=" + response.getStatusCodeValue()
+                throw new ProviderException(provider(), response.getStatusCode().value(),
+                        "OpenRouter call failed: status=" + response.getStatusCode().value()
                         + " body=" + String.valueOf(response.getBody()));
             }
 
-            // content
-            String content = "";
-            Object choices = response.getBody().get("choices");
-            if (choices instanceof List<?> list && !list.isEmpty()) {
-                Object first = list.get(0);
-                if (first instanceof Map<?, ?> m) {
-                    Object message = m.get("message");
-                    if (message instanceof Map<?, ?> mm) {
-                        Object c = mm.get("content");
-                        if (c != null) content = String.valueOf(c);
-                    }
-                }
-            }
-
-            // usage (real values only; may be null)
-            Usage usageObj = null;
-            Object usage = response.getBody().get("usage");
-            if (usage instanceof Map<?,?> u) {
-                Integer pt = u.get("prompt_tokens") instanceof Number ? ((Number) u.get("prompt_tokens")).intValue() : null;
-                Integer ct = u.get("completion_tokens") instanceof Number ? ((Number) u.get("completion_tokens")).intValue() : null;
-                if (pt != null || ct != null) usageObj = new Usage(pt, ct);
-            }
-
-            return new ChatResult(content, usageObj);
+            return toChatResult(response.getBody());
 
         } catch (HttpClientErrorException | HttpServerErrorException ex) {
             String bodyText = safeBody(ex);
             log.error("OpenRouter HTTP {} {} for model='{}'\nResponse body: {}\nHeaders set: Authorization(Bearer ****), HTTP-Referer={}, X-Title={}",
                     ex.getStatusCode().value(), ex.getStatusText(), model, bodyText, referer, title);
             if (ex.getStatusCode() == HttpStatus.UNAUTHORIZED) {
-                throw new IllegalStateException("OpenRouter 401 Unauthorized. Check API key, required headers, and model access.", ex);
+                throw new ProviderException(provider(), 401,
+                        "OpenRouter 401 Unauthorized. Check API key, required headers, and model access.", ex);
             }
-            throw new IllegalStateException("OpenRouter error: " + ex.getStatusCode().value() + " " + ex.getStatusText(), ex);
+            throw new ProviderException(provider(), ex.getStatusCode().value(),
+                    "OpenRouter error: " + ex.getStatusCode().value() + " " + ex.getStatusText(), ex);
         } catch (ResourceAccessException io) {
-            throw new IllegalStateException("Cannot reach OpenRouter (" + baseUrl + "). Check network / URL / timeouts.", io);
+            throw new ProviderException(provider(), 0,
+                    "Cannot reach OpenRouter (" + baseUrl + "). Check network / URL / timeouts.", io);
         }
     }
 
+    /**
+     * Non-blocking variant on the JDK {@link HttpClient}, so many calls can be in flight without a thread
+     * each. Cancelling {@code token} or the returned future aborts the exchange.
+     */
+    @Override
+    public CompletableFuture<ChatResult> chatWithUsageAsync(String prompt, String model, CancellationToken token) {
+        if (apiKey == null || apiKey.isBlank()) {
+            return CompletableFuture.failedFuture(new IllegalStateException(
+                    "OpenRouter API key not configured. Set OPENROUTER_API_KEY or mount OPENROUTER_API_KEY_FILE."));
+        }
+        if (token != null && token.isCancelled()) {
+            return CompletableFuture.failedFuture(new RequestCancelledException(token.reason(), "OpenRouter call"));
+        }
+        HttpRequest req;
+        try {
+            req = HttpRequest.newBuilder(URI.create(baseUrl + "/chat/completions"))
+                    .timeout(timeout)
+                    .header("Content-Type", "application/json")
+                    .header("Authorization", "Bearer " + apiKey)
+                    .header("HTTP-Referer", referer)
+                    .header("X-Title", title)
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(om.writeValueAsBytes(requestBody(prompt, model))))
+                    .build();
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(new ProviderException(provider(), 0,
+                    "OpenRouter request could not be serialized: " + e.getMessage(), e));
+        }
 
+        CompletableFuture<HttpResponse<String>> sent = asyncHttp.sendAsync(req, HttpResponse.BodyHandlers.ofString());
+        if (token != null) token.onCancel(() -> sent.cancel(true));
+        CompletableFuture<ChatResult> result = sent.handle((resp, failure) -> {
+            if (token != null && token.isCancelled()) throw new RequestCancelledException(token.reason(), "OpenRouter call");
+            if (failure != null) {
+                Throwable cause = failure instanceof CompletionException && failure.getCause() != null
+                        ? failure.getCause() : failure;
+                throw new ProviderException(provider(), 0,
+                        "Cannot reach OpenRouter (" + baseUrl + "). Check network / URL / timeouts.", cause);
+            }
+            return toChatResult(resp, model);
+        });
+        result.whenComplete((r, e) -> {
+            if (result.isCancelled()) sent.cancel(true);
+        });
+        return result;
+    }
+
+    private ChatResult toChatResult(HttpResponse<String> resp, String model) {
+        int status = resp.statusCode();
+        if (status < 200 || status >= 300) {
+            log.error("OpenRouter HTTP {} for model='{}'\nResponse body: {}\nHeaders set: Authorization(Bearer ****), HTTP-Referer={}, X-Title={}",
+                    status, model, resp.body(), referer, title);
+            if (status == 401) {
+                throw new ProviderException(provider(), 401,
+                        "OpenRouter 401 Unauthorized. Check API key, required headers, and model access.");
+            }
+            throw new ProviderException(provider(), status, "OpenRouter error: " + status);
+        }
+        try {
+            return toChatResult(om.readValue(resp.body(), Map.class));
+        } catch (IOException e) {
+            throw new ProviderException(provider(), status, "OpenRouter returned an unreadable body: " + e.getMessage(), e);
+        }
+    }
 
 // ---- helpers ----
 
+    private Map<String, Object> requestBody(String prompt, String model) {
+        return Map.of(
+                "model", model,
+                "messages", List.of(
+                        Map.of("role", "system", "content", SYSTEM_PROMPT),
+                        Map.of("role", "user", "content", userContent(prompt, model))
+                )
+                // no estimator, no special flags; OpenRouter includes "usage" when the upstream supports it
+        );
+    }
+
+    /**
+     * Anthropic and Gemini models only cache up to an explicit {@code cache_control} breakpoint, so the
+     * stable part of the prompt (everything before the first {@link #PROMPT_CACHE_BOUNDARY}) goes in its own
+     * marked block. Other upstreams cache prefixes automatically and get the plain string. The marker itself
+     * is never sent.
+     */
+    Object userContent(String prompt, String model) {
+        int cut = prompt.indexOf(PROMPT_CACHE_BOUNDARY);
+        if (cut < MIN_CACHEABLE_PREFIX_CHARS || !supportsCacheControl(model)) return ChatLLMPort.withoutCacheBoundary(prompt);
+        return List.of(
+                Map.of("type", "text", "text", prompt.substring(0, cut), "cache_control", Map.of("type", "ephemeral")),
+                Map.of("type", "text", "text", ChatLLMPort.withoutCacheBoundary(prompt.substring(cut)))
+        );
+    }
+
+    private boolean supportsCacheControl(String model) {
+        if (model == null) return false;
+        String m = model.toLowerCase(Locale.ROOT);
+        return cacheControlModels.stream()
+                .map(p -> p.trim().toLowerCase(Locale.ROOT))
+                .anyMatch(p -> !p.isEmpty() && m.startsWith(p));
+    }
+
+    static ChatResult toChatResult(Map<?, ?> body) {
+        // content
+        String content = "";
+        Object choices = body.get("choices");
+        if (choices instanceof List<?> list && !list.isEmpty()) {
+            Object first = list.get(0);
+            if (first instanceof Map<?, ?> m) {
+                Object message = m.get("message");
+                if (message instanceof Map<?, ?> mm) {
+                    Object c = mm.get("content");
+                    if (c != null) content = String.valueOf(c);
+                }
+            }
+        }
+
+        // usage (real values only; may be null)
+        Usage usageObj = null;
+        Object usage = body.get("usage");
+        if (usage instanceof Map<?,?> u) {
+            Integer pt = u.get("prompt_tokens") instanceof Number ? ((Number) u.get("prompt_tokens")).intValue() : null;
+            Integer ct = u.get("completion_tokens") instanceof Number ? ((Number) u.get("completion_tokens")).intValue() : null;
+            Integer cached = u.get("prompt_tokens_details") instanceof Map<?, ?> d
+                    && d.get("cached_tokens") instanceof Number n ? n.intValue() : null;
+            if (pt != null || ct != null) usageObj = new Usage(pt, ct, false, cached);
+        }
+
+        return new ChatResult(content, usageObj);
+    }
+
     private static RestTemplate buildRestTemplate(int timeoutMs) {
-        SimpleClientHttpRequestFactory f = new SimpleClientHttpRequestFactory();
+        SimpleClientHttpRequestFactory f = new SimpleClientHttpRequestFactory() {
+            @Override
+            protected void prepareConnection(HttpURLConnection connection, String httpMethod) throws IOException {
+                super.prepareConnection(connection, httpMethod);
+                CancellationToken token = CURRENT_TOKEN.get();
+                if (token != null) token.onCancel(connection::disconnect);
+            }
+        };
         f.setConnectTimeout(timeoutMs);
         f.setReadTimeout(timeoutMs);
         return new RestTemplate(f);
@@ -0,0 +1,148 @@
+// src/main/java/org/learningjava/bmtool1/infrastructure/adapter/out/postgres/PostgresChatCacheAdapter.java
+package org.learningjava.bmtool1.infrastructure.adapter.out.postgres;
+
+import org.learningjava.bmtool1.application.port.ChatLLMPort.ChatResult;
+import org.learningjava.bmtool1.application.port.ChatLLMPort.Usage;
+import org.learningjava.bmtool1.application.port.ChatResponseCachePort;
+import org.learningjava.bmtool1.config.LlmCacheProperties;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.*;
+import java.time.Instant;
+import java.util.Optional;
+
+@Component
+public class PostgresChatCacheAdapter implements ChatResponseCachePort {
+    private final DataSource ds;
+    private final LlmCacheProperties props;
+    private volatile boolean schemaReady;
+
+    public PostgresChatCacheAdapter(DataSource ds, LlmCacheProperties props) {
+        this.ds = ds;
+        this.props = props;
+    }
+
+    /* ------------------------ schema ------------------------ */
+
+    @Override
+    public void ensureSchema() {
+        final String ddl = """
+        CREATE TABLE IF NOT EXISTS llm_response_cache (
+          cache_key          TEXT PRIMARY KEY,
+          provider           TEXT NOT NULL,
+          model              TEXT NOT NULL,
+          response           TEXT NOT NULL,
+          prompt_tokens      INTEGER,
+          completion_tokens  INTEGER,
+          created_at         TIMESTAMPTZ NOT NULL DEFAULT now(),
+          last_hit_at        TIMESTAMPTZ NOT NULL DEFAULT now(),
+          hits               INTEGER NOT NULL DEFAULT 0
+        );
+        CREATE INDEX IF NOT EXISTS idx_llm_response_cache_created
+          ON llm_response_cache (created_at);
+        CREATE INDEX IF NOT EXISTS idx_llm_response_cache_last_hit
+          ON llm_response_cache (last_hit_at);
+        """;
+        try (Connection c = ds.getConnection(); Statement st = c.createStatement()) {
+            st.execute(ddl);
+            schemaReady = true;
+        } catch (SQLException e) {
+            throw new RuntimeException("ensureSchema (llm_response_cache) failed", e);
+        }
+    }
+
+    // Lazily created on first use so the table only exists where the cache is switched on
+    private void ensureReady() {
+        if (!schemaReady) {
+            synchronized (this) {
+                if (!schemaReady && props.isEnabled()) ensureSchema();
+            }
+        }
+    }
+
+    /* ------------------------ CRUD ------------------------ */
+
+    @Override
+    public Optional<ChatResult> find(String key, Instant notBefore) {
+        ensureReady();
+        final String sql = """
+            UPDATE llm_response_cache
+               SET hits = hits + 1, last_hit_at = now()
+             WHERE cache_key = ? AND created_at >= ?
+            RETURNING response, prompt_tokens, completion_tokens
+            """;
+        try (Connection c = ds.getConnection(); PreparedStatement ps = c.prepareStatement(sql)) {
+            ps.setString(1, key);
+            ps.setTimestamp(2, Timestamp.from(notBefore));
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) return Optional.empty();
+                Integer pt = getNullableInt(rs, "prompt_tokens");
+                Integer ct = getNullableInt(rs, "completion_tokens");
+                Usage usage = (pt != null || ct != null) ? new Usage(pt, ct) : null;
+                return Optional.of(new ChatResult(rs.getString("response"), usage));
+            }
+        } catch (SQLException ex) { throw new RuntimeException("cache find failed", ex); }
+    }
+
+    @Override
+    public void put(String key, String provider, String model, ChatResult result) {
+        ensureReady();
+        final String sql = """
+            INSERT INTO llm_response_cache
+              (cache_key, provider, model, response, prompt_tokens, completion_tokens)
+            VALUES (?, ?, ?, ?, ?, ?)
+            ON CONFLICT (cache_key) DO UPDATE SET
+              response          = EXCLUDED.response,
+              prompt_tokens     = EXCLUDED.prompt_tokens,
+              completion_tokens = EXCLUDED.completion_tokens,
+              created_at        = now(),
+              last_hit_at       = now()
+            """;
+        Usage u = result.usage();
+        try (Connection c = ds.getConnection(); PreparedStatement ps = c.prepareStatement(sql)) {
+            ps.setString(1, key);
+            ps.setString(2, provider);
+            ps.setString(3, model);
+            ps.setString(4, result.text() == null ? "" : result.text());
+            setNullableInt(ps, 5, u == null ? null : u.promptTokens());
+            setNullableInt(ps, 6, u == null ? null : u.completionTokens());
+            ps.executeUpdate();
+        } catch (SQLException ex) { throw new RuntimeException("cache put failed", ex); }
+    }
+
+    @Override
+    public int prune(Instant notBefore, int maxEntries) {
+        ensureReady();
+        final String expire = "DELETE FROM llm_response_cache WHERE created_at < ?";
+        final String cap = """
+            DELETE FROM llm_response_cache
+             WHERE cache_key IN (
+               SELECT cache_key FROM llm_response_cache
+               ORDER BY last_hit_at DESC
+               OFFSET ?
+             )
+            """;
+        try (Connection c = ds.getConnection()) {
+            int removed;
+            try (PreparedStatement ps = c.prepareStatement(expire)) {
+                ps.setTimestamp(1, Timestamp.from(notBefore));
+                removed = ps.executeUpdate();
+            }
+            try (PreparedStatement ps = c.prepareStatement(cap)) {
+                ps.setInt(1, Math.max(0, maxEntries));
+                removed += ps.executeUpdate();
+            }
+            return removed;
+        } catch (SQLException ex) { throw new RuntimeException("cache prune failed", ex); }
+    }
+
+    /* ------------------------ bindings ------------------------ */
+
+    private static void setNullableInt(PreparedStatement ps, int idx, Integer v) throws SQLException {
+        if (v == null) ps.setNull(idx, Types.INTEGER); else ps.setInt(idx, v);
+    }
+    private static Integer getNullableInt(ResultSet rs, String col) throws SQLException {
+        int v = rs.getInt(col); return rs.wasNull() ? null : v;
+    }
+}
@@ -0,0 +1,120 @@
+// src/main/java/org/learningjava/bmtool1/infrastructure/adapter/out/postgres/PostgresPairManifestAdapter.java
+package org.learningjava.bmtool1.infrastructure.adapter.out.postgres;
+
+import org.learningjava.bmtool1.application.port.PairManifestPort;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.*;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+@Component
+public class PostgresPairManifestAdapter implements PairManifestPort {
+    private final DataSource ds;
+    private volatile boolean schemaReady;
+
+    public PostgresPairManifestAdapter(DataSource ds) {
+        this.ds = ds;
+    }
+
+    /* ------------------------ schema ------------------------ */
+
+    public void ensureSchema() {
+        final String ddl = """
+        CREATE TABLE IF NOT EXISTS pair_manifest (
+          scope         TEXT NOT NULL,
+          pair_id       TEXT NOT NULL,
+          plsql_path    TEXT NOT NULL,
+          java_path     TEXT NOT NULL,
+          fingerprint   TEXT,
+          content_hash  TEXT NOT NULL,
+          mappings      INTEGER NOT NULL DEFAULT 0,
+          ingested_at   TIMESTAMPTZ NOT NULL DEFAULT now(),
+          PRIMARY KEY (scope, pair_id)
+        );
+        ALTER TABLE pair_manifest ADD COLUMN IF NOT EXISTS mapping_version TEXT;
+        """;
+        try (Connection c = ds.getConnection(); Statement st = c.createStatement()) {
+            st.execute(ddl);
+            schemaReady = true;
+        } catch (SQLException e) {
+            throw new RuntimeException("ensureSchema (pair_manifest) failed", e);
+        }
+    }
+
+    private void ensureReady() {
+        if (!schemaReady) {
+            synchronized (this) {
+                if (!schemaReady) ensureSchema();
+            }
+        }
+    }
+
+    /* ------------------------ CRUD ------------------------ */
+
+    @Override
+    public Map<String, Entry> load(String scope) {
+        ensureReady();
+        final String sql = """
+            SELECT pair_id, plsql_path, java_path, fingerprint, content_hash, mappings, mapping_version
+              FROM pair_manifest
+             WHERE scope = ?
+            """;
+        try (Connection c = ds.getConnection(); PreparedStatement ps = c.prepareStatement(sql)) {
+            ps.setString(1, scope);
+            Map<String, Entry> out = new HashMap<>();
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    Entry e = new Entry(rs.getString("pair_id"), rs.getString("plsql_path"), rs.getString("java_path"),
+                            rs.getString("fingerprint"), rs.getString("content_hash"), rs.getInt("mappings"),
+                            rs.getString("mapping_version"));
+                    out.put(e.pairId(), e);
+                }
+            }
+            return out;
+        } catch (SQLException ex) { throw new RuntimeException("manifest load failed", ex); }
+    }
+
+    @Override
+    public void put(String scope, Entry entry) {
+        ensureReady();
+        final String sql = """
+            INSERT INTO pair_manifest
+              (scope, pair_id, plsql_path, java_path, fingerprint, content_hash, mappings, mapping_version)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?)
+            ON CONFLICT (scope, pair_id) DO UPDATE SET
+              plsql_path   = EXCLUDED.plsql_path,
+              java_path    = EXCLUDED.java_path,
+              fingerprint  = EXCLUDED.fingerprint,
+              content_hash = EXCLUDED.content_hash,
+              mappings     = EXCLUDED.mappings,
+              mapping_version = EXCLUDED.mapping_version,
+              ingested_at  = now()
+            """;
+        try (Connection c = ds.getConnection(); PreparedStatement ps = c.prepareStatement(sql)) {
+            ps.setString(1, scope);
+            ps.setString(2, entry.pairId());
+            ps.setString(3, entry.plsqlPath());
+            ps.setString(4, entry.javaPath());
+            ps.setString(5, entry.fingerprint());
+            ps.setString(6, entry.contentHash());
+            ps.setInt(7, entry.mappings());
+            ps.setString(8, entry.mappingVersion());
+            ps.executeUpdate();
+        } catch (SQLException ex) { throw new RuntimeException("manifest put failed", ex); }
+    }
+
+    @Override
+    public void remove(String scope, Collection<String> pairIds) {
+        if (pairIds == null || pairIds.isEmpty()) return;
+        ensureReady();
+        final String sql = "DELETE FROM pair_manifest WHERE scope = ? AND pair_id = ANY (?)";
+        try (Connection c = ds.getConnection(); PreparedStatement ps = c.prepareStatement(sql)) {
+            ps.setString(1, scope);
+            ps.setArray(2, c.createArrayOf("text", pairIds.toArray()));
+            ps.executeUpdate();
+        } catch (SQLException ex) { throw new RuntimeException("manifest remove failed", ex); }
+    }
+}
@@ -50,7 +50,13 @@ public class PostgresStoreAdapter implements ExperimentStorePort {
           ADD COLUMN IF NOT EXISTS metric4_prompt_tok   INTEGER,
           ADD COLUMN IF NOT EXISTS metric5_completion_tok INTEGER,
           ADD COLUMN IF NOT EXISTS metric6_total_tok    INTEGER,
-          ADD COLUMN IF NOT EXISTS prompting_technique  TEXT;
+          ADD COLUMN IF NOT EXISTS prompting_technique  TEXT,
+          ADD COLUMN IF NOT EXISTS cache_hit            BOOLEAN NOT NULL DEFAULT false,
+          ADD COLUMN IF NOT EXISTS winning_provider     TEXT,
+          ADD COLUMN IF NOT EXISTS wasted_tokens        INTEGER,
+          ADD COLUMN IF NOT EXISTS run_status           TEXT NOT NULL DEFAULT 'OK',
+          ADD COLUMN IF NOT EXISTS metric7_cached_tok   INTEGER,
+          ADD COLUMN IF NOT EXISTS tokens_estimated     BOOLEAN NOT NULL DEFAULT false;
 
         -- 3) Backfill sensible defaults where NULL
         UPDATE experiments SET fw_hits_count  = 0  WHERE fw_hits_count  IS NULL;
@@ -90,15 +96,19 @@ public class PostgresStoreAdapter implements ExperimentStorePort {
         CREATE INDEX IF NOT EXISTS idx_experiments_models
           ON experiments (embedding_model, llm_model);
 
-        -- 7) Natural uniqueness (guarded by name)
+        -- 7) Natural uniqueness (guarded by name); cache hits and cancelled runs are rows of their own
+        --    next to the measured run, so the prompt needs no marker
         DO $$
         BEGIN
           IF NOT EXISTS (
-            SELECT 1 FROM pg_constraint WHERE conname = 'uq_experiment_natural2'
+            SELECT 1 FROM pg_constraint WHERE conname = 'uq_experiment_natural4'
           ) THEN
+            ALTER TABLE experiments DROP CONSTRAINT IF EXISTS uq_experiment_natural2;
+            ALTER TABLE experiments DROP CONSTRAINT IF EXISTS uq_experiment_natural3;
             ALTER TABLE experiments
-              ADD CONSTRAINT uq_experiment_natural2
-              UNIQUE (experiment_date, embedding_model, llm_model, k_fw, k_doc, prompting_technique, prompt);
+              ADD CONSTRAINT uq_experiment_natural4
+              UNIQUE (experiment_date, embedding_model, llm_model, k_fw, k_doc, prompting_technique, prompt,
+                      cache_hit, run_status);
           END IF;
         EXCEPTION WHEN others THEN NULL; END $$;
 
@@ -138,6 +148,12 @@ public class PostgresStoreAdapter implements ExperimentStorePort {
         setNullableInt(ps, 13, e.metric5CompletionTok());
         setNullableInt(ps, 14, e.metric6TotalTok());
         ps.setString(15, e.promptingTechnique());
+        ps.setBoolean(16, Boolean.TRUE.equals(e.cacheHit()));
+        ps.setString(17, e.winningProvider());
+        setNullableInt(ps, 18, e.wastedTokens());
+        ps.setString(19, e.runStatus() == null ? Experiment.STATUS_OK : e.runStatus());
+        setNullableInt(ps, 20, e.metric7CachedTok());
+        ps.setBoolean(21, Boolean.TRUE.equals(e.tokensEstimated()));
     }
 
     private static Experiment map(ResultSet rs) throws SQLException {
@@ -157,7 +173,13 @@ public class PostgresStoreAdapter implements ExperimentStorePort {
                 getNullableInt(rs, "metric4_prompt_tok"),
                 getNullableInt(rs, "metric5_completion_tok"),
                 getNullableInt(rs, "metric6_total_tok"),
-                rs.getString("prompting_technique")
+                rs.getString("prompting_technique"),
+                rs.getBoolean("cache_hit"),
+                rs.getString("winning_provider"),
+                getNullableInt(rs, "wasted_tokens"),
+                rs.getString("run_status"),
+                getNullableInt(rs, "metric7_cached_tok"),
+                rs.getBoolean("tokens_estimated")
         );
     }
 
@@ -184,9 +206,10 @@ public class PostgresStoreAdapter implements ExperimentStorePort {
                prompt, embedding_model, llm_model,
                metric1_ccc, metric2_time_ms, metric3_co2_g,
                metric4_prompt_tok, metric5_completion_tok, metric6_total_tok,
-               prompting_technique)
-            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
-            ON CONFLICT ON CONSTRAINT uq_experiment_natural2 DO UPDATE SET
+               prompting_technique, cache_hit, winning_provider, wasted_tokens, run_status,
+               metric7_cached_tok, tokens_estimated)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+            ON CONFLICT ON CONSTRAINT uq_experiment_natural4 DO UPDATE SET
               fw_hits_count       = EXCLUDED.fw_hits_count,
               doc_hits_count      = EXCLUDED.doc_hits_count,
               metric1_ccc         = EXCLUDED.metric1_ccc,
@@ -195,6 +218,12 @@ public class PostgresStoreAdapter implements ExperimentStorePort {
               metric4_prompt_tok  = EXCLUDED.metric4_prompt_tok,
               metric5_completion_tok = EXCLUDED.metric5_completion_tok,
               metric6_total_tok   = EXCLUDED.metric6_total_tok,
+              cache_hit           = EXCLUDED.cache_hit,
+              winning_provider    = EXCLUDED.winning_provider,
+              wasted_tokens       = EXCLUDED.wasted_tokens,
+              run_status          = EXCLUDED.run_status,
+              metric7_cached_tok  = EXCLUDED.metric7_cached_tok,
+              tokens_estimated    = EXCLUDED.tokens_estimated,
               updated_at          = now()
             RETURNING id
             """;
@@ -216,9 +245,10 @@ public class PostgresStoreAdapter implements ExperimentStorePort {
                prompt, embedding_model, llm_model,
                metric1_ccc, metric2_time_ms, metric3_co2_g,
                metric4_prompt_tok, metric5_completion_tok, metric6_total_tok,
-               prompting_technique)
-            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
-            ON CONFLICT ON CONSTRAINT uq_experiment_natural2 DO UPDATE SET
+               prompting_technique, cache_hit, winning_provider, wasted_tokens, run_status,
+               metric7_cached_tok, tokens_estimated)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+            ON CONFLICT ON CONSTRAINT uq_experiment_natural4 DO UPDATE SET
               fw_hits_count       = EXCLUDED.fw_hits_count,
               doc_hits_count      = EXCLUDED.doc_hits_count,
               metric1_ccc         = EXCLUDED.metric1_ccc,
@@ -227,6 +257,12 @@ public class PostgresStoreAdapter implements ExperimentStorePort {
               metric4_prompt_tok  = EXCLUDED.metric4_prompt_tok,
               metric5_completion_tok = EXCLUDED.metric5_completion_tok,
               metric6_total_tok   = EXCLUDED.metric6_total_tok,
+              cache_hit           = EXCLUDED.cache_hit,
+              winning_provider    = EXCLUDED.winning_provider,
+              wasted_tokens       = EXCLUDED.wasted_tokens,
+              run_status          = EXCLUDED.run_status,
+              metric7_cached_tok  = EXCLUDED.metric7_cached_tok,
+              tokens_estimated    = EXCLUDED.tokens_estimated,
               updated_at          = now()
             RETURNING id
             """;
@@ -6,21 +6,25 @@ import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import jakarta.annotation.PostConstruct;
 import okhttp3.*;
+import org.learningjava.bmtool1.application.port.CancellationToken;
 import org.learningjava.bmtool1.application.port.FrameworkStorePort;
+import org.learningjava.bmtool1.application.port.RequestCancelledException;
 import org.learningjava.bmtool1.domain.model.framework.FrameworkSymbol;
+import org.learningjava.bmtool1.infrastructure.adapter.out.http.AsyncCalls;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 
 public class WeaviateFrameworkStoreAdapter implements FrameworkStorePort {
 
     private static final Logger log = LoggerFactory.getLogger(WeaviateFrameworkStoreAdapter.class);
     private static final MediaType JSON = MediaType.parse("application/json");
 
-    private final OkHttpClient http = new OkHttpClient();
+    private final OkHttpClient http = new OkHttpClient.Builder().dispatcher(AsyncCalls.dispatcher()).build();
     private final ObjectMapper om = new ObjectMapper();
 
     private final String baseUrl;     // e.g. http://localhost:8080
@@ -104,10 +108,28 @@ public class WeaviateFrameworkStoreAdapter implements FrameworkStorePort {
 
     @Override
     public List<FrameworkSymbol> retrieve(String query, float[] vec, int k, List<String> mustHaveTags) {
-        String gql = buildGraphQL(vec, k, mustHaveTags);
-        ObjectNode body = om.createObjectNode().put("query", gql);
+        return retrieve(query, vec, k, mustHaveTags, null);
+    }
+
+    /** Cancelling {@code token} cancels the GraphQL call. */
+    @Override
+    public List<FrameworkSymbol> retrieve(String query, float[] vec, int k, List<String> mustHaveTags,
+                                          CancellationToken token) {
+        ObjectNode body = om.createObjectNode().put("query", buildGraphQL(vec, k, mustHaveTags));
+        return toSymbols(request("POST", "/v1/graphql", body, false, token));
+    }
+
+    /** Enqueued on OkHttp's dispatcher; cancelling {@code token} or the future cancels the GraphQL call. */
+    @Override
+    public CompletableFuture<List<FrameworkSymbol>> retrieveAsync(String query, float[] vec, int k,
+                                                                  List<String> mustHaveTags, CancellationToken token) {
+        ObjectNode body = om.createObjectNode().put("query", buildGraphQL(vec, k, mustHaveTags));
+        return requestAsync("POST", "/v1/graphql", body, token).thenApply(this::toSymbols);
+    }
+
+    // ---------- INTERNALS ----------
 
-        JsonNode resp = request("POST", "/v1/graphql", body, false);
+    private List<FrameworkSymbol> toSymbols(JsonNode resp) {
         List<FrameworkSymbol> out = new ArrayList<>();
 
         JsonNode arr = resp.path("data").path("Get").path(className);
@@ -126,8 +148,6 @@ public class WeaviateFrameworkStoreAdapter implements FrameworkStorePort {
         return out;
     }
 
-    // ---------- INTERNALS ----------
-
     private String buildGraphQL(float[] vec, int k, List<String> tags) {
         String vectorJson = toJsonArray(vec);
 
@@ -248,34 +268,60 @@ public class WeaviateFrameworkStoreAdapter implements FrameworkStorePort {
     }
 
     private JsonNode request(String method, String path, Object body, boolean ignoreConflict) {
-        try {
-            Request.Builder b = new Request.Builder().url(baseUrl + path);
-            if (apiKey != null && !apiKey.isBlank()) {
-                b.addHeader("Authorization", "Bearer " + apiKey);
-            }
-            if (body != null) {
-                byte[] json = om.writeValueAsBytes(body);
-                b.method(method, RequestBody.create(json, JSON));
-            } else {
-                b.method(method, null);
-            }
+        return request(method, path, body, ignoreConflict, null);
+    }
 
-            try (Response resp = http.newCall(b.build()).execute()) {
-                String respBody = resp.body() != null ? resp.body().string() : "";
-                if (ignoreConflict && resp.code() == 409) {
-                    return om.createObjectNode().put("ok", true);
-                }
-                if (!resp.isSuccessful()) {
-                    throw new IOException("Weaviate " + method + " " + path + " failed: " + resp.code()
-                            + " body=" + respBody);
-                }
-                return respBody.isEmpty() ? om.createObjectNode() : om.readTree(respBody);
+    private JsonNode request(String method, String path, Object body, boolean ignoreConflict, CancellationToken token) {
+        if (token != null) token.throwIfCancelled("framework retrieval");
+        try {
+            Call call = newCall(method, path, body);
+            if (token != null) token.onCancel(call::cancel);
+            try (Response resp = call.execute()) {
+                return readResponse(resp, method, path, ignoreConflict);
             }
         } catch (IOException e) {
+            if (token != null && token.isCancelled()) throw new RequestCancelledException(token.reason(), "framework retrieval");
             throw new RuntimeException(e);
         }
     }
 
+    private CompletableFuture<JsonNode> requestAsync(String method, String path, Object body, CancellationToken token) {
+        Call call;
+        try {
+            call = newCall(method, path, body);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(new RuntimeException(e));
+        }
+        return AsyncCalls.enqueue(call, token, "framework retrieval",
+                resp -> readResponse(resp, method, path, false), RuntimeException::new);
+    }
+
+    private Call newCall(String method, String path, Object body) throws IOException {
+        Request.Builder b = new Request.Builder().url(baseUrl + path);
+        if (apiKey != null && !apiKey.isBlank()) {
+            b.addHeader("Authorization", "Bearer " + apiKey);
+        }
+        if (body != null) {
+            byte[] json = om.writeValueAsBytes(body);
+            b.method(method, RequestBody.create(json, JSON));
+        } else {
+            b.method(method, null);
+        }
+        return http.newCall(b.build());
+    }
+
+    private JsonNode readResponse(Response resp, String method, String path, boolean ignoreConflict) throws IOException {
+        String respBody = resp.body() != null ? resp.body().string() : "";
+        if (ignoreConflict && resp.code() == 409) {
+            return om.createObjectNode().put("ok", true);
+        }
+        if (!resp.isSuccessful()) {
+            throw new IOException("Weaviate " + method + " " + path + " failed: " + resp.code()
+                    + " body=" + respBody);
+        }
+        return respBody.isEmpty() ? om.createObjectNode() : om.readTree(respBody);
+    }
+
     private String orEmpty(String s) {
         return s == null ? "" : s;
     }
@@ -6,15 +6,19 @@ import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import jakarta.annotation.PostConstruct;
 import okhttp3.*;
+import org.learningjava.bmtool1.application.port.CancellationToken;
 import org.learningjava.bmtool1.application.port.VectorStorePort;
+import org.learningjava.bmtool1.application.port.RequestCancelledException;
 import org.learningjava.bmtool1.domain.model.pairs.BlockMapping;
 import org.learningjava.bmtool1.domain.model.pairs.RetrievalResult;
+import org.learningjava.bmtool1.infrastructure.adapter.out.http.AsyncCalls;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 
 public class WeaviateVectorStoreAdapter implements VectorStorePort {
 
@@ -23,11 +27,13 @@ public class WeaviateVectorStoreAdapter implements VectorStorePort {
 
 
     private static final MediaType JSON = MediaType.parse("application/json");
+    private static final int DELETE_CHUNK = 100;   // operands per where filter
 
     private final OkHttpClient http = new OkHttpClient.Builder()
             .connectTimeout(java.time.Duration.ofSeconds(5))
             .readTimeout(java.time.Duration.ofSeconds(5))
             .writeTimeout(java.time.Duration.ofSeconds(5))
+            .dispatcher(AsyncCalls.dispatcher())
             .build();
     private final ObjectMapper om = new ObjectMapper();
     private final String baseUrl;
@@ -184,8 +190,9 @@ public class WeaviateVectorStoreAdapter implements VectorStorePort {
 
             obj.set("properties", props);
 
-            // stable provider for deterministic upserts
-            String composite = m.pairId() + "|" + m.plsqlType() + "|" + m.javaType();
+            // stable provider for deterministic upserts; the snippets keep same-typed mappings of a pair apart
+            String composite = m.pairId() + "|" + m.plsqlType() + "|" + m.javaType()
+                    + "|" + m.plsqlSnippet() + "|" + m.javaSnippet();
             String stableId = UUID.nameUUIDFromBytes(composite.getBytes(StandardCharsets.UTF_8)).toString();
             obj.put("id", stableId);
 
@@ -199,8 +206,55 @@ public class WeaviateVectorStoreAdapter implements VectorStorePort {
         request("POST", "/v1/batch/objects", body, false);
     }
 
+    /** Batch delete by pairId, a chunk of ids per request. */
+    @Override
+    public void deleteMappings(Collection<String> pairIds) {
+        List<String> ids = List.copyOf(pairIds);
+        for (int from = 0; from < ids.size(); from += DELETE_CHUNK) {
+            List<String> chunk = ids.subList(from, Math.min(ids.size(), from + DELETE_CHUNK));
+            ArrayNode operands = om.createArrayNode();
+            for (String id : chunk) {
+                ObjectNode eq = om.createObjectNode();
+                eq.set("path", om.createArrayNode().add("pairId"));
+                eq.put("operator", "Equal");
+                eq.put("valueText", id);
+                operands.add(eq);
+            }
+            ObjectNode where = operands.size() == 1 ? (ObjectNode) operands.get(0) : om.createObjectNode();
+            if (operands.size() > 1) {
+                where.put("operator", "Or");
+                where.set("operands", operands);
+            }
+            ObjectNode match = om.createObjectNode();
+            match.put("class", className);
+            match.set("where", where);
+            ObjectNode body = om.createObjectNode();
+            body.set("match", match);
+
+            JsonNode res = request("DELETE", "/v1/batch/objects", body, false);
+            log.info("Deleted {} objects for {} pair(s)", res.path("results").path("successful").asInt(), chunk.size());
+        }
+    }
+
     @Override
     public List<RetrievalResult> query(String query, float[] queryVec, int k) {
+        return query(query, queryVec, k, null);
+    }
+
+    /** Cancelling {@code token} cancels the GraphQL call. */
+    @Override
+    public List<RetrievalResult> query(String query, float[] queryVec, int k, CancellationToken token) {
+        return toResults(request("POST", "/v1/graphql", nearVectorQuery(queryVec, k), false, token));
+    }
+
+    /** Enqueued on OkHttp's dispatcher; cancelling {@code token} or the future cancels the GraphQL call. */
+    @Override
+    public CompletableFuture<List<RetrievalResult>> queryAsync(String query, float[] queryVec, int k,
+                                                               CancellationToken token) {
+        return requestAsync("POST", "/v1/graphql", nearVectorQuery(queryVec, k), token).thenApply(this::toResults);
+    }
+
+    private ObjectNode nearVectorQuery(float[] queryVec, int k) {
         String vectorJson = toJsonArray(queryVec);
 
         String gqlQuery = """
@@ -222,9 +276,10 @@ public class WeaviateVectorStoreAdapter implements VectorStorePort {
 
         ObjectNode gqlBody = om.createObjectNode();
         gqlBody.put("query", gqlQuery);
+        return gqlBody;
+    }
 
-        JsonNode gql = request("POST", "/v1/graphql", gqlBody, false);
-
+    private List<RetrievalResult> toResults(JsonNode gql) {
         List<RetrievalResult> out = new ArrayList<>();
         JsonNode arr = gql.path("data").path("Get").path(className);
         if (arr.isArray()) {
@@ -273,31 +328,57 @@ public class WeaviateVectorStoreAdapter implements VectorStorePort {
     }
 
     private JsonNode request(String method, String path, Object body, boolean ignoreConflict) {
-        try {
-            Request.Builder b = new Request.Builder().url(baseUrl + path);
-            if (apiKey != null && !apiKey.isBlank()) {
-                b.addHeader("Authorization", "Bearer " + apiKey);
-            }
-            if (body != null) {
-                byte[] json = om.writeValueAsBytes(body);
-                b.method(method, RequestBody.create(json, JSON));
-            } else {
-                b.method(method, null);
-            }
+        return request(method, path, body, ignoreConflict, null);
+    }
 
-            try (Response resp = http.newCall(b.build()).execute()) {
-                String respBody = resp.body() != null ? resp.body().string() : "";
-                if (ignoreConflict && resp.code() == 409) {
-                    return om.createObjectNode().put("ok", true);
-                }
-                if (!resp.isSuccessful()) {
-                    throw new IOException("Weaviate " + method + " " + path + " failed: " + resp.code()
-                            + " body=" + respBody);
-                }
-                return respBody.isEmpty() ? om.createObjectNode() : om.readTree(respBody);
+    private JsonNode request(String method, String path, Object body, boolean ignoreConflict, CancellationToken token) {
+        if (token != null) token.throwIfCancelled("doc retrieval");
+        try {
+            Call call = newCall(method, path, body);
+            if (token != null) token.onCancel(call::cancel);
+            try (Response resp = call.execute()) {
+                return readResponse(resp, method, path, ignoreConflict);
             }
         } catch (IOException e) {
+            if (token != null && token.isCancelled()) throw new RequestCancelledException(token.reason(), "doc retrieval");
             throw new RuntimeException(e);
         }
     }
+
+    private CompletableFuture<JsonNode> requestAsync(String method, String path, Object body, CancellationToken token) {
+        Call call;
+        try {
+            call = newCall(method, path, body);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(new RuntimeException(e));
+        }
+        return AsyncCalls.enqueue(call, token, "doc retrieval",
+                resp -> readResponse(resp, method, path, false), RuntimeException::new);
+    }
+
+    private Call newCall(String method, String path, Object body) throws IOException {
+        Request.Builder b = new Request.Builder().url(baseUrl + path);
+        if (apiKey != null && !apiKey.isBlank()) {
+            b.addHeader("Authorization", "Bearer " + apiKey);
+        }
+        if (body != null) {
+            byte[] json = om.writeValueAsBytes(body);
+            b.method(method, RequestBody.create(json, JSON));
+        } else {
+            b.method(method, null);
+        }
+        return http.newCall(b.build());
+    }
+
+    private JsonNode readResponse(Response resp, String method, String path, boolean ignoreConflict) throws IOException {
+        String respBody = resp.body() != null ? resp.body().string() : "";
+        if (ignoreConflict && resp.code() == 409) {
+            return om.createObjectNode().put("ok", true);
+        }
+        if (!resp.isSuccessful()) {
+            throw new IOException("Weaviate " + method + " " + path + " failed: " + resp.code()
+                    + " body=" + respBody);
+        }
+        return respBody.isEmpty() ? om.createObjectNode() : om.readTree(respBody);
+    }
 }
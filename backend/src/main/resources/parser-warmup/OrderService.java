@@ -0,0 +1,73 @@
+// Parsed once at startup to warm the Java grammar's DFA cache; not compiled or ingested.
+package org.example.orders;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+public class OrderService {
+
+    private static final String STATUS_NEW = "NEW";
+    private final OrderRepository orders;
+    private int batchSize = 100;
+
+    public OrderService(OrderRepository orders) {
+        this.orders = orders;
+    }
+
+    public BigDecimal orderTotal(long orderId) {
+        BigDecimal total = BigDecimal.ZERO;
+        for (OrderLine line : orders.findLines(orderId)) {
+            total = total.add(line.unitPrice().multiply(BigDecimal.valueOf(line.quantity())));
+        }
+        return total;
+    }
+
+    public long createOrder(Long customerId) {
+        if (customerId == null) {
+            throw new IllegalArgumentException("Customer is required");
+        } else if (customerId < 0) {
+            throw new IllegalArgumentException("Invalid customer " + customerId);
+        }
+        long orderId = orders.nextId();
+        try {
+            orders.insert(new Order(orderId, customerId, STATUS_NEW, LocalDateTime.now()));
+        } catch (DuplicateKeyException e) {
+            orders.rollback();
+            throw e;
+        }
+        return orderId;
+    }
+
+    public int closeStaleOrders(int days) {
+        int count = 0;
+        List<Long> closed = new ArrayList<>();
+        for (Order o : orders.findOpen()) {
+            if (o.createdAt().isBefore(LocalDateTime.now().minusDays(days))) {
+                orders.updateStatus(o.id(), "CLOSED");
+                closed.add(o.id());
+                count++;
+            }
+        }
+        int i = 0;
+        while (i < closed.size() && i < batchSize) {
+            orders.deleteLines(closed.get(i));
+            i++;
+        }
+        switch (count) {
+            case 0:
+                break;
+            default:
+                orders.commit();
+        }
+        return count;
+    }
+
+    public Optional<Order> find(long id) {
+        Map<Long, Order> cache = orders.cache();
+        return Optional.ofNullable(cache.get(id));
+    }
+}
@@ -0,0 +1,82 @@
+-- Parsed once at startup to warm the PL/SQL grammar's DFA cache; not ingested.
+CREATE OR REPLACE PACKAGE BODY order_pkg AS
+
+  c_status_new  CONSTANT VARCHAR2(10) := 'NEW';
+  g_batch_size  PLS_INTEGER := 100;
+
+  CURSOR c_open_orders (p_customer_id IN NUMBER) IS
+    SELECT o.order_id, o.total_amount, o.created_at
+      FROM orders o
+     WHERE o.customer_id = p_customer_id
+       AND o.status IN ('NEW', 'PENDING')
+     ORDER BY o.created_at;
+
+  FUNCTION order_total (p_order_id IN NUMBER) RETURN NUMBER IS
+    v_total NUMBER := 0;
+  BEGIN
+    SELECT NVL(SUM(l.quantity * l.unit_price), 0)
+      INTO v_total
+      FROM order_lines l
+     WHERE l.order_id = p_order_id;
+    RETURN v_total;
+  EXCEPTION
+    WHEN NO_DATA_FOUND THEN
+      RETURN 0;
+  END order_total;
+
+  PROCEDURE create_order (p_customer_id IN NUMBER, p_order_id OUT NUMBER) IS
+    v_message VARCHAR2(200);
+  BEGIN
+    SELECT orders_seq.NEXTVAL INTO p_order_id FROM dual;
+
+    INSERT INTO orders (order_id, customer_id, status, created_at)
+    VALUES (p_order_id, p_customer_id, c_status_new, SYSDATE);
+
+    IF p_customer_id IS NULL THEN
+      v_message := 'Customer is required';
+      RAISE_APPLICATION_ERROR(-20001, v_message);
+    ELSIF p_customer_id < 0 THEN
+      v_message := 'Invalid customer ' || TO_CHAR(p_customer_id);
+      RAISE_APPLICATION_ERROR(-20002, v_message);
+    END IF;
+  EXCEPTION
+    WHEN DUP_VAL_ON_INDEX THEN
+      ROLLBACK;
+      RAISE;
+    WHEN OTHERS THEN
+      DBMS_OUTPUT.PUT_LINE('create_order failed: ' || SQLERRM);
+      RAISE;
+  END create_order;
+
+  PROCEDURE close_stale_orders (p_days IN NUMBER DEFAULT 30) IS
+    TYPE t_ids IS TABLE OF orders.order_id%TYPE;
+    v_ids   t_ids;
+    v_count PLS_INTEGER := 0;
+  BEGIN
+    FOR r IN c_open_orders(NULL) LOOP
+      IF r.created_at < SYSDATE - p_days THEN
+        UPDATE orders SET status = 'CLOSED' WHERE order_id = r.order_id;
+        v_count := v_count + 1;
+      END IF;
+    END LOOP;
+
+    SELECT order_id BULK COLLECT INTO v_ids
+      FROM orders
+     WHERE status = 'CLOSED'
+       AND ROWNUM <= g_batch_size;
+
+    FORALL i IN 1 .. v_ids.COUNT
+      DELETE FROM order_lines WHERE order_id = v_ids(i);
+
+    WHILE v_count > 0 LOOP
+      v_count := v_count - 1;
+    END LOOP;
+
+    CASE
+      WHEN v_ids.COUNT = 0 THEN NULL;
+      ELSE COMMIT;
+    END CASE;
+  END close_stale_orders;
+
+END order_pkg;
+/
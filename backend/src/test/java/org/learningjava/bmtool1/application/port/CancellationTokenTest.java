@@ -0,0 +1,69 @@
+package org.learningjava.bmtool1.application.port;
+
+import org.junit.jupiter.api.Test;
+import org.learningjava.bmtool1.application.port.CancellationToken.Reason;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CancellationTokenTest {
+
+    @Test
+    void deadline_cancelsItself_andRunsCallbacks() throws InterruptedException {
+        CountDownLatch aborted = new CountDownLatch(1);
+        try (CancellationToken token = CancellationToken.withDeadline(Duration.ofMillis(30))) {
+            token.onCancel(aborted::countDown);
+
+            assertTrue(aborted.await(2, TimeUnit.SECONDS));
+            assertEquals(Reason.DEADLINE_EXCEEDED, token.reason());
+            assertEquals(Duration.ZERO, token.remaining());
+            var ex = assertThrows(RequestCancelledException.class, () -> token.throwIfCancelled("embedding"));
+            assertTrue(ex.deadlineExceeded());
+            assertEquals("Deadline exceeded during embedding", ex.getMessage());
+        }
+    }
+
+    @Test
+    void close_releasesTheTimer_withoutCancelling() throws InterruptedException {
+        CancellationToken token = CancellationToken.withDeadline(Duration.ofMillis(30));
+        token.close();
+        Thread.sleep(80);
+
+        assertFalse(token.isCancelled());
+        assertDoesNotThrow(() -> token.throwIfCancelled("retrieval"));
+    }
+
+    @Test
+    void child_followsParent_butCanBeCancelledAlone() {
+        CancellationToken parent = new CancellationToken();
+        CancellationToken leg1 = parent.child();
+        CancellationToken leg2 = parent.child();
+
+        leg1.cancel();
+        assertTrue(leg1.isCancelled());
+        assertFalse(parent.isCancelled());
+        assertFalse(leg2.isCancelled());
+
+        parent.cancel(Reason.DEADLINE_EXCEEDED);
+        assertEquals(Reason.DEADLINE_EXCEEDED, leg2.reason());
+        assertEquals(Reason.CANCELLED, leg1.reason());   // first reason wins
+    }
+
+    @Test
+    void callbacks_runOnce_andLateRegistrationsRunImmediately() {
+        CancellationToken token = new CancellationToken();
+        AtomicInteger calls = new AtomicInteger();
+        token.onCancel(calls::incrementAndGet);
+
+        token.cancel();
+        token.cancel();
+        token.onCancel(calls::incrementAndGet);
+
+        assertEquals(2, calls.get());
+        assertNull(new CancellationToken().remaining());
+    }
+}
@@ -0,0 +1,121 @@
+package org.learningjava.bmtool1.application.usecase;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.learningjava.bmtool1.application.port.ExperimentStorePort;
+import org.learningjava.bmtool1.application.usecase.ExperimentWriteBehind.OverflowPolicy;
+import org.learningjava.bmtool1.domain.model.analytics.Experiment;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ExperimentWriteBehindTest {
+
+    private final ExperimentStorePort store = mock(ExperimentStorePort.class);
+    private ExperimentWriteBehind writeBehind;
+
+    @AfterEach
+    void tearDown() {
+        if (writeBehind != null) writeBehind.shutdown();
+    }
+
+    private static Experiment exp(String prompt) {
+        return new Experiment(null, LocalDate.of(2025, 10, 1), 1, 2, 3, 4, prompt,
+                "emb", "llm", null, 10.0, 0.1, 5, 6, 11, "RAG_STANDARD");
+    }
+
+    @Test
+    void disabled_writesSynchronouslyThroughUpsertBatch() {
+        writeBehind = new ExperimentWriteBehind(store, false, 10, 5, 1000, 1000, OverflowPolicy.CALLER_RUNS);
+
+        writeBehind.submit(exp("p1"));
+
+        verify(store).upsertBatch(List.of(exp("p1")));
+    }
+
+    @Test
+    void flushes_whenBatchSizeReached() {
+        writeBehind = new ExperimentWriteBehind(store, true, 10, 2, 60_000, 1000, OverflowPolicy.CALLER_RUNS);
+
+        writeBehind.submit(exp("p1"));
+        writeBehind.submit(exp("p2"));
+
+        verify(store, timeout(2000)).upsertBatch(List.of(exp("p1"), exp("p2")));
+    }
+
+    @Test
+    void flushes_partialBatch_whenIntervalElapses() {
+        writeBehind = new ExperimentWriteBehind(store, true, 10, 50, 100, 1000, OverflowPolicy.CALLER_RUNS);
+
+        writeBehind.submit(exp("only"));
+
+        verify(store, timeout(2000)).upsertBatch(List.of(exp("only")));
+    }
+
+    @Test
+    void shutdown_drainsPendingRows() {
+        writeBehind = new ExperimentWriteBehind(store, true, 10, 50, 60_000, 5000, OverflowPolicy.CALLER_RUNS);
+
+        writeBehind.submit(exp("a"));
+        writeBehind.submit(exp("b"));
+        writeBehind.shutdown();
+
+        verify(store, atLeastOnce()).upsertBatch(anyList());
+        assertEquals(0, writeBehind.pending());
+    }
+
+    @Test
+    void storeFailure_isSwallowed() {
+        when(store.upsertBatch(anyList())).thenThrow(new RuntimeException("db down"));
+        writeBehind = new ExperimentWriteBehind(store, false, 10, 5, 1000, 1000, OverflowPolicy.CALLER_RUNS);
+
+        assertDoesNotThrow(() -> writeBehind.submit(exp("p1")));
+    }
+
+    @Test
+    void overflow_dropNewest_countsDroppedRows() throws Exception {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(store.upsertBatch(anyList())).thenAnswer(inv -> {
+            entered.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return List.of(1L);
+        });
+        writeBehind = new ExperimentWriteBehind(store, true, 1, 1, 60_000, 5000, OverflowPolicy.DROP_NEWEST);
+
+        writeBehind.submit(exp("in-flight"));
+        assertTrue(entered.await(2, TimeUnit.SECONDS));   // flusher is now blocked in the store
+        writeBehind.submit(exp("queued"));                // fills the single slot
+        writeBehind.submit(exp("dropped"));               // overflow
+
+        assertEquals(1, writeBehind.droppedCount());
+        release.countDown();
+    }
+
+    @Test
+    void overflow_callerRuns_writesOnSubmittingThread() throws Exception {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(store.upsertBatch(argThat(l -> l != null && l.contains(exp("in-flight"))))).thenAnswer(inv -> {
+            entered.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return List.of(1L);
+        });
+        writeBehind = new ExperimentWriteBehind(store, true, 1, 1, 60_000, 5000, OverflowPolicy.CALLER_RUNS);
+
+        writeBehind.submit(exp("in-flight"));
+        assertTrue(entered.await(2, TimeUnit.SECONDS));
+        writeBehind.submit(exp("queued"));
+        writeBehind.submit(exp("overflow"));
+
+        verify(store).upsertBatch(List.of(exp("overflow")));
+        assertEquals(0, writeBehind.droppedCount());
+        release.countDown();
+    }
+}
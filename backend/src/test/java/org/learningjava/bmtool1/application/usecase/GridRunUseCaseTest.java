@@ -0,0 +1,147 @@
+package org.learningjava.bmtool1.application.usecase;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.learningjava.bmtool1.application.port.ChatLLMPort;
+import org.learningjava.bmtool1.application.usecase.GridRunUseCase.GridSpec;
+import org.learningjava.bmtool1.application.usecase.GridRunUseCase.KPair;
+import org.learningjava.bmtool1.config.GridProperties;
+import org.learningjava.bmtool1.domain.model.query.Answer;
+import org.learningjava.bmtool1.domain.model.query.RetrievedContext;
+import org.learningjava.bmtool1.domain.service.ChatRegistry;
+import org.learningjava.bmtool1.domain.service.prompting.PromptingTechnique;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class GridRunUseCaseTest {
+
+    private Orchestrator orchestrator;
+    private ChatRegistry registry;
+    private GridProperties props;
+    private GridRunUseCase useCase;
+
+    @BeforeEach
+    void setUp() {
+        orchestrator = mock(Orchestrator.class);
+        ChatLLMPort ollama = mock(ChatLLMPort.class);
+        when(ollama.provider()).thenReturn("ollama");
+        ChatLLMPort openrouter = mock(ChatLLMPort.class);
+        when(openrouter.provider()).thenReturn("openrouter");
+        registry = new ChatRegistry(List.of(ollama, openrouter));
+        props = new GridProperties();
+
+        when(orchestrator.embed(anyString())).thenReturn(new float[]{1f, 0f});
+        when(orchestrator.retrieveDocs(anyString(), any(), anyInt())).thenReturn(List.of());
+        when(orchestrator.retrieveFramework(anyString(), any(), anyInt(), any())).thenReturn(List.of());
+        when(orchestrator.answer(any(), any(), anyString(), anyString(), anyString(), any()))
+                .thenReturn(new Answer("ok", List.of(), List.of()));
+
+        useCase = new GridRunUseCase(orchestrator, registry, props);
+    }
+
+    private static GridSpec spec(List<String> questions, Map<String, List<String>> models, List<KPair> kPairs) {
+        return new GridSpec(questions, models,
+                List.of(PromptingTechnique.RAG_STANDARD, PromptingTechnique.ZERO_SHOT),
+                kPairs, "nomic", List.of());
+    }
+
+    @Test
+    void embedsOncePerQuestion_andRetrievesOncePerDistinctK() {
+        var s = spec(List.of("q1", "q2"),
+                Map.of("ollama", List.of("llama3", "mistral"), "openrouter", List.of("gpt")),
+                List.of(new KPair(6, 6), new KPair(6, 12), new KPair(3, 6)));
+
+        var result = useCase.run(s, null);
+
+        assertEquals(s.cellCount(), result.total());
+        assertEquals(s.cellCount(), result.succeeded());
+        assertEquals(2, result.embeddings());
+        verify(orchestrator, times(2)).embed(anyString());
+        verify(orchestrator, times(4)).retrieveDocs(anyString(), any(), anyInt());        // kDocs {6,3} × 2
+        verify(orchestrator, times(4)).retrieveFramework(anyString(), any(), anyInt(), any()); // kFw {6,12} × 2
+        verify(orchestrator, times(s.cellCount())).answer(any(), any(), anyString(), anyString(), eq("nomic"), any());
+    }
+
+    @Test
+    void respectsPerProviderConcurrency() {
+        props.setDefaultConcurrency(1);
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxSeen = new AtomicInteger();
+        when(orchestrator.answer(any(), any(), eq("ollama"), anyString(), anyString(), any())).thenAnswer(inv -> {
+            int now = inFlight.incrementAndGet();
+            maxSeen.accumulateAndGet(now, Math::max);
+            Thread.sleep(20);
+            inFlight.decrementAndGet();
+            return new Answer("ok", List.of(), List.of());
+        });
+
+        useCase.run(spec(List.of("q1", "q2"), Map.of("ollama", List.of("a", "b")), List.of(new KPair(6, 6))), null);
+
+        assertEquals(1, maxSeen.get());
+    }
+
+    @Test
+    void failingCell_isReported_andOthersContinue() {
+        when(orchestrator.answer(any(), any(), anyString(), eq("broken"), anyString(), any()))
+                .thenThrow(new IllegalStateException("HTTP 500"));
+
+        var result = useCase.run(spec(List.of("q1"), Map.of("ollama", List.of("llama3", "broken")),
+                List.of(new KPair(6, 6))), null);
+
+        assertEquals(4, result.total());
+        assertEquals(2, result.succeeded());
+        assertEquals(2, result.failed());
+        assertTrue(result.cells().stream().filter(c -> !c.ok()).allMatch(c -> c.error().contains("HTTP 500")));
+    }
+
+    @Test
+    void retrievalFailure_failsOnlyThatQuestionsCells() {
+        when(orchestrator.embed("bad")).thenThrow(new IllegalStateException("embedding down"));
+
+        var result = useCase.run(spec(List.of("bad", "good"), Map.of("ollama", List.of("llama3")),
+                List.of(new KPair(6, 6))), null);
+
+        assertEquals(2, result.succeeded());
+        assertEquals(2, result.failed());
+    }
+
+    @Test
+    void reportsProgressForEveryCell() {
+        List<Integer> seen = Collections.synchronizedList(new ArrayList<>());
+        var s = spec(List.of("q1"), Map.of("openrouter", List.of("gpt")), List.of(new KPair(6, 6), new KPair(3, 3)));
+
+        useCase.run(s, (done, total, msg) -> {
+            assertEquals(s.cellCount(), total);
+            seen.add(done);
+        });
+
+        assertEquals(s.cellCount(), seen.size());
+        assertTrue(seen.contains(s.cellCount()));
+    }
+
+    @Test
+    void rejectsUnknownProvider_andEmptyDimensions() {
+        assertThrows(IllegalArgumentException.class, () ->
+                useCase.run(spec(List.of("q"), Map.of("nope", List.of("m")), List.of(new KPair(1, 1))), null));
+        assertThrows(IllegalArgumentException.class, () ->
+                useCase.run(spec(List.of(), Map.of("ollama", List.of("m")), List.of(new KPair(1, 1))), null));
+        verifyNoInteractions(orchestrator);
+    }
+
+    @Test
+    void contextCarriesRequestedKValues() {
+        useCase.run(spec(List.of("q1"), Map.of("ollama", List.of("m")), List.of(new KPair(4, 9))), null);
+
+        verify(orchestrator, atLeastOnce()).answer(any(),
+                argThat((RetrievedContext c) -> c.kDocs() == 4 && c.kFramework() == 9),
+                eq("ollama"), eq("m"), anyString(), any());
+    }
+}
@@ -4,16 +4,29 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.learningjava.bmtool1.application.port.BlockExtractorPort;
 import org.learningjava.bmtool1.application.port.EmbeddingPort;
+import org.learningjava.bmtool1.application.port.PairManifestPort;
 import org.learningjava.bmtool1.application.port.PairReaderPort;
+import org.learningjava.bmtool1.application.port.ProgressListener;
 import org.learningjava.bmtool1.application.port.VectorStorePort;
 import org.learningjava.bmtool1.domain.model.pairs.Block;
 import org.learningjava.bmtool1.domain.model.pairs.BlockMapping;
 import org.learningjava.bmtool1.domain.model.pairs.PairId;
 import org.learningjava.bmtool1.domain.model.pairs.SourcePair;
 import org.learningjava.bmtool1.domain.service.ingest.BlockMapper;
+import org.mockito.ArgumentCaptor;
 
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -142,4 +155,323 @@ class IngestPairsUseCaseTest {
         verify(embedding, times(2)).embed(anyString());
         verify(store, times(1)).upsertMappings(eq(out), anyList());
     }
+
+    @Test
+    void parallel_keepsDiscoveryOrder_andSkipsAFailingPair() throws Exception {
+        var parallel = new IngestPairsUseCase(pairReader, plsqlExtractor, javaExtractor, mapper, store, embedding, 4);
+        List<SourcePair> pairs = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            pairs.add(new SourcePair(new PairId("id-" + i), i + ".sql", i + ".java"));
+            var pb = new Block("CONDITION", "P" + i, i + ".sql");
+            var jb = new Block("METHOD", "J" + i, i + ".java");
+            int delay = (8 - i) * 10; // early pairs finish last
+            when(plsqlExtractor.extract(Path.of(i + ".sql"))).thenAnswer(inv -> {
+                Thread.sleep(delay);
+                return List.of(pb);
+            });
+            when(javaExtractor.extract(Path.of(i + ".java"))).thenReturn(List.of(jb));
+            when(mapper.map(List.of(pb), List.of(jb))).thenReturn(List.of(
+                    new BlockMapping("m" + i, "pair" + i, pb.text(), jb.text(), pb.type(), jb.type(), null)));
+        }
+        when(plsqlExtractor.extract(Path.of("3.sql"))).thenThrow(new RuntimeException("parser boom"));
+        when(pairReader.discoverPairs("root")).thenReturn(pairs);
+        when(embedding.embed(anyString())).thenReturn(new float[]{0.3f});
+
+        List<BlockMapping> out = parallel.ingestDirectory("root");
+
+        assertEquals(List.of("pair0", "pair1", "pair2", "pair4", "pair5", "pair6", "pair7"),
+                out.stream().map(BlockMapping::pairName).toList());
+        assertEquals("id-0", out.get(0).pairId());
+        verify(store, times(1)).upsertMappings(eq(out), anyList());
+    }
+
+    @Test
+    void parallel_failsWhenEveryPairFails() throws Exception {
+        var parallel = new IngestPairsUseCase(pairReader, plsqlExtractor, javaExtractor, mapper, store, embedding, 4);
+        when(pairReader.discoverPairs("root")).thenReturn(List.of(
+                new SourcePair(new PairId("id-1"), "a.sql", "A.java"),
+                new SourcePair(new PairId("id-2"), "b.sql", "B.java")));
+        when(plsqlExtractor.extract(any())).thenThrow(new RuntimeException("parser boom"));
+
+        var ex = assertThrows(RuntimeException.class, () -> parallel.ingestDirectory("root"));
+        assertEquals("parser boom", ex.getMessage());
+        verifyNoInteractions(store, embedding);
+    }
+
+    @Test
+    void pipeline_storesInBatches_inOrder_andReportsEveryStage() throws Exception {
+        var streaming = new IngestPairsUseCase(pairReader, plsqlExtractor, javaExtractor, mapper, store, embedding,
+                2, 3, 4, 2, null);
+        List<SourcePair> pairs = stubPairs(5);
+        when(pairReader.discoverPairs("root")).thenReturn(pairs);
+        when(embedding.embed(anyString())).thenReturn(new float[]{0.3f});
+        List<String> progress = new CopyOnWriteArrayList<>();
+
+        var report = streaming.ingestDirectory("root", (done, total, message) -> progress.add(message));
+
+        var batches = ArgumentCaptor.forClass(List.class);
+        verify(store, times(3)).upsertMappings(batches.capture(), anyList());
+        assertEquals(List.of(List.of("id-0", "id-1"), List.of("id-2", "id-3"), List.of("id-4")),
+                batches.getAllValues().stream().map(b -> ((List<?>) b).stream()
+                        .map(m -> ((BlockMapping) m).pairId()).toList()).toList());
+        verify(store, times(1)).ensureSchema();
+
+        assertEquals(5, report.mappings());
+        assertEquals(3, report.batches());
+        assertEquals(List.of("parse", "embed", "upsert"), report.stages().stream().map(IngestPairsUseCase.StageStats::stage).toList());
+        assertTrue(report.stages().stream().allMatch(st -> st.items() == 5));
+        assertTrue(progress.stream().anyMatch(m -> m.contains("stored 5 mappings")), progress.toString());
+    }
+
+    @Test
+    void pipeline_parsingWaitsForSlowEmbedding_insteadOfBufferingTheCorpus() throws Exception {
+        var streaming = new IngestPairsUseCase(pairReader, plsqlExtractor, javaExtractor, mapper, store, embedding,
+                1, 1, 2, 1, null);
+        List<SourcePair> pairs = stubPairs(10);
+        when(pairReader.discoverPairs("root")).thenReturn(pairs);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger parsed = new AtomicInteger();
+        when(javaExtractor.extract(any())).thenAnswer(inv -> {
+            parsed.incrementAndGet();
+            return List.of(new Block("METHOD", "J", "x.java"));
+        });
+        when(embedding.embed(anyString())).thenAnswer(inv -> {
+            assertTrue(release.await(5, TimeUnit.SECONDS));
+            return new float[]{0.3f};
+        });
+
+        CompletableFuture<IngestPairsUseCase.IngestReport> run = CompletableFuture.supplyAsync(() -> {
+            try {
+                return streaming.ingestDirectory("root", ProgressListener.NONE);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        Thread.sleep(300);
+        // one mapping in the writer, two queued, one blocked on put
+        assertTrue(parsed.get() <= 4, "parsed " + parsed.get() + " pairs ahead of a stalled embedder");
+
+        release.countDown();
+        assertEquals(10, run.get(5, TimeUnit.SECONDS).mappings());
+    }
+
+    @Test
+    void pipeline_embeddingFailure_failsTheIngest() throws Exception {
+        var streaming = new IngestPairsUseCase(pairReader, plsqlExtractor, javaExtractor, mapper, store, embedding,
+                2, 2, 4, 2, null);
+        List<SourcePair> pairs = stubPairs(6);
+        when(pairReader.discoverPairs("root")).thenReturn(pairs);
+        when(embedding.embed(anyString())).thenThrow(new IllegalStateException("ollama down"));
+
+        var ex = assertThrows(IllegalStateException.class, () -> streaming.ingestDirectory("root", ProgressListener.NONE));
+        assertEquals("ollama down", ex.getMessage());
+        verify(store, never()).upsertMappings(anyList(), anyList());
+    }
+
+    @Test
+    void incremental_secondRunWithUnchangedContent_doesNoWork() throws Exception {
+        var manifest = new InMemoryManifest();
+        var incremental = incremental(manifest);
+        List<SourcePair> pairs = stubPairs(3);
+        when(pairReader.discoverPairs("root")).thenReturn(pairs);
+        when(pairReader.contentHash(any())).thenAnswer(inv -> "h-" + ((SourcePair) inv.getArgument(0)).id().value());
+        when(embedding.embed(anyString())).thenReturn(new float[]{0.3f});
+
+        var first = incremental.ingestChanges("root", ProgressListener.NONE);
+        assertEquals(3, first.mappings());
+        assertEquals(3, manifest.entries.size());
+        assertEquals(1, manifest.entries.get(scoped("id-2")).mappings());
+
+        clearInvocations(store, embedding, plsqlExtractor);
+        var second = incremental.ingestChanges("root", ProgressListener.NONE);
+
+        assertEquals(3, second.unchangedPairs());
+        assertEquals(0, second.mappings());
+        verifyNoInteractions(store, embedding);
+        verify(plsqlExtractor, never()).extract(any(Path.class));
+    }
+
+    @Test
+    void incremental_reprocessesChangedPairs_andDeletesVanishedOnes() throws Exception {
+        var manifest = new InMemoryManifest();
+        var incremental = incremental(manifest);
+        String version = incremental.mappingVersion();
+        manifest.add(new PairManifestPort.Entry(scoped("id-0"), "0.sql", "0.java", "old-fp", "old", 2, version));
+        manifest.add(new PairManifestPort.Entry(scoped("id-1"), "1.sql", "1.java", "fp-1", "h-1", 1, version));
+        manifest.add(new PairManifestPort.Entry(scoped("id-9"), "9.sql", "9.java", "fp-9", "h-9", 4, version));
+        List<SourcePair> pairs = stubPairs(2);
+        when(pairReader.discoverPairs("root")).thenReturn(pairs);
+        when(pairReader.fingerprint(any())).thenAnswer(inv -> fingerprint(inv.getArgument(0)));
+        when(pairReader.contentHash(any())).thenReturn("new");
+        when(embedding.embed(anyString())).thenReturn(new float[]{0.3f});
+
+        var report = incremental.ingestChanges("root", ProgressListener.NONE);
+
+        assertEquals(1, report.unchangedPairs());
+        assertEquals(1, report.deletedPairs());
+        assertEquals(1, report.mappings());
+        var order = inOrder(store);
+        order.verify(store).deleteMappings(List.of(scoped("id-9")));
+        order.verify(store).deleteMappings(List.of(scoped("id-0")));
+        order.verify(store).upsertMappings(anyList(), anyList());
+        verify(plsqlExtractor, never()).extract(Path.of("1.sql"));
+        assertEquals(Set.of(scoped("id-0"), scoped("id-1")), manifest.entries.keySet());
+        assertEquals("new", manifest.entries.get(scoped("id-0")).contentHash());
+        assertEquals(1, manifest.entries.get(scoped("id-0")).mappings());
+    }
+
+    @Test
+    void incremental_changedPairThatFailsToParse_keepsItsOldMappings() throws Exception {
+        var manifest = new InMemoryManifest();
+        var incremental = incremental(manifest);
+        var old = new PairManifestPort.Entry(scoped("id-1"), "1.sql", "1.java", "old-fp", "old", 3,
+                incremental.mappingVersion());
+        manifest.add(old);
+        List<SourcePair> pairs = stubPairs(2);
+        when(pairReader.discoverPairs("root")).thenReturn(pairs);
+        when(pairReader.contentHash(any())).thenReturn("new");
+        when(plsqlExtractor.extract(Path.of("1.sql"))).thenThrow(new RuntimeException("parser boom"));
+        when(embedding.embed(anyString())).thenReturn(new float[]{0.3f});
+
+        var report = incremental.ingestChanges("root", ProgressListener.NONE);
+
+        assertEquals(1, report.failedPairs());
+        verify(store, never()).deleteMappings(anyCollection());
+        assertEquals(old, manifest.entries.get(scoped("id-1")));
+    }
+
+    @Test
+    void incremental_newRulesOrExtractors_remapPairsWhoseContentIsUnchanged() throws Exception {
+        var manifest = new InMemoryManifest();
+        manifest.add(new PairManifestPort.Entry(scoped("id-0"), "0.sql", "0.java", "fp-0", "h", 1, "rules:old"));
+        List<SourcePair> pairs = stubPairs(1);
+        when(pairReader.discoverPairs("root")).thenReturn(pairs);
+        when(pairReader.fingerprint(any())).thenAnswer(inv -> fingerprint(inv.getArgument(0)));
+        when(pairReader.contentHash(any())).thenReturn("h");
+        when(embedding.embed(anyString())).thenReturn(new float[]{0.3f});
+        var incremental = incremental(manifest);
+
+        var report = incremental.ingestChanges("root", ProgressListener.NONE);
+
+        assertEquals(0, report.unchangedPairs());
+        assertEquals(1, report.mappings());
+        verify(store).deleteMappings(List.of(scoped("id-0")));
+        assertEquals(incremental.mappingVersion(), manifest.entries.get(scoped("id-0")).mappingVersion());
+    }
+
+    @Test
+    void incremental_scopesPairIdsByRoot_soRootsNeverShareMappings() throws Exception {
+        List<SourcePair> pairs = stubPairs(1);
+        when(pairReader.discoverPairs(anyString())).thenReturn(pairs);
+        when(pairReader.contentHash(any())).thenReturn("h");
+        when(embedding.embed(anyString())).thenReturn(new float[]{0.3f});
+        ArgumentCaptor<List<BlockMapping>> stored = ArgumentCaptor.forClass(List.class);
+
+        incremental(new InMemoryManifest()).ingestChanges("root", ProgressListener.NONE);
+        incremental(new InMemoryManifest()).ingestChanges("other", ProgressListener.NONE);
+
+        verify(store, times(2)).upsertMappings(stored.capture(), anyList());
+        assertEquals(scoped("id-0"), stored.getAllValues().get(0).get(0).pairId());
+        assertNotEquals(scoped("id-0"), stored.getAllValues().get(1).get(0).pairId());
+    }
+
+    @Test
+    void incremental_failedPair_isNotRecorded_soTheNextRunRetriesIt() throws Exception {
+        var manifest = new InMemoryManifest();
+        List<SourcePair> pairs = stubPairs(2);
+        when(pairReader.discoverPairs("root")).thenReturn(pairs);
+        when(pairReader.contentHash(any())).thenReturn("h");
+        when(plsqlExtractor.extract(Path.of("1.sql"))).thenThrow(new RuntimeException("parser boom"));
+        when(embedding.embed(anyString())).thenReturn(new float[]{0.3f});
+
+        var report = incremental(manifest).ingestChanges("root", ProgressListener.NONE);
+
+        assertEquals(1, report.failedPairs());
+        assertEquals(Set.of(scoped("id-0")), manifest.entries.keySet());
+    }
+
+    @Test
+    void incremental_nothingDiscoveredOrKnown_isNoPairsFound() {
+        when(pairReader.discoverPairs("root")).thenReturn(List.of());
+
+        assertThrows(IngestPairsUseCase.NoPairsFoundException.class,
+                () -> incremental(new InMemoryManifest()).ingestChanges("root", ProgressListener.NONE));
+        verifyNoInteractions(store, embedding);
+    }
+
+    @Test
+    void ingestPairs_handsInMemorySourcesToTheExtractors_asBytes() throws Exception {
+        PairReaderPort archive = mock(PairReaderPort.class);
+        byte[] sql = "BEGIN NULL; END;".getBytes();
+        byte[] java = "class A {}".getBytes();
+        when(archive.discoverPairs("up.zip")).thenReturn(List.of(new SourcePair(new PairId("id-1"), "db/a.sql", "src/a.java")));
+        when(archive.content("db/a.sql")).thenReturn(sql);
+        when(archive.content("src/a.java")).thenReturn(java);
+
+        var pb = new Block("CONDITION", "P", "db/a.sql");
+        var jb = new Block("METHOD", "J", "src/a.java");
+        when(plsqlExtractor.extract("db/a.sql", sql)).thenReturn(List.of(pb));
+        when(javaExtractor.extract("src/a.java", java)).thenReturn(List.of(jb));
+        when(mapper.map(List.of(pb), List.of(jb))).thenReturn(List.of(
+                new BlockMapping("m", "a", pb.text(), jb.text(), pb.type(), jb.type(), null)));
+        when(embedding.embed(anyString())).thenReturn(new float[]{0.1f});
+
+        var report = useCase.ingestPairs(archive, "up.zip", ProgressListener.NONE);
+
+        assertEquals(1, report.mappings());
+        verify(plsqlExtractor, never()).extract(any(Path.class));
+        verifyNoInteractions(pairReader);
+    }
+
+    private IngestPairsUseCase incremental(PairManifestPort manifest) {
+        return new IngestPairsUseCase(pairReader, plsqlExtractor, javaExtractor, mapper, store, embedding,
+                2, 2, 8, 4, manifest);
+    }
+
+    /** {@code id} as an incremental ingest of {@code root} keys it. */
+    private static String scoped(String id) {
+        return new PairId(id).within(Path.of("root").toAbsolutePath().normalize().toString()).value();
+    }
+
+    private static String fingerprint(SourcePair p) {
+        return "fp-" + p.plsqlPath().replace(".sql", "");
+    }
+
+    private static final class InMemoryManifest implements PairManifestPort {
+        final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+        void add(Entry entry) {
+            entries.put(entry.pairId(), entry);
+        }
+
+        @Override
+        public Map<String, Entry> load(String scope) {
+            return Map.copyOf(entries);
+        }
+
+        @Override
+        public void put(String scope, Entry entry) {
+            entries.put(entry.pairId(), entry);
+        }
+
+        @Override
+        public void remove(String scope, Collection<String> pairIds) {
+            pairIds.forEach(entries::remove);
+        }
+    }
+
+    /** Pairs i.sql/i.java (id-i), each yielding one mapping. */
+    private List<SourcePair> stubPairs(int n) throws Exception {
+        List<SourcePair> pairs = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            pairs.add(new SourcePair(new PairId("id-" + i), i + ".sql", i + ".java"));
+            var pb = new Block("CONDITION", "P" + i, i + ".sql");
+            var jb = new Block("METHOD", "J" + i, i + ".java");
+            when(plsqlExtractor.extract(Path.of(i + ".sql"))).thenReturn(List.of(pb));
+            when(javaExtractor.extract(Path.of(i + ".java"))).thenReturn(List.of(jb));
+            when(mapper.map(eq(List.of(pb)), anyList())).thenReturn(List.of(
+                    new BlockMapping("m" + i, "pair" + i, pb.text(), jb.text(), pb.type(), jb.type(), null)));
+        }
+        return pairs;
+    }
 }
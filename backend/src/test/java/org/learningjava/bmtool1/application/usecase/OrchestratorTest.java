@@ -0,0 +1,62 @@
+package org.learningjava.bmtool1.application.usecase;
+
+import org.junit.jupiter.api.Test;
+import org.learningjava.bmtool1.application.port.ChatLLMPort;
+import org.learningjava.bmtool1.application.port.EmbeddingPort;
+import org.learningjava.bmtool1.application.port.FrameworkStorePort;
+import org.learningjava.bmtool1.application.port.VectorStorePort;
+import org.learningjava.bmtool1.config.ModelContextWindows;
+import org.learningjava.bmtool1.domain.model.analytics.Experiment;
+import org.learningjava.bmtool1.domain.model.query.Answer;
+import org.learningjava.bmtool1.domain.model.query.Query;
+import org.learningjava.bmtool1.domain.service.ChatRegistry;
+import org.learningjava.bmtool1.domain.service.cache.SemanticAnswerCache;
+import org.learningjava.bmtool1.domain.service.cache.SemanticAnswerCache.Scope;
+import org.learningjava.bmtool1.domain.service.co2.CarbonEstimator;
+import org.learningjava.bmtool1.domain.service.llm.HedgedChatService;
+import org.learningjava.bmtool1.domain.service.prompting.PromptBuilder;
+import org.learningjava.bmtool1.domain.service.prompting.PromptingTechnique;
+import org.learningjava.bmtool1.domain.service.tokens.TokenizerRegistry;
+import org.mockito.ArgumentCaptor;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class OrchestratorTest {
+
+    @Test
+    void semanticCacheHit_isRecordedAsAHit_withoutTokensOrCo2() {
+        EmbeddingPort embedding = mock(EmbeddingPort.class);
+        VectorStorePort docStore = mock(VectorStorePort.class);
+        FrameworkStorePort fwStore = mock(FrameworkStorePort.class);
+        ChatRegistry chats = mock(ChatRegistry.class);
+        ChatLLMPort chat = mock(ChatLLMPort.class);
+        ExperimentWriteBehind experiments = mock(ExperimentWriteBehind.class);
+        CarbonEstimator carbon = mock(CarbonEstimator.class);
+        SemanticAnswerCache cache = new SemanticAnswerCache(true, 0.05, Duration.ofHours(1), 10);
+        when(chats.get("ollama")).thenReturn(chat);
+        when(embedding.embed(eq("how do I map a cursor?"), any())).thenReturn(new float[]{1f, 0f});
+        cache.put(new Scope("ollama", "llama3", "nomic", PromptingTechnique.RAG_STANDARD.name(), 6, 3, List.of()),
+                new float[]{1f, 0f}, new Answer("cached answer", List.of(), List.of()));
+
+        Orchestrator orchestrator = new Orchestrator(embedding, docStore, fwStore, chats, mock(PromptBuilder.class),
+                experiments, carbon, cache, mock(HedgedChatService.class), mock(ModelContextWindows.class),
+                mock(TokenizerRegistry.class));
+
+        Answer answer = orchestrator.askWithFramework(new Query("how do I map a cursor?"), 6, 3, "ollama", "llama3",
+                "nomic", List.of(), PromptingTechnique.RAG_STANDARD);
+
+        assertEquals("cached answer", answer.text());
+        ArgumentCaptor<Experiment> row = ArgumentCaptor.forClass(Experiment.class);
+        verify(experiments).submit(row.capture());
+        assertTrue(row.getValue().cacheHit());
+        assertEquals(0.0, row.getValue().metric3Co2G());
+        assertNull(row.getValue().metric4PromptTok());
+        verifyNoInteractions(docStore, fwStore, carbon);
+        verify(chat, never()).chatWithUsage(anyString(), anyString(), any());
+    }
+}
@@ -0,0 +1,108 @@
+package org.learningjava.bmtool1.domain.service.cache;
+
+import org.junit.jupiter.api.Test;
+import org.learningjava.bmtool1.domain.model.query.Answer;
+import org.learningjava.bmtool1.domain.service.cache.SemanticAnswerCache.Scope;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SemanticAnswerCacheTest {
+
+    private static final Scope SCOPE =
+            new Scope("ollama", "llama3", "nomic", "RAG_STANDARD", 6, 6, List.of("b", "a"));
+
+    /** Mutable clock so TTL can be exercised without sleeping. */
+    private static final class TestClock extends Clock {
+        Instant now = Instant.parse("2025-10-15T10:00:00Z");
+        @Override public ZoneId getZone() { return ZoneOffset.UTC; }
+        @Override public Clock withZone(ZoneId zone) { return this; }
+        @Override public Instant instant() { return now; }
+    }
+
+    private static Answer answer(String text) {
+        return new Answer(text, List.of(), List.of());
+    }
+
+    @Test
+    void nearParaphrase_withinDistance_hits() {
+        var cache = new SemanticAnswerCache(true, 0.05, Duration.ofHours(1), 10, new TestClock());
+        cache.put(SCOPE, new float[]{1f, 0f, 0f}, answer("cached"));
+
+        var hit = cache.lookup(SCOPE, new float[]{2f, 0.1f, 0f}); // same direction, different norm
+
+        assertTrue(hit.isPresent());
+        assertEquals("cached", hit.get().answer().text());
+        assertTrue(hit.get().distance() < 0.01);
+    }
+
+    @Test
+    void distantQuery_misses() {
+        var cache = new SemanticAnswerCache(true, 0.05, Duration.ofHours(1), 10, new TestClock());
+        cache.put(SCOPE, new float[]{1f, 0f, 0f}, answer("cached"));
+
+        assertTrue(cache.lookup(SCOPE, new float[]{0.7f, 0.7f, 0f}).isEmpty());
+    }
+
+    @Test
+    void differentScope_misses_butTagOrderDoesNotMatter() {
+        var cache = new SemanticAnswerCache(true, 0.05, Duration.ofHours(1), 10, new TestClock());
+        cache.put(SCOPE, new float[]{1f, 0f}, answer("cached"));
+
+        var otherModel = new Scope("ollama", "mistral", "nomic", "RAG_STANDARD", 6, 6, List.of("a", "b"));
+        var otherK = new Scope("ollama", "llama3", "nomic", "RAG_STANDARD", 3, 6, List.of("a", "b"));
+        var reordered = new Scope("ollama", "llama3", "nomic", "RAG_STANDARD", 6, 6, List.of("a", "b"));
+
+        assertTrue(cache.lookup(otherModel, new float[]{1f, 0f}).isEmpty());
+        assertTrue(cache.lookup(otherK, new float[]{1f, 0f}).isEmpty());
+        assertTrue(cache.lookup(reordered, new float[]{1f, 0f}).isPresent());
+    }
+
+    @Test
+    void returnsClosestOfSeveralCandidates() {
+        var cache = new SemanticAnswerCache(true, 0.2, Duration.ofHours(1), 10, new TestClock());
+        cache.put(SCOPE, new float[]{1f, 0.3f}, answer("far"));
+        cache.put(SCOPE, new float[]{1f, 0.05f}, answer("near"));
+
+        assertEquals("near", cache.lookup(SCOPE, new float[]{1f, 0f}).orElseThrow().answer().text());
+    }
+
+    @Test
+    void expiredEntries_areIgnored() {
+        var clock = new TestClock();
+        var cache = new SemanticAnswerCache(true, 0.05, Duration.ofMinutes(10), 10, clock);
+        cache.put(SCOPE, new float[]{1f, 0f}, answer("cached"));
+
+        clock.now = clock.now.plus(Duration.ofMinutes(11));
+
+        assertTrue(cache.lookup(SCOPE, new float[]{1f, 0f}).isEmpty());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void evictsOldest_whenFull() {
+        var cache = new SemanticAnswerCache(true, 0.01, Duration.ofHours(1), 2, new TestClock());
+        cache.put(SCOPE, new float[]{1f, 0f, 0f}, answer("x"));
+        cache.put(SCOPE, new float[]{0f, 1f, 0f}, answer("y"));
+        cache.put(SCOPE, new float[]{0f, 0f, 1f}, answer("z"));
+
+        assertEquals(2, cache.size());
+        assertTrue(cache.lookup(SCOPE, new float[]{1f, 0f, 0f}).isEmpty());
+        assertTrue(cache.lookup(SCOPE, new float[]{0f, 0f, 1f}).isPresent());
+    }
+
+    @Test
+    void disabled_neverStoresOrHits() {
+        var cache = new SemanticAnswerCache(false, 0.05, Duration.ofHours(1), 10, new TestClock());
+        cache.put(SCOPE, new float[]{1f, 0f}, answer("cached"));
+
+        assertEquals(0, cache.size());
+        assertTrue(cache.lookup(SCOPE, new float[]{1f, 0f}).isEmpty());
+    }
+}
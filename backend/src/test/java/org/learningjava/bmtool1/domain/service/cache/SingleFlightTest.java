@@ -0,0 +1,184 @@
+package org.learningjava.bmtool1.domain.service.cache;
+
+import org.junit.jupiter.api.Test;
+import org.learningjava.bmtool1.application.port.CancellationToken;
+import org.learningjava.bmtool1.application.port.RequestCancelledException;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+
+    private final SingleFlight<String, String> flights = new SingleFlight<>();
+
+    @Test
+    void concurrentCallers_shareOneExecution_thenNothingIsCached() throws Exception {
+        AtomicInteger runs = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<SingleFlight.Result<String>> leader = CompletableFuture.supplyAsync(() ->
+                flights.execute("q", null, t -> {
+                    runs.incrementAndGet();
+                    started.countDown();
+                    await(release);
+                    return "answer";
+                }));
+        assertTrue(started.await(2, TimeUnit.SECONDS));
+
+        AtomicReference<SingleFlight.Result<String>> followerResult = new AtomicReference<>();
+        Thread follower = new Thread(() -> followerResult.set(flights.execute("q", null, t -> {
+            runs.incrementAndGet();
+            return "second run";
+        })));
+        follower.start();
+        awaitWaiting(follower);
+
+        release.countDown();
+        follower.join(2000);
+
+        assertEquals("answer", leader.get(2, TimeUnit.SECONDS).value());
+        assertFalse(leader.get().shared());
+        assertEquals("answer", followerResult.get().value());
+        assertTrue(followerResult.get().shared());
+        assertEquals(1, runs.get());
+        assertEquals(0, flights.inFlight());
+
+        assertEquals("again", flights.execute("q", null, t -> "again").value());
+    }
+
+    @Test
+    void failure_reachesEveryCaller() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<Void> leader = CompletableFuture.runAsync(() -> flights.execute("q", null, t -> {
+            started.countDown();
+            await(release);
+            throw new IllegalStateException("provider down");
+        }));
+        assertTrue(started.await(2, TimeUnit.SECONDS));
+
+        AtomicReference<Throwable> followerError = new AtomicReference<>();
+        Thread follower = new Thread(() -> {
+            try {
+                flights.execute("q", null, t -> "unused");
+            } catch (Throwable e) {
+                followerError.set(e);
+            }
+        });
+        follower.start();
+        awaitWaiting(follower);
+        release.countDown();
+        follower.join(2000);
+
+        assertInstanceOf(IllegalStateException.class, followerError.get());
+        assertEquals("provider down", followerError.get().getMessage());
+        var ex = assertThrows(Exception.class, () -> leader.get(2, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalStateException.class, ex.getCause());
+    }
+
+    @Test
+    void sharedWork_isCancelledOnlyWhenEveryCallerHasGone() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicReference<CancellationToken> shared = new AtomicReference<>();
+        CancellationToken leaderToken = new CancellationToken();
+        CancellationToken followerToken = new CancellationToken();
+
+        CompletableFuture<String> leader = CompletableFuture.supplyAsync(() ->
+                flights.execute("q", leaderToken, t -> {
+                    shared.set(t);
+                    started.countDown();
+                    CountDownLatch aborted = new CountDownLatch(1);
+                    t.onCancel(aborted::countDown);
+                    await(aborted);
+                    t.throwIfCancelled("llm call");
+                    return "never";
+                }).value());
+        assertTrue(started.await(2, TimeUnit.SECONDS));
+
+        AtomicReference<Throwable> followerError = new AtomicReference<>();
+        Thread follower = new Thread(() -> {
+            try {
+                flights.execute("q", followerToken, t -> "unused");
+            } catch (Throwable e) {
+                followerError.set(e);
+            }
+        });
+        follower.start();
+        awaitWaiting(follower);
+
+        followerToken.cancel();
+        follower.join(2000);
+        assertInstanceOf(RequestCancelledException.class, followerError.get());
+        assertFalse(shared.get().isCancelled(), "leader still waits, so the work must go on");
+
+        leaderToken.cancel(CancellationToken.Reason.DEADLINE_EXCEEDED);
+        var ex = assertThrows(Exception.class, () -> leader.get(2, TimeUnit.SECONDS));
+        assertTrue(shared.get().isCancelled());
+        assertTrue(((RequestCancelledException) ex.getCause()).deadlineExceeded());
+    }
+
+    @Test
+    void callerJoiningWhileTheLastOtherCallerCancels_neverGetsTheCancelledResult() throws Exception {
+        for (int i = 0; i < 2_000; i++) {
+            String key = "q" + i;
+            List<CompletableFuture<String>> runs = new CopyOnWriteArrayList<>();
+            Function<CancellationToken, CompletableFuture<String>> work = t -> {
+                CompletableFuture<String> run = new CompletableFuture<>();
+                t.onCancel(() -> run.completeExceptionally(new RequestCancelledException(t.reason(), "llm call")));
+                runs.add(run);
+                return run;
+            };
+            CancellationToken leaving = new CancellationToken();
+            flights.executeAsync(key, leaving, work);
+
+            CyclicBarrier go = new CyclicBarrier(2);
+            CompletableFuture<Void> cancel = CompletableFuture.runAsync(() -> {
+                await(go);
+                leaving.cancel();
+            });
+            await(go);
+            CompletableFuture<SingleFlight.Result<String>> joined = flights.executeAsync(key, new CancellationToken(), work);
+            cancel.get(2, TimeUnit.SECONDS);
+            runs.forEach(r -> r.complete("answer"));
+
+            assertEquals("answer", joined.get(2, TimeUnit.SECONDS).value(), "iteration " + i);
+        }
+        assertEquals(0, flights.inFlight());
+    }
+
+    /* ---------- helpers ---------- */
+
+    private static void await(CyclicBarrier barrier) {
+        try {
+            barrier.await(5, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void awaitWaiting(Thread t) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+        while (t.getState() != Thread.State.WAITING && System.nanoTime() < deadline) Thread.sleep(5);
+        assertEquals(Thread.State.WAITING, t.getState());
+    }
+}
@@ -0,0 +1,40 @@
+package org.learningjava.bmtool1.domain.service.ingest;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AhoCorasickTest {
+
+    private static List<Integer> ids(BitSet set) {
+        return set.stream().boxed().toList();
+    }
+
+    @Test
+    void finds_overlapping_and_nested_patterns_in_one_pass() {
+        var ac = new AhoCorasick(List.of("he", "she", "his", "hers", "eventcode"));
+
+        assertEquals(List.of(0, 1, 3), ids(ac.matches("ushers")));
+        assertEquals(List.of(2), ids(ac.matches("this")));
+        assertEquals(List.of(4), ids(ac.matches("string eventcode() { return \"e1\"; }")));
+        assertEquals(List.of(), ids(ac.matches("no match but h e s")));
+    }
+
+    @Test
+    void pattern_reached_only_through_failure_links_is_found() {
+        var ac = new AhoCorasick(List.of("abcd", "bc"));
+
+        assertEquals(List.of(1), ids(ac.matches("abce")));
+    }
+
+    @Test
+    void empty_pattern_matches_every_text() {
+        var ac = new AhoCorasick(List.of("", "x"));
+
+        assertEquals(List.of(0), ids(ac.matches("")));
+        assertEquals(List.of(0, 1), ids(ac.matches("ax")));
+    }
+}
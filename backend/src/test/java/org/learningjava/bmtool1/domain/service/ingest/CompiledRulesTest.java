@@ -0,0 +1,94 @@
+package org.learningjava.bmtool1.domain.service.ingest;
+
+import org.junit.jupiter.api.Test;
+import org.learningjava.bmtool1.domain.model.pairs.Block;
+import org.learningjava.bmtool1.domain.policy.MappingRule;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompiledRulesTest {
+
+    private static MappingRule rule(String plsqlType, String plsqlContains, String javaType, String javaContains) {
+        MappingRule r = new MappingRule();
+        r.setPlsqlType(plsqlType);
+        r.setPlsqlContains(plsqlContains);
+        r.setJavaType(javaType);
+        r.setJavaContains(javaContains);
+        return r;
+    }
+
+    private static final List<MappingRule> RULES = List.of(
+            rule("ASSIGNMENT_CONST_STRING", "v_exc_code|v_sol_code", "METHOD", "eventCode"),
+            rule("CONDITION", null, "METHOD", "predicate"),
+            rule("CONDITION", null, "STATEMENT", "if"),
+            rule("INSERT_STATEMENT", "", "METHOD", "transformation"));
+
+    // the per-pair check BlockMapper made before rules were compiled
+    private static boolean equivalent(Block plsql, Block java) {
+        for (MappingRule rule : RULES) {
+            if (plsql.type().equals(rule.getPlsqlType()) && java.type().equals(rule.getJavaType())) {
+                if (rule.getPlsqlContains() != null && !rule.getPlsqlContains().isBlank()) {
+                    String lhs = plsql.text().split(":=", 2)[0].trim().toLowerCase();
+                    if (!lhs.matches(".*(" + rule.getPlsqlContains().toLowerCase() + ").*")) continue;
+                }
+                if (java.text().toLowerCase().contains(rule.getJavaContains().toLowerCase())) return true;
+            }
+        }
+        return false;
+    }
+
+    private static Block naiveBest(Block plsql, List<Block> java) {
+        return java.stream().filter(j -> equivalent(plsql, j))
+                .min(Comparator.comparingInt(b -> b.text().length())).orElse(null);
+    }
+
+    @Test
+    void picks_the_shortest_match_and_the_earliest_on_ties() {
+        var index = new CompiledRules(RULES).index(List.of(
+                new Block("METHOD", "boolean predicateLong() { return a && b; }", "A.java"),
+                new Block("METHOD", "boolean predicate1() { return a; }", "A.java"),
+                new Block("METHOD", "boolean predicate2() { return b; }", "A.java"),
+                new Block("FIELD", "Predicate p;", "A.java")));
+
+        Block best = index.bestMatch(new Block("CONDITION", "IFx>1THEN", "a.sql"));
+
+        assertEquals("boolean predicate1() { return a; }", best.text());
+        assertNull(index.bestMatch(new Block("EXCEPTION_HANDLER", "WHENOTHERS", "a.sql")));
+    }
+
+    @Test
+    void plsqlContains_is_matched_against_the_assignment_target_only() {
+        var index = new CompiledRules(RULES).index(List.of(new Block("METHOD", "String eventCode() {}", "A.java")));
+
+        assertNotNull(index.bestMatch(new Block("ASSIGNMENT_CONST_STRING", "V_EXC_CODE:='E1';", "a.sql")));
+        assertNull(index.bestMatch(new Block("ASSIGNMENT_CONST_STRING", "v_other:='v_exc_code';", "a.sql")));
+    }
+
+    @Test
+    void agrees_with_pairwise_matching_on_random_blocks() {
+        Random random = new Random(42);
+        String[] words = {"eventCode", "EVENTCODE", "predicate", "transformation", "if", "x", "v_exc_code", "v_sol_code", " := ", "\n"};
+        String[] plsqlTypes = {"ASSIGNMENT_CONST_STRING", "CONDITION", "INSERT_STATEMENT", "OTHER"};
+        String[] javaTypes = {"METHOD", "STATEMENT", "FIELD"};
+
+        List<Block> java = new ArrayList<>();
+        for (int i = 0; i < 300; i++) java.add(new Block(javaTypes[random.nextInt(javaTypes.length)], text(random, words), "J.java"));
+        var index = new CompiledRules(RULES).index(java);
+
+        for (int i = 0; i < 300; i++) {
+            Block plsql = new Block(plsqlTypes[random.nextInt(plsqlTypes.length)], text(random, words), "p.sql");
+            assertSame(naiveBest(plsql, java), index.bestMatch(plsql), plsql.toString());
+        }
+    }
+
+    private static String text(Random random, String[] words) {
+        StringBuilder sb = new StringBuilder();
+        for (int n = 1 + random.nextInt(6); n > 0; n--) sb.append(words[random.nextInt(words.length)]);
+        return sb.toString();
+    }
+}
@@ -0,0 +1,117 @@
+package org.learningjava.bmtool1.domain.service.llm;
+
+import org.junit.jupiter.api.Test;
+import org.learningjava.bmtool1.domain.service.llm.AdaptiveConcurrencyLimiter.Outcome;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    private static final long MS = 1_000_000L;
+
+    private static AdaptiveConcurrencyLimiter limiter(int initial, int queue, Duration maxWait) {
+        return new AdaptiveConcurrencyLimiter("test/m", initial, 1, 10, 0.5, 2.0, queue, maxWait);
+    }
+
+    @Test
+    void grows_additively_whileSaturated() {
+        var l = limiter(2, 0, Duration.ZERO);
+
+        l.acquire();
+        l.acquire();
+        l.release(Outcome.SUCCESS, 100 * MS);
+
+        assertEquals(3, l.limit());
+    }
+
+    @Test
+    void doesNotGrow_whenMostlyIdle() {
+        var l = limiter(4, 0, Duration.ZERO);
+
+        l.acquire();
+        l.release(Outcome.SUCCESS, 100 * MS);
+
+        assertEquals(4, l.limit());
+    }
+
+    @Test
+    void shrinks_multiplicatively_onOverload_butNotBelowMin() {
+        var l = limiter(8, 0, Duration.ZERO);
+
+        l.acquire();
+        l.release(Outcome.OVERLOAD, 100 * MS);
+        assertEquals(4, l.limit());
+
+        for (int i = 0; i < 5; i++) {
+            l.acquire();
+            l.release(Outcome.OVERLOAD, 100 * MS);
+        }
+        assertEquals(1, l.limit());
+    }
+
+    @Test
+    void slowSuccess_afterWarmup_countsAsOverload() {
+        var l = limiter(8, 0, Duration.ZERO);
+        for (int i = 0; i < 5; i++) {
+            l.acquire();
+            l.release(Outcome.SUCCESS, 100 * MS);
+        }
+        int before = l.limit();
+
+        l.acquire();
+        l.release(Outcome.SUCCESS, 1_000 * MS);
+
+        assertTrue(l.limit() < before);
+    }
+
+    @Test
+    void ignoredOutcome_leavesLimitAlone() {
+        var l = limiter(3, 0, Duration.ZERO);
+
+        l.acquire();
+        l.release(Outcome.IGNORE, 100 * MS);
+
+        assertEquals(3, l.limit());
+        assertEquals(0, l.inFlight());
+    }
+
+    @Test
+    void sheds_immediately_whenQueueIsFull() {
+        var l = limiter(1, 0, Duration.ofSeconds(5));
+        l.acquire();
+
+        var ex = assertThrows(LimitExceededException.class, l::acquire);
+        assertEquals(429, ex.status());
+        assertTrue(ex.isOverload());
+    }
+
+    @Test
+    void sheds_afterMaxWait() {
+        var l = limiter(1, 1, Duration.ofMillis(50));
+        l.acquire();
+
+        long t0 = System.nanoTime();
+        assertThrows(LimitExceededException.class, l::acquire);
+        assertTrue(System.nanoTime() - t0 >= 40 * MS);
+        assertEquals(0, l.waiting());
+    }
+
+    @Test
+    void queuedCaller_proceeds_whenPermitIsReleased() throws Exception {
+        var l = limiter(1, 1, Duration.ofSeconds(5));
+        l.acquire();
+
+        CompletableFuture<Void> waiter = CompletableFuture.runAsync(l::acquire);
+        while (l.waiting() == 0) Thread.onSpinWait();
+        assertFalse(waiter.isDone());
+
+        l.release(Outcome.IGNORE, 0);
+
+        waiter.get(2, TimeUnit.SECONDS);
+        assertEquals(1, l.inFlight());
+    }
+}
@@ -0,0 +1,114 @@
+package org.learningjava.bmtool1.domain.service.llm;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.learningjava.bmtool1.application.port.ChatLLMPort;
+import org.learningjava.bmtool1.application.port.ChatLLMPort.ChatResult;
+import org.learningjava.bmtool1.application.port.ChatLLMPort.Usage;
+import org.learningjava.bmtool1.application.port.ChatResponseCachePort;
+import org.learningjava.bmtool1.config.LlmCacheProperties;
+import org.learningjava.bmtool1.domain.service.ChatRegistry;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class CachingChatLLMTest {
+
+    private static final Instant NOW = Instant.parse("2025-10-15T10:00:00Z");
+
+    private ChatLLMPort delegate;
+    private ChatResponseCachePort cache;
+    private CachingChatLLM caching;
+
+    @BeforeEach
+    void setUp() {
+        delegate = mock(ChatLLMPort.class);
+        when(delegate.provider()).thenReturn("ollama");
+        when(delegate.cacheOptions()).thenReturn("num_ctx=512;temperature=0");
+        cache = mock(ChatResponseCachePort.class);
+        caching = new CachingChatLLM(delegate, cache, Duration.ofHours(1), 100, 2,
+                Clock.fixed(NOW, ZoneOffset.UTC));
+    }
+
+    @Test
+    void hit_returnsCachedResult_markedAsCached_withoutCallingProvider() {
+        ChatResult cached = new ChatResult("cached answer", new Usage(10, 5));
+        when(cache.find(anyString(), eq(NOW.minus(Duration.ofHours(1))))).thenReturn(Optional.of(cached));
+
+        ChatResult out = caching.chatWithUsage("prompt", "llama3");
+
+        assertEquals("cached answer", out.text());
+        assertTrue(out.cached());
+        verify(delegate, never()).chatWithUsage(anyString(), anyString());
+        verify(cache, never()).put(anyString(), anyString(), anyString(), any());
+    }
+
+    @Test
+    void miss_callsProvider_andStoresResult() {
+        ChatResult fresh = new ChatResult("fresh", new Usage(3, 4));
+        when(cache.find(anyString(), any())).thenReturn(Optional.empty());
+        when(delegate.chatWithUsage("prompt", "llama3")).thenReturn(fresh);
+
+        ChatResult out = caching.chatWithUsage("prompt", "llama3");
+
+        assertSame(fresh, out);
+        assertFalse(out.cached());
+        verify(cache).put(eq(CachingChatLLM.cacheKey("ollama", "llama3", "num_ctx=512;temperature=0", "prompt")),
+                eq("ollama"), eq("llama3"), eq(fresh));
+    }
+
+    @Test
+    void prunes_afterConfiguredNumberOfWrites() {
+        when(cache.find(anyString(), any())).thenReturn(Optional.empty());
+        when(delegate.chatWithUsage(anyString(), anyString())).thenReturn(new ChatResult("x", null));
+
+        caching.chatWithUsage("p1", "m");
+        verify(cache, never()).prune(any(), anyInt());
+        caching.chatWithUsage("p2", "m");
+        verify(cache).prune(NOW.minus(Duration.ofHours(1)), 100);
+    }
+
+    @Test
+    void cacheFailures_fallBackToProvider() {
+        when(cache.find(anyString(), any())).thenThrow(new RuntimeException("db down"));
+        doThrow(new RuntimeException("db down")).when(cache).put(anyString(), anyString(), anyString(), any());
+        when(delegate.chatWithUsage("prompt", "m")).thenReturn(new ChatResult("ok", null));
+
+        assertEquals("ok", caching.chatWithUsage("prompt", "m").text());
+    }
+
+    @Test
+    void key_dependsOnEveryComponent() {
+        String base = CachingChatLLM.cacheKey("ollama", "m", "o", "p");
+        assertEquals(base, CachingChatLLM.cacheKey("ollama", "m", "o", "p"));
+        assertNotEquals(base, CachingChatLLM.cacheKey("openrouter", "m", "o", "p"));
+        assertNotEquals(base, CachingChatLLM.cacheKey("ollama", "m2", "o", "p"));
+        assertNotEquals(base, CachingChatLLM.cacheKey("ollama", "m", "o2", "p"));
+        assertNotEquals(base, CachingChatLLM.cacheKey("ollama", "m", "o", "p2"));
+        assertNotEquals(CachingChatLLM.cacheKey("ollama", "ab", "", "c"),
+                CachingChatLLM.cacheKey("ollama", "a", "", "bc"));
+    }
+
+    @Test
+    void registry_wrapsOnlyOptedInProviders() {
+        ChatLLMPort openrouter = mock(ChatLLMPort.class);
+        when(openrouter.provider()).thenReturn("openrouter");
+        LlmCacheProperties props = new LlmCacheProperties();
+        props.setEnabled(true);
+        props.setProviders(Set.of("ollama"));
+
+        ChatRegistry registry = new ChatRegistry(List.of(delegate, openrouter), cache, props);
+
+        assertInstanceOf(CachingChatLLM.class, registry.get("ollama"));
+        assertSame(openrouter, registry.get("openrouter"));
+    }
+}
@@ -0,0 +1,154 @@
+package org.learningjava.bmtool1.domain.service.llm;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.learningjava.bmtool1.application.port.CancellationToken;
+import org.learningjava.bmtool1.application.port.ChatLLMPort;
+import org.learningjava.bmtool1.application.port.ProviderException;
+import org.learningjava.bmtool1.config.TokenizerProperties;
+import org.learningjava.bmtool1.domain.service.ChatRegistry;
+import org.learningjava.bmtool1.domain.service.llm.HedgedChatService.Mode;
+import org.learningjava.bmtool1.domain.service.llm.HedgedChatService.Target;
+import org.learningjava.bmtool1.domain.service.tokens.TokenizerRegistry;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HedgedChatServiceTest {
+
+    private static final Target LOCAL = new Target("ollama", "llama3");
+    private static final Target REMOTE = new Target("openrouter", "free");
+
+    /** Fake provider: answers after {@code delayMs}, or blocks until cancelled when delayMs < 0. */
+    private static final class FakeProvider implements ChatLLMPort {
+        final String id;
+        volatile long delayMs;
+        volatile RuntimeException failure;
+        final AtomicBoolean cancelled = new AtomicBoolean();
+        final AtomicInteger calls = new AtomicInteger();
+
+        FakeProvider(String id, long delayMs) {
+            this.id = id;
+            this.delayMs = delayMs;
+        }
+
+        @Override public String provider() { return id; }
+        @Override public String chat(String prompt, String model) { throw new UnsupportedOperationException(); }
+
+        @Override
+        public ChatResult chatWithUsage(String prompt, String model, CancellationToken token) {
+            calls.incrementAndGet();
+            if (failure != null) throw failure;
+            CountDownLatch aborted = new CountDownLatch(1);
+            token.onCancel(() -> { cancelled.set(true); aborted.countDown(); });
+            try {
+                boolean wasCancelled = delayMs < 0
+                        ? aborted.await(5, TimeUnit.SECONDS)
+                        : aborted.await(delayMs, TimeUnit.MILLISECONDS);
+                if (wasCancelled) throw new ProviderException(id, 0, "Canceled");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new ChatResult(id + " answer", new Usage(100, 20));
+        }
+    }
+
+    private final FakeProvider local = new FakeProvider("ollama", 0);
+    private final FakeProvider remote = new FakeProvider("openrouter", 0);
+    private HedgedChatService service;
+
+    private HedgedChatService service(long defaultDelayMs) {
+        service = new HedgedChatService(new ChatRegistry(List.of(local, remote)),
+                new TokenizerRegistry(new TokenizerProperties()), 0.95, 3, 10, defaultDelayMs);
+        return service;
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (service != null) service.shutdown();
+    }
+
+    @Test
+    void race_fastestWins_andLoserIsCancelled() {
+        local.delayMs = -1;   // hangs until cancelled
+        remote.delayMs = 10;
+
+        var r = service(10_000).chat("x".repeat(400), LOCAL, REMOTE, Mode.RACE);
+
+        assertEquals(REMOTE, r.winner());
+        assertEquals("openrouter answer", r.result().text());
+        assertTrue(r.hedged());
+        assertEquals(LOCAL, r.loser());
+        assertEquals(100, r.wastedTokens());   // 400 chars of prompt, estimated
+        assertTrue(local.cancelled.get());
+    }
+
+    @Test
+    void hedge_primaryWithinDelay_neverStartsSecondary() {
+        local.delayMs = 5;
+
+        var r = service(2_000).chat("p", LOCAL, REMOTE, Mode.HEDGE);
+
+        assertEquals(LOCAL, r.winner());
+        assertFalse(r.hedged());
+        assertNull(r.wastedTokens());
+        assertEquals(0, remote.calls.get());
+    }
+
+    @Test
+    void hedge_slowPrimary_firesSecondaryAfterDelay() {
+        local.delayMs = -1;
+        remote.delayMs = 5;
+
+        long t0 = System.nanoTime();
+        var r = service(50).chat("p", LOCAL, REMOTE, Mode.HEDGE);
+
+        assertEquals(REMOTE, r.winner());
+        assertTrue(r.hedged());
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - t0) >= 45);
+        assertTrue(local.cancelled.get());
+    }
+
+    @Test
+    void hedge_primaryFailure_fallsBackImmediately_withoutWaste() {
+        local.failure = new ProviderException("ollama", 503, "busy");
+
+        var r = service(10_000).chat("p", LOCAL, REMOTE, Mode.HEDGE);
+
+        assertEquals(REMOTE, r.winner());
+        assertEquals(0, r.wastedTokens());
+    }
+
+    @Test
+    void bothFail_surfacesPrimaryError() {
+        local.failure = new ProviderException("ollama", 503, "local busy");
+        remote.failure = new ProviderException("openrouter", 429, "remote busy");
+
+        var ex = assertThrows(ProviderException.class, () -> service(10_000).chat("p", LOCAL, REMOTE, Mode.RACE));
+        assertEquals("local busy", ex.getMessage());
+    }
+
+    @Test
+    void hedgeDelay_followsObservedPercentile_afterMinSamples() {
+        var s = service(9_999);
+        assertEquals(9_999, s.hedgeDelayMs(LOCAL));
+
+        local.delayMs = 20;
+        for (int i = 0; i < 3; i++) s.chat("p", LOCAL, REMOTE, Mode.HEDGE);
+
+        long delay = s.hedgeDelayMs(LOCAL);
+        assertTrue(delay >= 20 && delay < 9_999, "delay=" + delay);
+    }
+
+    @Test
+    void rejectsUnknownOrIdenticalTargets() {
+        var s = service(100);
+        assertThrows(IllegalArgumentException.class, () -> s.chat("p", LOCAL, new Target("nope", "m"), Mode.RACE));
+        assertThrows(IllegalArgumentException.class, () -> s.chat("p", LOCAL, LOCAL, Mode.RACE));
+    }
+}
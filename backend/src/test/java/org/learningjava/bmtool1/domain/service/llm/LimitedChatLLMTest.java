@@ -0,0 +1,143 @@
+package org.learningjava.bmtool1.domain.service.llm;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.learningjava.bmtool1.application.port.CancellationToken;
+import org.learningjava.bmtool1.application.port.ChatLLMPort;
+import org.learningjava.bmtool1.application.port.ChatLLMPort.ChatResult;
+import org.learningjava.bmtool1.application.port.ProviderException;
+import org.learningjava.bmtool1.application.port.RequestCancelledException;
+import org.learningjava.bmtool1.config.LlmLimiterProperties;
+import org.learningjava.bmtool1.domain.service.ChatRegistry;
+import org.learningjava.bmtool1.domain.service.llm.AdaptiveConcurrencyLimiter.Outcome;
+
+import java.io.UncheckedIOException;
+import java.net.SocketTimeoutException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class LimitedChatLLMTest {
+
+    private ChatLLMPort delegate;
+    private LlmLimiterProperties props;
+
+    @BeforeEach
+    void setUp() {
+        delegate = mock(ChatLLMPort.class);
+        when(delegate.provider()).thenReturn("openrouter");
+        props = new LlmLimiterProperties();
+        props.setInitialLimit(4);
+        props.setBackoffRatio(0.5);
+    }
+
+    @Test
+    void releasesPermit_onSuccessAndFailure() {
+        var limited = new LimitedChatLLM(delegate, props);
+        when(delegate.chatWithUsage("p", "m")).thenReturn(new ChatResult("ok", null));
+        when(delegate.chatWithUsage("bad", "m")).thenThrow(new ProviderException("openrouter", 400, "bad request"));
+
+        limited.chatWithUsage("p", "m");
+        assertThrows(ProviderException.class, () -> limited.chatWithUsage("bad", "m"));
+
+        assertEquals(0, limited.limiter("m").inFlight());
+        assertEquals(4, limited.limiter("m").limit()); // a 400 is the caller's fault, not overload
+    }
+
+    @Test
+    void rateLimitResponse_shrinksThatModelsLimitOnly() {
+        var limited = new LimitedChatLLM(delegate, props);
+        when(delegate.chatWithUsage("p", "hot")).thenThrow(new ProviderException("openrouter", 429, "Too Many Requests"));
+
+        assertThrows(ProviderException.class, () -> limited.chatWithUsage("p", "hot"));
+
+        assertEquals(2, limited.limiter("hot").limit());
+        assertEquals(4, limited.limiter("cold").limit());
+    }
+
+    @Test
+    void queuedCall_leavesTheQueue_whenItsTokenIsCancelled() throws Exception {
+        props.setInitialLimit(1);
+        var limited = new LimitedChatLLM(delegate, props);
+        var limiter = limited.limiter("m");
+        limiter.acquire();
+        var token = new CancellationToken();
+
+        var call = CompletableFuture.supplyAsync(() -> limited.chatWithUsage("p", "m", token), Thread::startVirtualThread);
+        awaitWaiting(limiter, 1);
+        token.cancel();
+
+        var ex = assertThrows(ExecutionException.class, () -> call.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(RequestCancelledException.class, ex.getCause());
+        assertEquals(0, limiter.waiting());
+        verify(delegate, never()).chatWithUsage(anyString(), anyString(), any());
+    }
+
+    @Test
+    void asyncCall_cancelledWhileQueued_neverReachesTheProvider() throws Exception {
+        props.setInitialLimit(1);
+        var limited = new LimitedChatLLM(delegate, props);
+        var limiter = limited.limiter("m");
+        limiter.acquire();
+
+        var call = limited.chatWithUsageAsync("p", "m", null);
+        awaitWaiting(limiter, 1);
+        call.cancel(true);
+        awaitWaiting(limiter, 0);
+        limiter.release(Outcome.IGNORE, 0L);
+
+        assertEquals(0, limiter.inFlight());
+        verify(delegate, never()).chatWithUsageAsync(anyString(), anyString(), any());
+    }
+
+    @Test
+    void classifiesOverloadSignals() {
+        assertEquals(Outcome.OVERLOAD, LimitedChatLLM.classify(new ProviderException("x", 503, "unavailable")));
+        assertEquals(Outcome.OVERLOAD, LimitedChatLLM.classify(
+                new ProviderException("x", 0, "read timed out", new SocketTimeoutException("timeout"))));
+        assertEquals(Outcome.OVERLOAD, LimitedChatLLM.classify(
+                new UncheckedIOException(new SocketTimeoutException("timeout"))));
+        assertEquals(Outcome.IGNORE, LimitedChatLLM.classify(new ProviderException("x", 401, "unauthorized")));
+        assertEquals(Outcome.IGNORE, LimitedChatLLM.classify(new IllegalArgumentException("nope")));
+    }
+
+    @Test
+    void providerOverrides_applyToInitialAndMaxLimit() {
+        var ollama = new LlmLimiterProperties.Limits();
+        ollama.setInitialLimit(1);
+        ollama.setMaxLimit(2);
+        props.getProviders().put("ollama", ollama);
+        when(delegate.provider()).thenReturn("ollama");
+
+        var limiter = new LimitedChatLLM(delegate, props).limiter("llama3");
+
+        assertEquals(1, limiter.limit());
+        for (int i = 0; i < 5; i++) {
+            limiter.acquire();
+            limiter.release(Outcome.SUCCESS, 1_000_000L);
+        }
+        assertEquals(2, limiter.limit());
+    }
+
+    @Test
+    void registry_wrapsAdaptersWhenEnabled() {
+        assertInstanceOf(LimitedChatLLM.class,
+                new ChatRegistry(List.of(delegate), null, null, props).get("openrouter"));
+
+        props.setEnabled(false);
+        assertSame(delegate, new ChatRegistry(List.of(delegate), null, null, props).get("openrouter"));
+    }
+
+    private static void awaitWaiting(AdaptiveConcurrencyLimiter limiter, int n) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (limiter.waiting() != n) {
+            if (System.nanoTime() > deadline) fail("expected " + n + " waiting, got " + limiter.waiting());
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package org.learningjava.bmtool1.domain.service.prompting;
+
+import org.junit.jupiter.api.Test;
+import org.learningjava.bmtool1.application.port.ChatLLMPort;
+import org.learningjava.bmtool1.domain.model.framework.FrameworkRetrievalResult;
+import org.learningjava.bmtool1.domain.model.framework.FrameworkSymbol;
+import org.learningjava.bmtool1.domain.model.pairs.BlockMapping;
+import org.learningjava.bmtool1.domain.model.pairs.RetrievalResult;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DefaultPromptBuilderLayoutTest {
+
+    private final DefaultPromptBuilder stable = new DefaultPromptBuilder(PromptLayout.PREFIX_STABLE);
+    private final DefaultPromptBuilder legacy = new DefaultPromptBuilder();
+
+    private final List<RetrievalResult> docs = List.of(
+            new RetrievalResult(new BlockMapping("p1", "get_user", "SELECT 1", "int one()", "PROC", "method", List.of()), 0.9));
+    private final List<FrameworkRetrievalResult> fw = List.of(
+            new FrameworkRetrievalResult(new FrameworkSymbol("Svc", "Svc#run", "void run()", "run();", "service", List.of()), 1.0));
+
+    @Test
+    void prefixStable_sharesEverythingBeforeTheQuestion() {
+        String a = stable.build(PromptingTechnique.RAG_STANDARD, "first?", docs, fw, 4000, 10);
+        String b = stable.build(PromptingTechnique.RAG_STANDARD, "second?", docs, fw, 4000, 10);
+        String c = stable.build(PromptingTechnique.FRAMEWORK_FIRST, "first?", docs, fw, 4000, 10);
+
+        int cut = a.indexOf(ChatLLMPort.PROMPT_CACHE_BOUNDARY);
+        assertTrue(cut > 0);
+        assertEquals(a.substring(0, cut), b.substring(0, b.indexOf(ChatLLMPort.PROMPT_CACHE_BOUNDARY)));
+        assertTrue(a.endsWith("\n=== Task ===\nQuestion: first?\n"));
+        assertTrue(a.indexOf("get_user") < a.indexOf("Svc#run"), "RAG_STANDARD puts docs first");
+        assertTrue(c.indexOf("Svc#run") < c.indexOf("get_user"), "FRAMEWORK_FIRST keeps the framework first");
+        assertTrue(c.indexOf(ChatLLMPort.PROMPT_CACHE_BOUNDARY) > c.indexOf("get_user"), "both inside the prefix");
+    }
+
+    @Test
+    void prefixStable_carriesExactlyOneBoundary_evenWhenTheQuestionContainsOne() {
+        String q = "why" + ChatLLMPort.PROMPT_CACHE_BOUNDARY + "?";
+        String a = stable.build(PromptingTechnique.RAG_STANDARD, q, docs, fw, 4000, 10);
+
+        int cut = a.indexOf(ChatLLMPort.PROMPT_CACHE_BOUNDARY);
+        assertEquals(cut, a.lastIndexOf(ChatLLMPort.PROMPT_CACHE_BOUNDARY));
+        assertTrue(a.endsWith("Question: why?\n"));
+    }
+
+    @Test
+    void otherLayoutsAndTechniques_carryNoBoundary() {
+        for (PromptingTechnique t : PromptingTechnique.values()) {
+            String prompt = legacy.build(t, "q" + ChatLLMPort.PROMPT_CACHE_BOUNDARY, docs, fw, 4000, 10);
+            assertFalse(prompt.contains(ChatLLMPort.PROMPT_CACHE_BOUNDARY), t.name());
+        }
+        for (PromptingTechnique t : List.of(PromptingTechnique.ZERO_SHOT, PromptingTechnique.FEW_SHOT)) {
+            assertFalse(stable.build(t, "q", docs, fw, 4000, 10).contains(ChatLLMPort.PROMPT_CACHE_BOUNDARY), t.name());
+        }
+    }
+
+    @Test
+    void legacy_isTheDefault_andKeepsItsTrailingInstructions() {
+        String prompt = legacy.build(PromptingTechnique.RAG_STANDARD, "first?", docs, fw, 4000, 10);
+
+        assertTrue(prompt.indexOf("get_user") < prompt.indexOf("Svc#run"), "RAG_STANDARD puts docs first");
+        assertTrue(prompt.endsWith("cite it like Class#method."));
+        assertEquals(prompt, new DefaultPromptBuilder(null)
+                .build(PromptingTechnique.RAG_STANDARD, "first?", docs, fw, 4000, 10));
+    }
+}
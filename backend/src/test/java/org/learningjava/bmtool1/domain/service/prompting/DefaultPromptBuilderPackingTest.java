@@ -0,0 +1,100 @@
+package org.learningjava.bmtool1.domain.service.prompting;
+
+import org.junit.jupiter.api.Test;
+import org.learningjava.bmtool1.config.ModelContextWindows;
+import org.learningjava.bmtool1.domain.model.framework.FrameworkRetrievalResult;
+import org.learningjava.bmtool1.domain.model.framework.FrameworkSymbol;
+import org.learningjava.bmtool1.domain.model.pairs.BlockMapping;
+import org.learningjava.bmtool1.domain.model.pairs.RetrievalResult;
+import org.learningjava.bmtool1.domain.service.tokens.Tokenizer;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DefaultPromptBuilderPackingTest {
+
+    private final DefaultPromptBuilder builder = new DefaultPromptBuilder();
+
+    private static RetrievalResult doc(String id, double score, int snippetChars) {
+        return new RetrievalResult(new BlockMapping(id, id + "-name", "x".repeat(snippetChars), "y".repeat(snippetChars),
+                "PROC", "method", List.of()), score);
+    }
+
+    private static FrameworkRetrievalResult symbol(String cls, String name) {
+        return new FrameworkRetrievalResult(new FrameworkSymbol(cls, cls + "#" + name, "void " + name + "()",
+                name + "();", "service", List.of()), 1.0);
+    }
+
+    @Test
+    void generousBudget_keepsEverything_andMatchesUnpackedPrompt() {
+        var docs = List.of(doc("a", 0.9, 100), doc("b", 0.8, 100));
+        var fw = List.of(symbol("Svc", "run"));
+
+        var packed = builder.buildPacked(PromptingTechnique.RAG_STANDARD, "q?", docs, fw, 4000, 100_000);
+
+        assertEquals(builder.build(PromptingTechnique.RAG_STANDARD, "q?", docs, fw, 4000, Integer.MAX_VALUE), packed.prompt());
+        assertFalse(packed.report().anythingDropped());
+        assertEquals(2, packed.report().docsIncluded());
+        assertEquals(1, packed.report().symbolsIncluded());
+        assertTrue(packed.report().estimatedTokens() <= 100_000);
+    }
+
+    @Test
+    void tightBudget_keepsHighestScoredDocs_andStaysWithinBudget() {
+        var docs = List.of(doc("low", 0.61, 2000), doc("high", 0.95, 2000), doc("mid", 0.80, 2000));
+
+        var packed = builder.buildPacked(PromptingTechnique.RAG_STANDARD, "q?", docs, List.of(), 4000, 1500);
+
+        assertEquals("high", packed.docs().get(0).mapping().pairId());
+        assertTrue(packed.report().droppedDocs().contains("low"));
+        assertTrue(packed.report().estimatedTokens() <= 1500, "estimated=" + packed.report().estimatedTokens());
+        assertEquals(packed.report().estimatedTokens(), Tokenizer.HEURISTIC.count(packed.prompt()));
+    }
+
+    @Test
+    void oversizedDoc_isTruncatedBeforeBeingDropped() {
+        var packed = builder.buildPacked(PromptingTechnique.RAG_STANDARD, "q?",
+                List.of(doc("big", 0.9, 8000)), List.of(), 4000, 700);
+
+        assertEquals(1, packed.docs().size());
+        assertEquals(List.of("big"), packed.report().truncatedDocs());
+        assertTrue(packed.report().estimatedTokens() <= 700);
+    }
+
+    @Test
+    void frameworkFirst_prefersSymbolsWhenOnlyOneItemFits() {
+        var docs = List.of(doc("a", 0.9, 400));
+        var fw = List.of(symbol("Svc", "run"));
+        int skeleton = Tokenizer.HEURISTIC.count(
+                builder.build(PromptingTechnique.FRAMEWORK_FIRST, "q?", List.of(), List.of(), 4000, 0));
+
+        var packed = builder.buildPacked(PromptingTechnique.FRAMEWORK_FIRST, "q?", docs, fw, 4000, skeleton + 60);
+
+        assertEquals(1, packed.framework().size());
+        assertTrue(packed.docs().isEmpty());
+        assertEquals(List.of("a"), packed.report().droppedDocs());
+    }
+
+    @Test
+    void techniquesWithoutContext_reportNothingIncluded() {
+        var packed = builder.buildPacked(PromptingTechnique.ZERO_SHOT, "q?",
+                List.of(doc("a", 0.9, 10)), List.of(symbol("Svc", "run")), 4000, 10);
+
+        assertTrue(packed.docs().isEmpty());
+        assertTrue(packed.framework().isEmpty());
+        assertTrue(packed.prompt().contains("Question: q?"));
+    }
+
+    @Test
+    void contextWindows_resolveByModelThenProvider_andCapByAdapterWindow() {
+        var windows = new ModelContextWindows();
+        windows.getModels().put("openrouter", 32768);
+        windows.getModels().put("openrouter:small", 4096);
+
+        assertEquals(32768 - 1024, windows.promptBudget("openrouter", "big", null));
+        assertEquals(4096 - 1024, windows.promptBudget("openrouter", "small", null));
+        assertEquals(512 - 128, windows.promptBudget("ollama", "llama3", 512)); // reserve capped at a quarter
+        assertEquals(8192 - 1024, windows.promptBudget("unknown", "m", null));
+    }
+}
@@ -0,0 +1,157 @@
+package org.learningjava.bmtool1.domain.service.tokens;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.learningjava.bmtool1.application.port.ChatLLMPort.Usage;
+import org.learningjava.bmtool1.config.TokenizerProperties;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class TokenizerRegistryTest {
+
+    @TempDir
+    Path tmp;
+
+    private TokenizerProperties props;
+    private TokenizerRegistry registry;
+
+    /** tiny.tiktoken: printable ASCII bytes, then merges "he" < "ll" < "hell". */
+    @BeforeEach
+    void setUp() {
+        props = new TokenizerProperties();
+        props.getVocabularies().put("tiny", "tokenizers/tiny.tiktoken");
+        props.getVocabularies().put("missing", "tokenizers/does-not-exist.tiktoken");
+        props.getModels().put("tiny", "tiny");
+        props.getModels().put("tiny-broken", "missing");
+        registry = new TokenizerRegistry(props);
+    }
+
+    @Test
+    void bpe_mergesLowestRankFirst_perPreTokenizedPiece() {
+        Tokenizer t = registry.forModel("tiny:latest");
+
+        assertNotSame(Tokenizer.HEURISTIC, t);
+        assertEquals("tiny", t.name());
+        assertEquals(2, t.count("hello"));         // he+l+l+o -> he+ll+o -> hell+o
+        assertEquals(5, t.count("hello hello"));   // " hello" starts with an unmerged space
+        assertEquals(2, t.count("é"));             // unknown multi-byte char: one token per byte
+        assertEquals(0, t.count(""));
+    }
+
+    @Test
+    void longestPrefixWins_andUnknownOrMissingVocabulariesFallBack() {
+        assertSame(Tokenizer.HEURISTIC, registry.forModel("tiny-broken"));
+        assertSame(Tokenizer.HEURISTIC, registry.forModel("gpt-unknown"));
+        assertEquals(3, registry.count("gpt-unknown", "x".repeat(12)));
+        assertSame(registry.forModel("tiny"), registry.forModel("TINY-2"));   // loaded once
+    }
+
+    @Test
+    void downloadedVocabulary_isCheckedAgainstItsSha256_cached_andReusedOffline() throws Exception {
+        byte[] tiny = tinyVocabulary();
+        HttpServer server = serve(tiny);
+        try {
+            props.getDownloads().put("tiny", download(server, sha256(tiny)));
+            props.getVocabularies().remove("tiny");
+            props.setCacheDir(tmp.toString());
+
+            Tokenizer t = new TokenizerRegistry(props).forModel("tiny");
+            assertNotSame(Tokenizer.HEURISTIC, t);
+            assertEquals(2, t.count("hello"));
+            assertArrayEquals(tiny, Files.readAllBytes(tmp.resolve("tiny.tiktoken")));
+        } finally {
+            server.stop(0);
+        }
+        assertEquals(2, new TokenizerRegistry(props).count("tiny", "hello"));
+    }
+
+    @Test
+    void downloadWithTheWrongSha256_isNeitherUsedNorCached() throws Exception {
+        HttpServer server = serve(tinyVocabulary());
+        try {
+            props.getDownloads().put("tiny", download(server, "00".repeat(32)));
+            props.getVocabularies().remove("tiny");
+            props.setCacheDir(tmp.toString());
+
+            assertSame(Tokenizer.HEURISTIC, new TokenizerRegistry(props).forModel("tiny"));
+            assertFalse(Files.exists(tmp.resolve("tiny.tiktoken")));
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    /** The shipped configuration against counts published for tiktoken; skipped where cl100k_base cannot be fetched. */
+    @Test
+    void cl100kBase_countsLikeTiktoken() {
+        TokenizerProperties shipped = new TokenizerProperties();
+        shipped.getVocabularies().put("cl100k_base", "tokenizers/cl100k_base.tiktoken");
+        TokenizerProperties.Download d = new TokenizerProperties.Download();
+        d.setUrl("https://openaipublic.blob.core.windows.net/encodings/cl100k_base.tiktoken");
+        d.setSha256("223921b76ee99bde995b7ff738513eef100fb51d18c93597a113bcffe865b2a7");
+        shipped.getDownloads().put("cl100k_base", d);
+        shipped.setCacheDir("target/tokenizers");
+        shipped.getModels().put("gpt-", "cl100k_base");
+
+        Tokenizer t = new TokenizerRegistry(shipped).forModel("gpt-4o");
+        assumeTrue(t != Tokenizer.HEURISTIC, "cl100k_base is neither on the classpath nor downloadable here");
+
+        assertEquals(2, t.count("hello world"));            // [15339, 1917]
+        assertEquals(6, t.count("tiktoken is great!"));     // [83, 1609, 5963, 374, 2294, 0]
+    }
+
+    @Test
+    void backfill_keepsProviderCounts_andFillsOnlyWhatIsMissing() {
+        Usage real = new Usage(10, 5);
+        assertSame(real, registry.backfill("tiny", "hello", "hello", real));
+
+        Usage none = registry.backfill("tiny", "hello", "hello hello", null);
+        assertEquals(2, none.promptTokens());
+        assertEquals(5, none.completionTokens());
+        assertTrue(none.estimated());
+
+        Usage partial = registry.backfill("tiny", "hello", "hello", new Usage(42, null));
+        assertEquals(42, partial.promptTokens());
+        assertEquals(2, partial.completionTokens());
+    }
+
+    /* ---------- helpers ---------- */
+
+    private static byte[] tinyVocabulary() throws Exception {
+        try (InputStream in = TokenizerRegistryTest.class.getClassLoader().getResourceAsStream("tokenizers/tiny.tiktoken")) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static HttpServer serve(byte[] body) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/tiny.tiktoken", ex -> {
+            ex.sendResponseHeaders(200, body.length);
+            ex.getResponseBody().write(body);
+            ex.close();
+        });
+        server.start();
+        return server;
+    }
+
+    private static TokenizerProperties.Download download(HttpServer server, String sha256) {
+        TokenizerProperties.Download d = new TokenizerProperties.Download();
+        d.setUrl("http://127.0.0.1:" + server.getAddress().getPort() + "/tiny.tiktoken");
+        d.setSha256(sha256);
+        return d;
+    }
+
+    private static String sha256(byte[] bytes) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+    }
+}
@@ -0,0 +1,72 @@
+package org.learningjava.bmtool1.infrastructure.adapter.in.fs;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.learningjava.bmtool1.application.usecase.IngestPairsUseCase;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class PairDirectoryWatcherTest {
+
+    @TempDir
+    Path root;
+
+    private final IngestPairsUseCase ingest = mock(IngestPairsUseCase.class);
+    private PairDirectoryWatcher watcher;
+
+    @BeforeEach
+    void start() throws Exception {
+        when(ingest.ingestChanges(any(), any()))
+                .thenReturn(new IngestPairsUseCase.IngestReport(0, 0, 0, 0, 0, 0, 0, List.of()));
+        Files.writeString(root.resolve("a.sql"), "BEGIN NULL; END;");
+        Files.writeString(root.resolve("a.java"), "class A {}");
+        watcher = new PairDirectoryWatcher(ingest, root.toString(), true, Duration.ofMillis(300));
+        watcher.start();
+        // catches up on whatever changed while it wasn't running
+        verify(ingest, timeout(5000).times(1)).ingestChanges(eq(root.toString()), any());
+    }
+
+    @AfterEach
+    void stop() {
+        watcher.stop();
+    }
+
+    @Test
+    void burstOfChanges_isIngestedOnce_afterItGoesQuiet() throws Exception {
+        Files.writeString(root.resolve("b.sql"), "BEGIN NULL; END;");
+        Files.writeString(root.resolve("b.java"), "class B {}");
+        Files.writeString(root.resolve("a.java"), "class A { int x; }");
+        Files.delete(root.resolve("a.sql"));
+
+        verify(ingest, timeout(5000).times(2)).ingestChanges(eq(root.toString()), any());
+        verify(ingest, after(1000).times(2)).ingestChanges(any(), any());
+    }
+
+    @Test
+    void pairsInNewSubdirectories_areSeen() throws Exception {
+        Path sub = Files.createDirectories(root.resolve("orders"));
+        verify(ingest, timeout(5000).times(2)).ingestChanges(any(), any());
+
+        Files.writeString(sub.resolve("c.pkb"), "BEGIN NULL; END;");
+        Files.writeString(sub.resolve("c.java"), "class C {}");
+
+        verify(ingest, timeout(5000).times(3)).ingestChanges(any(), any());
+    }
+
+    @Test
+    void otherFiles_areIgnored() throws Exception {
+        Files.writeString(root.resolve("README.md"), "notes");
+        Files.writeString(root.resolve("a.java.swp"), "x");
+
+        verify(ingest, after(1500).times(1)).ingestChanges(any(), any());
+    }
+}
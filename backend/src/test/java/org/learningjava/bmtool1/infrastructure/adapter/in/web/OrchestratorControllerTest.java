@@ -0,0 +1,114 @@
+package org.learningjava.bmtool1.infrastructure.adapter.in.web;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.learningjava.bmtool1.application.port.CancellationToken;
+import org.learningjava.bmtool1.application.port.RequestCancelledException;
+import org.learningjava.bmtool1.application.usecase.GridRunUseCase;
+import org.learningjava.bmtool1.application.usecase.Orchestrator;
+import org.learningjava.bmtool1.domain.model.query.Answer;
+import org.learningjava.bmtool1.domain.model.query.Query;
+import org.learningjava.bmtool1.domain.service.llm.HedgedChatService.Mode;
+import org.learningjava.bmtool1.domain.service.llm.HedgedChatService.Target;
+import org.learningjava.bmtool1.domain.service.prompting.PromptingTechnique;
+import org.learningjava.bmtool1.infrastructure.adapter.in.web.admin.JobRegistry;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+class OrchestratorControllerTest {
+
+    private Orchestrator orchestrator;
+    private OrchestratorController controller;
+    private MockMvc mvc;
+
+    @BeforeEach
+    void setUp() {
+        orchestrator = mock(Orchestrator.class);
+        controller = new OrchestratorController(orchestrator, mock(GridRunUseCase.class), mock(JobRegistry.class),
+                Runnable::run, Duration.ofMinutes(5));
+        mvc = MockMvcBuilders.standaloneSetup(controller).build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        controller.shutdown();
+    }
+
+    @Test
+    void ask_unhedged_answersFromTheAsyncPipeline_underADeadline() throws Exception {
+        ArgumentCaptor<CancellationToken> token = ArgumentCaptor.forClass(CancellationToken.class);
+        when(orchestrator.askAsync(any(Query.class), eq(6), eq(3), eq("ollama"), eq("llama3"), eq("nomic"),
+                eq(List.of("a", "b")), eq(PromptingTechnique.RAG_STANDARD), token.capture()))
+                .thenReturn(CompletableFuture.completedFuture(new Answer("the answer", List.of(), List.of())));
+
+        MvcResult started = mvc.perform(ask().param("kFramework", "3").param("tags", "a,b").param("timeoutMs", "60000"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.text").value("the answer"));
+        Duration left = token.getValue().remaining();
+        assertNotNull(left);
+        assertTrue(left.compareTo(Duration.ofSeconds(60)) <= 0);
+    }
+
+    @Test
+    void ask_missedDeadline_is504_andOtherCancellations_408() throws Exception {
+        when(orchestrator.askAsync(any(), anyInt(), anyInt(), any(), any(), any(), any(), any(), any()))
+                .thenReturn(CompletableFuture.failedFuture(
+                        new RequestCancelledException(CancellationToken.Reason.DEADLINE_EXCEEDED, "llm")))
+                .thenReturn(CompletableFuture.failedFuture(
+                        new RequestCancelledException(CancellationToken.Reason.CANCELLED, "retrieval")));
+
+        MvcResult late = mvc.perform(ask()).andExpect(request().asyncStarted()).andReturn();
+        mvc.perform(asyncDispatch(late)).andExpect(status().isGatewayTimeout());
+
+        MvcResult cancelled = mvc.perform(ask()).andExpect(request().asyncStarted()).andReturn();
+        mvc.perform(asyncDispatch(cancelled)).andExpect(status().isRequestTimeout());
+    }
+
+    @Test
+    void ask_hedged_runsTheBlockingPathWithTheHedgeTarget() throws Exception {
+        when(orchestrator.askWithFramework(any(Query.class), eq(6), eq(6), eq("ollama"), eq("llama3"), eq("nomic"),
+                eq(List.of()), eq(PromptingTechnique.FRAMEWORK_FIRST), eq(new Target("openrouter", "gpt-4.1")),
+                eq(Mode.RACE), any(CancellationToken.class)))
+                .thenReturn(new Answer("hedged", List.of(), List.of()));
+
+        MvcResult started = mvc.perform(ask()
+                        .param("prompting", "framework_first")
+                        .param("hedgeProvider", "openrouter")
+                        .param("hedgeModel", "gpt-4.1")
+                        .param("hedgeMode", "race"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.text").value("hedged"));
+        verify(orchestrator, never()).askAsync(any(), anyInt(), anyInt(), any(), any(), any(), any(), any(), any());
+    }
+
+    private static MockHttpServletRequestBuilder ask() {
+        return get("/orchestrator/ask")
+                .param("q", "how do I map a cursor?")
+                .param("provider", "ollama")
+                .param("llmModel", "llama3")
+                .param("embeddingModel", "nomic");
+    }
+}
@@ -2,8 +2,12 @@ package org.learningjava.bmtool1.infrastructure.adapter.in.web.admin;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.learningjava.bmtool1.application.port.PairArchivePort;
+import org.learningjava.bmtool1.application.port.PairReaderPort;
+import org.learningjava.bmtool1.application.port.ProgressListener;
 import org.learningjava.bmtool1.application.usecase.IngestPairsUseCase;
-import org.learningjava.bmtool1.domain.model.pairs.BlockMapping;
+import org.learningjava.bmtool1.domain.model.pairs.PairId;
+import org.learningjava.bmtool1.domain.model.pairs.SourcePair;
 import org.mockito.ArgumentCaptor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
@@ -38,6 +42,9 @@ class RagAdminControllerTest {
     @MockBean
     private IngestPairsUseCase ingest;
 
+    @MockBean
+    private PairArchivePort archives;
+
     @MockBean
     private JobRegistry jobs;
 
@@ -84,17 +91,34 @@ class RagAdminControllerTest {
         Path temp = Files.createTempDirectory("rag-test-");
         try {
             given(jobs.start(eq("RAG"), eq(0))).willReturn("job-ok");
-            // Return two mocked BlockMapping items
-            given(ingest.ingestDirectory(eq(temp.toString())))
-                    .willReturn(List.of(mock(BlockMapping.class), mock(BlockMapping.class)));
+            given(ingest.ingestChanges(eq(temp.toString()), any(ProgressListener.class)))
+                    .willReturn(report(2));
 
             mvc.perform(post("/rag/ingest").param("rootDir", temp.toString()))
                     .andExpect(status().isOk())
                     .andExpect(jsonPath("$.jobId", equalTo("job-ok")));
 
             verify(jobs).update(eq("job-ok"), eq(0), contains("Scanning"));
-            verify(ingest).ingestDirectory(eq(temp.toString()));
-            verify(jobs).done(eq("job-ok"), contains("2"));
+            verify(ingest).ingestChanges(eq(temp.toString()), any(ProgressListener.class));
+            verify(jobs).done(eq("job-ok"), contains("Ingested 2 mappings"));
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    @Test
+    void ingestDirectory_nothingChanged_marksDoneNotFailed() throws Exception {
+        Path temp = Files.createTempDirectory("rag-test-");
+        try {
+            given(jobs.start(eq("RAG"), eq(0))).willReturn("job-same");
+            given(ingest.ingestChanges(eq(temp.toString()), any(ProgressListener.class)))
+                    .willReturn(new IngestPairsUseCase.IngestReport(3, 3, 0, 0, 0, 0, 4, List.of()));
+
+            mvc.perform(post("/rag/ingest").param("rootDir", temp.toString()))
+                    .andExpect(status().isOk());
+
+            verify(jobs).done(eq("job-same"), contains("3 unchanged"));
+            verify(jobs, never()).fail(anyString(), anyString());
         } finally {
             Files.deleteIfExists(temp);
         }
@@ -146,9 +170,8 @@ class RagAdminControllerTest {
                 "files", "db/schema/pkg.pkb", "text/plain", "create or replace package body...".getBytes());
 
         given(jobs.start(eq("RAG"), anyInt())).willReturn("job-up");
-        // Return one mocked BlockMapping
-        given(ingest.ingestDirectory(anyString()))
-                .willReturn(List.of(mock(BlockMapping.class)));
+        given(ingest.ingestDirectory(anyString(), any(ProgressListener.class)))
+                .willReturn(report(1));
 
         mvc.perform(multipart("/rag/upload")
                         .file(javaFile)
@@ -160,12 +183,59 @@ class RagAdminControllerTest {
         verify(jobs).update(eq("job-up"), eq(0), contains("Uploaded"));
 
         ArgumentCaptor<String> tempDirCaptor = ArgumentCaptor.forClass(String.class);
-        verify(ingest).ingestDirectory(tempDirCaptor.capture());
+        verify(ingest).ingestDirectory(tempDirCaptor.capture(), any(ProgressListener.class));
 
-        verify(jobs).done(eq("job-up"), contains("1"));
+        verify(jobs).done(eq("job-up"), contains("Ingested 1 mappings"));
         // cleanup happens inside the task
     }
 
+    // ---------- /rag/upload-archive ----------
+
+    @Test
+    void uploadArchive_overLimits_returns413() throws Exception {
+        MockMultipartFile zip = new MockMultipartFile("archive", "pairs.zip", "application/zip", new byte[]{'P', 'K', 3, 4});
+        given(archives.read(any(), eq("pairs.zip")))
+                .willThrow(new PairArchivePort.TooLargeException("pairs.zip unpacks to more than 10 bytes"));
+
+        mvc.perform(multipart("/rag/upload-archive").file(zip))
+                .andExpect(status().isPayloadTooLarge())
+                .andExpect(status().reason(containsString("unpacks to more than")));
+
+        verifyNoInteractions(ingest);
+        verify(jobs, never()).start(anyString(), anyInt());
+    }
+
+    @Test
+    void uploadArchive_withoutPairs_returns400() throws Exception {
+        MockMultipartFile zip = new MockMultipartFile("archive", "pairs.zip", "application/zip", new byte[]{'P', 'K', 3, 4});
+        PairReaderPort pairs = mock(PairReaderPort.class);
+        given(archives.read(any(), eq("pairs.zip"))).willReturn(pairs);
+        given(pairs.discoverPairs("pairs.zip")).willReturn(List.of());
+
+        mvc.perform(multipart("/rag/upload-archive").file(zip))
+                .andExpect(status().isBadRequest())
+                .andExpect(status().reason(containsString("PL/SQL files")));
+
+        verifyNoInteractions(ingest);
+    }
+
+    @Test
+    void uploadArchive_ingestsTheArchiveInMemory_andMarksDone() throws Exception {
+        MockMultipartFile zip = new MockMultipartFile("archive", "pairs.zip", "application/zip", new byte[]{'P', 'K', 3, 4});
+        PairReaderPort pairs = mock(PairReaderPort.class);
+        given(archives.read(any(), eq("pairs.zip"))).willReturn(pairs);
+        given(pairs.discoverPairs("pairs.zip")).willReturn(List.of(new SourcePair(new PairId("p"), "a.sql", "a.java")));
+        given(jobs.start(eq("RAG"), anyInt())).willReturn("job-zip");
+        given(ingest.ingestPairs(eq(pairs), eq("pairs.zip"), any(ProgressListener.class))).willReturn(report(2));
+
+        mvc.perform(multipart("/rag/upload-archive").file(zip))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.jobId", equalTo("job-zip")));
+
+        verify(ingest, never()).ingestDirectory(anyString(), any(ProgressListener.class));
+        verify(jobs).done(eq("job-zip"), contains("Ingested 2 mappings"));
+    }
+
     // ---------- /rag/jobs/{id} ----------
 
     @Test
@@ -183,4 +253,9 @@ class RagAdminControllerTest {
                 .andExpect(jsonPath("$.processed", equalTo(10)))
                 .andExpect(jsonPath("$.total", equalTo(10)));
     }
+
+    private static IngestPairsUseCase.IngestReport report(int mappings) {
+        return new IngestPairsUseCase.IngestReport(1, 0, 0, 0, mappings, 1, 5,
+                List.of(new IngestPairsUseCase.StageStats("parse", 1, 2, 200.0)));
+    }
 }
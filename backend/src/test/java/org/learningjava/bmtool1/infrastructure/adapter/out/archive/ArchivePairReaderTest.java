@@ -0,0 +1,154 @@
+package org.learningjava.bmtool1.infrastructure.adapter.out.archive;
+
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.learningjava.bmtool1.application.port.PairArchivePort;
+import org.learningjava.bmtool1.application.port.PairReaderPort;
+import org.learningjava.bmtool1.config.UploadProperties;
+import org.learningjava.bmtool1.domain.model.pairs.SourcePair;
+import org.learningjava.bmtool1.infrastructure.adapter.out.fs.FileSystemPairReader;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ArchivePairReaderTest {
+
+    @TempDir
+    Path tmp;
+
+    private final UploadProperties limits = new UploadProperties();
+    private final ArchivePairReader reader = new ArchivePairReader(limits);
+
+    private static final Map<String, String> TREE = new LinkedHashMap<>();
+    static {
+        TREE.put("pairs/db/orders.pkb", "CREATE OR REPLACE PACKAGE BODY orders AS END;");
+        TREE.put("pairs/src/orders.java", "class Orders {}");
+        TREE.put("pairs/db/billing.sql", "BEGIN NULL; END;");
+        TREE.put("pairs/src/billing.java", "class Billing {}");
+        TREE.put("pairs/src/lonely.java", "class Lonely {}");
+        TREE.put("pairs/README.md", "not a source");
+    }
+
+    @Test
+    void zip_isPairedLikeTheExtractedTree() throws Exception {
+        for (var e : TREE.entrySet()) {
+            Path f = tmp.resolve(e.getKey());
+            Files.createDirectories(f.getParent());
+            Files.writeString(f, e.getValue());
+        }
+        FileSystemPairReader disk = new FileSystemPairReader();
+
+        PairReaderPort pairs = reader.read(new ByteArrayInputStream(zip(TREE)), "pairs.zip");
+
+        List<SourcePair> found = pairs.discoverPairs("pairs.zip");
+        List<SourcePair> expected = disk.discoverPairs(tmp.toString());
+        assertEquals(List.of("pairs/db/billing.sql", "pairs/db/orders.pkb"), found.stream().map(SourcePair::plsqlPath).toList());
+        assertEquals(expected.stream().map(SourcePair::id).toList(), found.stream().map(SourcePair::id).toList());
+        assertEquals(disk.contentHash(expected.get(1)), pairs.contentHash(found.get(1)));
+        assertEquals("class Orders {}", new String(pairs.content("pairs/src/orders.java"), StandardCharsets.UTF_8));
+        assertNull(nullSafeContent(pairs, "pairs/README.md"));
+    }
+
+    @Test
+    void tarGz_isRead_andMetaEntriesAreSkipped() throws Exception {
+        Map<String, String> tree = new LinkedHashMap<>(TREE);
+        tree.put("__MACOSX/pairs/db/._orders.pkb", "resource fork");
+        tree.put("pairs/.git/hooks/x.java", "class X {}");
+        tree.put("../escape.sql", "DROP TABLE t;");
+
+        PairReaderPort pairs = reader.read(new ByteArrayInputStream(tarGz(tree)), "pairs.tgz");
+
+        assertEquals(2, pairs.discoverPairs("pairs.tgz").size());
+        assertNull(nullSafeContent(pairs, "pairs/.git/hooks/x.java"));
+        assertNull(nullSafeContent(pairs, "../escape.sql"));
+    }
+
+    @Test
+    void highlyCompressedEntry_failsOnDecompressedBytes_notDeclaredSize() throws Exception {
+        limits.setMaxTotalSize(DataSize.ofMegabytes(1));
+        byte[] bomb = zip(Map.of("pairs/filler.bin", "\0".repeat(4 << 20)));
+        assertTrue(bomb.length < 64 * 1024);
+
+        var ex = assertThrows(PairArchivePort.TooLargeException.class,
+                () -> reader.read(new ByteArrayInputStream(bomb), "bomb.zip"));
+        assertTrue(ex.getMessage().contains("unpacks to more than"));
+    }
+
+    @Test
+    void limitsOnOneSourceFile_andOnEntryCount_areEnforced() throws Exception {
+        limits.setMaxEntrySize(DataSize.ofBytes(10));
+        assertThrows(PairArchivePort.TooLargeException.class,
+                () -> reader.read(new ByteArrayInputStream(zip(TREE)), "big.zip"));
+
+        limits.setMaxEntrySize(DataSize.ofMegabytes(1));
+        limits.setMaxEntries(3);
+        assertThrows(PairArchivePort.TooLargeException.class,
+                () -> reader.read(new ByteArrayInputStream(tarGz(TREE)), "many.tgz"));
+    }
+
+    @Test
+    void somethingElse_isNotAnArchive() {
+        var ex = assertThrows(IOException.class,
+                () -> reader.read(new ByteArrayInputStream("class A {}".getBytes()), "A.java"));
+        assertFalse(ex instanceof PairArchivePort.TooLargeException);
+    }
+
+    @Test
+    void sourcePath_normalizesAndFilters() {
+        assertEquals("a/b.sql", ArchivePairReader.sourcePath("./a/b.sql"));
+        assertEquals("a/B.JAVA", ArchivePairReader.sourcePath("/a\\B.JAVA"));
+        assertNull(ArchivePairReader.sourcePath("a/../b.sql"));
+        assertNull(ArchivePairReader.sourcePath("a/.hidden.sql"));
+        assertNull(ArchivePairReader.sourcePath("a.dir/readme"));
+    }
+
+    private static byte[] nullSafeContent(PairReaderPort pairs, String path) {
+        try {
+            return pairs.content(path);
+        } catch (IllegalArgumentException notThere) {
+            return null;
+        }
+    }
+
+    private static byte[] zip(Map<String, String> files) throws IOException {
+        var bytes = new ByteArrayOutputStream();
+        try (var zip = new ZipOutputStream(bytes)) {
+            for (var e : files.entrySet()) {
+                zip.putNextEntry(new ZipEntry(e.getKey()));
+                zip.write(e.getValue().getBytes(StandardCharsets.UTF_8));
+                zip.closeEntry();
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] tarGz(Map<String, String> files) throws IOException {
+        var bytes = new ByteArrayOutputStream();
+        try (var tar = new TarArchiveOutputStream(new GzipCompressorOutputStream(bytes))) {
+            for (var e : files.entrySet()) {
+                byte[] content = e.getValue().getBytes(StandardCharsets.UTF_8);
+                var entry = new TarArchiveEntry(e.getKey(), true);
+                entry.setSize(content.length);
+                tar.putArchiveEntry(entry);
+                tar.write(content);
+                tar.closeArchiveEntry();
+            }
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,107 @@
+package org.learningjava.bmtool1.infrastructure.adapter.out.blockASTParser;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.learningjava.bmtool1.domain.model.pairs.Block;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BlockCacheTest {
+
+    @TempDir
+    Path tmp;
+
+    private final AtomicInteger extractions = new AtomicInteger();
+
+    private List<Block> extract(Path file) {
+        extractions.incrementAndGet();
+        return List.of(
+                new Block("METHOD", "void a() {\n  x(\"ü€𝄞\");\n}", file.toString()),
+                new Block("FIELD", "x".repeat(70_000), file.toString(), true));
+    }
+
+    private Path file(String name, String content) throws Exception {
+        Path f = tmp.resolve(name);
+        Files.writeString(f, content);
+        return f;
+    }
+
+    @Test
+    void sameContent_isExtractedOnce_andRestampedWithTheRequestedPath() throws Exception {
+        BlockCache cache = BlockCache.at(tmp.resolve("cache").toString());
+        Path a = file("A.java", "class A {}");
+        Path b = file("B.java", "class A {}");
+
+        List<Block> first = cache.get("java:1", a, () -> extract(a));
+        List<Block> again = cache.get("java:1", a, () -> extract(a));
+        List<Block> copy = cache.get("java:1", b, () -> extract(b));
+
+        assertEquals(1, extractions.get());
+        assertEquals(first, again);
+        assertEquals(first.get(0).text(), copy.get(0).text());
+        assertTrue(copy.get(1).isHelper());
+        assertTrue(copy.stream().allMatch(x -> x.sourcePath().equals(b.toString())));
+    }
+
+    @Test
+    void inMemoryContent_sharesEntriesWithTheSameFileOnDisk() throws Exception {
+        BlockCache cache = BlockCache.at(tmp.resolve("cache").toString());
+        Path a = file("A.java", "class A {}");
+        cache.get("java:1", a, () -> extract(a));
+
+        List<Block> fromUpload = cache.get("java:1", "src/A.java", "class A {}".getBytes(), () -> extract(Path.of("src/A.java")));
+
+        assertEquals(1, extractions.get());
+        assertTrue(fromUpload.stream().allMatch(x -> x.sourcePath().equals("src/A.java")));
+    }
+
+    @Test
+    void changedContent_orVariant_isAMiss() throws Exception {
+        BlockCache cache = BlockCache.at(tmp.resolve("cache").toString());
+        Path a = file("A.java", "class A {}");
+
+        cache.get("java:1", a, () -> extract(a));
+        cache.get("java:2", a, () -> extract(a));
+        Files.writeString(a, "class A { int x; }");
+        cache.get("java:1", a, () -> extract(a));
+
+        assertEquals(3, extractions.get());
+    }
+
+    @Test
+    void unreadableEntry_isExtractedAgain_andReplaced() throws Exception {
+        Path dir = tmp.resolve("cache");
+        BlockCache cache = BlockCache.at(dir.toString());
+        Path a = file("A.java", "class A {}");
+        cache.get("java:1", a, () -> extract(a));
+        Path entry;
+        try (Stream<Path> files = Files.walk(dir)) {
+            entry = files.filter(p -> p.toString().endsWith(".blk")).findFirst().orElseThrow();
+        }
+        Files.write(entry, new byte[]{1, 2, 3});
+
+        assertEquals(2, cache.get("java:1", a, () -> extract(a)).size());
+        assertEquals(2, cache.get("java:1", a, () -> extract(a)).size());
+        assertEquals(2, extractions.get());
+    }
+
+    @Test
+    void disabledCache_alwaysExtracts_andWritesNothing() throws Exception {
+        BlockCache cache = BlockCache.disabled();
+        Path a = file("A.java", "class A {}");
+
+        cache.get("java:1", a, () -> extract(a));
+        cache.get("java:1", a, () -> extract(a));
+
+        assertEquals(2, extractions.get());
+        try (Stream<Path> files = Files.list(tmp)) {
+            assertEquals(List.of(a), files.toList());
+        }
+    }
+}
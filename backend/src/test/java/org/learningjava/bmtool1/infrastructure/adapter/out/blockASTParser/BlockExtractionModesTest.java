@@ -0,0 +1,62 @@
+package org.learningjava.bmtool1.infrastructure.adapter.out.blockASTParser;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.learningjava.bmtool1.config.JavaBlockProperties;
+import org.learningjava.bmtool1.domain.model.pairs.Block;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Tree-free extraction must find the same blocks, in the same order, as walking the full tree. */
+class BlockExtractionModesTest {
+
+    @TempDir
+    Path tmp;
+
+    private Path sample(String name) throws Exception {
+        Path f = tmp.resolve(name);
+        try (InputStream in = getClass().getResourceAsStream("/parser-warmup/" + name)) {
+            Files.copy(in, f);
+        }
+        return f;
+    }
+
+    private static List<String> described(List<Block> blocks) {
+        return blocks.stream().map(b -> b.type() + " " + b.text()).toList();
+    }
+
+    @Test
+    void plsql_treeFreeMatchesTreeWalk() throws Exception {
+        Path f = sample("order_pkg.sql");
+        var tree = new PlsqlBlockExtractorAdapter(Duration.ofSeconds(30), true, 0, 1, BlockCache.disabled(), new SimpleMeterRegistry()).extract(f);
+        var streamed = new PlsqlBlockExtractorAdapter(Duration.ofSeconds(30), false, 0, 1, BlockCache.disabled(), new SimpleMeterRegistry()).extract(f);
+
+        assertFalse(tree.isEmpty());
+        assertEquals(described(tree), described(streamed));
+        assertTrue(streamed.stream().anyMatch(b -> b.type().equals("CONDITION") && b.text().startsWith("IFp_customer_idISNULL")));
+    }
+
+    @Test
+    void java_treeFreeMatchesTreeWalk() throws Exception {
+        Path f = sample("OrderService.java");
+        JavaBlockProperties kinds = new JavaBlockProperties();
+        kinds.setStatements(JavaBlockProperties.Statements.ALL);
+        var tree = new JavaBlockExtractorAdapter(Duration.ofSeconds(30), true, kinds, BlockCache.disabled(), new SimpleMeterRegistry()).extract(f);
+        var streamed = new JavaBlockExtractorAdapter(Duration.ofSeconds(30), false, kinds, BlockCache.disabled(), new SimpleMeterRegistry()).extract(f);
+
+        assertFalse(tree.isEmpty());
+        assertEquals(described(tree), described(streamed));
+        // outer statement ahead of the ones nested in it, as a pre-order walk gives
+        List<String> found = described(streamed);
+        int forAt = found.indexOf(found.stream().filter(d -> d.startsWith("STATEMENT for (OrderLine line")).findFirst().orElseThrow());
+        assertTrue(found.get(forAt + 1).startsWith("STATEMENT {\n            total = total.add("));
+        assertTrue(found.get(forAt + 2).startsWith("STATEMENT total = total.add("));
+    }
+}
@@ -1,14 +1,18 @@
 package org.learningjava.bmtool1.infrastructure.adapter.out.blockASTParser;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
+import org.learningjava.bmtool1.config.JavaBlockProperties;
 import org.learningjava.bmtool1.domain.model.pairs.Block;
 
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.lang.reflect.RecordComponent;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -202,4 +206,74 @@ class JavaBlockExtractorAdapterTest {
         assertTrue(methodCount >= 2, "Expected at least two METHOD blocks (m1, m2)");
         assertTrue(fieldCount  >= 2, "Expected at least two FIELD blocks (a, b)");
     }
+
+    private static final String NESTED = """
+            public class Nested {
+                private int count;
+
+                void run(int n) {
+                    int total = 0;
+                    for (int i = 0; i < n; i++) {
+                        if (i % 2 == 0) {
+                            total += i;
+                        }
+                    }
+                    count = total;
+                }
+            }
+            """;
+
+    private List<Block> extract(String src, JavaBlockProperties kinds) throws Exception {
+        Path javaFile = tmp.resolve("Nested.java");
+        Files.writeString(javaFile, src);
+        return new JavaBlockExtractorAdapter(Duration.ofSeconds(30), false, kinds, BlockCache.disabled(),
+                new SimpleMeterRegistry()).extract(javaFile);
+    }
+
+    @Test
+    void topLevel_statements_keep_source_text_and_skip_nested_ones() throws Exception {
+        List<String> statements = extract(NESTED, new JavaBlockProperties()).stream()
+                .filter(b -> "STATEMENT".equals(typeOf(b)))
+                .map(JavaBlockExtractorAdapterTest::codeOf)
+                .toList();
+
+        assertEquals(2, statements.size(), statements.toString());
+        assertTrue(statements.get(0).startsWith("for (int i = 0; i < n; i++) {\n"), "source text, whitespace kept");
+        assertEquals("count = total;", statements.get(1));
+    }
+
+    @Test
+    void all_statements_include_nested_ones() throws Exception {
+        JavaBlockProperties kinds = new JavaBlockProperties();
+        kinds.setStatements(JavaBlockProperties.Statements.ALL);
+
+        long statements = extract(NESTED, kinds).stream().filter(b -> "STATEMENT".equals(typeOf(b))).count();
+
+        assertTrue(statements > 2, "nested statements expected, got " + statements);
+    }
+
+    @Test
+    void disabled_kinds_are_not_materialized() throws Exception {
+        JavaBlockProperties kinds = new JavaBlockProperties();
+        kinds.setFields(false);
+        kinds.setStatements(JavaBlockProperties.Statements.NONE);
+
+        List<Block> blocks = extract(NESTED, kinds);
+
+        assertEquals(List.of("METHOD"), blocks.stream().map(JavaBlockExtractorAdapterTest::typeOf).toList());
+    }
+
+    @Test
+    void in_memory_content_yields_the_same_blocks_as_the_file() throws Exception {
+        JavaBlockProperties kinds = new JavaBlockProperties();
+        var adapter = new JavaBlockExtractorAdapter(Duration.ofSeconds(30), false, kinds, BlockCache.disabled(),
+                new SimpleMeterRegistry());
+
+        List<Block> fromFile = extract(NESTED, kinds);
+        List<Block> fromBytes = adapter.extract("src/Nested.java", NESTED.getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(fromFile.stream().map(JavaBlockExtractorAdapterTest::codeOf).toList(),
+                fromBytes.stream().map(JavaBlockExtractorAdapterTest::codeOf).toList());
+        assertTrue(fromBytes.stream().allMatch(b -> b.sourcePath().equals("src/Nested.java")));
+    }
 }
@@ -0,0 +1,23 @@
+package org.learningjava.bmtool1.infrastructure.adapter.out.blockASTParser;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.learningjava.bmtool1.config.JavaBlockProperties;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParserWarmUpTest {
+
+    @Test
+    void run_parsesEveryBundledSample() {
+        SimpleMeterRegistry meters = new SimpleMeterRegistry();
+        var warmUp = new ParserWarmUp(new PlsqlBlockExtractorAdapter(Duration.ofSeconds(30), false, 0, 1, BlockCache.disabled(), meters),
+                new JavaBlockExtractorAdapter(Duration.ofSeconds(30), false, new JavaBlockProperties(), BlockCache.disabled(), meters), true);
+
+        assertEquals(2, warmUp.run());
+        assertEquals(0, meters.get("bmtool1.parse").tag("stage", "timeout").timers().stream()
+                .mapToLong(t -> t.count()).sum());
+    }
+}
@@ -0,0 +1,93 @@
+package org.learningjava.bmtool1.infrastructure.adapter.out.blockASTParser;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.antlr.v4.runtime.CharStreams;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.learningjava.bmtool1.domain.model.pairs.Block;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PlsqlPackageSplitterTest {
+
+    @TempDir
+    Path tmp;
+
+    private static List<String> split(String source) {
+        return PlsqlPackageSplitter.split(CharStreams.fromString(source));
+    }
+
+    @Test
+    void packageBody_isCutAtTopLevelSubprograms() {
+        List<String> units = split("""
+                CREATE OR REPLACE PACKAGE BODY pkg AS
+                  g_name VARCHAR2(10) := 'END;';   -- BEGIN in a string and a comment don't count
+                  PROCEDURE fwd (p NUMBER);
+                  PROCEDURE outer_proc IS
+                    v NUMBER := CASE WHEN 1 = 1 THEN 1 ELSE 0 END;
+                    PROCEDURE nested IS BEGIN NULL; END nested;
+                  BEGIN
+                    IF v = 1 THEN nested; END IF;
+                    CASE v WHEN 1 THEN NULL; ELSE NULL; END CASE;
+                    FOR i IN 1 .. 2 LOOP BEGIN NULL; END; END LOOP;
+                  END outer_proc;
+                  FUNCTION f RETURN NUMBER IS BEGIN RETURN 1; END;
+                BEGIN
+                  g_name := 'init';
+                END pkg;
+                /
+                """);
+
+        assertEquals(5, units.size());
+        assertTrue(units.get(0).contains("g_name VARCHAR2(10) := 'END;';"));
+        assertTrue(units.get(1).contains("PROCEDURE fwd (p NUMBER);"));
+        assertTrue(units.get(2).contains("END outer_proc;"));
+        assertFalse(units.get(2).contains("FUNCTION f"));
+        assertTrue(units.get(3).contains("FUNCTION f RETURN NUMBER"));
+        assertTrue(units.get(4).contains("g_name := 'init';"));
+        for (String unit : units) {
+            assertTrue(unit.startsWith("CREATE OR REPLACE PACKAGE BODY pkg AS\n"), unit);
+            assertTrue(unit.endsWith("\nEND;\n"), unit);
+        }
+    }
+
+    @Test
+    void anythingButASinglePackageBody_isLeftWhole() {
+        assertEquals(List.of(), split("CREATE OR REPLACE PACKAGE pkg AS PROCEDURE p; PROCEDURE q; END pkg;"));
+        assertEquals(List.of(), split("BEGIN NULL; END;"));
+        assertEquals(List.of(), split("""
+                CREATE PACKAGE BODY a AS PROCEDURE p IS BEGIN NULL; END; PROCEDURE q IS BEGIN NULL; END; END a;
+                /
+                CREATE PACKAGE BODY b AS PROCEDURE p IS BEGIN NULL; END; END b;
+                """));
+        assertEquals(List.of(), split("CREATE PACKAGE BODY a AS PROCEDURE p IS BEGIN NULL; PROCEDURE q IS BEGIN NULL; END;"));
+    }
+
+    @Test
+    void splitExtraction_matchesWholeFileExtraction() throws Exception {
+        Path f = tmp.resolve("order_pkg.sql");
+        try (InputStream in = getClass().getResourceAsStream("/parser-warmup/order_pkg.sql")) {
+            Files.copy(in, f);
+        }
+        var whole = new PlsqlBlockExtractorAdapter(Duration.ofSeconds(30), false, 0, 1, BlockCache.disabled(), new SimpleMeterRegistry());
+        var split = new PlsqlBlockExtractorAdapter(Duration.ofSeconds(30), false, 2, 4, BlockCache.disabled(), new SimpleMeterRegistry());
+        try {
+            List<Block> expected = whole.extract(f);
+            List<Block> actual = split.extract(f);
+
+            assertFalse(expected.isEmpty());
+            assertEquals(expected.stream().map(b -> b.type() + " " + b.text()).toList(),
+                    actual.stream().map(b -> b.type() + " " + b.text()).toList());
+            assertTrue(actual.stream().allMatch(b -> b.sourcePath().equals(f.toString())));
+        } finally {
+            whole.shutdown();
+            split.shutdown();
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package org.learningjava.bmtool1.infrastructure.adapter.out.blockASTParser;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java9.Java9Lexer;
+import java9.Java9Parser;
+import java9.Java9ParserBaseListener;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TwoStageParserTest {
+
+    private final SimpleMeterRegistry meters = new SimpleMeterRegistry();
+    private final Path file = Path.of("A.java");
+
+    private TwoStageParser<Java9Lexer, Java9Parser> parser(Duration budget) {
+        return new TwoStageParser<>("java", budget, false, meters, Java9Lexer::new, Java9Parser::new, Java9Parser::compilationUnit);
+    }
+
+    private TwoStageParser.Result parse(String source, Duration budget) {
+        return parser(budget).parse(file, CharStreams.fromString(source));
+    }
+
+    private long count(String stage) {
+        return meters.get("bmtool1.parse").tag("language", "java").tag("stage", stage).timer().count();
+    }
+
+    @Test
+    void validSource_isParsedBySll_alone() {
+        var r = parse("class A { int x = 1; void run() { x = x + 1; } }", Duration.ofSeconds(10));
+
+        assertEquals(TwoStageParser.Stage.SLL, r.stage());
+        assertEquals(0, r.syntaxErrors());
+        assertNotNull(r.tree());
+        assertEquals(1, count("sll"));
+        assertEquals(0, count("ll"));
+    }
+
+    @Test
+    void sllFalseAlarm_isResolvedByLl_withoutErrors() {
+        // the Java 9 grammar needs full LL to see "x++;" as a statement
+        var r = parse("class A { void run() { x++; } }", Duration.ofSeconds(10));
+
+        assertEquals(TwoStageParser.Stage.LL, r.stage());
+        assertEquals(0, r.syntaxErrors());
+    }
+
+    @Test
+    void malformedSource_fallsBackToLl_withErrorRecovery() {
+        var r = parse("class A { void run( { int x = ; } void ok() { } }", Duration.ofSeconds(10));
+
+        assertEquals(TwoStageParser.Stage.LL, r.stage());
+        assertTrue(r.syntaxErrors() > 0);
+        assertNotNull(r.tree());
+        assertEquals(1, count("ll"));
+    }
+
+    @Test
+    void parseOverBudget_failsTheFile() {
+        StringBuilder big = new StringBuilder("class A {\n");
+        for (int i = 0; i < 2000; i++) big.append("  int f").append(i).append(" = ").append(i).append(";\n");
+        big.append("}\n");
+
+        var ex = assertThrows(TwoStageParser.ParseTimeoutException.class, () -> parse(big.toString(), Duration.ZERO));
+        assertTrue(ex.getMessage().contains("A.java"));
+        assertEquals(1, count("timeout"));
+    }
+
+    @Test
+    void reusedParser_startsCleanAfterFallbackAndTimeout() {
+        var parser = parser(Duration.ofSeconds(10));
+        parser.parse(file, CharStreams.fromString("class A { void run( { int x = ; } }"));
+
+        var r = parser.parse(file, CharStreams.fromString("class B { int y = 2; }"));
+
+        assertEquals(TwoStageParser.Stage.SLL, r.stage());
+        assertEquals(0, r.syntaxErrors());
+        assertTrue(r.tree().getText().contains("classB"));
+    }
+
+    @Test
+    void listenerParse_keepsNoTree_andOnlyTheFinalAttemptsEvents() {
+        List<List<String>> attempts = new ArrayList<>();
+        var r = parser(Duration.ofSeconds(10)).parse(file, CharStreams.fromString("class A { void run() { x++; } }"),
+                p -> {
+                    List<String> exits = new ArrayList<>();
+                    attempts.add(exits);
+                    return new Java9ParserBaseListener() {
+                        @Override
+                        public void exitEveryRule(ParserRuleContext ctx) {
+                            exits.add(Java9Parser.ruleNames[ctx.getRuleIndex()]);
+                        }
+                    };
+                });
+
+        assertNull(r.tree());
+        assertEquals(TwoStageParser.Stage.LL, r.stage());
+        assertEquals(2, attempts.size(), "a fresh listener for the LL retry");
+        List<String> exits = attempts.get(1);
+        assertTrue(exits.contains("methodDeclaration"));
+        assertEquals("compilationUnit", exits.get(exits.size() - 1));
+    }
+}
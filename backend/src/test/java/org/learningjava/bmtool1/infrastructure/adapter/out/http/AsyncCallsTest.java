@@ -0,0 +1,123 @@
+package org.learningjava.bmtool1.infrastructure.adapter.out.http;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import okhttp3.Call;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.learningjava.bmtool1.application.port.CancellationToken;
+import org.learningjava.bmtool1.application.port.RequestCancelledException;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AsyncCallsTest {
+
+    private static final int CONCURRENT = 20;
+
+    /** Fake backend: /ok echoes, /fail answers 500, /slow holds every request until {@link #release}. */
+    private HttpServer server;
+    private ExecutorService serverThreads;
+    private final CountDownLatch arrived = new CountDownLatch(CONCURRENT);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final OkHttpClient http = new OkHttpClient.Builder().dispatcher(AsyncCalls.dispatcher()).build();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        serverThreads = Executors.newCachedThreadPool();
+        server.setExecutor(serverThreads);
+        server.createContext("/ok", ex -> respond(ex, 200, "hello"));
+        server.createContext("/fail", ex -> respond(ex, 500, "boom"));
+        server.createContext("/slow", ex -> {
+            arrived.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException ignored) {
+                Thread.currentThread().interrupt();
+            }
+            respond(ex, 200, "late");
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        server.stop(0);
+        serverThreads.shutdownNow();
+    }
+
+    @Test
+    void manyCallsToOneHost_areInFlightAtOnce_withoutBlockingTheCaller() throws Exception {
+        List<CompletableFuture<String>> futures = new ArrayList<>();
+        for (int i = 0; i < CONCURRENT; i++) {
+            futures.add(AsyncCalls.enqueue(call("/slow"), null, "test", r -> r.body().string(), RuntimeException::new));
+        }
+
+        // OkHttp's default dispatcher would hold all but 5 of these back
+        assertTrue(arrived.await(5, TimeUnit.SECONDS), "all calls should reach the server concurrently");
+        release.countDown();
+        for (CompletableFuture<String> f : futures) assertEquals("late", f.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void handlerResult_andMappedFailures() throws Exception {
+        assertEquals("hello", AsyncCalls.enqueue(call("/ok"), null, "test",
+                r -> r.body().string(), RuntimeException::new).get(5, TimeUnit.SECONDS));
+
+        CompletableFuture<String> failed = AsyncCalls.enqueue(call("/fail"), null, "test", r -> {
+            if (!r.isSuccessful()) throw new IOException("HTTP " + r.code());
+            return r.body().string();
+        }, e -> new IllegalStateException("mapped: " + e.getMessage()));
+        var ex = assertThrows(ExecutionException.class, () -> failed.get(5, TimeUnit.SECONDS));
+        assertEquals("mapped: HTTP 500", ex.getCause().getMessage());
+    }
+
+    @Test
+    void cancellingTheToken_cancelsTheCall() {
+        CancellationToken token = new CancellationToken();
+        CompletableFuture<String> slow = AsyncCalls.enqueue(call("/slow"), token, "retrieval",
+                r -> r.body().string(), RuntimeException::new);
+
+        token.cancel(CancellationToken.Reason.DEADLINE_EXCEEDED);
+
+        var ex = assertThrows(ExecutionException.class, () -> slow.get(5, TimeUnit.SECONDS));
+        RequestCancelledException rce = assertInstanceOf(RequestCancelledException.class, ex.getCause());
+        assertTrue(rce.deadlineExceeded());
+        assertEquals("Deadline exceeded during retrieval", rce.getMessage());
+
+        // already cancelled: fails fast without sending anything
+        assertTrue(AsyncCalls.enqueue(call("/ok"), token, "retrieval", r -> "x", RuntimeException::new)
+                .isCompletedExceptionally());
+    }
+
+    /* ---------- helpers ---------- */
+
+    private Call call(String path) {
+        return http.newCall(new Request.Builder()
+                .url("http://127.0.0.1:" + server.getAddress().getPort() + path)
+                .build());
+    }
+
+    private static void respond(HttpExchange ex, int status, String body) throws IOException {
+        byte[] b = body.getBytes(StandardCharsets.UTF_8);
+        ex.sendResponseHeaders(status, b.length);
+        ex.getResponseBody().write(b);
+        ex.close();
+    }
+}
@@ -0,0 +1,221 @@
+package org.learningjava.bmtool1.infrastructure.adapter.out.ollama;
+
+import com.sun.net.httpserver.HttpServer;
+import okhttp3.OkHttpClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.learningjava.bmtool1.application.port.CancellationToken;
+import org.learningjava.bmtool1.application.port.RequestCancelledException;
+import org.learningjava.bmtool1.config.ModelContextWindows;
+import org.learningjava.bmtool1.config.OllamaResidencyProperties;
+import org.learningjava.bmtool1.config.TokenizerProperties;
+import org.learningjava.bmtool1.domain.service.tokens.TokenizerRegistry;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OllamaResidencyManagerTest {
+
+    /** Fake Ollama: /api/ps answers {@link #psBody}, /api/show {@link #showBody} (404 when null); /api/generate bodies are recorded. */
+    private HttpServer server;
+    private volatile String psBody = "{\"models\":[]}";
+    private volatile String showBody;
+    private final List<String> showRequests = new CopyOnWriteArrayList<>();
+    private volatile CountDownLatch psGate;   // non-null: /api/ps answers only once it opens
+    private final List<String> generateBodies = new CopyOnWriteArrayList<>();
+    private OllamaResidencyProperties props;
+    private ModelContextWindows windows;
+    private MutableClock clock;
+
+    private static final class MutableClock extends Clock {
+        Instant now = Instant.parse("2025-01-01T00:00:00Z");
+        @Override public ZoneOffset getZone() { return ZoneOffset.UTC; }
+        @Override public Clock withZone(java.time.ZoneId zone) { return this; }
+        @Override public Instant instant() { return now; }
+    }
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/api/ps", ex -> {
+            CountDownLatch gate = psGate;
+            if (gate != null) {
+                try {
+                    gate.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            byte[] b = psBody.getBytes(StandardCharsets.UTF_8);
+            ex.sendResponseHeaders(200, b.length);
+            ex.getResponseBody().write(b);
+            ex.close();
+        });
+        server.createContext("/api/show", ex -> {
+            showRequests.add(new String(ex.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+            String body = showBody;
+            if (body == null) {
+                ex.sendResponseHeaders(404, -1);
+                ex.close();
+                return;
+            }
+            byte[] b = body.getBytes(StandardCharsets.UTF_8);
+            ex.sendResponseHeaders(200, b.length);
+            ex.getResponseBody().write(b);
+            ex.close();
+        });
+        server.createContext("/api/generate", ex -> {
+            generateBodies.add(new String(ex.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+            byte[] b = "{\"done\":true}".getBytes(StandardCharsets.UTF_8);
+            ex.sendResponseHeaders(200, b.length);
+            ex.getResponseBody().write(b);
+            ex.close();
+        });
+        server.start();
+
+        props = new OllamaResidencyProperties();
+        props.setKeepAlive(Duration.ofMinutes(10));
+        windows = new ModelContextWindows();
+        clock = new MutableClock();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    private OllamaResidencyManager manager() {
+        return new OllamaResidencyManager("http://127.0.0.1:" + server.getAddress().getPort() + "/",
+                props, windows, new TokenizerRegistry(new TokenizerProperties()), new OkHttpClient(), clock);
+    }
+
+    @Test
+    void numCtx_followsEachPromptsSize_inPowersOfTwo() {
+        var m = manager();
+
+        assertEquals(2048, m.numCtxFor("llama3", "x".repeat(100)));          // clamped to min
+        assertEquals(8192, m.numCtxFor("llama3", "x".repeat(4 * 5000)));     // 5000 + 1024 reserve -> 8192
+        assertEquals(8192, m.currentNumCtx("llama3"));
+        assertEquals(2048, m.numCtxFor("llama3", "short"));                  // per request, not grow-only
+        assertEquals(32768, m.numCtxFor("llama3", "x".repeat(4 * 100_000))); // clamped to max
+        assertEquals(2048, m.currentNumCtx("mistral"));
+    }
+
+    @Test
+    void contextWindow_isTheModelsTrainedLength_fromApiShow_cappedByMaxNumCtx() {
+        showBody = "{\"model_info\":{\"general.architecture\":\"llama\",\"llama.context_length\":8192}}";
+        var m = manager();
+
+        assertEquals(8192, m.contextWindow("llama3"));
+        assertEquals(8192, m.numCtxFor("llama3", "x".repeat(4 * 100_000)));  // not max-num-ctx
+        assertEquals(1, showRequests.size());                                // asked once per model
+
+        showBody = "{\"model_info\":{\"general.architecture\":\"qwen2\",\"qwen2.context_length\":131072}}";
+        assertEquals(32768, m.contextWindow("qwen2"));
+    }
+
+    @Test
+    void contextWindow_prefersTheConfiguredWindow_andFallsBackToMaxNumCtx() {
+        windows.getModels().put("ollama:phi3", 4096);
+        var m = manager();
+
+        assertEquals(4096, m.contextWindow("phi3"));
+        assertTrue(showRequests.isEmpty());
+        assertEquals(32768, m.contextWindow("llama3"));                      // /api/show 404
+    }
+
+    @Test
+    void warmUp_loadsOnce_whileKeepAliveHolds() {
+        var m = manager();
+
+        m.warmUp("llama3");
+        m.warmUp("llama3");
+
+        assertEquals(1, generateBodies.size());
+        assertTrue(generateBodies.get(0).contains("\"keep_alive\":\"600s\""));
+        assertTrue(generateBodies.get(0).contains("\"num_ctx\":2048"));
+        assertTrue(m.isResident("llama3:latest"));
+
+        clock.now = clock.now.plus(Duration.ofMinutes(11));
+        assertFalse(m.isResident("llama3"));
+        m.warmUp("llama3");
+        assertEquals(2, generateBodies.size());
+    }
+
+    @Test
+    void warmUp_evictsLeastRecentlyUsed_butNeverPinned() {
+        props.setMaxResidentModels(2);
+        props.setPinned(Set.of("nomic-embed-text"));
+        psBody = """
+                {"models":[
+                  {"name":"nomic-embed-text:latest","size":300,"size_vram":300},
+                  {"name":"mistral:latest","size":4000,"size_vram":4000}
+                ]}""";
+        var m = manager();
+
+        m.warmUp("llama3");
+
+        assertEquals(2, generateBodies.size());
+        assertTrue(generateBodies.get(0).contains("\"model\":\"mistral:latest\""));
+        assertTrue(generateBodies.get(0).contains("\"keep_alive\":0"));
+        assertTrue(generateBodies.get(1).contains("\"model\":\"llama3\""));
+    }
+
+    @Test
+    void beforeRequestAsync_evictsWithoutBlockingTheCaller() throws Exception {
+        props.setMaxResidentModels(1);
+        psBody = "{\"models\":[{\"name\":\"mistral:latest\",\"size\":4000,\"size_vram\":4000}]}";
+        psGate = new CountDownLatch(1);
+        var m = manager();
+
+        CompletableFuture<Void> ready = m.beforeRequestAsync("llama3", new CancellationToken());
+        assertFalse(ready.isDone());
+
+        psGate.countDown();
+        ready.get(5, TimeUnit.SECONDS);
+        assertEquals(1, generateBodies.size());
+        assertTrue(generateBodies.get(0).contains("\"model\":\"mistral:latest\""));
+    }
+
+    @Test
+    void beforeRequestAsync_isAbandonedWhenTheTokenIsCancelled() throws Exception {
+        props.setMaxResidentModels(1);
+        psBody = "{\"models\":[{\"name\":\"mistral:latest\",\"size\":4000,\"size_vram\":4000}]}";
+        psGate = new CountDownLatch(1);
+        var m = manager();
+        CancellationToken token = new CancellationToken();
+
+        CompletableFuture<Void> ready = m.beforeRequestAsync("llama3", token);
+        token.cancel();
+
+        var ex = assertThrows(ExecutionException.class, () -> ready.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(RequestCancelledException.class, ex.getCause());
+        psGate.countDown();
+        assertTrue(generateBodies.isEmpty());
+    }
+
+    @Test
+    void disabled_sendsNoKeepAlive_andSkipsWarmUp() {
+        props.setEnabled(false);
+        var m = manager();
+
+        assertNull(m.keepAlive());
+        m.warmUp("llama3");
+        assertTrue(generateBodies.isEmpty());
+    }
+}
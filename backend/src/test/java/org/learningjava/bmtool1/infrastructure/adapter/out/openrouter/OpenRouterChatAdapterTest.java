@@ -0,0 +1,53 @@
+package org.learningjava.bmtool1.infrastructure.adapter.out.openrouter;
+
+import org.junit.jupiter.api.Test;
+import org.learningjava.bmtool1.application.port.ChatLLMPort;
+import org.learningjava.bmtool1.domain.model.pairs.BlockMapping;
+import org.learningjava.bmtool1.domain.model.pairs.RetrievalResult;
+import org.learningjava.bmtool1.domain.service.prompting.DefaultPromptBuilder;
+import org.learningjava.bmtool1.domain.service.prompting.PromptLayout;
+import org.learningjava.bmtool1.domain.service.prompting.PromptingTechnique;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OpenRouterChatAdapterTest {
+
+    private final OpenRouterChatAdapter adapter = new OpenRouterChatAdapter("key", "/nonexistent", "http://localhost",
+            "http://localhost", "test", 1000, List.of("anthropic/"), null);
+
+    private final List<RetrievalResult> docs = List.of(new RetrievalResult(
+            new BlockMapping("p1", "get_user", "SELECT 1;\n".repeat(600), "int one()", "PROC", "method", List.of()), 0.9));
+
+    @Test
+    void prefixStablePrompt_isSplitAtTheBoundary_withoutSendingIt() {
+        String prompt = new DefaultPromptBuilder(PromptLayout.PREFIX_STABLE)
+                .build(PromptingTechnique.RAG_STANDARD, "first?", docs, List.of(), 8000, 10);
+
+        List<?> blocks = assertInstanceOf(List.class, adapter.userContent(prompt, "anthropic/claude-3.5-sonnet"));
+
+        Map<?, ?> prefix = (Map<?, ?>) blocks.get(0), rest = (Map<?, ?>) blocks.get(1);
+        assertEquals(Map.of("type", "ephemeral"), prefix.get("cache_control"));
+        assertEquals("\n=== Task ===\nQuestion: first?\n", rest.get("text"));
+        assertEquals(ChatLLMPort.withoutCacheBoundary(prompt), "" + prefix.get("text") + rest.get("text"));
+    }
+
+    @Test
+    void legacyPrompt_isSentAsOnePlainString_despiteItsTaskHeader() {
+        String prompt = new DefaultPromptBuilder(PromptLayout.LEGACY)
+                .build(PromptingTechnique.RAG_STANDARD, "first?", docs, List.of(), 8000, 10);
+
+        assertTrue(prompt.contains("=== Task ==="));
+        assertEquals(prompt, adapter.userContent(prompt, "anthropic/claude-3.5-sonnet"));
+    }
+
+    @Test
+    void modelsWithoutCacheControl_getThePlainPrompt_withoutTheMarker() {
+        String prompt = new DefaultPromptBuilder(PromptLayout.PREFIX_STABLE)
+                .build(PromptingTechnique.RAG_STANDARD, "first?", docs, List.of(), 8000, 10);
+
+        assertEquals(ChatLLMPort.withoutCacheBoundary(prompt), adapter.userContent(prompt, "openai/gpt-4o"));
+    }
+}